@@ -0,0 +1,130 @@
+package io.github.dmzrestart.analytics;
+
+import java.io.File;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TimeZone;
+
+// Offline reports from a copy of the plugin folder; needs no server and no dependencies.
+//
+//   java -jar DMZ-ReStart-Analytics.jar plugins/DMZ-ReStart [--since 2024-01-01] [--until 2024-03-31]
+//        [--window 30] [--threads 8] [--zone Europe/Berlin]
+public final class AnalyticsMain {
+    private static final String LOG_PREFIX = "dmz-restart-";
+    private static final String SEGMENT_PREFIX = "metrics-";
+
+    private AnalyticsMain() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0 || args[0].equals("-h") || args[0].equals("--help")) {
+            usage();
+            System.exit(args.length == 0 ? 2 : 0);
+        }
+
+        File dataFolder = new File(args[0]);
+        LocalDate since = LocalDate.of(1970, 1, 1);
+        LocalDate until = LocalDate.of(9999, 12, 31);
+        int windowMinutes = 30;
+        int threads = Runtime.getRuntime().availableProcessors();
+        ZoneId zone = ZoneId.systemDefault();
+
+        try {
+            for (int i = 1; i < args.length; i++) {
+                String option = args[i];
+                if (i + 1 >= args.length) throw new IllegalArgumentException("missing value for " + option);
+                String value = args[++i];
+                switch (option) {
+                    case "--since":
+                        since = LocalDate.parse(value);
+                        break;
+                    case "--until":
+                        until = LocalDate.parse(value);
+                        break;
+                    case "--window":
+                        windowMinutes = Integer.parseInt(value);
+                        if (windowMinutes < 1) throw new IllegalArgumentException("--window must be at least 1");
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value);
+                        if (threads < 1) throw new IllegalArgumentException("--threads must be at least 1");
+                        break;
+                    case "--zone":
+                        zone = ZoneId.of(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + option);
+                }
+            }
+        } catch (DateTimeParseException e) {
+            fail("dates are yyyy-MM-dd: " + e.getParsedString());
+        } catch (DateTimeException | IllegalArgumentException e) {
+            fail(e.getMessage());
+        }
+
+        File logs = new File(dataFolder, "logs");
+        File metrics = new File(dataFolder, "metrics");
+        if (!logs.isDirectory() && !metrics.isDirectory()) {
+            fail(dataFolder.getPath() + " has neither logs/ nor metrics/; point this at the plugin's data folder");
+        }
+
+        // Logs are named by day and segments by month, so the range is applied to names first.
+        // A log is named after the day the plugin started and written until it stopped, so the
+        // newest one started before the range can still hold events inside it.
+        List<File> files = new ArrayList<>();
+        files.addAll(select(logs, LOG_PREFIX, ".log", since.toString(), until.toString(), true));
+        files.addAll(select(metrics, SEGMENT_PREFIX, ".seg", since.toString().substring(0, 7), until.toString().substring(0, 7), false));
+
+        long from = since.atStartOfDay(zone).toInstant().toEpochMilli();
+        long to = until.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli() - 1;
+        SegmentReader segments = new SegmentReader(new HashSet<>(Arrays.asList("tps", "mspt_p95")), from, to);
+        DataScan.Result result = new DataScan(new LogParser(zone, from, to), segments).run(files, threads);
+
+        new RestartReport(result, windowMinutes * 60_000L, TimeZone.getTimeZone(zone)).print(System.out);
+    }
+
+    // Files named prefix + key + suffix with key in [first, last], in name order; with
+    // includeEarlier also the last file whose key is before first
+    private static List<File> select(File directory, String prefix, String suffix, String first, String last,
+                                     boolean includeEarlier) {
+        List<File> selected = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(suffix));
+        if (files == null) return selected;
+
+        Arrays.sort(files);
+        File earlier = null;
+        for (File file : files) {
+            String name = file.getName();
+            String key = name.substring(prefix.length(), name.length() - suffix.length());
+            if (key.compareTo(first) < 0) {
+                earlier = file;
+            } else if (key.compareTo(last) <= 0) {
+                selected.add(file);
+            }
+        }
+        if (includeEarlier && earlier != null) {
+            selected.add(0, earlier);
+        }
+        return selected;
+    }
+
+    private static void usage() {
+        System.err.println("Usage: java -jar DMZ-ReStart-Analytics.jar <plugin data folder> [options]");
+        System.err.println("  --since <yyyy-MM-dd>   first day to include");
+        System.err.println("  --until <yyyy-MM-dd>   last day to include");
+        System.err.println("  --window <minutes>     TPS comparison window before and after restarts (default 30)");
+        System.err.println("  --threads <n>          files parsed in parallel (default: CPU count)");
+        System.err.println("  --zone <zone id>       time zone the server logged in (default: this machine's)");
+    }
+
+    private static void fail(String message) {
+        System.err.println("error: " + message);
+        System.exit(2);
+    }
+}
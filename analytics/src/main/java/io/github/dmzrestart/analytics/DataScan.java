@@ -0,0 +1,115 @@
+package io.github.dmzrestart.analytics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Parses every selected log and segment file in parallel: the file list is split in halves
+// until one file is left per task, and results are merged back in file order, so the
+// output is the same whatever the thread count.
+final class DataScan {
+    private final LogParser logParser;
+    private final SegmentReader segmentReader;
+
+    static final class Result {
+        final List<LogEvent> events = new ArrayList<>();
+        final Map<String, Series> series = new HashMap<>();
+        int files;
+        long bytes;
+
+        void merge(Result other) {
+            events.addAll(other.events);
+            for (Map.Entry<String, Series> entry : other.series.entrySet()) {
+                Series target = series.get(entry.getKey());
+                if (target == null) {
+                    series.put(entry.getKey(), entry.getValue());
+                } else {
+                    target.addAll(entry.getValue());
+                }
+            }
+            files += other.files;
+            bytes += other.bytes;
+        }
+
+        Series getSeries(String metric) {
+            Series found = series.get(metric);
+            return found != null ? found : new Series();
+        }
+    }
+
+    DataScan(LogParser logParser, SegmentReader segmentReader) {
+        this.logParser = logParser;
+        this.segmentReader = segmentReader;
+    }
+
+    Result run(List<File> files, int threads) {
+        Result result;
+        if (files.isEmpty()) {
+            result = new Result();
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                result = pool.invoke(new FileTask(files, 0, files.size()));
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        Collections.sort(result.events);
+        for (Series series : result.series.values()) {
+            series.sort();
+        }
+        return result;
+    }
+
+    private Result scan(File file) {
+        Result result = new Result();
+        try {
+            if (file.getName().endsWith(".seg")) {
+                result.series.putAll(segmentReader.read(file));
+            } else {
+                result.events.addAll(logParser.parse(file));
+            }
+            result.files = 1;
+            result.bytes = file.length();
+        } catch (IOException e) {
+            System.err.println("warning: could not read " + file.getName() + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    private final class FileTask extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<File> files;
+        private final int from;
+        private final int to;
+
+        FileTask(List<File> files, int from, int to) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from == 1) {
+                return scan(files.get(from));
+            }
+            int middle = (from + to) >>> 1;
+            FileTask left = new FileTask(files, from, middle);
+            FileTask right = new FileTask(files, middle, to);
+            left.fork();
+            Result result = right.compute();
+            Result earlier = left.join();
+            earlier.merge(result);
+            return earlier;
+        }
+    }
+}
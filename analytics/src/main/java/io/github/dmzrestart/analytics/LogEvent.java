@@ -0,0 +1,31 @@
+package io.github.dmzrestart.analytics;
+
+// One line of a plugin log that matters to the reports
+final class LogEvent implements Comparable<LogEvent> {
+    enum Type {
+        STARTED,    // plugin enabled: the server (or a reload) came up
+        STOPPING,   // plugin disabling: shutdown or reload
+        RESTART,    // RestartManager executing a restart; detail is the reason
+        EMERGENCY,  // monitor asked for an emergency restart; detail is the cause
+        RECOVERED   // soft recovery fixed the problem and the restart was avoided
+    }
+
+    private final long timestamp;
+    private final Type type;
+    private final String detail;
+
+    LogEvent(long timestamp, Type type, String detail) {
+        this.timestamp = timestamp;
+        this.type = type;
+        this.detail = detail;
+    }
+
+    long getTimestamp() { return timestamp; }
+    Type getType() { return type; }
+    String getDetail() { return detail; }
+
+    @Override
+    public int compareTo(LogEvent other) {
+        return Long.compare(timestamp, other.timestamp);
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.dmzrestart.analytics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+// Pulls restart lifecycle events out of one logs/dmz-restart-YYYY-MM-DD.log file. Lines look like
+// "[2024-05-01 04:00:02] [INFO] Executing server restart: Scheduled Restart"; everything that
+// does not start with a known message is rejected on its bytes without being decoded.
+final class LogParser {
+    private static final byte[] STARTED = bytes("DMZ ReStart ENABLED SUCCESSFULLY!");
+    private static final byte[] STOPPING = bytes("DMZ ReStart SHUTTING DOWN");
+    private static final byte[] RESTART = bytes("Executing server restart: ");
+    private static final byte[] EMERGENCY = bytes("Emergency restart triggered: ");
+    private static final byte[] RECOVERED = bytes("Soft recovery succeeded");
+    // Escalations were logged like this before they used the emergency wording
+    private static final byte[] RECOVERY_FAILED = bytes("Soft recovery failed - ");
+    private static final String ESCALATED_TO = "escalating to emergency restart (";
+
+    // "[yyyy-MM-dd HH:mm:ss] [" is fixed width
+    private static final int TIMESTAMP_END = 20;
+    private static final int LEVEL_START = 23;
+
+    private final ZoneId zone;
+    // Events outside [from, to] are dropped; a file can start before the range and run past it
+    private final long from;
+    private final long to;
+
+    LogParser(ZoneId zone, long from, long to) {
+        this.zone = zone;
+        this.from = from;
+        this.to = to;
+    }
+
+    List<LogEvent> parse(File file) throws IOException {
+        List<LogEvent> events = new ArrayList<>();
+        MappedLines.forEach(file, (buffer, start, end) -> {
+            LogEvent event = parseLine(buffer, start, end);
+            if (event != null && event.getTimestamp() >= from && event.getTimestamp() <= to) {
+                events.add(event);
+            }
+        });
+        return events;
+    }
+
+    private LogEvent parseLine(ByteBuffer buffer, int start, int end) {
+        if (end - start <= LEVEL_START || buffer.get(start) != '['
+            || buffer.get(start + TIMESTAMP_END) != ']' || buffer.get(start + LEVEL_START - 1) != '[') {
+            return null;
+        }
+        int levelEnd = -1;
+        for (int i = start + LEVEL_START; i < Math.min(end, start + LEVEL_START + 8); i++) {
+            if (buffer.get(i) == ']') {
+                levelEnd = i;
+                break;
+            }
+        }
+        if (levelEnd < 0) return null;
+        int message = levelEnd + 2;
+        if (message >= end) return null;
+
+        LogEvent.Type type;
+        int detailStart = end;
+        if (MappedLines.startsWith(buffer, message, end, RESTART)) {
+            type = LogEvent.Type.RESTART;
+            detailStart = message + RESTART.length;
+        } else if (MappedLines.startsWith(buffer, message, end, EMERGENCY)) {
+            type = LogEvent.Type.EMERGENCY;
+            detailStart = message + EMERGENCY.length;
+        } else if (MappedLines.startsWith(buffer, message, end, STARTED)) {
+            type = LogEvent.Type.STARTED;
+        } else if (MappedLines.startsWith(buffer, message, end, STOPPING)) {
+            type = LogEvent.Type.STOPPING;
+        } else if (MappedLines.startsWith(buffer, message, end, RECOVERED)) {
+            type = LogEvent.Type.RECOVERED;
+        } else if (MappedLines.startsWith(buffer, message, end, RECOVERY_FAILED)) {
+            return parseEscalation(buffer, start, message, end);
+        } else {
+            return null;
+        }
+
+        long timestamp = parseTimestamp(buffer, start + 1);
+        if (timestamp < 0) return null;
+        String detail = detailStart < end ? MappedLines.decode(buffer, detailStart, end) : null;
+        return new LogEvent(timestamp, type, detail);
+    }
+
+    // "...; escalating to emergency restart (Critical TPS: 9.50)" carries the original cause at the end
+    private LogEvent parseEscalation(ByteBuffer buffer, int start, int message, int end) {
+        long timestamp = parseTimestamp(buffer, start + 1);
+        if (timestamp < 0) return null;
+        String text = MappedLines.decode(buffer, message, end);
+        int cause = text.lastIndexOf(ESCALATED_TO);
+        int close = text.lastIndexOf(')');
+        String detail = cause >= 0 && close > cause ? text.substring(cause + ESCALATED_TO.length(), close) : null;
+        return new LogEvent(timestamp, LogEvent.Type.EMERGENCY, detail);
+    }
+
+    // yyyy-MM-dd HH:mm:ss in the server's zone; -1 when the digits are not digits
+    private long parseTimestamp(ByteBuffer buffer, int at) {
+        int year = digits(buffer, at, 4);
+        int month = digits(buffer, at + 5, 2);
+        int day = digits(buffer, at + 8, 2);
+        int hour = digits(buffer, at + 11, 2);
+        int minute = digits(buffer, at + 14, 2);
+        int second = digits(buffer, at + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23
+            || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return -1L;
+        }
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second).atZone(zone).toInstant().toEpochMilli();
+        } catch (RuntimeException e) {
+            return -1L;
+        }
+    }
+
+    private static int digits(ByteBuffer buffer, int at, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            int digit = buffer.get(at + i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,80 @@
+package io.github.dmzrestart.analytics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+// Walks the lines of a file through memory-mapped windows, so multi-gigabyte logs are read
+// by the page cache rather than copied onto the heap. Handlers see raw bytes and decode only
+// the lines they care about.
+final class MappedLines {
+    // A mapping per window keeps address space bounded on 32-bit or container-limited JVMs
+    static final int WINDOW_BYTES = 64 * 1024 * 1024;
+
+    interface Handler {
+        // Bytes [start, end) of buffer, without the line terminator
+        void line(ByteBuffer buffer, int start, int end);
+    }
+
+    private MappedLines() {
+    }
+
+    static void forEach(File file, Handler handler) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(WINDOW_BYTES, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean last = position + length >= size;
+
+                int lineStart = 0;
+                for (int i = 0; i < length; i++) {
+                    if (window.get(i) == '\n') {
+                        handler.line(window, lineStart, trimCarriageReturn(window, lineStart, i));
+                        lineStart = i + 1;
+                    }
+                }
+
+                if (last) {
+                    if (lineStart < length) {
+                        handler.line(window, lineStart, trimCarriageReturn(window, lineStart, length));
+                    }
+                    return;
+                }
+                if (lineStart == 0) {
+                    // One line longer than a whole window; nothing the plugin writes, so cut it
+                    handler.line(window, 0, length);
+                    position += length;
+                } else {
+                    // The partial last line starts the next window
+                    position += lineStart;
+                }
+            }
+        }
+    }
+
+    private static int trimCarriageReturn(ByteBuffer buffer, int start, int end) {
+        return end > start && buffer.get(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    static boolean startsWith(ByteBuffer buffer, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(start + i) != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
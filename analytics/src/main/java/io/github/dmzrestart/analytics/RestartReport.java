@@ -0,0 +1,313 @@
+package io.github.dmzrestart.analytics;
+
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+// Turns the merged scan into the four reports: restart frequency, TPS around restarts,
+// emergency causes and uptime distribution
+final class RestartReport {
+    // A restart that is not followed by a startup within this long is treated as the server staying down
+    private static final long MAX_DOWNTIME_MILLIS = 30L * 60_000L;
+    // The 1 minute TPS average is meaningless until a minute of ticks has run
+    private static final long WARMUP_MILLIS = 60_000L;
+    private static final long[] UPTIME_BUCKETS_HOURS = {1, 4, 8, 12, 24, 48};
+
+    private final DataScan.Result data;
+    private final long windowMillis;
+    private final TimeZone zone;
+
+    private static final class Around {
+        int restarts;
+        int measured;
+        double tpsBefore;
+        double tpsAfter;
+        int msptMeasured;
+        double msptBefore;
+        double msptAfter;
+    }
+
+    RestartReport(DataScan.Result data, long windowMillis, TimeZone zone) {
+        this.data = data;
+        this.windowMillis = windowMillis;
+        this.zone = zone;
+    }
+
+    void print(PrintStream out) {
+        printOverview(out);
+        printFrequency(out);
+        printAroundRestarts(out);
+        printEmergencies(out);
+        printUptime(out);
+    }
+
+    private void printOverview(PrintStream out) {
+        out.println("DMZ ReStart analytics");
+        out.println(String.format(Locale.ROOT, "  %d files, %.1f MB scanned", data.files, data.bytes / (1024.0 * 1024.0)));
+        if (data.events.isEmpty()) {
+            out.println("  No restart events found in the selected logs");
+            return;
+        }
+        out.println("  Period: " + formatDate(data.events.get(0).getTimestamp())
+            + " to " + formatDate(data.events.get(data.events.size() - 1).getTimestamp()));
+        out.println(String.format(Locale.ROOT, "  TPS samples: %d, MSPT samples: %d",
+            data.getSeries("tps").size(), data.getSeries("mspt_p95").size()));
+    }
+
+    private void printFrequency(PrintStream out) {
+        Map<String, Integer> byReason = new LinkedHashMap<>();
+        List<Long> restarts = new ArrayList<>();
+        for (LogEvent event : data.events) {
+            if (event.getType() != LogEvent.Type.RESTART) continue;
+            increment(byReason, reasonOf(event));
+            restarts.add(event.getTimestamp());
+        }
+
+        out.println();
+        out.println("Restart frequency by reason");
+        if (restarts.isEmpty()) {
+            out.println("  No restarts executed");
+            return;
+        }
+        double weeks = Math.max(1.0 / 7.0, periodMillis() / (7.0 * 24 * 3_600_000L));
+        out.println(String.format(Locale.ROOT, "  %-22s %7s %9s %7s", "Reason", "Count", "Per week", "Share"));
+        for (Map.Entry<String, Integer> entry : sortByCount(byReason)) {
+            out.println(String.format(Locale.ROOT, "  %-22s %7d %9.1f %6.1f%%", entry.getKey(), entry.getValue(),
+                entry.getValue() / weeks, 100.0 * entry.getValue() / restarts.size()));
+        }
+        if (restarts.size() > 1) {
+            long span = restarts.get(restarts.size() - 1) - restarts.get(0);
+            out.println("  Mean time between restarts: " + formatDuration(span / (restarts.size() - 1)));
+        }
+    }
+
+    private void printAroundRestarts(PrintStream out) {
+        Series tps = data.getSeries("tps");
+        Series mspt = data.getSeries("mspt_p95");
+        List<Long> startups = new ArrayList<>();
+        for (LogEvent event : data.events) {
+            if (event.getType() == LogEvent.Type.STARTED) startups.add(event.getTimestamp());
+        }
+
+        Map<String, Around> byReason = new LinkedHashMap<>();
+        Around all = new Around();
+        for (LogEvent event : data.events) {
+            if (event.getType() != LogEvent.Type.RESTART) continue;
+            Around around = byReason.get(reasonOf(event));
+            if (around == null) {
+                around = new Around();
+                byReason.put(reasonOf(event), around);
+            }
+
+            long restartAt = event.getTimestamp();
+            long upAgain = nextStartup(startups, restartAt) + WARMUP_MILLIS;
+            measure(around, tps, mspt, restartAt, upAgain);
+            measure(all, tps, mspt, restartAt, upAgain);
+        }
+
+        out.println();
+        out.println("TPS and p95 MSPT around restarts (" + formatDuration(windowMillis) + " before and after)");
+        if (all.measured == 0 && all.msptMeasured == 0) {
+            out.println("  No metrics overlap the restarts (enable metrics in the plugin config)");
+            return;
+        }
+        out.println(String.format(Locale.ROOT, "  %-22s %6s %10s %10s %12s %12s",
+            "Reason", "Data", "TPS before", "TPS after", "MSPT before", "MSPT after"));
+        for (Map.Entry<String, Around> entry : byReason.entrySet()) {
+            printAround(out, entry.getKey(), entry.getValue());
+        }
+        printAround(out, "All", all);
+    }
+
+    private void measure(Around around, Series tps, Series mspt, long restartAt, long upAgain) {
+        around.restarts++;
+        double before = tps.mean(restartAt - windowMillis, restartAt);
+        double after = tps.mean(upAgain, upAgain + windowMillis);
+        if (!Double.isNaN(before) && !Double.isNaN(after)) {
+            around.measured++;
+            around.tpsBefore += before;
+            around.tpsAfter += after;
+        }
+        double msptBefore = mspt.mean(restartAt - windowMillis, restartAt);
+        double msptAfter = mspt.mean(upAgain, upAgain + windowMillis);
+        if (!Double.isNaN(msptBefore) && !Double.isNaN(msptAfter)) {
+            around.msptMeasured++;
+            around.msptBefore += msptBefore;
+            around.msptAfter += msptAfter;
+        }
+    }
+
+    private static void printAround(PrintStream out, String label, Around around) {
+        String measured = around.measured + "/" + around.restarts;
+        out.println(String.format(Locale.ROOT, "  %-22s %6s %10s %10s %12s %12s", label, measured,
+            average(around.tpsBefore, around.measured, "%.2f"), average(around.tpsAfter, around.measured, "%.2f"),
+            average(around.msptBefore, around.msptMeasured, "%.1f ms"),
+            average(around.msptAfter, around.msptMeasured, "%.1f ms")));
+    }
+
+    private void printEmergencies(PrintStream out) {
+        Map<String, Integer> causes = new LinkedHashMap<>();
+        int triggered = 0;
+        int recovered = 0;
+        int executed = 0;
+        for (LogEvent event : data.events) {
+            if (event.getType() == LogEvent.Type.EMERGENCY) {
+                triggered++;
+                increment(causes, causeOf(event.getDetail()));
+            } else if (event.getType() == LogEvent.Type.RECOVERED) {
+                recovered++;
+            } else if (event.getType() == LogEvent.Type.RESTART && reasonOf(event).toLowerCase(Locale.ROOT).contains("emergency")) {
+                executed++;
+            }
+        }
+
+        out.println();
+        out.println("Emergency causes");
+        if (triggered == 0 && recovered == 0 && executed == 0) {
+            out.println("  No emergencies");
+            return;
+        }
+        for (Map.Entry<String, Integer> entry : sortByCount(causes)) {
+            out.println(String.format(Locale.ROOT, "  %-22s %7d", entry.getKey(), entry.getValue()));
+        }
+        out.println(String.format(Locale.ROOT, "  Emergency restarts executed: %d, avoided by soft recovery: %d",
+            executed, recovered));
+    }
+
+    private void printUptime(PrintStream out) {
+        List<Long> uptimes = new ArrayList<>();
+        Map<String, Integer> endedBy = new LinkedHashMap<>();
+        int unclean = 0;
+        long startedAt = -1L;
+        String restartReason = null;
+        for (LogEvent event : data.events) {
+            switch (event.getType()) {
+                case STARTED:
+                    // Up again without having shut down: crash, kill or lost log lines
+                    if (startedAt >= 0) unclean++;
+                    startedAt = event.getTimestamp();
+                    restartReason = null;
+                    break;
+                case RESTART:
+                    restartReason = reasonOf(event);
+                    break;
+                case STOPPING:
+                    if (startedAt >= 0) {
+                        uptimes.add(event.getTimestamp() - startedAt);
+                        increment(endedBy, restartReason != null ? restartReason : "Shutdown / reload");
+                    }
+                    startedAt = -1L;
+                    restartReason = null;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        out.println();
+        out.println("Uptime distribution");
+        if (uptimes.isEmpty()) {
+            out.println("  No complete uptime periods");
+            return;
+        }
+        Collections.sort(uptimes);
+        int[] buckets = new int[UPTIME_BUCKETS_HOURS.length + 1];
+        long total = 0L;
+        for (long uptime : uptimes) {
+            total += uptime;
+            int bucket = 0;
+            while (bucket < UPTIME_BUCKETS_HOURS.length && uptime >= UPTIME_BUCKETS_HOURS[bucket] * 3_600_000L) {
+                bucket++;
+            }
+            buckets[bucket]++;
+        }
+        for (int i = 0; i < buckets.length; i++) {
+            String label = i == 0 ? "< " + UPTIME_BUCKETS_HOURS[0] + "h"
+                : i == UPTIME_BUCKETS_HOURS.length ? ">= " + UPTIME_BUCKETS_HOURS[i - 1] + "h"
+                : UPTIME_BUCKETS_HOURS[i - 1] + "-" + UPTIME_BUCKETS_HOURS[i] + "h";
+            String line = String.format(Locale.ROOT, "  %-10s %6d", label, buckets[i]);
+            out.println(buckets[i] > 0 ? line + "  " + bar(buckets[i], uptimes.size()) : line);
+        }
+        out.println("  Median " + formatDuration(uptimes.get(uptimes.size() / 2))
+            + ", p90 " + formatDuration(uptimes.get(Math.min(uptimes.size() - 1, (int) Math.ceil(uptimes.size() * 0.9) - 1)))
+            + ", mean " + formatDuration(total / uptimes.size())
+            + ", longest " + formatDuration(uptimes.get(uptimes.size() - 1)));
+        StringBuilder ended = new StringBuilder("  Ended by: ");
+        List<Map.Entry<String, Integer>> reasons = sortByCount(endedBy);
+        for (int i = 0; i < reasons.size(); i++) {
+            if (i > 0) ended.append(", ");
+            ended.append(reasons.get(i).getKey()).append(' ').append(reasons.get(i).getValue());
+        }
+        if (unclean > 0) {
+            ended.append(", no clean shutdown ").append(unclean);
+        }
+        out.println(ended);
+    }
+
+    private long periodMillis() {
+        return data.events.get(data.events.size() - 1).getTimestamp() - data.events.get(0).getTimestamp();
+    }
+
+    private static long nextStartup(List<Long> startups, long after) {
+        int index = Collections.binarySearch(startups, after + 1);
+        if (index < 0) index = -index - 1;
+        if (index < startups.size() && startups.get(index) - after <= MAX_DOWNTIME_MILLIS) {
+            return startups.get(index);
+        }
+        return after;
+    }
+
+    private static String reasonOf(LogEvent event) {
+        return event.getDetail() != null ? event.getDetail().trim() : "Unknown";
+    }
+
+    // "Critical Memory: 93.0% (heap 7.1 GB of 8.0 GB)" is counted as "Critical Memory"
+    private static String causeOf(String detail) {
+        if (detail == null) return "Unknown";
+        int colon = detail.indexOf(':');
+        return (colon > 0 ? detail.substring(0, colon) : detail).trim();
+    }
+
+    private static void increment(Map<String, Integer> counts, String key) {
+        Integer count = counts.get(key);
+        counts.put(key, count == null ? 1 : count + 1);
+    }
+
+    private static List<Map.Entry<String, Integer>> sortByCount(Map<String, Integer> counts) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+        return entries;
+    }
+
+    private static String average(double sum, int count, String format) {
+        return count == 0 ? "-" : String.format(Locale.ROOT, format, sum / count);
+    }
+
+    private static String bar(int count, int total) {
+        int width = Math.max(1, (int) Math.round(40.0 * count / total));
+        StringBuilder bar = new StringBuilder(width);
+        for (int i = 0; i < width; i++) bar.append('#');
+        return bar.toString();
+    }
+
+    private String formatDate(long timestamp) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        format.setTimeZone(zone);
+        return format.format(new Date(timestamp));
+    }
+
+    static String formatDuration(long millis) {
+        long minutes = millis / 60_000L;
+        if (minutes < 60) return minutes + "m";
+        long hours = minutes / 60;
+        if (hours < 48) return hours + "h " + (minutes % 60) + "m";
+        return (hours / 24) + "d " + (hours % 24) + "h";
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.dmzrestart.analytics;
+
+import io.github.dmzrestart.utils.MetricsSegment;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Reads the metrics/metrics-YYYY-MM.seg files written by the plugin's MetricsStore, using the
+// plugin's own MetricsSegment decoder over a memory-mapped view of the file
+final class SegmentReader {
+    private final Set<String> metrics;
+    private final long from;
+    private final long to;
+
+    SegmentReader(Set<String> metrics, long from, long to) {
+        this.metrics = metrics;
+        this.from = from;
+        this.to = to;
+    }
+
+    // A damaged block ends the file; everything before it is kept
+    Map<String, Series> read(File file) throws IOException {
+        Map<String, Series> result = new HashMap<>();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file.getName() + " is larger than 2 GB");
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            DataInputStream in = new DataInputStream(new BufferInput(mapped));
+            try {
+                MetricsSegment.Header header;
+                while ((header = MetricsSegment.readHeader(in)) != null) {
+                    if (!header.overlaps(from, to)) {
+                        MetricsSegment.skipPayload(in, header);
+                        continue;
+                    }
+                    collect(MetricsSegment.readPayload(in, header), result);
+                }
+            } catch (IOException e) {
+                System.err.println("warning: " + file.getName() + ": " + e.getMessage() + " (rest of file skipped)");
+            }
+        }
+        return result;
+    }
+
+    private void collect(List<MetricsSegment.Column> columns, Map<String, Series> result) {
+        for (MetricsSegment.Column column : columns) {
+            if (!metrics.contains(column.getMetric())) continue;
+            Series series = result.get(column.getMetric());
+            if (series == null) {
+                series = new Series();
+                result.put(column.getMetric(), series);
+            }
+            for (int i = 0; i < column.size(); i++) {
+                long timestamp = column.getTimestamp(i);
+                if (timestamp >= from && timestamp <= to) {
+                    series.add(timestamp, column.getValue(i));
+                }
+            }
+        }
+    }
+
+    // The segment decoder reads streams; this one reads straight from the mapping
+    private static final class BufferInput extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInput(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.min(Math.max(0L, count), buffer.remaining());
+            // Through Buffer, so a jar built on a newer JDK still links on Java 8
+            ((Buffer) buffer).position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.dmzrestart.analytics;
+
+import java.util.Arrays;
+
+// Timestamped values of one metric, in primitive arrays so months of 5 second samples stay small
+final class Series {
+    private long[] timestamps = new long[256];
+    private double[] values = new double[256];
+    private int size;
+
+    void add(long timestamp, double value) {
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        timestamps[size] = timestamp;
+        values[size] = value;
+        size++;
+    }
+
+    void addAll(Series other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.timestamps[i], other.values[i]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Files are merged in name (month) order and blocks are appended in time order, so the
+    // input is nearly sorted and insertion sort is close to linear
+    void sort() {
+        for (int i = 1; i < size; i++) {
+            long ts = timestamps[i];
+            if (ts >= timestamps[i - 1]) continue;
+            double value = values[i];
+            int j = i - 1;
+            while (j >= 0 && timestamps[j] > ts) {
+                timestamps[j + 1] = timestamps[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            timestamps[j + 1] = ts;
+            values[j + 1] = value;
+        }
+    }
+
+    // Mean of the values in [from, to), NaN when there are none; requires sort()
+    double mean(long from, long to) {
+        double sum = 0.0;
+        int count = 0;
+        for (int i = lowerBound(from); i < size && timestamps[i] < to; i++) {
+            sum += values[i];
+            count++;
+        }
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    private int lowerBound(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -2,13 +2,24 @@ package io.github.dmzrestart;
 
 import io.github.dmzrestart.commands.RestartCommand;
 import io.github.dmzrestart.listeners.PlayerListener;
+import io.github.dmzrestart.listeners.RecoveryListener;
 import io.github.dmzrestart.managers.*;
 import io.github.dmzrestart.utils.ServerLoadMonitor;
 import io.github.dmzrestart.utils.MetricsCollector;
+import io.github.dmzrestart.utils.SessionStore;
+import io.github.dmzrestart.utils.RegionTickMetrics;
+import io.github.dmzrestart.utils.TaskScheduler;
+import io.github.dmzrestart.utils.EventTimings;
+import io.github.dmzrestart.utils.MetricsHttpServer;
+import io.github.dmzrestart.utils.MetricsSampler;
+import io.github.dmzrestart.utils.RestartTuner;
+import io.github.dmzrestart.utils.StatsdExporter;
 import io.github.dmzrestart.api.RestartAPI;
 import io.github.dmzrestart.integrations.PlaceholderIntegration;
 import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
 import org.bukkit.plugin.java.JavaPlugin;
+import java.util.List;
 
 public class DMZRestartPlugin extends JavaPlugin {
 
@@ -26,6 +37,17 @@ public class DMZRestartPlugin extends JavaPlugin {
     private ServerLoadMonitor serverLoadMonitor;
     private MetricsCollector metricsCollector;
     private RestartAPI restartAPI;
+    private ConfigWatcher configWatcher;
+    private SessionStore sessionStore;
+    private TaskScheduler taskScheduler;
+    private RegionTickMetrics regionTickMetrics;
+    private EventTimings eventTimings;
+    private MetricsSampler metricsSampler;
+    private MetricsHttpServer metricsHttpServer;
+    private RestartTuner restartTuner;
+    private volatile StatsdExporter statsdExporter;
+    private TaskScheduler.Task statsdFlushTask;
+    private PlaceholderIntegration placeholderIntegration;
 
     // Plugin state tracking
     private boolean isEnabled = false;
@@ -37,6 +59,9 @@ public class DMZRestartPlugin extends JavaPlugin {
     public void onEnable() {
         instance = this; // Set static instance immediately
         pluginStartTime = System.currentTimeMillis();
+        // Everything schedules through this, so it exists before any other component
+        taskScheduler = new TaskScheduler(this);
+        regionTickMetrics = new RegionTickMetrics(this, taskScheduler.isFolia());
         long startTime = System.currentTimeMillis();
 
         getLogger().info("========================================");
@@ -123,6 +148,10 @@ public class DMZRestartPlugin extends JavaPlugin {
             // Stop all services in reverse order
             stopAllServices();
 
+            if (permissionManager != null) {
+                permissionManager.shutdownLuckPerms();
+            }
+
             // Final cleanup
             if (logManager != null) {
                 long uptime = getPluginUptime();
@@ -216,6 +245,19 @@ public class DMZRestartPlugin extends JavaPlugin {
             metricsCollector = new MetricsCollector(this);
             logManager.debug("MetricsCollector initialized");
 
+            sessionStore = new SessionStore(this);
+            logManager.debug("SessionStore initialized");
+
+            eventTimings = new EventTimings(this);
+            logManager.debug("EventTimings initialized");
+
+            metricsSampler = new MetricsSampler(this);
+            metricsHttpServer = new MetricsHttpServer(this, metricsSampler);
+            logManager.debug("Metrics exporters initialized");
+
+            restartTuner = new RestartTuner(this);
+            logManager.debug("RestartTuner initialized");
+
             restartAPI = new RestartAPI(this);
             logManager.debug("RestartAPI initialized");
 
@@ -242,6 +284,7 @@ public class DMZRestartPlugin extends JavaPlugin {
             }
 
             getServer().getPluginManager().registerEvents(new PlayerListener(this), this);
+            getServer().getPluginManager().registerEvents(new RecoveryListener(this), this);
             logManager.debug("Event listeners registered successfully");
 
             logManager.info("All components registered successfully");
@@ -260,12 +303,8 @@ public class DMZRestartPlugin extends JavaPlugin {
 
         if (getServer().getPluginManager().getPlugin("PlaceholderAPI") != null && 
             configManager.isPlaceholdersEnabled()) {
-            try {
-                new PlaceholderIntegration(this).register();
-                logManager.info("✓ PlaceholderAPI integration enabled");
+            if (startPlaceholderIntegration()) {
                 integrations++;
-            } catch (Exception e) {
-                logManager.warning("✗ Failed to enable PlaceholderAPI integration: " + e.getMessage());
             }
         } else {
             logManager.debug("PlaceholderAPI integration disabled or plugin not found");
@@ -290,9 +329,20 @@ public class DMZRestartPlugin extends JavaPlugin {
     // Phase 7: Service Startup
     private boolean startAllServices() {
         try {
+            alertManager.getRecipientIndex().rebuild();
+            logManager.debug("Alert recipient index built");
+
             restartManager.initialize();
             logManager.debug("RestartManager services started");
 
+            sessionStore.initialize();
+            logManager.debug("Session tracking started");
+
+            serverLoadMonitor.getEvidenceCapture().compressLeftovers();
+
+            // Indexing today's log once lets every later write extend the index in place
+            taskScheduler.runAsync(logManager::prepareLogIndex);
+
             if (configManager.isMonitoringEnabled()) {
                 serverLoadMonitor.startMonitoring();
                 logManager.info("✓ Performance monitoring active");
@@ -307,6 +357,19 @@ public class DMZRestartPlugin extends JavaPlugin {
                 logManager.info("✗ Metrics collection disabled");
             }
 
+            if (configManager.getSnapshot().isTimingsEnabled()) {
+                eventTimings.enable();
+            }
+
+            // After the restart manager: with auto-apply on it replaces the configured schedule
+            restartTuner.initialize();
+
+            startMetricsExport();
+
+            if (configManager.isHotReloadEnabled()) {
+                startConfigWatcher();
+            }
+
             validateAllServices();
 
             logManager.info("All services started successfully");
@@ -340,8 +403,13 @@ public class DMZRestartPlugin extends JavaPlugin {
 
     private void stopAllServices() {
         try {
+            stopConfigWatcher();
+            stopPlaceholderIntegration();
+
             if (serverLoadMonitor != null) {
                 serverLoadMonitor.stopMonitoring();
+                serverLoadMonitor.getRecoveryPipeline().shutdown();
+                serverLoadMonitor.getLagScanner().stop();
                 if (logManager != null) logManager.debug("ServerLoadMonitor stopped");
             }
 
@@ -350,11 +418,36 @@ public class DMZRestartPlugin extends JavaPlugin {
                 if (logManager != null) logManager.debug("RestartManager cleaned up");
             }
 
+            if (alertManager != null) {
+                alertManager.cleanup();
+                if (logManager != null) logManager.debug("AlertManager cleaned up");
+            }
+
             if (metricsCollector != null) {
                 metricsCollector.shutdown();
                 if (logManager != null) logManager.debug("MetricsCollector shut down");
             }
 
+            if (restartTuner != null) {
+                restartTuner.shutdown();
+            }
+
+            if (eventTimings != null) {
+                eventTimings.disable();
+            }
+
+            stopMetricsExport();
+
+            if (sessionStore != null) {
+                sessionStore.shutdown(restartManager != null && restartManager.isRestartExecuting());
+                if (logManager != null) logManager.debug("SessionStore flushed");
+            }
+
+            // Warning broadcasts and one-shot hides are not tracked individually
+            if (taskScheduler != null) {
+                taskScheduler.cancelAll();
+            }
+
             if (logManager != null) logManager.debug("All services stopped gracefully");
 
         } catch (Exception e) {
@@ -375,53 +468,239 @@ public class DMZRestartPlugin extends JavaPlugin {
     }
 
     public void reloadPlugin() {
-        if (logManager != null) {
-            logManager.info("========================================");
-            logManager.info("DMZ ReStart RELOAD INITIATED");
-            logManager.info("========================================");
-        }
+        reloadConfigurationAsync(null, "command");
+    }
+
+    // Parses config.yml off the main thread, then applies only what changed.
+    // Pending countdowns, monitoring state and running timers are left alone.
+    public void reloadConfigurationAsync(CommandSender requester, String trigger) {
+        if (!isEnabled() || configManager == null) return;
 
+        taskScheduler.runAsync(() -> {
+            ConfigManager.LoadedConfig loaded;
+            try {
+                loaded = configManager.loadFromDisk();
+            } catch (Exception e) {
+                logManager.severe("Configuration reload (" + trigger + ") rejected: " + e.getMessage());
+                if (requester != null) {
+                    taskScheduler.runGlobal(() ->
+                        logManager.sendMessage(requester, "&cReload failed: " + e.getMessage() + " - keeping current configuration"));
+                }
+                return;
+            }
+
+            taskScheduler.runGlobal(() -> applyReloadedConfiguration(loaded, requester, trigger));
+        });
+    }
+
+    private void applyReloadedConfiguration(ConfigManager.LoadedConfig loaded, CommandSender requester, String trigger) {
         try {
             long reloadStart = System.currentTimeMillis();
 
-            if (configManager != null && configManager.isBackupConfigOnReload()) {
+            if (requester != null && configManager.isBackupConfigOnReload()) {
                 configManager.backupConfig();
                 logManager.info("Configuration backed up before reload");
             }
 
-            logManager.info("Stopping all services...");
-            stopAllServices();
+            ConfigSnapshot previous = configManager.apply(loaded);
+            ConfigDiff diff = ConfigDiff.between(previous, loaded.getSnapshot());
+            List<String> changed = diff.getChangedComponents();
 
-            logManager.info("Reloading configuration...");
-            if (configManager != null) {
-                configManager.loadConfig();
-                if (!configManager.validateConfig()) {
-                    logManager.severe("Configuration reload failed validation!");
-                    return;
+            if (changed.isEmpty()) {
+                logManager.debug("Configuration reload (" + trigger + "): nothing changed");
+                if (requester != null) {
+                    logManager.sendMessage(requester, "&aConfiguration reloaded - no changes detected.");
                 }
+                return;
+            }
+
+            if (diff.isDebugChanged()) {
                 logManager.setDebugMode(configManager.isDebugMode());
             }
 
-            logManager.info("Restarting services...");
-            if (!startAllServices()) {
-                logManager.severe("Failed to restart services after reload!");
-                return;
+            if (diff.isMonitoringChanged()) {
+                // Counters and last readings live on the monitor, only the timer is replaced
+                if (configManager.isMonitoringEnabled()) {
+                    serverLoadMonitor.startMonitoring();
+                } else {
+                    serverLoadMonitor.stopMonitoring();
+                }
+            }
+
+            if (diff.isScheduleChanged()) {
+                restartManager.rescheduleConfiguredRestarts();
+            }
+
+            if (diff.isTuningChanged() || diff.isScheduleChanged()) {
+                // Tuned times are anchored on the configured ones
+                restartTuner.reconfigure();
+            }
+
+            if (diff.isMessagesChanged()) {
+                alertManager.refreshCountdownTitle();
+            }
+
+            if (diff.isMetricsChanged()) {
+                if (configManager.isMetricsEnabled()) {
+                    metricsCollector.initialize();
+                } else {
+                    metricsCollector.shutdown();
+                }
+            }
+
+            if (diff.isTimingsChanged()) {
+                // Restarting picks up a new export interval; collected samples are kept
+                eventTimings.disable();
+                if (configManager.getSnapshot().isTimingsEnabled()) {
+                    eventTimings.enable();
+                }
+            }
+
+            if (diff.isExportChanged() || diff.isMetricsChanged() || diff.isTuningChanged()) {
+                startMetricsExport();
+            }
+
+            if (diff.isHotReloadChanged()) {
+                if (configManager.isHotReloadEnabled()) {
+                    startConfigWatcher();
+                } else {
+                    stopConfigWatcher();
+                }
+            }
+
+            if (diff.isIntegrationsChanged()) {
+                if (!configManager.isPlaceholdersEnabled()) {
+                    stopPlaceholderIntegration();
+                } else if (placeholderIntegration == null
+                        && getServer().getPluginManager().getPlugin("PlaceholderAPI") != null) {
+                    startPlaceholderIntegration();
+                }
+                if (previous.isLuckPermsEnabled() != configManager.getSnapshot().isLuckPermsEnabled()) {
+                    logManager.warning("LuckPerms integration setting changed - a server restart is required to apply it");
+                }
             }
 
             long reloadTime = System.currentTimeMillis() - reloadStart;
-            logManager.info("========================================");
-            logManager.info("DMZ ReStart RELOAD COMPLETED");
-            logManager.info("Reload Time: " + reloadTime + "ms");
-            logManager.info("========================================");
+            logManager.info("Configuration reloaded (" + trigger + "): updated " + String.join(", ", changed)
+                + " in " + reloadTime + "ms");
+            if (requester != null) {
+                logManager.sendMessage(requester, "&aConfiguration reloaded! Updated: &e" + String.join(", ", changed));
+            }
 
         } catch (Exception e) {
-            if (logManager != null) {
-                logManager.severe("Reload failed: " + e.getMessage());
-                e.printStackTrace();
-            } else {
-                getLogger().severe("Reload failed: " + e.getMessage());
-                e.printStackTrace();
+            logManager.severe("Reload failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private boolean startPlaceholderIntegration() {
+        try {
+            placeholderIntegration = new PlaceholderIntegration(this);
+            placeholderIntegration.register();
+            placeholderIntegration.startSnapshotUpdates();
+            logManager.info("✓ PlaceholderAPI integration enabled");
+            return true;
+        } catch (Exception e) {
+            placeholderIntegration = null;
+            logManager.warning("✗ Failed to enable PlaceholderAPI integration: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // The expansion persists across PlaceholderAPI reloads, so it has to be taken out explicitly
+    private void stopPlaceholderIntegration() {
+        if (placeholderIntegration != null) {
+            placeholderIntegration.stopSnapshotUpdates();
+            placeholderIntegration.unregister();
+            placeholderIntegration = null;
+        }
+    }
+
+    private void startConfigWatcher() {
+        if (configWatcher == null) {
+            configWatcher = new ConfigWatcher(this);
+        }
+
+        try {
+            configWatcher.start();
+            logManager.info("✓ Configuration hot reload active");
+        } catch (Exception e) {
+            logManager.warning("✗ Failed to watch config.yml for changes: " + e.getMessage());
+        }
+    }
+
+    private void stopConfigWatcher() {
+        if (configWatcher != null) {
+            configWatcher.stop();
+        }
+    }
+
+    // Also used to apply changed exporter settings; the sampler only runs while something consumes it
+    private void startMetricsExport() {
+        stopMetricsExport();
+        ConfigSnapshot config = configManager.getSnapshot();
+        if (!MetricsHttpServer.isWanted(config) && !config.isStatsdEnabled() && !config.isMetricsEnabled()
+                && !config.isTuningEnabled()) return;
+
+        metricsSampler.start(config.getMetricsSampleSeconds(), config.getDashboardHistoryMinutes());
+        if (config.isMetricsEnabled()) {
+            metricsSampler.addListener(metricsCollector);
+        }
+        if (config.isTuningEnabled()) {
+            metricsSampler.addListener(restartTuner);
+        }
+        metricsHttpServer.start(config);
+        if (config.isStatsdEnabled()) {
+            startStatsdExporter(config);
+        }
+    }
+
+    private void startStatsdExporter(ConfigSnapshot config) {
+        StatsdExporter exporter;
+        try {
+            exporter = new StatsdExporter(config.getStatsdHost(), config.getStatsdPort(), config.getStatsdPrefix(),
+                config.getStatsdTags(), config.getStatsdPacketBytes(), config.getStatsdTimerSampleRate());
+        } catch (Exception e) {
+            logManager.warning("StatsD exporter could not start: " + e.getMessage());
+            return;
+        }
+
+        statsdExporter = exporter;
+        metricsSampler.addListener(exporter);
+        long periodTicks = config.getStatsdFlushSeconds() * 20L;
+        statsdFlushTask = taskScheduler.runAsyncTimer(task -> {
+            boolean wasFailing = exporter.isFailing();
+            exporter.flush();
+            // Once per outage rather than every interval
+            if (exporter.isFailing() && !wasFailing && logManager != null) {
+                logManager.warning("StatsD push to " + config.getStatsdHost() + ":" + config.getStatsdPort()
+                    + " failing: " + exporter.getLastError());
             }
+        }, periodTicks, periodTicks);
+        logManager.info("StatsD export to " + config.getStatsdHost() + ":" + config.getStatsdPort()
+            + " every " + config.getStatsdFlushSeconds() + "s");
+    }
+
+    private void stopMetricsExport() {
+        if (metricsHttpServer != null) {
+            metricsHttpServer.stop();
+        }
+        if (statsdFlushTask != null) {
+            statsdFlushTask.cancel();
+            statsdFlushTask = null;
+        }
+        StatsdExporter exporter = statsdExporter;
+        if (exporter != null) {
+            statsdExporter = null;
+            metricsSampler.removeListener(exporter);
+            // Last partial interval goes out before the socket closes
+            exporter.flush();
+            exporter.close();
+        }
+        if (metricsSampler != null) {
+            metricsSampler.removeListener(metricsCollector);
+            metricsSampler.removeListener(restartTuner);
+            metricsSampler.stop();
         }
     }
 
@@ -488,6 +767,42 @@ public class DMZRestartPlugin extends JavaPlugin {
         return metricsCollector; 
     }
 
+    public SessionStore getSessionStore() {
+        if (sessionStore == null && logManager != null) {
+            logManager.warning("SessionStore accessed before initialization!");
+        }
+        return sessionStore;
+    }
+
+    public EventTimings getEventTimings() {
+        return eventTimings;
+    }
+
+    public MetricsSampler getMetricsSampler() {
+        return metricsSampler;
+    }
+
+    public MetricsHttpServer getMetricsHttpServer() {
+        return metricsHttpServer;
+    }
+
+    public RestartTuner getRestartTuner() {
+        return restartTuner;
+    }
+
+    // Null unless metrics.statsd is enabled
+    public StatsdExporter getStatsdExporter() {
+        return statsdExporter;
+    }
+
+    public TaskScheduler getTaskScheduler() {
+        return taskScheduler;
+    }
+
+    public RegionTickMetrics getRegionTickMetrics() {
+        return regionTickMetrics;
+    }
+
     public RestartAPI getRestartAPI() { 
         if (restartAPI == null && logManager != null) {
             logManager.warning("RestartAPI accessed before initialization!");
@@ -2,8 +2,11 @@ package io.github.dmzrestart.api;
 
 import io.github.dmzrestart.DMZRestartPlugin;
 import io.github.dmzrestart.managers.RestartManager;
+import io.github.dmzrestart.utils.SessionReport;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public class RestartAPI {
     private final DMZRestartPlugin plugin;
@@ -60,4 +63,33 @@ public class RestartAPI {
         }
         return false;
     }
-}
+
+    // Seconds the player has been online this session, or 0 if unknown
+    public long getSessionLength(UUID playerId) {
+        if (plugin.getSessionStore() != null) {
+            long joinTime = plugin.getSessionStore().getJoinTime(playerId);
+            if (joinTime >= 0) {
+                return (System.currentTimeMillis() - joinTime) / 1000;
+            }
+        }
+        return 0;
+    }
+
+    // Reads the session history off the main thread; completes on the async thread
+    public CompletableFuture<SessionReport> getSessionReport(long fromMillis, long toMillis, long bucketMillis) {
+        CompletableFuture<SessionReport> future = new CompletableFuture<>();
+        if (plugin.getSessionStore() == null) {
+            future.completeExceptionally(new IllegalStateException("Session tracking is not running"));
+            return future;
+        }
+
+        plugin.getTaskScheduler().runAsync(() -> {
+            try {
+                future.complete(plugin.getSessionStore().query(fromMillis, toMillis, bucketMillis));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+}
\ No newline at end of file
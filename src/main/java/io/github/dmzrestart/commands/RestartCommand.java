@@ -1,17 +1,62 @@
 package io.github.dmzrestart.commands;
 
 import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.managers.AlertDispatcher;
+import io.github.dmzrestart.managers.AlertManager;
+import io.github.dmzrestart.managers.AlertRecipientIndex;
+import io.github.dmzrestart.managers.ConfigSnapshot;
 import io.github.dmzrestart.managers.RestartManager;
+import io.github.dmzrestart.utils.ContainerMetrics;
+import io.github.dmzrestart.utils.EventTimings;
+import io.github.dmzrestart.utils.EvidenceCapture;
+import io.github.dmzrestart.utils.HealthEvent;
+import io.github.dmzrestart.utils.LagReport;
+import io.github.dmzrestart.utils.LagScanner;
+import io.github.dmzrestart.utils.LatencyHistogram;
+import io.github.dmzrestart.utils.LeakDetector;
+import io.github.dmzrestart.utils.LogIndex;
+import io.github.dmzrestart.utils.MetricsCollector;
+import io.github.dmzrestart.utils.RecoveryPipeline;
+import io.github.dmzrestart.utils.RestartTuner;
+import io.github.dmzrestart.utils.SessionReport;
+import io.github.dmzrestart.utils.ThreadMonitor;
+import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RestartCommand implements CommandExecutor, TabCompleter {
+    // Rows shown by the timings and leaks listings
+    private static final int LIST_LIMIT = 10;
+    // Log search results kept for paging; older searches are redone rather than paged
+    private static final int LOG_SEARCH_LIMIT = 500;
+    private static final long LOG_PAGES_KEPT_MILLIS = 10L * 60_000L;
+    private static final int LOG_LINE_CHARS = 160;
+    private static final int TUNING_RESTARTS_SHOWN = 8;
+
     private final DMZRestartPlugin plugin;
+    private final Map<String, LogSearch> logSearches = new ConcurrentHashMap<>();
+
+    private static final class LogSearch {
+        final String description;
+        final LogIndex.Result result;
+        final long createdAt = System.currentTimeMillis();
+
+        LogSearch(String description, LogIndex.Result result) {
+            this.description = description;
+            this.result = result;
+        }
+    }
 
     public RestartCommand(DMZRestartPlugin plugin) {
         this.plugin = plugin;
@@ -49,6 +94,42 @@ public class RestartCommand implements CommandExecutor, TabCompleter {
                 handleReload(sender);
                 return true;
 
+            case "alerts":
+                showAlertStats(sender);
+                return true;
+
+            case "sessions":
+                showSessionStats(sender, args);
+                return true;
+
+            case "lag":
+                handleLag(sender, args);
+                return true;
+
+            case "timings":
+                handleTimings(sender, args);
+                return true;
+
+            case "leaks":
+                handleLeaks(sender, args);
+                return true;
+
+            case "threads":
+                showThreads(sender);
+                return true;
+
+            case "metrics":
+                handleMetrics(sender, args);
+                return true;
+
+            case "logs":
+                handleLogs(sender, args);
+                return true;
+
+            case "tuning":
+                showTuning(sender);
+                return true;
+
             default:
                 plugin.getLogManager().sendMessage(sender, "&cUnknown subcommand. Use /dmzrestart help");
                 return true;
@@ -76,6 +157,18 @@ public class RestartCommand implements CommandExecutor, TabCompleter {
         if (plugin.getPermissionManager().canReload(sender)) {
             plugin.getLogManager().sendMessage(sender, "&e/dmzrestart reload &7- Reload configuration");
         }
+
+        if (plugin.getPermissionManager().isAdmin(sender)) {
+            plugin.getLogManager().sendMessage(sender, "&e/dmzrestart alerts &7- Show alert delivery statistics");
+            plugin.getLogManager().sendMessage(sender, "&e/dmzrestart sessions [hours] &7- Show player session analytics");
+            plugin.getLogManager().sendMessage(sender, "&e/dmzrestart lag [scan] &7- Show or refresh the lag hotspot report");
+            plugin.getLogManager().sendMessage(sender, "&e/dmzrestart timings [on|off|reset|<plugin>] &7- Show event handler time per plugin");
+            plugin.getLogManager().sendMessage(sender, "&e/dmzrestart leaks [sample] &7- Show classes that keep growing between GCs");
+            plugin.getLogManager().sendMessage(sender, "&e/dmzrestart threads &7- Show thread counts, CPU and health events");
+            plugin.getLogManager().sendMessage(sender, "&e/dmzrestart metrics export [hours] &7- Write stored metrics to a CSV file");
+            plugin.getLogManager().sendMessage(sender, "&e/dmzrestart logs <query> [since] [level] &7- Search the plugin logs");
+            plugin.getLogManager().sendMessage(sender, "&e/dmzrestart tuning &7- Show restart effectiveness and the recommended interval");
+        }
     }
 
     private void showStatus(CommandSender sender) {
@@ -97,6 +190,51 @@ public class RestartCommand implements CommandExecutor, TabCompleter {
 
             plugin.getLogManager().sendMessage(sender, "&7Restarts Managed: &a" + plugin.getRestartManager().getTotalRestartsManaged());
         }
+
+        if (plugin.getServerLoadMonitor() != null) {
+            RecoveryPipeline recovery = plugin.getServerLoadMonitor().getRecoveryPipeline();
+            if (recovery.getAttempts() > 0 || recovery.isRunning()) {
+                plugin.getLogManager().sendMessage(sender, "&7Soft Recoveries: &a" + recovery.getRecoveries()
+                    + "&7/&a" + recovery.getAttempts() + " &7(escalated: &c" + recovery.getEscalations() + "&7)"
+                    + (recovery.isRunning() ? " &e- measuring now" : ""));
+                plugin.getLogManager().sendMessage(sender, "&7Last Recovery: &f" + recovery.getLastOutcome());
+            }
+
+            EvidenceCapture evidence = plugin.getServerLoadMonitor().getEvidenceCapture();
+            if (evidence.isCapturing() || !"None".equals(evidence.getLastCapture())) {
+                plugin.getLogManager().sendMessage(sender, "&7Emergency Evidence: &f" + evidence.getLastCapture()
+                    + (evidence.isCapturing() ? " &e- capturing now" : ""));
+            }
+        }
+
+        if (plugin.getServerLoadMonitor() != null && plugin.getServerLoadMonitor().getLastRegionCount() > 0) {
+            plugin.getLogManager().sendMessage(sender, "&7Regions: &a" + plugin.getServerLoadMonitor().getLastRegionCount()
+                + " &7Worst MSPT: &e" + String.format("%.2f", plugin.getServerLoadMonitor().getLastWorstRegionMspt()) + "ms");
+        }
+
+        if (plugin.getServerLoadMonitor() != null) {
+            ContainerMetrics.Sample memory = plugin.getServerLoadMonitor().getContainerMetrics().getLastSample();
+            if (memory != null) {
+                plugin.getLogManager().sendMessage(sender, "&7Heap: &a" + ContainerMetrics.formatBytes(memory.getHeapUsed())
+                    + "&7/&a" + ContainerMetrics.formatBytes(memory.getHeapMax())
+                    + " &7Non-heap: &a" + ContainerMetrics.formatBytes(memory.getNonHeapUsed())
+                    + " &7Direct: &a" + ContainerMetrics.formatBytes(memory.getDirectUsed())
+                    + " &7Mapped: &a" + ContainerMetrics.formatBytes(memory.getMappedUsed()));
+                if (memory.hasMemoryLimit()) {
+                    plugin.getLogManager().sendMessage(sender, "&7Container (" + plugin.getServerLoadMonitor().getContainerMetrics().getCgroupVersion()
+                        + "): &a" + ContainerMetrics.formatBytes(Math.max(memory.getFootprint(), memory.getContainerWorkingSet()))
+                        + "&7/&a" + ContainerMetrics.formatBytes(memory.getMemoryLimit())
+                        + String.format(" &7(&e%.1f%%&7)", memory.getFootprintPercent()));
+                }
+                if (memory.getContainerCpuPercent() >= 0 || memory.getProcessCpuLoad() >= 0) {
+                    plugin.getLogManager().sendMessage(sender, "&7CPU: &a"
+                        + (memory.getContainerCpuPercent() >= 0 ? String.format("%.1f%%", memory.getContainerCpuPercent()) : "n/a")
+                        + (memory.getCpuLimitCores() > 0 ? String.format(" &7of &a%.2f &7cores", memory.getCpuLimitCores()) : "")
+                        + (memory.getProcessCpuLoad() >= 0 ? String.format(" &7Process: &a%.1f%%", memory.getProcessCpuLoad()) : "")
+                        + (memory.getThrottledPeriods() > 0 ? " &7Throttled: &c" + memory.getThrottledPeriods() : ""));
+                }
+            }
+        }
     }
 
     private void showInfo(CommandSender sender) {
@@ -172,8 +310,562 @@ public class RestartCommand implements CommandExecutor, TabCompleter {
         }
 
         plugin.getLogManager().sendMessage(sender, "&eReloading DMZ ReStart configuration...");
-        plugin.reloadPlugin();
-        plugin.getLogManager().sendMessage(sender, "&aConfiguration reloaded successfully!");
+        plugin.reloadConfigurationAsync(sender, "command by " + sender.getName());
+    }
+
+    private void showAlertStats(CommandSender sender) {
+        if (!plugin.getPermissionManager().isAdmin(sender)) {
+            plugin.getPermissionManager().sendInsufficientPermissionMessage(sender);
+            return;
+        }
+
+        AlertDispatcher dispatcher = plugin.getAlertManager().getDispatcher();
+        LatencyHistogram latency = dispatcher.getDeliveryLatency();
+
+        plugin.getLogManager().sendMessage(sender, "&6Alert Delivery Statistics:");
+        plugin.getLogManager().sendMessage(sender, "&7Tick Budget: &a" + (plugin.getConfigManager().isAlertFanoutEnabled()
+            ? LatencyHistogram.formatNanos(plugin.getConfigManager().getAlertTickBudgetNanos()) : "Unlimited"));
+        plugin.getLogManager().sendMessage(sender, "&7Messages Delivered: &a" + dispatcher.getDeliveredMessages());
+
+        AlertRecipientIndex recipients = plugin.getAlertManager().getRecipientIndex();
+        for (AlertManager.AlertLevel level : AlertManager.AlertLevel.values()) {
+            plugin.getLogManager().sendMessage(sender, "&7Recipients (" + level.name() + "): &a"
+                + recipients.getRecipients(level).length + " &7across &a"
+                + recipients.getRecipientsByLocale(level).size() + " &7locale(s)");
+        }
+        plugin.getLogManager().sendMessage(sender, "&7Pending Alerts: &a" + dispatcher.getPendingAlerts());
+        plugin.getLogManager().sendMessage(sender, "&7Budget Overruns: &a" + dispatcher.getDeferredTicks());
+        plugin.getLogManager().sendMessage(sender, "&7Latency p50: &a" + LatencyHistogram.formatNanos(latency.percentile(50))
+            + " &7p95: &a" + LatencyHistogram.formatNanos(latency.percentile(95))
+            + " &7p99: &a" + LatencyHistogram.formatNanos(latency.percentile(99))
+            + " &7max: &a" + LatencyHistogram.formatNanos(latency.getMax()));
+    }
+
+    private void showSessionStats(CommandSender sender, String[] args) {
+        if (!plugin.getPermissionManager().isAdmin(sender)) {
+            plugin.getPermissionManager().sendInsufficientPermissionMessage(sender);
+            return;
+        }
+
+        int hours = 24;
+        if (args.length > 1) {
+            try {
+                hours = Integer.parseInt(args[1]);
+                if (hours < 1 || hours > 24 * 90) {
+                    plugin.getLogManager().sendMessage(sender, "&cHours must be between 1 and 2160!");
+                    return;
+                }
+            } catch (NumberFormatException e) {
+                plugin.getLogManager().sendMessage(sender, "&cInvalid number format!");
+                return;
+            }
+        }
+
+        // About 24 timeline points whatever the window
+        final int windowHours = hours;
+        final long bucketMillis = Math.max(1, windowHours / 24) * 3_600_000L;
+        long to = System.currentTimeMillis();
+        long from = to - windowHours * 3_600_000L;
+
+        plugin.getLogManager().sendMessage(sender, "&eReading session data...");
+        plugin.getTaskScheduler().runAsync(() -> {
+            SessionReport report = plugin.getSessionStore().query(from, to, bucketMillis);
+            plugin.getTaskScheduler().runGlobal(() -> sendSessionReport(sender, report, windowHours));
+        });
+    }
+
+    private void sendSessionReport(CommandSender sender, SessionReport report, int hours) {
+        plugin.getLogManager().sendMessage(sender, "&6Player Sessions (last " + hours + "h):");
+        plugin.getLogManager().sendMessage(sender, "&7Finished: &a" + report.getFinishedSessions()
+            + " &7Online now: &a" + report.getOpenSessions()
+            + " &7Average: &a" + formatDuration(report.getAverageSessionMillis()));
+        plugin.getLogManager().sendMessage(sender, "&7Peak Concurrent: &a" + report.getPeakConcurrentOverall());
+
+        StringBuilder timeline = new StringBuilder();
+        for (int peak : report.getPeakConcurrent()) {
+            timeline.append(peak).append(' ');
+        }
+        plugin.getLogManager().sendMessage(sender, "&7Peak per " + (report.getBucketMillis() / 3_600_000L) + "h: &f" + timeline.toString().trim());
+
+        String[] labels = SessionReport.getLengthLabels();
+        int[] distribution = report.getLengthDistribution();
+        StringBuilder lengths = new StringBuilder();
+        for (int i = 0; i < labels.length; i++) {
+            lengths.append("&7").append(labels[i]).append(": &a").append(distribution[i]).append(' ');
+        }
+        plugin.getLogManager().sendMessage(sender, "&7Lengths: " + lengths.toString().trim());
+
+        plugin.getLogManager().sendMessage(sender, "&7Cut by Restarts: &c" + report.getRestartCutSessions()
+            + " &7sessions over &c" + report.getRestartsObserved() + " &7restart(s), &c"
+            + formatDuration(report.getRestartCutPlayTimeMillis()) + " &7of play interrupted");
+        if (report.getRestartsObserved() > 0) {
+            plugin.getLogManager().sendMessage(sender, "&7Players per Restart: &e"
+                + String.format("%.1f", report.getAveragePlayersPerRestart()));
+        }
+    }
+
+    private void handleLag(CommandSender sender, String[] args) {
+        if (!plugin.getPermissionManager().isAdmin(sender)) {
+            plugin.getPermissionManager().sendInsufficientPermissionMessage(sender);
+            return;
+        }
+
+        LagScanner scanner = plugin.getServerLoadMonitor().getLagScanner();
+        if (args.length > 1 && args[1].equalsIgnoreCase("scan")) {
+            boolean started = scanner.startScan("command by " + sender.getName(), report -> sendLagReport(sender, report));
+            plugin.getLogManager().sendMessage(sender, started
+                ? "&eScanning loaded chunks..."
+                : "&eA scan is already running - you will get its report");
+            return;
+        }
+
+        LagReport report = scanner.getLastReport();
+        if (report == null) {
+            plugin.getLogManager().sendMessage(sender, "&7No lag report yet. Use &e/dmzrestart lag scan");
+            return;
+        }
+        sendLagReport(sender, report);
+    }
+
+    private void sendLagReport(CommandSender sender, LagReport report) {
+        long ageMinutes = (System.currentTimeMillis() - report.getCompletedAt()) / 60_000L;
+        plugin.getLogManager().sendMessage(sender, "&6Lag Report &7(" + report.getTrigger() + ", " + ageMinutes + "m ago, "
+            + report.getChunksScanned() + " chunks in " + report.getDurationMillis() + "ms):");
+
+        for (LagReport.WorldLoad world : report.getWorlds()) {
+            plugin.getLogManager().sendMessage(sender, "&7" + world.getWorld() + ": &a" + world.getChunks() + " &7chunks, &a"
+                + world.getEntities() + " &7entities, &a" + world.getTileEntities() + " &7tile entities, &a"
+                + world.getHoppers() + " &7hoppers");
+        }
+
+        List<LagReport.ChunkLoad> hotspots = report.getHotspots();
+        for (int i = 0; i < hotspots.size(); i++) {
+            plugin.getLogManager().sendMessage(sender, "&e#" + (i + 1) + " &f" + hotspots.get(i).describe());
+        }
+    }
+
+    private void handleTimings(CommandSender sender, String[] args) {
+        if (!plugin.getPermissionManager().isAdmin(sender)) {
+            plugin.getPermissionManager().sendInsufficientPermissionMessage(sender);
+            return;
+        }
+
+        EventTimings timings = plugin.getEventTimings();
+        String action = args.length > 1 ? args[1].toLowerCase() : "";
+        switch (action) {
+            case "on":
+                plugin.getLogManager().sendMessage(sender, timings.enable()
+                    ? "&aEvent timings enabled until the next restart"
+                    : "&cEvent timings are not supported on this server - see console");
+                return;
+
+            case "off":
+                timings.disable();
+                plugin.getLogManager().sendMessage(sender, "&eEvent timings disabled");
+                return;
+
+            case "reset":
+                timings.reset();
+                plugin.getLogManager().sendMessage(sender, "&aEvent timings reset");
+                return;
+
+            default:
+                break;
+        }
+
+        long minutes = (System.currentTimeMillis() - timings.getSince()) / 60_000L;
+        String state = timings.isEnabled() ? "&aon" : "&coff";
+        if (!action.isEmpty()) {
+            List<EventTimings.HandlerStats> events = timings.getEventsFor(args[1]);
+            if (events.isEmpty()) {
+                plugin.getLogManager().sendMessage(sender, "&7No handler timings recorded for &e" + args[1]);
+                return;
+            }
+            plugin.getLogManager().sendMessage(sender, "&6Event Timings for " + events.get(0).getPlugin()
+                + " &7(" + state + "&7, last " + minutes + "m):");
+            for (int i = 0; i < Math.min(LIST_LIMIT, events.size()); i++) {
+                sendTimingLine(sender, events.get(i).getEvent(), events.get(i).getHistogram());
+            }
+            return;
+        }
+
+        List<EventTimings.HandlerStats> totals = timings.getPluginTotals();
+        if (totals.isEmpty()) {
+            plugin.getLogManager().sendMessage(sender, timings.isEnabled()
+                ? "&7No events handled yet"
+                : "&7Event timings are off. Use &e/dmzrestart timings on");
+            return;
+        }
+        plugin.getLogManager().sendMessage(sender, "&6Event Timings &7(" + state + "&7, last " + minutes + "m):");
+        for (int i = 0; i < Math.min(LIST_LIMIT, totals.size()); i++) {
+            sendTimingLine(sender, totals.get(i).getPlugin(), totals.get(i).getHistogram());
+        }
+    }
+
+    private void handleLeaks(CommandSender sender, String[] args) {
+        if (!plugin.getPermissionManager().isAdmin(sender)) {
+            plugin.getPermissionManager().sendInsufficientPermissionMessage(sender);
+            return;
+        }
+
+        LeakDetector detector = plugin.getServerLoadMonitor().getLeakDetector();
+        if (args.length > 1 && args[1].equalsIgnoreCase("sample")) {
+            plugin.getLogManager().sendMessage(sender, "&eTaking a class histogram (runs a full GC)...");
+            plugin.getTaskScheduler().runAsync(() -> {
+                detector.sample();
+                plugin.getTaskScheduler().runGlobal(() -> sendLeakReport(sender, detector));
+            });
+            return;
+        }
+        sendLeakReport(sender, detector);
+    }
+
+    private void sendLeakReport(CommandSender sender, LeakDetector detector) {
+        String state = detector.isActive() ? "&aactive" : "&coff";
+        if (detector.getSamplesTaken() == 0) {
+            plugin.getLogManager().sendMessage(sender, "&6Leak Detection &7(" + state + "&7): no samples yet");
+            return;
+        }
+
+        long ageMinutes = (System.currentTimeMillis() - detector.getLastSampleAt()) / 60_000L;
+        plugin.getLogManager().sendMessage(sender, "&6Leak Detection &7(" + state + "&7, " + detector.getSamplesTaken()
+            + " samples, last " + ageMinutes + "m ago):");
+
+        List<LeakDetector.Suspect> suspects = detector.getSuspects();
+        if (suspects.isEmpty()) {
+            plugin.getLogManager().sendMessage(sender, "&aNo class is growing steadily");
+            return;
+        }
+        for (int i = 0; i < Math.min(LIST_LIMIT, suspects.size()); i++) {
+            plugin.getLogManager().sendMessage(sender, "&c#" + (i + 1) + " &f" + suspects.get(i).describe());
+        }
+    }
+
+    private void handleMetrics(CommandSender sender, String[] args) {
+        if (!plugin.getPermissionManager().isAdmin(sender)) {
+            plugin.getPermissionManager().sendInsufficientPermissionMessage(sender);
+            return;
+        }
+        if (args.length < 2 || !args[1].equalsIgnoreCase("export")) {
+            plugin.getLogManager().sendMessage(sender, "&cUsage: /dmzrestart metrics export [hours]");
+            return;
+        }
+
+        int hours = 24;
+        if (args.length > 2) {
+            try {
+                hours = Integer.parseInt(args[2]);
+                if (hours < 1 || hours > 24 * 366) {
+                    plugin.getLogManager().sendMessage(sender, "&cHours must be between 1 and 8784!");
+                    return;
+                }
+            } catch (NumberFormatException e) {
+                plugin.getLogManager().sendMessage(sender, "&cInvalid number format!");
+                return;
+            }
+        }
+
+        MetricsCollector collector = plugin.getMetricsCollector();
+        long to = System.currentTimeMillis();
+        long from = to - hours * 3_600_000L;
+        File target = collector.newExportFile();
+
+        plugin.getLogManager().sendMessage(sender, "&eExporting the last " + hours + "h of metrics...");
+        plugin.getTaskScheduler().runAsync(() -> {
+            String result;
+            try {
+                long rows = collector.exportCsv(from, to, target);
+                result = "&aWrote &e" + rows + "&a rows to &e" + plugin.getDataFolder().getName()
+                    + "/metrics/" + target.getName();
+            } catch (IOException e) {
+                result = "&cMetrics export failed: " + e.getMessage();
+            }
+            final String message = result;
+            plugin.getTaskScheduler().runGlobal(() -> plugin.getLogManager().sendMessage(sender, message));
+        });
+    }
+
+    private void handleLogs(CommandSender sender, String[] args) {
+        if (!plugin.getPermissionManager().isAdmin(sender)) {
+            plugin.getPermissionManager().sendInsufficientPermissionMessage(sender);
+            return;
+        }
+        if (args.length < 2) {
+            plugin.getLogManager().sendMessage(sender, "&cUsage: /dmzrestart logs <query> [since, e.g. 2h or 3d] [level]");
+            return;
+        }
+
+        if (args[1].equalsIgnoreCase("page") && args.length > 2) {
+            LogSearch search = logSearches.get(sender.getName());
+            if (search == null || System.currentTimeMillis() - search.createdAt > LOG_PAGES_KEPT_MILLIS) {
+                if (search != null) logSearches.remove(sender.getName(), search);
+                plugin.getLogManager().sendMessage(sender, "&cNo recent log search. Use /dmzrestart logs <query>");
+                return;
+            }
+            try {
+                sendLogPage(sender, search, Integer.parseInt(args[2]));
+            } catch (NumberFormatException e) {
+                plugin.getLogManager().sendMessage(sender, "&cInvalid number format!");
+            }
+            return;
+        }
+
+        // A quoted query may contain spaces
+        int next = 1;
+        String query = args[1];
+        if (query.startsWith("\"")) {
+            StringBuilder quoted = new StringBuilder(query.substring(1));
+            while (!quoted.toString().endsWith("\"") && next + 1 < args.length) {
+                quoted.append(' ').append(args[++next]);
+            }
+            query = quoted.toString().endsWith("\"") ? quoted.substring(0, quoted.length() - 1) : quoted.toString();
+        }
+
+        long sinceMillis = 24L * 3_600_000L;
+        String sinceLabel = "24h";
+        int minLevel = 0;
+        for (int i = next + 1; i < args.length; i++) {
+            String arg = args[i].toLowerCase();
+            int level = LogIndex.levelOf(arg.equals("warning") ? "WARN" : arg.equals("severe") ? "ERROR" : arg);
+            if (level >= 0) {
+                minLevel = level;
+                continue;
+            }
+            long duration = parseDuration(arg);
+            if (duration <= 0 || duration > 90L * 24 * 3_600_000L) {
+                plugin.getLogManager().sendMessage(sender, "&cUnknown option '" + args[i]
+                    + "'. Since is a duration up to 90d (30m, 2h, 3d); level is debug, info, warn or error");
+                return;
+            }
+            sinceMillis = duration;
+            sinceLabel = arg;
+        }
+
+        final String text = query;
+        final long since = System.currentTimeMillis() - sinceMillis;
+        final int level = minLevel;
+        final String description = "'" + query + "' in the last " + sinceLabel
+            + (minLevel > 0 ? ", " + LogIndex.LEVELS[minLevel] + " and above" : "");
+        LogIndex index = plugin.getLogManager().getLogIndex();
+        if (index == null) {
+            plugin.getLogManager().sendMessage(sender, "&cLog files are not available");
+            return;
+        }
+
+        plugin.getLogManager().sendMessage(sender, "&eSearching logs for " + description + "...");
+        plugin.getTaskScheduler().runAsync(() -> {
+            LogIndex.Result result = index.search(text, since, level, LOG_SEARCH_LIMIT);
+            LogSearch search = new LogSearch(description, result);
+            // Expired searches are dropped here, so senders who never page again are not kept forever
+            logSearches.values().removeIf(old -> search.createdAt - old.createdAt > LOG_PAGES_KEPT_MILLIS);
+            logSearches.put(sender.getName(), search);
+            plugin.getTaskScheduler().runGlobal(() -> sendLogPage(sender, search, 1));
+        });
+    }
+
+    private void sendLogPage(CommandSender sender, LogSearch search, int page) {
+        List<LogIndex.Match> matches = search.result.getMatches();
+        if (matches.isEmpty()) {
+            plugin.getLogManager().sendMessage(sender, "&7No log lines match " + search.description);
+            return;
+        }
+        int pages = (matches.size() + LIST_LIMIT - 1) / LIST_LIMIT;
+        if (page < 1 || page > pages) {
+            plugin.getLogManager().sendMessage(sender, "&cPage must be between 1 and " + pages + "!");
+            return;
+        }
+
+        plugin.getLogManager().sendMessage(sender, "&6Log search " + search.description + " &7("
+            + matches.size() + (search.result.isTruncated() ? "+" : "") + " matches, read "
+            + ContainerMetrics.formatBytes(search.result.getScannedBytes()) + " of "
+            + ContainerMetrics.formatBytes(search.result.getTotalBytes()) + "):");
+        for (int i = (page - 1) * LIST_LIMIT; i < Math.min(matches.size(), page * LIST_LIMIT); i++) {
+            LogIndex.Match match = matches.get(i);
+            String message = match.getMessage();
+            // Continuation lines (stack traces) are counted, not shown
+            int firstBreak = message.indexOf('\n');
+            String more = "";
+            if (firstBreak >= 0) {
+                int lines = 0;
+                for (int at = firstBreak; at >= 0; at = message.indexOf('\n', at + 1)) lines++;
+                more = ChatColor.GRAY + " (+" + lines + " lines)";
+                message = message.substring(0, firstBreak);
+            }
+            if (message.length() > LOG_LINE_CHARS) {
+                message = message.substring(0, LOG_LINE_CHARS) + "...";
+            }
+            // Sent without color translation so '&' in logged text stays literal
+            sender.sendMessage(ChatColor.DARK_GRAY + match.getTimestamp().substring(5) + " "
+                + levelColor(match.getLevel()) + match.getLevel() + " " + ChatColor.WHITE + message + more);
+        }
+        if (page < pages) {
+            plugin.getLogManager().sendMessage(sender, "&7Page " + page + "/" + pages
+                + " - &e/dmzrestart logs page " + (page + 1));
+        }
+    }
+
+    private static ChatColor levelColor(String level) {
+        switch (level) {
+            case "ERROR": return ChatColor.RED;
+            case "WARN": return ChatColor.GOLD;
+            case "DEBUG": return ChatColor.GRAY;
+            default: return ChatColor.GREEN;
+        }
+    }
+
+    // 30m, 2h, 3d; -1 when not a duration
+    private static long parseDuration(String text) {
+        if (text.length() < 2) return -1L;
+        long unit;
+        switch (text.charAt(text.length() - 1)) {
+            case 'm': unit = 60_000L; break;
+            case 'h': unit = 3_600_000L; break;
+            case 'd': unit = 24L * 3_600_000L; break;
+            default: return -1L;
+        }
+        try {
+            return Long.parseLong(text.substring(0, text.length() - 1)) * unit;
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private void showThreads(CommandSender sender) {
+        if (!plugin.getPermissionManager().isAdmin(sender)) {
+            plugin.getPermissionManager().sendInsufficientPermissionMessage(sender);
+            return;
+        }
+
+        ThreadMonitor.Snapshot snapshot = plugin.getServerLoadMonitor().getThreadMonitor().getLastSnapshot();
+        if (snapshot == null) {
+            plugin.getLogManager().sendMessage(sender, "&7No thread check has run yet");
+            return;
+        }
+
+        plugin.getLogManager().sendMessage(sender, "&6Threads:");
+        plugin.getLogManager().sendMessage(sender, "&7Live: &a" + snapshot.getLive() + " &7Peak: &a" + snapshot.getPeak()
+            + " &7Daemon: &a" + snapshot.getDaemon());
+        for (ThreadMonitor.ThreadCpu thread : snapshot.getTopCpu()) {
+            plugin.getLogManager().sendMessage(sender, "&7CPU &e" + String.format("%.1f%%", thread.getPercentOfCore())
+                + " &f" + thread.getName());
+        }
+        StringBuilder pools = new StringBuilder();
+        for (Map.Entry<String, Integer> pool : snapshot.getLargestPools().entrySet()) {
+            pools.append("&f").append(pool.getKey()).append(" &a").append(pool.getValue()).append("&7, ");
+        }
+        if (pools.length() > 0) {
+            plugin.getLogManager().sendMessage(sender, "&7Largest groups: " + pools.substring(0, pools.length() - 4));
+        }
+
+        List<HealthEvent> events = plugin.getServerLoadMonitor().getHealthEvents();
+        for (int i = 0; i < Math.min(LIST_LIMIT, events.size()); i++) {
+            HealthEvent event = events.get(i);
+            plugin.getLogManager().sendMessage(sender, (event.getSeverity() == HealthEvent.Severity.CRITICAL ? "&c" : "&e")
+                + event.toString());
+        }
+    }
+
+    private void showTuning(CommandSender sender) {
+        if (!plugin.getPermissionManager().isAdmin(sender)) {
+            plugin.getPermissionManager().sendInsufficientPermissionMessage(sender);
+            return;
+        }
+
+        RestartTuner tuner = plugin.getRestartTuner();
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        if (!tuner.isEnabled()) {
+            plugin.getLogManager().sendMessage(sender, "&7Restart tuning is off (restart-tuning.enabled)");
+            return;
+        }
+
+        List<RestartTuner.Run> runs = tuner.getRuns();
+        RestartTuner.Recommendation model = tuner.recommend();
+        plugin.getLogManager().sendMessage(sender, "&6Restart Tuning &7(target p95 &e"
+            + String.format("%.1f", config.getTuningTargetMspt()) + " ms&7, " + runs.size() + " periods recorded):");
+        if (runs.isEmpty()) {
+            plugin.getLogManager().sendMessage(sender, "&7Nothing measured yet - the first record is written at the next restart");
+            return;
+        }
+
+        // Each restart's "after" is the baseline of the period that followed it; a reload keeps the
+        // JVM, so its "after" is not a fresh server and it is marked
+        DateTimeFormatter when = DateTimeFormatter.ofPattern("MM-dd HH:mm");
+        int shown = 0;
+        for (int i = runs.size() - 1; i >= 0 && shown < TUNING_RESTARTS_SHOWN; i--) {
+            RestartTuner.Run run = runs.get(i);
+            if (!run.isRestart()) continue;
+            RestartTuner.Run next = i + 1 < runs.size() ? runs.get(i + 1) : null;
+            plugin.getLogManager().sendMessage(sender, "&f"
+                + Instant.ofEpochMilli(run.getEndedAt()).atZone(config.getZoneId()).format(when)
+                + " &7" + run.getReasonName() + (run.isReload() ? " (reload)" : "") + String.format(" after %.1fh: p95 &c%s &7-> &a%s ms&7, heap &c%s &7-> &a%s",
+                    run.getUptimeHours(), formatMspt(run.getFinalMspt()),
+                    next != null ? formatMspt(next.getBaselineMspt()) : "?",
+                    formatHeapMb(run.getFinalHeapMb()), next != null ? formatHeapMb(next.getBaselineHeapMb()) : "?"));
+            shown++;
+        }
+
+        if (model.getRunsUsed() > 0) {
+            plugin.getLogManager().sendMessage(sender, String.format("&7Degradation: p95 &e%+.2f ms/h &7from &a%s ms&7, post-GC heap &e%s/h &7from &a%s",
+                Double.isNaN(model.getMsptSlope()) ? 0.0 : model.getMsptSlope(), formatMspt(model.getBaselineMspt()),
+                Double.isNaN(model.getHeapSlope()) ? "?" : (model.getHeapSlope() < 0 ? "-" : "+")
+                    + ContainerMetrics.formatBytes((long) (Math.abs(model.getHeapSlope()) * 1024 * 1024)),
+                formatHeapMb(model.getBaselineHeapMb())));
+
+            // At most a dozen points, spread over the hours that were measured
+            int lastHour = 0;
+            for (int hour = 0; hour < RestartTuner.MAX_HOURS; hour++) {
+                if (model.getCurveRuns(hour) > 0) lastHour = hour;
+            }
+            int step = lastHour / 12 + 1;
+            StringBuilder curve = new StringBuilder();
+            for (int hour = 0; hour <= lastHour; hour += step) {
+                if (model.getCurveRuns(hour) == 0) continue;
+                curve.append("&7").append(hour).append("h &f").append(formatMspt(model.getCurve(hour))).append(' ');
+            }
+            plugin.getLogManager().sendMessage(sender, "&7p95 by uptime: " + curve.toString().trim());
+        }
+
+        double longestGap = RestartTuner.longestGapHours(plugin.getRestartManager().getEffectiveRestartTimes());
+        String current = Double.isNaN(longestGap) ? "no restart times" : String.format("longest gap %.1fh", longestGap);
+        if (model.getProblem() != null) {
+            plugin.getLogManager().sendMessage(sender, "&7Recommendation: &c" + model.getProblem());
+        } else if (!model.isReady()) {
+            plugin.getLogManager().sendMessage(sender, "&7Recommendation: &eneeds " + model.getRunsNeeded()
+                + " periods of 1h or more, have " + model.getRunsUsed());
+        } else {
+            plugin.getLogManager().sendMessage(sender, String.format("&7Recommended: &arestart every %.1fh &7(%s) - now %s",
+                model.getIntervalHours(), model.getLimitedBy(), current));
+        }
+
+        if (plugin.getRestartManager().isRestartScheduleTuned()) {
+            plugin.getLogManager().sendMessage(sender, "&7Auto-apply: &aon &7- restarting at &f"
+                + plugin.getRestartManager().getEffectiveRestartTimes());
+        } else {
+            plugin.getLogManager().sendMessage(sender, "&7Auto-apply: " + (config.isTuningAutoApply()
+                ? "&eon&7, waiting for a recommendation" : "&coff &7- set restart-tuning.auto-apply to use it"));
+        }
+    }
+
+    private static String formatMspt(double mspt) {
+        return Double.isNaN(mspt) ? "?" : String.format("%.1f", mspt);
+    }
+
+    private static String formatHeapMb(double megabytes) {
+        return Double.isNaN(megabytes) ? "?" : ContainerMetrics.formatBytes((long) (megabytes * 1024 * 1024));
+    }
+
+    private void sendTimingLine(CommandSender sender, String name, LatencyHistogram histogram) {
+        plugin.getLogManager().sendMessage(sender, "&e" + name + " &7calls: &a" + histogram.getCount()
+            + " &7total: &a" + LatencyHistogram.formatNanos(histogram.getTotalNanos())
+            + " &7avg: &a" + LatencyHistogram.formatNanos(histogram.getMean())
+            + " &7p95: &a" + LatencyHistogram.formatNanos(histogram.percentile(95))
+            + " &7max: &a" + LatencyHistogram.formatNanos(histogram.getMax()));
+    }
+
+    private static String formatDuration(long millis) {
+        long minutes = millis / 60_000L;
+        if (minutes < 60) return minutes + "m";
+        return (minutes / 60) + "h " + (minutes % 60) + "m";
     }
 
     @Override
@@ -203,6 +895,19 @@ public class RestartCommand implements CommandExecutor, TabCompleter {
                 commands.add("reload");
             }
 
+            if (plugin.getPermissionManager().isAdmin(sender)) {
+                commands = new ArrayList<>(commands);
+                commands.add("alerts");
+                commands.add("sessions");
+                commands.add("lag");
+                commands.add("timings");
+                commands.add("leaks");
+                commands.add("threads");
+                commands.add("metrics");
+                commands.add("logs");
+                commands.add("tuning");
+            }
+
             String partial = args[0].toLowerCase();
             for (String cmd : commands) {
                 if (cmd.startsWith(partial)) {
@@ -211,6 +916,27 @@ public class RestartCommand implements CommandExecutor, TabCompleter {
             }
         } else if (args.length == 2 && (args[0].equalsIgnoreCase("restart") || args[0].equalsIgnoreCase("schedule"))) {
             completions.addAll(Arrays.asList("30", "60", "300", "600"));
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("sessions")) {
+            completions.addAll(Arrays.asList("24", "72", "168"));
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("lag")) {
+            completions.add("scan");
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("leaks")) {
+            completions.add("sample");
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("metrics")) {
+            completions.add("export");
+        } else if (args.length == 3 && args[0].equalsIgnoreCase("metrics")) {
+            completions.addAll(Arrays.asList("24", "168", "720"));
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("logs")) {
+            completions.add("page");
+        } else if (args.length > 2 && args[0].equalsIgnoreCase("logs") && !args[1].equalsIgnoreCase("page")) {
+            completions.addAll(Arrays.asList("1h", "24h", "7d", "info", "warn", "error"));
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("timings")) {
+            completions.addAll(Arrays.asList("on", "off", "reset"));
+            if (plugin.getEventTimings() != null) {
+                for (EventTimings.HandlerStats total : plugin.getEventTimings().getPluginTotals()) {
+                    completions.add(total.getPlugin());
+                }
+            }
         }
 
         return completions;
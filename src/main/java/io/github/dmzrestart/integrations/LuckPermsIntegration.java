@@ -0,0 +1,46 @@
+package io.github.dmzrestart.integrations;
+
+import io.github.dmzrestart.DMZRestartPlugin;
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.LuckPermsProvider;
+import net.luckperms.api.event.EventSubscription;
+import net.luckperms.api.event.context.ContextUpdateEvent;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
+import org.bukkit.entity.Player;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// Kept apart from PermissionManager so LuckPerms classes are only loaded when the plugin is present
+public class LuckPermsIntegration {
+    private final DMZRestartPlugin plugin;
+    private final List<EventSubscription<?>> subscriptions = new ArrayList<>();
+
+    public LuckPermsIntegration(DMZRestartPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public void subscribe(Consumer<UUID> invalidator) {
+        LuckPerms luckPerms = LuckPermsProvider.get();
+
+        // Fired whenever a user's permission data is rebuilt (node, group or track changes)
+        subscriptions.add(luckPerms.getEventBus().subscribe(plugin, UserDataRecalculateEvent.class,
+            event -> invalidator.accept(event.getUser().getUniqueId())));
+
+        // Contextual permissions (world, gamemode, ...) can change without a data recalculation
+        subscriptions.add(luckPerms.getEventBus().subscribe(plugin, ContextUpdateEvent.class,
+            event -> event.getSubject(Player.class).ifPresent(player -> invalidator.accept(player.getUniqueId()))));
+    }
+
+    public void unsubscribe() {
+        for (EventSubscription<?> subscription : subscriptions) {
+            subscription.close();
+        }
+        subscriptions.clear();
+    }
+
+    public boolean isSubscribed() {
+        return !subscriptions.isEmpty();
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.dmzrestart.integrations;
+
+import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.managers.RestartManager;
+import io.github.dmzrestart.utils.ServerLoadMonitor;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// Immutable view of every player-independent placeholder, rendered once per refresh
+public final class PlaceholderSnapshot {
+    private final Map<String, String> values;
+    private final long createdAt;
+
+    private PlaceholderSnapshot(Map<String, String> values) {
+        this.values = Collections.unmodifiableMap(values);
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    public static PlaceholderSnapshot empty() {
+        return new PlaceholderSnapshot(new HashMap<>());
+    }
+
+    public static PlaceholderSnapshot capture(DMZRestartPlugin plugin) {
+        Map<String, String> values = new HashMap<>(32);
+
+        put(values, "version", plugin.getDescription().getVersion());
+        put(values, "uptime", formatUptime(plugin.getPluginUptime()));
+        put(values, "status", plugin.isFullyInitialized() ? "Active" : "Initializing");
+
+        RestartManager restartManager = plugin.getRestartManager();
+        if (restartManager != null) {
+            boolean inProgress = restartManager.isRestartInProgress();
+            put(values, "restart_in_progress", inProgress ? "Yes" : "No");
+            put(values, "restart_remaining_seconds", String.valueOf(restartManager.getRemainingSeconds()));
+            put(values, "restart_reason", inProgress && restartManager.getCurrentRestartReason() != null
+                ? restartManager.getCurrentRestartReason().getDisplayName() : "None");
+
+            String initiator = restartManager.getRestartInitiator();
+            put(values, "restart_initiator", inProgress ? (initiator != null ? initiator : "Unknown") : "None");
+            put(values, "emergency_active", restartManager.isEmergencyRestartActive() ? "Yes" : "No");
+            put(values, "restarts_managed", String.valueOf(restartManager.getTotalRestartsManaged()));
+        } else {
+            put(values, "restart_in_progress", "No");
+            put(values, "restart_remaining_seconds", "0");
+            put(values, "restart_reason", "None");
+            put(values, "restart_initiator", "None");
+            put(values, "emergency_active", "No");
+            put(values, "restarts_managed", "0");
+        }
+
+        // Performance data
+        ServerLoadMonitor monitor = plugin.getServerLoadMonitor();
+        if (monitor != null) {
+            put(values, "tps", String.format("%.2f", monitor.getLastTPS()));
+            put(values, "memory_usage", String.format("%.1f", monitor.getLastMemoryUsage()));
+            put(values, "server_healthy", monitor.isHealthy() ? "Yes" : "No");
+        } else {
+            put(values, "tps", "20.00");
+            put(values, "memory_usage", "0.0");
+            put(values, "server_healthy", "Yes");
+        }
+
+        if (plugin.getConfigManager() != null) {
+            put(values, "debug_mode", plugin.getConfigManager().isDebugMode() ? "Enabled" : "Disabled");
+            put(values, "timezone", plugin.getConfigManager().getTimezone());
+        } else {
+            put(values, "debug_mode", "Unknown");
+            put(values, "timezone", ZoneId.systemDefault().getId());
+        }
+
+        return new PlaceholderSnapshot(values);
+    }
+
+    private static void put(Map<String, String> values, String identifier, String value) {
+        values.put(identifier.intern(), value);
+    }
+
+    public String get(String identifier) {
+        return values.get(identifier);
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    static String formatUptime(long uptimeMs) {
+        long days = uptimeMs / (1000 * 60 * 60 * 24);
+        long hours = (uptimeMs % (1000 * 60 * 60 * 24)) / (1000 * 60 * 60);
+        long minutes = (uptimeMs % (1000 * 60 * 60)) / (1000 * 60);
+
+        if (days > 0) {
+            return String.format("%dd %dh %dm", days, hours, minutes);
+        } else if (hours > 0) {
+            return String.format("%dh %dm", hours, minutes);
+        } else {
+            return String.format("%dm", minutes);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.dmzrestart.listeners;
+
+import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.managers.AlertManager;
+import io.github.dmzrestart.managers.ConfigSnapshot;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+
+// Only registered while an emergency restart is pending, so ordinary commands never reach it
+public class CommandBlockListener implements Listener {
+    private final DMZRestartPlugin plugin;
+    private boolean registered = false;
+
+    public CommandBlockListener(DMZRestartPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public void register() {
+        if (registered) return;
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        registered = true;
+
+        if (plugin.getLogManager() != null) {
+            plugin.getLogManager().debug("Emergency command blocking enabled");
+        }
+    }
+
+    public void unregister() {
+        if (!registered) return;
+        HandlerList.unregisterAll(this);
+        registered = false;
+
+        if (plugin.getLogManager() != null) {
+            plugin.getLogManager().debug("Emergency command blocking disabled");
+        }
+    }
+
+    public boolean isRegistered() {
+        return registered;
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        if (!config.getBlockedCommands().matches(event.getMessage())) return;
+
+        if (plugin.getPermissionManager().canBypassRestart(event.getPlayer())) return;
+
+        event.setCancelled(true);
+        plugin.getAlertManager().sendToPlayer(event.getPlayer(),
+            config.getMessage("command-blocked").render(),
+            AlertManager.AlertLevel.ERROR);
+    }
+}
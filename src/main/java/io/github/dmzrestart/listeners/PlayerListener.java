@@ -2,18 +2,22 @@ package io.github.dmzrestart.listeners;
 
 import io.github.dmzrestart.DMZRestartPlugin;
 import io.github.dmzrestart.managers.AlertManager;
+import io.github.dmzrestart.utils.CommandPrefixMatcher;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLocaleChangeEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import java.util.Arrays;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class PlayerListener implements Listener {
     private final DMZRestartPlugin plugin;
-    private final ConcurrentHashMap<UUID, Long> playerJoinTimes = new ConcurrentHashMap<>();
+    private static final CommandPrefixMatcher LOGGED_COMMANDS =
+        CommandPrefixMatcher.compile(Arrays.asList("dmzrestart", "dmzr", "restart-dmz", "restart"));
 
     public PlayerListener(DMZRestartPlugin plugin) {
         this.plugin = plugin;
@@ -23,16 +27,24 @@ public class PlayerListener implements Listener {
     public void onPlayerJoin(PlayerJoinEvent event) {
         try {
             UUID playerId = event.getPlayer().getUniqueId();
-            playerJoinTimes.put(playerId, System.currentTimeMillis());
+            if (plugin.getSessionStore() != null) {
+                plugin.getSessionStore().open(playerId, System.currentTimeMillis());
+            }
+
+            // Alert state is owned by the global thread; on Folia this event runs on the player's region
+            if (plugin.getAlertManager() != null) {
+                Player player = event.getPlayer();
+                plugin.getTaskScheduler().ensureGlobal(() -> plugin.getAlertManager().addPlayer(player));
+            }
 
             if (plugin.getLogManager() != null && plugin.getLogManager().isDebugMode()) {
                 plugin.getLogManager().logPlayerAction(event.getPlayer(), "JOINED");
             }
 
             if (plugin.getRestartManager() != null && plugin.getRestartManager().getNextScheduledRestart() != null) {
-                plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-                    if (event.getPlayer().isOnline() && 
-                        plugin.getPermissionManager().shouldReceiveAlerts(event.getPlayer())) {
+                plugin.getTaskScheduler().runForEntity(event.getPlayer(), () -> {
+                    if (event.getPlayer().isOnline() && plugin.getAlertManager().getRecipientIndex()
+                        .receives(event.getPlayer(), AlertManager.AlertLevel.INFO)) {
 
                         // FIXED: Proper AlertLevel enum usage
                         plugin.getAlertManager().sendToPlayer(
@@ -55,12 +67,24 @@ public class PlayerListener implements Listener {
     public void onPlayerQuit(PlayerQuitEvent event) {
         try {
             UUID playerId = event.getPlayer().getUniqueId();
-            Long joinTime = playerJoinTimes.remove(playerId);
+            long quitTime = System.currentTimeMillis();
+            long joinTime = plugin.getSessionStore() != null
+                ? plugin.getSessionStore().close(playerId, quitTime, 0)
+                : -1;
+
+            if (plugin.getAlertManager() != null) {
+                Player player = event.getPlayer();
+                plugin.getTaskScheduler().ensureGlobal(() -> plugin.getAlertManager().removePlayer(player));
+            }
+
+            if (plugin.getPermissionManager() != null) {
+                plugin.getPermissionManager().invalidate(playerId);
+            }
 
             if (plugin.getLogManager() != null && plugin.getLogManager().isDebugMode()) {
                 String sessionInfo = "";
-                if (joinTime != null) {
-                    long sessionLength = System.currentTimeMillis() - joinTime;
+                if (joinTime >= 0) {
+                    long sessionLength = quitTime - joinTime;
                     sessionInfo = " (session: " + (sessionLength / 1000) + "s)";
                 }
                 plugin.getLogManager().logPlayerAction(event.getPlayer(), "QUIT" + sessionInfo);
@@ -74,48 +98,33 @@ public class PlayerListener implements Listener {
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
-    public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
-        try {
-            String command = event.getMessage().toLowerCase();
-
-            if (command.startsWith("/dmzrestart") || command.startsWith("/restart")) {
-                if (plugin.getLogManager() != null) {
-                    plugin.getLogManager().logPlayerAction(event.getPlayer(), 
-                        "COMMAND: " + event.getMessage());
-                }
-            }
-
-            if (plugin.getRestartManager() != null && 
-                plugin.getRestartManager().isEmergencyRestartActive()) {
-
-                if (command.startsWith("/stop") || command.startsWith("/reload") || command.startsWith("/restart")) {
-                    if (!plugin.getPermissionManager().canBypassRestart(event.getPlayer())) {
+    public void onPlayerLocaleChange(PlayerLocaleChangeEvent event) {
+        if (plugin.getAlertManager() != null) {
+            Player player = event.getPlayer();
+            String locale = event.getLocale();
+            plugin.getTaskScheduler().ensureGlobal(() -> plugin.getAlertManager().getRecipientIndex().update(player, locale));
+        }
+    }
 
-                        event.setCancelled(true);
-                        // FIXED: Proper AlertLevel enum usage
-                        plugin.getAlertManager().sendToPlayer(event.getPlayer(),
-                            "&cCommand blocked - Emergency restart in progress!",
-                            AlertManager.AlertLevel.ERROR);
-                    }
-                }
-            }
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
+        // Only used for debug logging - emergency blocking lives in CommandBlockListener
+        if (plugin.getLogManager() == null || !plugin.getLogManager().isDebugMode()) return;
 
-        } catch (Exception e) {
-            if (plugin.getLogManager() != null) {
-                plugin.getLogManager().debug("Error in PlayerCommandPreprocessEvent: " + e.getMessage());
-            }
+        if (LOGGED_COMMANDS.matches(event.getMessage())) {
+            plugin.getLogManager().logPlayerAction(event.getPlayer(), "COMMAND: " + event.getMessage());
         }
     }
 
     public long getPlayerSessionLength(UUID playerId) {
-        Long joinTime = playerJoinTimes.get(playerId);
-        if (joinTime != null) {
+        long joinTime = plugin.getSessionStore() != null ? plugin.getSessionStore().getJoinTime(playerId) : -1;
+        if (joinTime >= 0) {
             return (System.currentTimeMillis() - joinTime) / 1000;
         }
         return 0;
     }
 
     public int getActivePlayerSessions() {
-        return playerJoinTimes.size();
+        return plugin.getSessionStore() != null ? plugin.getSessionStore().getOpenSessions() : 0;
     }
 }
@@ -0,0 +1,35 @@
+package io.github.dmzrestart.listeners;
+
+import io.github.dmzrestart.DMZRestartPlugin;
+import org.bukkit.entity.Entity;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+
+// Gives AI back to mobs paused by soft recovery whose chunk unloaded before the restore ran,
+// and marks where players died so soft recovery leaves their loot alone
+public class RecoveryListener implements Listener {
+    private final DMZRestartPlugin plugin;
+
+    public RecoveryListener(DMZRestartPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        if (plugin.getServerLoadMonitor() == null) return;
+
+        for (Entity entity : event.getEntities()) {
+            plugin.getServerLoadMonitor().getRecoveryPipeline().restoreIfThrottled(entity);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerDeath(PlayerDeathEvent event) {
+        if (plugin.getServerLoadMonitor() == null || event.getDrops().isEmpty()) return;
+
+        plugin.getServerLoadMonitor().getRecoveryPipeline().onPlayerDeath(event);
+    }
+}
@@ -0,0 +1,138 @@
+package io.github.dmzrestart.managers;
+
+import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.utils.LatencyHistogram;
+import io.github.dmzrestart.utils.TaskScheduler;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import java.util.PriorityQueue;
+
+public class AlertDispatcher {
+    private final DMZRestartPlugin plugin;
+    private final AlertRecipientIndex recipientIndex;
+    private final PriorityQueue<Delivery> queue = new PriorityQueue<>();
+    private final LatencyHistogram deliveryLatency = new LatencyHistogram();
+    private TaskScheduler.Task drainTask;
+    private long sequence = 0;
+    private long deliveredMessages = 0;
+    private long deferredTicks = 0;
+
+    // Each pending alert keeps the recipient array current at dispatch time and a cursor into it
+    private static class Delivery implements Comparable<Delivery> {
+        private final Component message;
+        private final AlertManager.AlertLevel level;
+        private final Player[] recipients;
+        private final long sequence;
+        private final long enqueuedAt;
+        private int next = 0;
+
+        Delivery(Component message, AlertManager.AlertLevel level, Player[] recipients, long sequence) {
+            this.message = message;
+            this.level = level;
+            this.recipients = recipients;
+            this.sequence = sequence;
+            this.enqueuedAt = System.nanoTime();
+        }
+
+        @Override
+        public int compareTo(Delivery other) {
+            // Higher alert levels first, then first-in first-out
+            int byLevel = Integer.compare(other.level.ordinal(), level.ordinal());
+            return byLevel != 0 ? byLevel : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    public AlertDispatcher(DMZRestartPlugin plugin, AlertRecipientIndex recipientIndex) {
+        this.plugin = plugin;
+        this.recipientIndex = recipientIndex;
+    }
+
+    // Must be called from the main thread
+    public void dispatch(Component message, AlertManager.AlertLevel level) {
+        Bukkit.getConsoleSender().sendMessage(message);
+
+        // Index arrays are replaced rather than mutated, so holding on to one is safe
+        Player[] recipients = recipientIndex.getRecipients(level);
+        if (recipients.length == 0) return;
+
+        queue.add(new Delivery(message, level, recipients, sequence++));
+
+        // Spend what is left of this tick's budget right away, the remainder follows on later ticks
+        drain(budgetNanos());
+        if (!queue.isEmpty()) {
+            startDrainTask();
+        }
+    }
+
+    private void drain(long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        boolean deliveredAny = false;
+
+        while (!queue.isEmpty()) {
+            Delivery delivery = queue.peek();
+
+            while (delivery.next < delivery.recipients.length) {
+                // Always make progress, even if a single send overshoots the budget
+                if (deliveredAny && System.nanoTime() >= deadline) {
+                    deferredTicks++;
+                    return;
+                }
+
+                Player player = delivery.recipients[delivery.next++];
+                if (player.isOnline()) {
+                    player.sendMessage(delivery.message);
+                    deliveryLatency.record(System.nanoTime() - delivery.enqueuedAt);
+                    deliveredMessages++;
+                }
+                deliveredAny = true;
+            }
+
+            queue.poll();
+        }
+    }
+
+    private void startDrainTask() {
+        if (drainTask != null) return;
+
+        drainTask = plugin.getTaskScheduler().runGlobalTimer(task -> {
+            drain(budgetNanos());
+            if (queue.isEmpty()) {
+                task.cancel();
+                drainTask = null;
+            }
+        }, 1L, 1L);
+    }
+
+    private long budgetNanos() {
+        ConfigManager config = plugin.getConfigManager();
+        if (config == null || !config.isAlertFanoutEnabled()) {
+            return Long.MAX_VALUE / 2;
+        }
+        return config.getAlertTickBudgetNanos();
+    }
+
+    public void flush() {
+        if (drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+        drain(Long.MAX_VALUE / 2);
+    }
+
+    public int getPendingAlerts() {
+        return queue.size();
+    }
+
+    public long getDeliveredMessages() {
+        return deliveredMessages;
+    }
+
+    public long getDeferredTicks() {
+        return deferredTicks;
+    }
+
+    public LatencyHistogram getDeliveryLatency() {
+        return deliveryLatency;
+    }
+}
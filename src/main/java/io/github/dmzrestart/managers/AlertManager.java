@@ -1,6 +1,10 @@
 package io.github.dmzrestart.managers;
 
 import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.utils.TaskScheduler;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextColor;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.boss.BarColor;
@@ -12,43 +16,71 @@ import java.util.concurrent.ConcurrentHashMap;
 public class AlertManager {
     private final DMZRestartPlugin plugin;
     private final ConcurrentHashMap<Player, BossBar> activeBossBars = new ConcurrentHashMap<>();
+    private final AlertRecipientIndex recipientIndex;
+    private final AlertDispatcher dispatcher;
+
+    // Seconds a broadcast alert stays on a boss bar before it is hidden or the countdown resumes
+    private static final int ALERT_DISPLAY_SECONDS = 10;
+
+    // Shared countdown bar for the active restart - one bar for every online player
+    private BossBar countdownBar;
+    private int countdownTotalSeconds = 0;
+    private int countdownLastRendered = -1;
+    private RestartManager.RestartReason countdownReason;
+    private long alertHoldUntil = 0L;
+
+    // Shared bar for broadcast alerts while no countdown is running
+    private BossBar broadcastBar;
+    private TaskScheduler.Task broadcastBarTask;
 
     public enum AlertLevel {
-        INFO(ChatColor.GREEN, BarColor.GREEN),
-        WARNING(ChatColor.YELLOW, BarColor.YELLOW),
-        ERROR(ChatColor.RED, BarColor.RED),
-        EMERGENCY(ChatColor.DARK_RED, BarColor.RED);
+        INFO(ChatColor.GREEN, NamedTextColor.GREEN, BarColor.GREEN),
+        WARNING(ChatColor.YELLOW, NamedTextColor.YELLOW, BarColor.YELLOW),
+        ERROR(ChatColor.RED, NamedTextColor.RED, BarColor.RED),
+        EMERGENCY(ChatColor.DARK_RED, NamedTextColor.DARK_RED, BarColor.RED);
 
         private final ChatColor chatColor;
+        private final TextColor textColor;
         private final BarColor barColor;
 
-        AlertLevel(ChatColor chatColor, BarColor barColor) {
+        AlertLevel(ChatColor chatColor, TextColor textColor, BarColor barColor) {
             this.chatColor = chatColor;
+            this.textColor = textColor;
             this.barColor = barColor;
         }
 
         public ChatColor getChatColor() { return chatColor; }
+        public TextColor getTextColor() { return textColor; }
         public BarColor getBarColor() { return barColor; }
+
+        public boolean showsBossBar() {
+            return this != INFO;
+        }
     }
 
     public AlertManager(DMZRestartPlugin plugin) {
         this.plugin = plugin;
+        this.recipientIndex = new AlertRecipientIndex(plugin);
+        this.dispatcher = new AlertDispatcher(plugin, recipientIndex);
         plugin.getLogger().info("AlertManager initialized successfully");
     }
 
     public void sendToPlayer(Player player, String message, AlertLevel level) {
+        sendToPlayer(player, MessageTemplate.Rendered.of(message), level);
+    }
+
+    public void sendToPlayer(Player player, MessageTemplate.Rendered message, AlertLevel level) {
         if (player == null || !player.isOnline()) return;
 
-        String coloredMessage = level.getChatColor() + ChatColor.translateAlternateColorCodes('&', message);
-        player.sendMessage(coloredMessage);
+        player.sendMessage(colorize(message, level));
 
         // Create boss bar for warnings and errors
-        if (level == AlertLevel.WARNING || level == AlertLevel.ERROR || level == AlertLevel.EMERGENCY) {
-            showBossBar(player, message, level);
+        if (level.showsBossBar()) {
+            showBossBar(player, message.getPlain(), level);
         }
     }
 
-    private void showBossBar(Player player, String message, AlertLevel level) {
+    private void showBossBar(Player player, String cleanMessage, AlertLevel level) {
         // Remove existing boss bar
         BossBar existingBar = activeBossBars.remove(player);
         if (existingBar != null) {
@@ -56,7 +88,6 @@ public class AlertManager {
         }
 
         // Create new boss bar
-        String cleanMessage = ChatColor.stripColor(ChatColor.translateAlternateColorCodes('&', message));
         BossBar bossBar = Bukkit.createBossBar(cleanMessage, level.getBarColor(), BarStyle.SOLID);
         bossBar.addPlayer(player);
         bossBar.setVisible(true);
@@ -64,23 +95,156 @@ public class AlertManager {
         activeBossBars.put(player, bossBar);
 
         // Remove after 10 seconds
-        Bukkit.getScheduler().runTaskLater(plugin, () -> {
+        plugin.getTaskScheduler().runForEntity(player, () -> {
             BossBar bar = activeBossBars.remove(player);
             if (bar != null) {
                 bar.removePlayer(player);
             }
-        }, 200L);
+        }, 20L * ALERT_DISPLAY_SECONDS);
     }
 
     public void broadcastAlert(String message, AlertLevel level) {
-        String coloredMessage = level.getChatColor() + ChatColor.translateAlternateColorCodes('&', message);
-        Bukkit.broadcastMessage(coloredMessage);
+        broadcastAlert(MessageTemplate.Rendered.of(message), level);
+    }
+
+    public void broadcastAlert(MessageTemplate.Rendered message, AlertLevel level) {
+        dispatcher.dispatch(colorize(message, level), level);
 
         // Show boss bar to all players for important alerts
-        if (level == AlertLevel.WARNING || level == AlertLevel.ERROR || level == AlertLevel.EMERGENCY) {
+        if (level.showsBossBar()) {
+            showSharedAlert(message.getPlain(), level);
+        }
+    }
+
+    // Level color applies wherever the template does not set its own
+    private Component colorize(MessageTemplate.Rendered message, AlertLevel level) {
+        return Component.text().color(level.getTextColor()).append(message.getComponent()).build();
+    }
+
+    private void showSharedAlert(String cleanMessage, AlertLevel level) {
+        // During a countdown the alert borrows the countdown bar instead of adding another one
+        if (countdownBar != null) {
+            countdownBar.setTitle(cleanMessage);
+            countdownBar.setColor(level.getBarColor());
+            alertHoldUntil = System.currentTimeMillis() + ALERT_DISPLAY_SECONDS * 1000L;
+            countdownLastRendered = -1;
+            return;
+        }
+
+        if (broadcastBar == null) {
+            broadcastBar = Bukkit.createBossBar(cleanMessage, level.getBarColor(), BarStyle.SOLID);
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                broadcastBar.addPlayer(player);
+            }
+        } else {
+            broadcastBar.setTitle(cleanMessage);
+            broadcastBar.setColor(level.getBarColor());
+        }
+        broadcastBar.setVisible(true);
+
+        // A single hide task, pushed back by every new alert
+        if (broadcastBarTask != null) {
+            broadcastBarTask.cancel();
+        }
+        broadcastBarTask = plugin.getTaskScheduler().runGlobalLater(() -> {
+            broadcastBarTask = null;
+            if (broadcastBar != null) {
+                broadcastBar.removeAll();
+                broadcastBar = null;
+            }
+        }, 20L * ALERT_DISPLAY_SECONDS);
+    }
+
+    public void startCountdown(int totalSeconds, RestartManager.RestartReason reason, AlertLevel level) {
+        if (countdownBar == null) {
+            countdownBar = Bukkit.createBossBar("", level.getBarColor(), BarStyle.SEGMENTED_20);
             for (Player player : Bukkit.getOnlinePlayers()) {
-                showBossBar(player, message, level);
+                countdownBar.addPlayer(player);
             }
+        } else {
+            countdownBar.setColor(level.getBarColor());
+        }
+
+        // The countdown supersedes any standalone alert bar
+        hideBroadcastBar();
+
+        countdownTotalSeconds = Math.max(1, totalSeconds);
+        countdownReason = reason;
+        countdownLastRendered = -1;
+        alertHoldUntil = 0L;
+        countdownBar.setVisible(true);
+        updateCountdown(totalSeconds);
+    }
+
+    // Driven by the restart countdown timer, so it runs at most once per second
+    public void updateCountdown(int remainingSeconds) {
+        if (countdownBar == null || remainingSeconds == countdownLastRendered) return;
+        countdownLastRendered = remainingSeconds;
+
+        double progress = (double) remainingSeconds / countdownTotalSeconds;
+        countdownBar.setProgress(Math.max(0.0, Math.min(1.0, progress)));
+
+        if (System.currentTimeMillis() < alertHoldUntil) return;
+
+        String title = plugin.getConfigManager().getMessageTemplate("restart-warning")
+            .render(remainingSeconds, countdownReason).getPlain();
+        if (!title.equals(countdownBar.getTitle())) {
+            countdownBar.setTitle(title);
+        }
+    }
+
+    // Forces the next countdown tick to re-render the title, e.g. after messages were reloaded
+    public void refreshCountdownTitle() {
+        countdownLastRendered = -1;
+    }
+
+    public void endCountdown() {
+        if (countdownBar != null) {
+            countdownBar.removeAll();
+            countdownBar = null;
+        }
+        countdownTotalSeconds = 0;
+        countdownReason = null;
+        countdownLastRendered = -1;
+        alertHoldUntil = 0L;
+    }
+
+    public boolean isCountdownActive() {
+        return countdownBar != null;
+    }
+
+    public void addPlayer(Player player) {
+        recipientIndex.update(player);
+        if (countdownBar != null) {
+            countdownBar.addPlayer(player);
+        }
+        if (broadcastBar != null) {
+            broadcastBar.addPlayer(player);
+        }
+    }
+
+    public void removePlayer(Player player) {
+        recipientIndex.remove(player);
+        if (countdownBar != null) {
+            countdownBar.removePlayer(player);
+        }
+        if (broadcastBar != null) {
+            broadcastBar.removePlayer(player);
+        }
+        BossBar bar = activeBossBars.remove(player);
+        if (bar != null) {
+            bar.removePlayer(player);
+        }
+    }
+
+    private void hideBroadcastBar() {
+        if (broadcastBarTask != null) {
+            broadcastBarTask.cancel();
+            broadcastBarTask = null;
+        }
+        if (broadcastBar != null) {
+            broadcastBar.removeAll();
+            broadcastBar = null;
         }
     }
 
@@ -92,11 +256,24 @@ public class AlertManager {
         }
     }
 
+    public AlertDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    public AlertRecipientIndex getRecipientIndex() {
+        return recipientIndex;
+    }
+
     public void cleanup() {
+        // Deliver anything still queued before tearing down
+        dispatcher.flush();
+
         // Remove all boss bars
         activeBossBars.values().forEach(bossBar -> {
             bossBar.removeAll();
         });
         activeBossBars.clear();
+        hideBroadcastBar();
+        endCountdown();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,174 @@
+package io.github.dmzrestart.managers;
+
+import io.github.dmzrestart.DMZRestartPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Main-thread index of who receives each alert level, kept up to date on join,
+// quit, locale change and permission change instead of being recomputed per broadcast
+public class AlertRecipientIndex {
+    private static final Player[] NO_PLAYERS = new Player[0];
+    private static final AlertManager.AlertLevel[] LEVELS = AlertManager.AlertLevel.values();
+
+    private final DMZRestartPlugin plugin;
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private final Bucket[] buckets = new Bucket[LEVELS.length];
+
+    private static class Entry {
+        private final Player player;
+        private String locale;
+        private int levelMask;
+
+        Entry(Player player) {
+            this.player = player;
+        }
+    }
+
+    // Membership is updated in place, the arrays handed out are rebuilt lazily after a change
+    private static class Bucket {
+        private final Map<UUID, Entry> members = new LinkedHashMap<>();
+        private Player[] recipients = NO_PLAYERS;
+        private Map<String, Player[]> recipientsByLocale = Collections.emptyMap();
+        private boolean dirty = false;
+
+        void rebuild() {
+            List<Player> all = new ArrayList<>(members.size());
+            Map<String, List<Player>> grouped = new HashMap<>();
+            for (Entry entry : members.values()) {
+                all.add(entry.player);
+                grouped.computeIfAbsent(entry.locale, locale -> new ArrayList<>()).add(entry.player);
+            }
+
+            Map<String, Player[]> byLocale = new HashMap<>(grouped.size() * 2);
+            for (Map.Entry<String, List<Player>> group : grouped.entrySet()) {
+                byLocale.put(group.getKey(), group.getValue().toArray(NO_PLAYERS));
+            }
+
+            recipients = all.toArray(NO_PLAYERS);
+            recipientsByLocale = Collections.unmodifiableMap(byLocale);
+            dirty = false;
+        }
+    }
+
+    public AlertRecipientIndex(DMZRestartPlugin plugin) {
+        this.plugin = plugin;
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    public void rebuild() {
+        entries.clear();
+        for (Bucket bucket : buckets) {
+            bucket.members.clear();
+            bucket.dirty = true;
+        }
+
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            update(player, player.getLocale());
+        }
+    }
+
+    public void update(Player player) {
+        update(player, player.getLocale());
+    }
+
+    public void update(Player player, String locale) {
+        UUID playerId = player.getUniqueId();
+        Entry entry = entries.get(playerId);
+        if (entry == null) {
+            entry = new Entry(player);
+            entries.put(playerId, entry);
+        }
+
+        String normalizedLocale = locale != null ? locale.toLowerCase() : "en_us";
+        int levelMask = computeLevelMask(player);
+        boolean localeChanged = !normalizedLocale.equals(entry.locale);
+        int previousMask = localeChanged ? 0 : entry.levelMask;
+
+        // Locale changes move the player between groups in every bucket they belong to
+        if (localeChanged) {
+            removeFromBuckets(playerId, entry.levelMask);
+        }
+
+        entry.locale = normalizedLocale;
+        entry.levelMask = levelMask;
+
+        for (int i = 0; i < LEVELS.length; i++) {
+            int bit = 1 << i;
+            boolean wanted = (levelMask & bit) != 0;
+            boolean present = (previousMask & bit) != 0;
+            if (wanted && !present) {
+                buckets[i].members.put(playerId, entry);
+                buckets[i].dirty = true;
+            } else if (!wanted && present) {
+                buckets[i].members.remove(playerId);
+                buckets[i].dirty = true;
+            }
+        }
+    }
+
+    public void remove(Player player) {
+        Entry entry = entries.remove(player.getUniqueId());
+        if (entry != null) {
+            removeFromBuckets(player.getUniqueId(), entry.levelMask);
+        }
+    }
+
+    // Permission changes can arrive from async LuckPerms threads
+    public void scheduleRefresh(UUID playerId) {
+        plugin.getTaskScheduler().runGlobal(() -> {
+            Player player = Bukkit.getPlayer(playerId);
+            if (player != null && player.isOnline()) {
+                update(player);
+            }
+        });
+    }
+
+    public Player[] getRecipients(AlertManager.AlertLevel level) {
+        Bucket bucket = buckets[level.ordinal()];
+        if (bucket.dirty) bucket.rebuild();
+        return bucket.recipients;
+    }
+
+    public Map<String, Player[]> getRecipientsByLocale(AlertManager.AlertLevel level) {
+        Bucket bucket = buckets[level.ordinal()];
+        if (bucket.dirty) bucket.rebuild();
+        return bucket.recipientsByLocale;
+    }
+
+    public boolean receives(Player player, AlertManager.AlertLevel level) {
+        Entry entry = entries.get(player.getUniqueId());
+        return entry != null && (entry.levelMask & (1 << level.ordinal())) != 0;
+    }
+
+    public int getIndexedPlayers() {
+        return entries.size();
+    }
+
+    private void removeFromBuckets(UUID playerId, int levelMask) {
+        for (int i = 0; i < LEVELS.length; i++) {
+            if ((levelMask & (1 << i)) != 0) {
+                buckets[i].members.remove(playerId);
+                buckets[i].dirty = true;
+            }
+        }
+    }
+
+    private int computeLevelMask(Player player) {
+        // Errors and emergencies concern everyone, routine alerts respect dmzrestart.alerts
+        int mask = (1 << AlertManager.AlertLevel.ERROR.ordinal()) | (1 << AlertManager.AlertLevel.EMERGENCY.ordinal());
+        PermissionManager permissions = plugin.getPermissionManager();
+        if (permissions == null || permissions.shouldReceiveAlerts(player)) {
+            mask |= (1 << AlertManager.AlertLevel.INFO.ordinal()) | (1 << AlertManager.AlertLevel.WARNING.ordinal());
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.dmzrestart.managers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Which components need reconfiguring when one snapshot replaces another
+public final class ConfigDiff {
+    private final boolean debugChanged;
+    private final boolean monitoringChanged;
+    private final boolean scheduleChanged;
+    private final boolean tuningChanged;
+    private final boolean messagesChanged;
+    private final boolean metricsChanged;
+    private final boolean timingsChanged;
+    private final boolean exportChanged;
+    private final boolean hotReloadChanged;
+    private final boolean integrationsChanged;
+
+    private ConfigDiff(ConfigSnapshot before, ConfigSnapshot after) {
+        this.debugChanged = before.isDebugMode() != after.isDebugMode();
+        // Thresholds are read on every check, only the tasks themselves depend on these
+        this.monitoringChanged = before.isMonitoringEnabled() != after.isMonitoringEnabled()
+            || before.getCheckInterval() != after.getCheckInterval()
+            || before.isLeakDetectionEnabled() != after.isLeakDetectionEnabled()
+            || before.isThreadMonitoringEnabled() != after.isThreadMonitoringEnabled()
+            || before.getLeakIntervalMinutes() != after.getLeakIntervalMinutes();
+        this.scheduleChanged = !before.getRestartTimes().equals(after.getRestartTimes())
+            || !before.getZoneId().equals(after.getZoneId());
+        this.tuningChanged = before.isTuningEnabled() != after.isTuningEnabled()
+            || before.getTuningTargetMspt() != after.getTuningTargetMspt()
+            || before.getTuningMinRuns() != after.getTuningMinRuns()
+            || before.getTuningMinIntervalHours() != after.getTuningMinIntervalHours()
+            || before.getTuningMaxIntervalHours() != after.getTuningMaxIntervalHours()
+            || before.isTuningAutoApply() != after.isTuningAutoApply()
+            || before.getMemoryThreshold() != after.getMemoryThreshold();
+        this.messagesChanged = !sameMessages(before.getMessages(), after.getMessages());
+        this.metricsChanged = before.isMetricsEnabled() != after.isMetricsEnabled();
+        this.timingsChanged = before.isTimingsEnabled() != after.isTimingsEnabled()
+            || before.getTimingsExportMinutes() != after.getTimingsExportMinutes();
+        this.exportChanged = before.getMetricsSampleSeconds() != after.getMetricsSampleSeconds()
+            || !before.getMetricsHttpBind().equals(after.getMetricsHttpBind())
+            || before.getMetricsHttpPort() != after.getMetricsHttpPort()
+            || before.isPrometheusEnabled() != after.isPrometheusEnabled()
+            || before.isStatsdEnabled() != after.isStatsdEnabled()
+            || !before.getStatsdHost().equals(after.getStatsdHost())
+            || before.getStatsdPort() != after.getStatsdPort()
+            || !before.getStatsdPrefix().equals(after.getStatsdPrefix())
+            || !before.getStatsdTags().equals(after.getStatsdTags())
+            || before.getStatsdFlushSeconds() != after.getStatsdFlushSeconds()
+            || before.getStatsdPacketBytes() != after.getStatsdPacketBytes()
+            || before.getStatsdTimerSampleRate() != after.getStatsdTimerSampleRate()
+            || before.isDashboardEnabled() != after.isDashboardEnabled()
+            || before.getDashboardMaxViewers() != after.getDashboardMaxViewers()
+            || before.getDashboardHistoryMinutes() != after.getDashboardHistoryMinutes();
+        this.hotReloadChanged = before.isHotReloadEnabled() != after.isHotReloadEnabled();
+        this.integrationsChanged = before.isPlaceholdersEnabled() != after.isPlaceholdersEnabled()
+            || before.isLuckPermsEnabled() != after.isLuckPermsEnabled();
+    }
+
+    public static ConfigDiff between(ConfigSnapshot before, ConfigSnapshot after) {
+        return new ConfigDiff(before, after);
+    }
+
+    private static boolean sameMessages(Map<String, MessageTemplate> before, Map<String, MessageTemplate> after) {
+        if (!before.keySet().equals(after.keySet())) return false;
+        for (Map.Entry<String, MessageTemplate> entry : before.entrySet()) {
+            if (!Objects.equals(entry.getValue().getSource(), after.get(entry.getKey()).getSource())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isDebugChanged() { return debugChanged; }
+    public boolean isMonitoringChanged() { return monitoringChanged; }
+    public boolean isScheduleChanged() { return scheduleChanged; }
+    public boolean isTuningChanged() { return tuningChanged; }
+    public boolean isMessagesChanged() { return messagesChanged; }
+    public boolean isMetricsChanged() { return metricsChanged; }
+    public boolean isTimingsChanged() { return timingsChanged; }
+    public boolean isExportChanged() { return exportChanged; }
+    public boolean isHotReloadChanged() { return hotReloadChanged; }
+    public boolean isIntegrationsChanged() { return integrationsChanged; }
+
+    public List<String> getChangedComponents() {
+        List<String> changed = new ArrayList<>();
+        if (debugChanged) changed.add("debug");
+        if (monitoringChanged) changed.add("monitoring");
+        if (scheduleChanged) changed.add("schedule");
+        if (tuningChanged) changed.add("restart-tuning");
+        if (messagesChanged) changed.add("messages");
+        if (metricsChanged) changed.add("metrics");
+        if (timingsChanged) changed.add("timings");
+        if (exportChanged) changed.add("metrics-export");
+        if (hotReloadChanged) changed.add("hot-reload");
+        if (integrationsChanged) changed.add("integrations");
+        return changed;
+    }
+}
@@ -1,6 +1,7 @@
 package io.github.dmzrestart.managers;
 
 import io.github.dmzrestart.DMZRestartPlugin;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import java.io.File;
@@ -8,16 +9,22 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.time.LocalTime;
 import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ConfigManager {
     private final DMZRestartPlugin plugin;
-    private FileConfiguration config;
+    private volatile FileConfiguration config;
     private File configFile;
     private File dataFolder;
+    private final AtomicReference<ConfigSnapshot> snapshot = new AtomicReference<>();
+    private final Map<String, MessageTemplate> adhocTemplates = new ConcurrentHashMap<>();
 
     public ConfigManager(DMZRestartPlugin plugin) {
         this.plugin = plugin;
@@ -39,13 +46,9 @@ public class ConfigManager {
             }
 
             config = YamlConfiguration.loadConfiguration(configFile);
+            applyDefaults(config);
 
-            InputStream defaultConfigStream = plugin.getResource("config.yml");
-            if (defaultConfigStream != null) {
-                YamlConfiguration defaultConfig = YamlConfiguration.loadConfiguration(
-                    new java.io.InputStreamReader(defaultConfigStream));
-                config.setDefaults(defaultConfig);
-            }
+            publishSnapshot();
 
             plugin.getLogger().info("Configuration loaded successfully");
 
@@ -55,6 +58,54 @@ public class ConfigManager {
         }
     }
 
+    // Parsed but not yet active configuration, produced off the main thread by loadFromDisk()
+    public static class LoadedConfig {
+        private final FileConfiguration config;
+        private final ConfigSnapshot snapshot;
+
+        private LoadedConfig(FileConfiguration config, ConfigSnapshot snapshot) {
+            this.config = config;
+            this.snapshot = snapshot;
+        }
+
+        public ConfigSnapshot getSnapshot() {
+            return snapshot;
+        }
+    }
+
+    // Safe to call from any thread - touches neither the active config nor Bukkit state
+    public LoadedConfig loadFromDisk() throws IOException, InvalidConfigurationException {
+        YamlConfiguration loaded = new YamlConfiguration();
+        // Unlike loadConfiguration(), load() rejects a half-written or malformed file
+        loaded.load(configFile);
+        applyDefaults(loaded);
+
+        if (!validateConfig(loaded)) {
+            throw new InvalidConfigurationException("Configuration failed validation");
+        }
+        return new LoadedConfig(loaded, ConfigSnapshot.parse(loaded, plugin.getLogger()));
+    }
+
+    // Main thread only. Returns the snapshot that was replaced.
+    public ConfigSnapshot apply(LoadedConfig loaded) {
+        config = loaded.config;
+        adhocTemplates.clear();
+        return snapshot.getAndSet(loaded.snapshot);
+    }
+
+    private void applyDefaults(FileConfiguration target) {
+        InputStream defaultConfigStream = plugin.getResource("config.yml");
+        if (defaultConfigStream != null) {
+            YamlConfiguration defaultConfig = YamlConfiguration.loadConfiguration(
+                new java.io.InputStreamReader(defaultConfigStream));
+            target.setDefaults(defaultConfig);
+        }
+    }
+
+    public File getConfigFile() {
+        return configFile;
+    }
+
     private void createDefaultConfig() {
         try {
             plugin.getLogger().info("Creating default configuration file...");
@@ -82,10 +133,14 @@ public class ConfigManager {
             basicConfig.set("debug", false);
             basicConfig.set("timezone", TimeZone.getDefault().getID());
             basicConfig.set("backup-config-on-reload", true);
+            basicConfig.set("hot-reload", true);
 
             basicConfig.set("restart-times", Arrays.asList(
                 "04:00", "12:00", "20:00"
             ));
+            basicConfig.set("restart-tuning.enabled", true);
+            basicConfig.set("restart-tuning.target-mspt-p95", 40.0);
+            basicConfig.set("restart-tuning.auto-apply", false);
 
             basicConfig.set("monitoring.enabled", true);
             basicConfig.set("monitoring.check-interval", 30);
@@ -94,13 +149,34 @@ public class ConfigManager {
             basicConfig.set("monitoring.consecutive-checks", 3);
             basicConfig.set("monitoring.log-performance", false);
             basicConfig.set("monitoring.debug-log-interval-hours", 5);
+            basicConfig.set("monitoring.container-aware", true);
+            basicConfig.set("monitoring.lag-scan.enabled", true);
+            basicConfig.set("monitoring.lag-scan.tick-budget-nanos", 2000000);
+            basicConfig.set("monitoring.lag-scan.top-k", 10);
+            basicConfig.set("monitoring.leak-detection.enabled", false);
+            basicConfig.set("monitoring.leak-detection.interval-minutes", 30);
+            basicConfig.set("monitoring.threads.enabled", true);
+            basicConfig.set("monitoring.threads.critical-action", "alert");
+            basicConfig.set("monitoring.threads.warning-action", "alert");
 
             basicConfig.set("emergency.enabled", true);
             basicConfig.set("emergency.delay", 30);
             basicConfig.set("emergency.tps-threshold", 12.0);
             basicConfig.set("emergency.memory-threshold", 95.0);
+            basicConfig.set("emergency.blocked-commands", Arrays.asList("stop", "reload", "restart"));
+            basicConfig.set("emergency.recovery.enabled", true);
+            basicConfig.set("emergency.recovery.stages", Arrays.asList("unload-chunks", "merge-items", "throttle-ai"));
+            basicConfig.set("emergency.recovery.measure-seconds", 30);
+            basicConfig.set("emergency.recovery.target-mspt", 50.0);
+            basicConfig.set("emergency.evidence.enabled", true);
+            basicConfig.set("emergency.evidence.heap-dump", false);
 
             basicConfig.set("metrics.enabled", true);
+            basicConfig.set("metrics.timings.enabled", false);
+            basicConfig.set("metrics.timings.export-interval-minutes", 5);
+            basicConfig.set("metrics.prometheus.enabled", false);
+            basicConfig.set("metrics.statsd.enabled", false);
+            basicConfig.set("metrics.dashboard.enabled", false);
             basicConfig.set("integrations.placeholderapi.enabled", true);
             basicConfig.set("integrations.luckperms.enabled", true);
 
@@ -108,9 +184,13 @@ public class ConfigManager {
             basicConfig.set("warnings.intervals", Arrays.asList(300, 180, 60, 30, 10, 5, 3, 2, 1));
             basicConfig.set("warnings.sound-enabled", true);
 
+            basicConfig.set("alerts.fanout.enabled", true);
+            basicConfig.set("alerts.fanout.tick-budget-nanos", 1000000);
+
             basicConfig.set("messages.restart-warning", "&e&l[WARNING] Server restart in {time}!");
             basicConfig.set("messages.restart-now", "&c&l[RESTART] Server restarting NOW!");
             basicConfig.set("messages.emergency-restart", "&4&l[EMERGENCY] Emergency restart initiated!");
+            basicConfig.set("messages.command-blocked", "&cCommand blocked - Emergency restart in progress!");
 
             basicConfig.save(configFile);
             plugin.getLogger().info("Basic configuration file created with defaults");
@@ -121,6 +201,10 @@ public class ConfigManager {
     }
 
     public boolean validateConfig() {
+        return validateConfig(config);
+    }
+
+    private boolean validateConfig(FileConfiguration config) {
         try {
             if (config == null) {
                 plugin.getLogger().severe("Configuration is null - cannot validate");
@@ -195,82 +279,113 @@ public class ConfigManager {
         }
     }
 
-    // Configuration getters with defaults
+    // Configuration getters - all backed by the current snapshot
     public FileConfiguration getConfig() { 
         return config; 
     }
 
+    public ConfigSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
     public boolean isDebugMode() {
-        return config.getBoolean("debug", false);
+        return snapshot.get().isDebugMode();
     }
 
     public boolean isMonitoringEnabled() {
-        return config.getBoolean("monitoring.enabled", true);
+        return snapshot.get().isMonitoringEnabled();
     }
 
     public boolean isMetricsEnabled() {
-        return config.getBoolean("metrics.enabled", true);
+        return snapshot.get().isMetricsEnabled();
     }
 
     public boolean isPlaceholdersEnabled() {
-        return config.getBoolean("integrations.placeholderapi.enabled", true);
+        return snapshot.get().isPlaceholdersEnabled();
     }
 
     public boolean isLuckPermsIntegrationEnabled() {
-        return config.getBoolean("integrations.luckperms.enabled", true);
+        return snapshot.get().isLuckPermsEnabled();
     }
 
     public boolean isBackupConfigOnReload() {
-        return config.getBoolean("backup-config-on-reload", true);
+        return snapshot.get().isBackupConfigOnReload();
+    }
+
+    public boolean isHotReloadEnabled() {
+        return snapshot.get().isHotReloadEnabled();
     }
 
     public int getCheckInterval() {
-        return config.getInt("monitoring.check-interval", 30);
+        return snapshot.get().getCheckInterval();
     }
 
     public double getTpsThreshold() {
-        return config.getDouble("monitoring.tps-threshold", 16.0);
+        return snapshot.get().getTpsThreshold();
     }
 
     public double getMemoryThreshold() {
-        return config.getDouble("monitoring.memory-threshold", 85.0);
+        return snapshot.get().getMemoryThreshold();
     }
 
     public int getConsecutiveChecks() {
-        return config.getInt("monitoring.consecutive-checks", 3);
+        return snapshot.get().getConsecutiveChecks();
     }
 
     public String getTimezone() {
-        return config.getString("timezone", TimeZone.getDefault().getID());
+        return snapshot.get().getTimezone();
     }
 
-    // FIXED: Added getZoneId() method
     public ZoneId getZoneId() {
-        return ZoneId.of(getTimezone());
+        return snapshot.get().getZoneId();
     }
 
-    public List<String> getRestartTimes() {
-        return config.getStringList("restart-times");
+    public List<LocalTime> getRestartTimes() {
+        return snapshot.get().getRestartTimes();
     }
 
     public boolean isWarningsEnabled() {
-        return config.getBoolean("warnings.enabled", true);
+        return snapshot.get().isWarningsEnabled();
     }
 
-    public List<Integer> getWarningIntervals() {
-        return config.getIntegerList("warnings.intervals");
+    public int[] getWarningIntervals() {
+        return snapshot.get().getWarningIntervals();
     }
 
     public boolean isSoundEnabled() {
-        return config.getBoolean("warnings.sound-enabled", true);
+        return snapshot.get().isSoundEnabled();
+    }
+
+    public boolean isAlertFanoutEnabled() {
+        return snapshot.get().isAlertFanoutEnabled();
+    }
+
+    public long getAlertTickBudgetNanos() {
+        return snapshot.get().getAlertTickBudgetNanos();
     }
 
     public String getMessage(String key) {
-        return config.getString("messages." + key, "&7[DMZ-ReStart] " + key);
+        MessageTemplate template = snapshot.get().getMessage(key);
+        return template != null ? template.getSource() : ConfigSnapshot.messageSource(config, key);
+    }
+
+    public MessageTemplate getMessageTemplate(String key) {
+        MessageTemplate template = snapshot.get().getMessage(key);
+        if (template == null) {
+            // Keys outside the messages section are compiled on first use
+            template = adhocTemplates.computeIfAbsent(key, k -> MessageTemplate.compile(ConfigSnapshot.messageSource(config, k)));
+        }
+        return template;
+    }
+
+    private void publishSnapshot() {
+        snapshot.set(ConfigSnapshot.parse(config, plugin.getLogger()));
+        adhocTemplates.clear();
     }
 
     public void setConfigValue(String path, Object value) {
         config.set(path, value);
+        publishSnapshot();
     }
 
     public boolean hasPath(String path) {
@@ -280,7 +395,8 @@ public class ConfigManager {
     public void reloadFromDisk() {
         if (configFile.exists()) {
             config = YamlConfiguration.loadConfiguration(configFile);
+            publishSnapshot();
             plugin.getLogger().info("Configuration reloaded from disk");
         }
     }
-}
\ No newline at end of file
+}
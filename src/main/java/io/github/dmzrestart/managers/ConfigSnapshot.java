@@ -0,0 +1,370 @@
+package io.github.dmzrestart.managers;
+
+import io.github.dmzrestart.utils.CommandPrefixMatcher;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+// Parsed, validated and immutable view of config.yml. Built once per load and
+// swapped in atomically, so readers on any thread see one consistent version.
+public final class ConfigSnapshot {
+    private static final String[] BUILTIN_MESSAGES = { "restart-warning", "restart-now", "emergency-restart", "command-blocked" };
+    public static final String[] RECOVERY_STAGES = { "unload-chunks", "merge-items", "throttle-ai", "gc" };
+    // gc is opt-in: a full collection on the tick thread stalls an already lagging server
+    private static final String[] DEFAULT_RECOVERY_STAGES = { "unload-chunks", "merge-items", "throttle-ai" };
+
+    // General
+    private final boolean debug;
+    private final String timezone;
+    private final ZoneId zoneId;
+    private final boolean backupConfigOnReload;
+    private final boolean hotReloadEnabled;
+    private final List<LocalTime> restartTimes;
+    private final boolean tuningEnabled;
+    private final double tuningTargetMspt;
+    private final int tuningMinRuns;
+    private final double tuningMinIntervalHours;
+    private final double tuningMaxIntervalHours;
+    private final boolean tuningAutoApply;
+
+    // Monitoring
+    private final boolean monitoringEnabled;
+    private final int checkInterval;
+    private final double tpsThreshold;
+    private final double memoryThreshold;
+    private final int consecutiveChecks;
+    private final boolean logPerformance;
+    private final int debugLogIntervalHours;
+    private final boolean containerAware;
+    private final boolean lagScanEnabled;
+    private final long lagScanTickBudgetNanos;
+    private final int lagScanTopK;
+    private final boolean leakDetectionEnabled;
+    private final int leakIntervalMinutes;
+    private final int leakHistory;
+    private final int leakMinSamples;
+    private final long leakMinGrowthMb;
+    private final long leakMinGrowthInstances;
+    private final boolean threadMonitoringEnabled;
+    private final int threadMaxLive;
+    private final int threadGrowthThreshold;
+    private final int threadPoolThreshold;
+    private final double threadCpuHogPercent;
+    private final String threadCriticalAction;
+    private final String threadWarningAction;
+    private final int threadDumpsKept;
+
+    // Emergency
+    private final boolean emergencyEnabled;
+    private final int emergencyDelay;
+    private final double emergencyTpsThreshold;
+    private final double emergencyMemoryThreshold;
+    private final CommandPrefixMatcher blockedCommands;
+
+    // Soft recovery
+    private final boolean recoveryEnabled;
+    private final List<String> recoveryStages;
+    private final int recoveryMeasureSeconds;
+    private final double recoveryTargetMspt;
+    private final int recoveryCooldownSeconds;
+    private final int recoveryItemCapPerChunk;
+    private final int recoveryAiThrottleEntities;
+    private final int recoveryAiThrottleSeconds;
+    private final boolean evidenceEnabled;
+    private final boolean evidenceHeapDump;
+    private final int evidenceKeep;
+    private final long evidenceMinFreeMb;
+
+    // Warnings and alerts
+    private final boolean warningsEnabled;
+    private final int[] warningIntervals;
+    private final boolean soundEnabled;
+    private final boolean alertFanoutEnabled;
+    private final long alertTickBudgetNanos;
+
+    // Integrations and metrics
+    private final boolean placeholdersEnabled;
+    private final boolean luckPermsEnabled;
+    private final boolean metricsEnabled;
+    private final boolean timingsEnabled;
+    private final int timingsExportMinutes;
+    private final int metricsSampleSeconds;
+    private final String metricsHttpBind;
+    private final int metricsHttpPort;
+    private final boolean prometheusEnabled;
+    private final boolean statsdEnabled;
+    private final String statsdHost;
+    private final int statsdPort;
+    private final String statsdPrefix;
+    private final List<String> statsdTags;
+    private final int statsdFlushSeconds;
+    private final int statsdPacketBytes;
+    private final double statsdTimerSampleRate;
+    private final boolean dashboardEnabled;
+    private final int dashboardMaxViewers;
+    private final int dashboardHistoryMinutes;
+
+    private final Map<String, MessageTemplate> messages;
+    private final long loadedAt;
+
+    private ConfigSnapshot(FileConfiguration config, Logger logger) {
+        this.debug = config.getBoolean("debug", false);
+        this.backupConfigOnReload = config.getBoolean("backup-config-on-reload", true);
+        this.hotReloadEnabled = config.getBoolean("hot-reload", true);
+
+        String zone = config.getString("timezone", TimeZone.getDefault().getID());
+        ZoneId resolvedZone;
+        try {
+            resolvedZone = ZoneId.of(zone);
+        } catch (Exception e) {
+            logger.warning("Invalid timezone '" + zone + "' - falling back to " + ZoneId.systemDefault().getId());
+            resolvedZone = ZoneId.systemDefault();
+            zone = resolvedZone.getId();
+        }
+        this.timezone = zone;
+        this.zoneId = resolvedZone;
+
+        TreeSet<LocalTime> times = new TreeSet<>();
+        for (String time : config.getStringList("restart-times")) {
+            try {
+                times.add(LocalTime.parse(time.length() == 4 ? "0" + time : time));
+            } catch (DateTimeParseException e) {
+                logger.warning("Ignoring invalid restart time: " + time + " (should be HH:MM)");
+            }
+        }
+        this.restartTimes = Collections.unmodifiableList(new ArrayList<>(times));
+        this.tuningEnabled = config.getBoolean("restart-tuning.enabled", true);
+        this.tuningTargetMspt = Math.max(1.0, config.getDouble("restart-tuning.target-mspt-p95", 40.0));
+        this.tuningMinRuns = Math.max(1, config.getInt("restart-tuning.min-runs", 3));
+        // Spread evenly over a day, so nothing longer than a day can be scheduled
+        this.tuningMaxIntervalHours = Math.max(1.0, Math.min(24.0, config.getDouble("restart-tuning.max-interval-hours", 24.0)));
+        this.tuningMinIntervalHours = Math.max(0.5, Math.min(tuningMaxIntervalHours,
+            config.getDouble("restart-tuning.min-interval-hours", 2.0)));
+        this.tuningAutoApply = config.getBoolean("restart-tuning.auto-apply", false);
+
+        this.monitoringEnabled = config.getBoolean("monitoring.enabled", true);
+        this.checkInterval = Math.max(1, config.getInt("monitoring.check-interval", 30));
+        this.tpsThreshold = config.getDouble("monitoring.tps-threshold", 16.0);
+        this.memoryThreshold = config.getDouble("monitoring.memory-threshold", 85.0);
+        this.consecutiveChecks = Math.max(1, config.getInt("monitoring.consecutive-checks", 3));
+        this.logPerformance = config.getBoolean("monitoring.log-performance", false);
+        this.debugLogIntervalHours = Math.max(1, config.getInt("monitoring.debug-log-interval-hours", 5));
+        this.containerAware = config.getBoolean("monitoring.container-aware", true);
+        this.lagScanEnabled = config.getBoolean("monitoring.lag-scan.enabled", true);
+        this.lagScanTickBudgetNanos = Math.max(100_000L, config.getLong("monitoring.lag-scan.tick-budget-nanos", 2_000_000L));
+        this.lagScanTopK = Math.max(1, Math.min(100, config.getInt("monitoring.lag-scan.top-k", 10)));
+        this.leakDetectionEnabled = config.getBoolean("monitoring.leak-detection.enabled", false);
+        this.leakIntervalMinutes = Math.max(5, config.getInt("monitoring.leak-detection.interval-minutes", 30));
+        this.leakHistory = Math.max(3, Math.min(96, config.getInt("monitoring.leak-detection.history", 12)));
+        this.leakMinSamples = Math.max(3, Math.min(leakHistory, config.getInt("monitoring.leak-detection.min-samples", 4)));
+        this.leakMinGrowthMb = Math.max(1L, config.getLong("monitoring.leak-detection.min-growth-mb", 32L));
+        this.leakMinGrowthInstances = Math.max(1000L, config.getLong("monitoring.leak-detection.min-growth-instances", 500_000L));
+        this.threadMonitoringEnabled = config.getBoolean("monitoring.threads.enabled", true);
+        this.threadMaxLive = Math.max(50, config.getInt("monitoring.threads.max-threads", 1000));
+        this.threadGrowthThreshold = Math.max(10, config.getInt("monitoring.threads.growth-threshold", 100));
+        this.threadPoolThreshold = Math.max(10, config.getInt("monitoring.threads.pool-threshold", 100));
+        this.threadCpuHogPercent = Math.max(10.0, config.getDouble("monitoring.threads.cpu-hog-percent", 90.0));
+        this.threadCriticalAction = parseHealthAction(config.getString("monitoring.threads.critical-action", "alert"), "alert", logger);
+        this.threadWarningAction = parseHealthAction(config.getString("monitoring.threads.warning-action", "alert"), "alert", logger);
+        this.threadDumpsKept = Math.max(1, config.getInt("monitoring.threads.dumps-kept", 20));
+
+        this.emergencyEnabled = config.getBoolean("emergency.enabled", true);
+        this.emergencyDelay = Math.max(0, config.getInt("emergency.delay", 30));
+        this.emergencyTpsThreshold = config.getDouble("emergency.tps-threshold", 12.0);
+        this.emergencyMemoryThreshold = config.getDouble("emergency.memory-threshold", 95.0);
+        this.blockedCommands = CommandPrefixMatcher.compile(config.isList("emergency.blocked-commands")
+            ? config.getStringList("emergency.blocked-commands")
+            : Arrays.asList("stop", "reload", "restart"));
+
+        this.recoveryEnabled = config.getBoolean("emergency.recovery.enabled", true);
+        List<String> stages = new ArrayList<>();
+        for (String stage : config.isList("emergency.recovery.stages")
+                ? config.getStringList("emergency.recovery.stages")
+                : Arrays.asList(DEFAULT_RECOVERY_STAGES)) {
+            String normalized = stage.trim().toLowerCase(Locale.ROOT);
+            if (!Arrays.asList(RECOVERY_STAGES).contains(normalized)) {
+                logger.warning("Ignoring unknown recovery stage: " + stage);
+            } else if (!stages.contains(normalized)) {
+                stages.add(normalized);
+            }
+        }
+        this.recoveryStages = Collections.unmodifiableList(stages);
+        this.recoveryMeasureSeconds = Math.max(10, config.getInt("emergency.recovery.measure-seconds", 30));
+        this.recoveryTargetMspt = Math.max(1.0, config.getDouble("emergency.recovery.target-mspt", 50.0));
+        this.recoveryCooldownSeconds = Math.max(0, config.getInt("emergency.recovery.cooldown-seconds", 600));
+        this.recoveryItemCapPerChunk = Math.max(1, config.getInt("emergency.recovery.item-cap-per-chunk", 64));
+        this.recoveryAiThrottleEntities = Math.max(1, config.getInt("emergency.recovery.ai-throttle-entities", 50));
+        this.recoveryAiThrottleSeconds = Math.max(10, config.getInt("emergency.recovery.ai-throttle-seconds", 300));
+
+        this.evidenceEnabled = config.getBoolean("emergency.evidence.enabled", true);
+        this.evidenceHeapDump = config.getBoolean("emergency.evidence.heap-dump", false);
+        this.evidenceKeep = Math.max(1, config.getInt("emergency.evidence.keep", 5));
+        this.evidenceMinFreeMb = Math.max(0L, config.getLong("emergency.evidence.min-free-mb", 2048L));
+
+        this.warningsEnabled = config.getBoolean("warnings.enabled", true);
+        // Largest first, duplicates and non-positive values dropped
+        this.warningIntervals = config.getIntegerList("warnings.intervals").stream()
+            .filter(interval -> interval != null && interval > 0)
+            .distinct()
+            .sorted(Collections.reverseOrder())
+            .mapToInt(Integer::intValue)
+            .toArray();
+        this.soundEnabled = config.getBoolean("warnings.sound-enabled", true);
+        this.alertFanoutEnabled = config.getBoolean("alerts.fanout.enabled", true);
+        this.alertTickBudgetNanos = Math.max(50_000L, config.getLong("alerts.fanout.tick-budget-nanos", 1_000_000L));
+
+        this.placeholdersEnabled = config.getBoolean("integrations.placeholderapi.enabled", true);
+        this.luckPermsEnabled = config.getBoolean("integrations.luckperms.enabled", true);
+        this.metricsEnabled = config.getBoolean("metrics.enabled", true);
+        this.timingsEnabled = config.getBoolean("metrics.timings.enabled", false);
+        this.timingsExportMinutes = Math.max(1, config.getInt("metrics.timings.export-interval-minutes", 5));
+        this.metricsSampleSeconds = Math.max(1, config.getInt("metrics.sample-seconds", 5));
+        this.metricsHttpBind = config.getString("metrics.http.bind", "127.0.0.1");
+        this.metricsHttpPort = Math.max(1, Math.min(65535, config.getInt("metrics.http.port", 9225)));
+        this.prometheusEnabled = config.getBoolean("metrics.prometheus.enabled", false);
+        this.statsdEnabled = config.getBoolean("metrics.statsd.enabled", false);
+        this.statsdHost = config.getString("metrics.statsd.host", "127.0.0.1");
+        this.statsdPort = Math.max(1, Math.min(65535, config.getInt("metrics.statsd.port", 8125)));
+        this.statsdPrefix = config.getString("metrics.statsd.prefix", "dmzrestart");
+        this.statsdTags = Collections.unmodifiableList(new ArrayList<>(config.getStringList("metrics.statsd.tags")));
+        this.statsdFlushSeconds = Math.max(1, config.getInt("metrics.statsd.flush-seconds", 10));
+        // Below ~512 bytes nothing useful fits; above the MTU datagrams get fragmented or dropped
+        this.statsdPacketBytes = Math.max(512, Math.min(65000, config.getInt("metrics.statsd.max-packet-bytes", 1432)));
+        this.statsdTimerSampleRate = Math.max(0.01, Math.min(1.0, config.getDouble("metrics.statsd.timer-sample-rate", 1.0)));
+        this.dashboardEnabled = config.getBoolean("metrics.dashboard.enabled", false);
+        this.dashboardMaxViewers = Math.max(1, config.getInt("metrics.dashboard.max-viewers", 20));
+        this.dashboardHistoryMinutes = Math.max(1, Math.min(24 * 60, config.getInt("metrics.dashboard.history-minutes", 60)));
+
+        Map<String, MessageTemplate> compiled = new HashMap<>();
+        for (String key : BUILTIN_MESSAGES) {
+            compiled.put(key, MessageTemplate.compile(messageSource(config, key)));
+        }
+        ConfigurationSection section = config.getConfigurationSection("messages");
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                compiled.put(key, MessageTemplate.compile(messageSource(config, key)));
+            }
+        }
+        this.messages = Collections.unmodifiableMap(compiled);
+        this.loadedAt = System.currentTimeMillis();
+    }
+
+    public static ConfigSnapshot parse(FileConfiguration config, Logger logger) {
+        return new ConfigSnapshot(config, logger);
+    }
+
+    private static String parseHealthAction(String value, String fallback, Logger logger) {
+        String action = value == null ? fallback : value.trim().toLowerCase(Locale.ROOT);
+        if (action.equals("restart") || action.equals("alert") || action.equals("log")) {
+            return action;
+        }
+        logger.warning("Unknown health action '" + value + "' - using " + fallback);
+        return fallback;
+    }
+
+    static String messageSource(FileConfiguration config, String key) {
+        return config.getString("messages." + key, "&7[DMZ-ReStart] " + key);
+    }
+
+    public boolean isDebugMode() { return debug; }
+    public String getTimezone() { return timezone; }
+    public ZoneId getZoneId() { return zoneId; }
+    public boolean isBackupConfigOnReload() { return backupConfigOnReload; }
+    public boolean isHotReloadEnabled() { return hotReloadEnabled; }
+    public List<LocalTime> getRestartTimes() { return restartTimes; }
+    public boolean isTuningEnabled() { return tuningEnabled; }
+    public double getTuningTargetMspt() { return tuningTargetMspt; }
+    public int getTuningMinRuns() { return tuningMinRuns; }
+    public double getTuningMinIntervalHours() { return tuningMinIntervalHours; }
+    public double getTuningMaxIntervalHours() { return tuningMaxIntervalHours; }
+    public boolean isTuningAutoApply() { return tuningAutoApply; }
+
+    public boolean isMonitoringEnabled() { return monitoringEnabled; }
+    public int getCheckInterval() { return checkInterval; }
+    public double getTpsThreshold() { return tpsThreshold; }
+    public double getMemoryThreshold() { return memoryThreshold; }
+    public int getConsecutiveChecks() { return consecutiveChecks; }
+    public boolean isLogPerformance() { return logPerformance; }
+    public int getDebugLogIntervalHours() { return debugLogIntervalHours; }
+    public boolean isContainerAware() { return containerAware; }
+    public boolean isLagScanEnabled() { return lagScanEnabled; }
+    public long getLagScanTickBudgetNanos() { return lagScanTickBudgetNanos; }
+    public int getLagScanTopK() { return lagScanTopK; }
+    public boolean isLeakDetectionEnabled() { return leakDetectionEnabled; }
+    public int getLeakIntervalMinutes() { return leakIntervalMinutes; }
+    public int getLeakHistory() { return leakHistory; }
+    public int getLeakMinSamples() { return leakMinSamples; }
+    public long getLeakMinGrowthMb() { return leakMinGrowthMb; }
+    public long getLeakMinGrowthInstances() { return leakMinGrowthInstances; }
+    public boolean isThreadMonitoringEnabled() { return threadMonitoringEnabled; }
+    public int getThreadMaxLive() { return threadMaxLive; }
+    public int getThreadGrowthThreshold() { return threadGrowthThreshold; }
+    public int getThreadPoolThreshold() { return threadPoolThreshold; }
+    public double getThreadCpuHogPercent() { return threadCpuHogPercent; }
+    // "restart", "alert" or "log"
+    public String getThreadCriticalAction() { return threadCriticalAction; }
+    public String getThreadWarningAction() { return threadWarningAction; }
+    public int getThreadDumpsKept() { return threadDumpsKept; }
+
+    public boolean isEmergencyEnabled() { return emergencyEnabled; }
+    public int getEmergencyDelay() { return emergencyDelay; }
+    public double getEmergencyTpsThreshold() { return emergencyTpsThreshold; }
+    public double getEmergencyMemoryThreshold() { return emergencyMemoryThreshold; }
+    public CommandPrefixMatcher getBlockedCommands() { return blockedCommands; }
+
+    public boolean isRecoveryEnabled() { return recoveryEnabled; }
+    public List<String> getRecoveryStages() { return recoveryStages; }
+    public int getRecoveryMeasureSeconds() { return recoveryMeasureSeconds; }
+    public double getRecoveryTargetMspt() { return recoveryTargetMspt; }
+    public int getRecoveryCooldownSeconds() { return recoveryCooldownSeconds; }
+    public int getRecoveryItemCapPerChunk() { return recoveryItemCapPerChunk; }
+    public int getRecoveryAiThrottleEntities() { return recoveryAiThrottleEntities; }
+    public int getRecoveryAiThrottleSeconds() { return recoveryAiThrottleSeconds; }
+    public boolean isEvidenceEnabled() { return evidenceEnabled; }
+    public boolean isEvidenceHeapDump() { return evidenceHeapDump; }
+    public int getEvidenceKeep() { return evidenceKeep; }
+    public long getEvidenceMinFreeMb() { return evidenceMinFreeMb; }
+
+    public boolean isWarningsEnabled() { return warningsEnabled; }
+    public int[] getWarningIntervals() { return warningIntervals.clone(); }
+    public boolean isSoundEnabled() { return soundEnabled; }
+    public boolean isAlertFanoutEnabled() { return alertFanoutEnabled; }
+    public long getAlertTickBudgetNanos() { return alertTickBudgetNanos; }
+
+    public boolean isPlaceholdersEnabled() { return placeholdersEnabled; }
+    public boolean isLuckPermsEnabled() { return luckPermsEnabled; }
+    public boolean isMetricsEnabled() { return metricsEnabled; }
+    public boolean isTimingsEnabled() { return timingsEnabled; }
+    public int getTimingsExportMinutes() { return timingsExportMinutes; }
+    public int getMetricsSampleSeconds() { return metricsSampleSeconds; }
+    public String getMetricsHttpBind() { return metricsHttpBind; }
+    public int getMetricsHttpPort() { return metricsHttpPort; }
+    public boolean isPrometheusEnabled() { return prometheusEnabled; }
+    public boolean isStatsdEnabled() { return statsdEnabled; }
+    public String getStatsdHost() { return statsdHost; }
+    public int getStatsdPort() { return statsdPort; }
+    public String getStatsdPrefix() { return statsdPrefix; }
+    public List<String> getStatsdTags() { return statsdTags; }
+    public int getStatsdFlushSeconds() { return statsdFlushSeconds; }
+    public int getStatsdPacketBytes() { return statsdPacketBytes; }
+    public double getStatsdTimerSampleRate() { return statsdTimerSampleRate; }
+    public boolean isDashboardEnabled() { return dashboardEnabled; }
+    public int getDashboardMaxViewers() { return dashboardMaxViewers; }
+    public int getDashboardHistoryMinutes() { return dashboardHistoryMinutes; }
+
+    public MessageTemplate getMessage(String key) { return messages.get(key); }
+    public Map<String, MessageTemplate> getMessages() { return messages; }
+    public long getLoadedAt() { return loadedAt; }
+}
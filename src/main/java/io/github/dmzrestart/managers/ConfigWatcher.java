@@ -0,0 +1,95 @@
+package io.github.dmzrestart.managers;
+
+import io.github.dmzrestart.DMZRestartPlugin;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+// Watches the data folder and asks the plugin to hot-reload when config.yml changes
+public class ConfigWatcher {
+    // Editors often write a file in several steps - wait for it to settle
+    private static final long SETTLE_MILLIS = 500L;
+
+    private final DMZRestartPlugin plugin;
+    private final Path directory;
+    private final String fileName;
+    private WatchService watchService;
+    private Thread watchThread;
+
+    public ConfigWatcher(DMZRestartPlugin plugin) {
+        this.plugin = plugin;
+        Path configPath = plugin.getConfigManager().getConfigFile().toPath().toAbsolutePath();
+        this.directory = configPath.getParent();
+        this.fileName = configPath.getFileName().toString();
+    }
+
+    public synchronized void start() throws IOException {
+        if (watchThread != null) return;
+
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_CREATE);
+
+        watchThread = new Thread(this::watchLoop, "DMZ-ReStart Config Watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    public synchronized void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+                // Closing only wakes the watch thread up
+            }
+            watchService = null;
+        }
+        watchThread = null;
+    }
+
+    public synchronized boolean isRunning() {
+        return watchThread != null;
+    }
+
+    private void watchLoop() {
+        WatchService service = watchService;
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean configTouched = containsConfig(key);
+                key.reset();
+
+                if (!configTouched) continue;
+
+                // Swallow the burst of follow-up events from the same save
+                WatchKey followUp;
+                while ((followUp = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    followUp.pollEvents();
+                    followUp.reset();
+                }
+
+                plugin.reloadConfigurationAsync(null, "file change");
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Watcher stopped
+        }
+    }
+
+    private boolean containsConfig(WatchKey key) {
+        boolean found = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            if (context instanceof Path && ((Path) context).getFileName().toString().equals(fileName)) {
+                found = true;
+            }
+        }
+        return found;
+    }
+}
@@ -1,13 +1,15 @@
 package io.github.dmzrestart.managers;
 
 import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.utils.LogIndex;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
@@ -15,6 +17,7 @@ public class LogManager {
     private final DMZRestartPlugin plugin;
     private boolean debugMode = false;
     private File logFile;
+    private LogIndex logIndex;
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
     public LogManager(DMZRestartPlugin plugin) {
@@ -29,6 +32,7 @@ public class LogManager {
             if (!logDir.exists()) {
                 logDir.mkdirs();
             }
+            logIndex = new LogIndex(logDir);
 
             String dateStr = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
             logFile = new File(logDir, "dmz-restart-" + dateStr + ".log");
@@ -71,22 +75,45 @@ public class LogManager {
         }
     }
 
-    private void writeToFile(String level, String message) {
+    // Synchronized so each line's offset is known for the search index
+    private synchronized void writeToFile(String level, String message) {
         if (logFile == null) return;
 
-        try (FileWriter writer = new FileWriter(logFile, true)) {
-            String timestamp = dateFormat.format(new Date());
-            writer.write(String.format("[%s] [%s] %s\n", timestamp, level, message));
-            writer.flush();
+        long now = System.currentTimeMillis();
+        byte[] line = String.format("[%s] [%s] %s\n", dateFormat.format(new Date(now)), level, message)
+            .getBytes(StandardCharsets.UTF_8);
+        long offset = logFile.length();
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write(line);
         } catch (IOException e) {
             // Silent fail to prevent log spam
+            return;
         }
+        logIndex.append(logFile, offset, line.length, now, level);
+    }
+
+    // Brings the index of today's file up to date so later writes extend it; blocking
+    public void prepareLogIndex() {
+        if (logFile != null) {
+            logIndex.catchUp(logFile);
+        }
+    }
+
+    public LogIndex getLogIndex() {
+        return logIndex;
     }
 
     public void broadcast(String message) {
-        String colored = ChatColor.translateAlternateColorCodes('&', message);
-        Bukkit.broadcastMessage(colored);
-        info("BROADCAST: " + message);
+        broadcast(MessageTemplate.Rendered.of(message), AlertManager.AlertLevel.INFO);
+    }
+
+    public void broadcast(MessageTemplate.Rendered message, AlertManager.AlertLevel priority) {
+        if (plugin.getAlertManager() != null) {
+            plugin.getAlertManager().getDispatcher().dispatch(message.getComponent(), priority);
+        } else {
+            Bukkit.getServer().sendMessage(message.getComponent());
+        }
+        info("BROADCAST: " + message.getPlain());
     }
 
     public void sendMessage(CommandSender sender, String message) {
@@ -0,0 +1,161 @@
+package io.github.dmzrestart.managers;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MessageTemplate {
+    private static final int CACHE_SIZE = 64;
+
+    private final String source;
+    private final String[] literals;
+    private final Slot[] slots;
+    private final boolean usesTime;
+    private final boolean usesReason;
+
+    // Rendered output keyed by normalized arguments - see cacheKey()
+    private final Map<Long, Rendered> renderCache = new LinkedHashMap<Long, Rendered>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Rendered> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public enum Slot {
+        TIME("{time}"),
+        REASON("{reason}");
+
+        private final String token;
+
+        Slot(String token) {
+            this.token = token;
+        }
+
+        public String getToken() {
+            return token;
+        }
+    }
+
+    public static class Rendered {
+        private final Component component;
+        private final String legacy;
+        private final String plain;
+
+        private Rendered(String raw) {
+            this.component = LegacyComponentSerializer.legacyAmpersand().deserialize(raw);
+            this.legacy = LegacyComponentSerializer.legacySection().serialize(component);
+            this.plain = PlainTextComponentSerializer.plainText().serialize(component);
+        }
+
+        // For one-off messages that are not backed by a configured template
+        public static Rendered of(String raw) {
+            return new Rendered(raw);
+        }
+
+        public Component getComponent() { return component; }
+        public String getLegacy() { return legacy; }
+        public String getPlain() { return plain; }
+    }
+
+    private MessageTemplate(String source, String[] literals, Slot[] slots) {
+        this.source = source;
+        this.literals = literals;
+        this.slots = slots;
+
+        boolean time = false;
+        boolean reason = false;
+        for (Slot slot : slots) {
+            if (slot == Slot.TIME) time = true;
+            if (slot == Slot.REASON) reason = true;
+        }
+        this.usesTime = time;
+        this.usesReason = reason;
+    }
+
+    public static MessageTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<Slot> slots = new ArrayList<>();
+
+        int start = 0;
+        int index = 0;
+        while (index < source.length()) {
+            Slot matched = null;
+            if (source.charAt(index) == '{') {
+                for (Slot slot : Slot.values()) {
+                    if (source.startsWith(slot.getToken(), index)) {
+                        matched = slot;
+                        break;
+                    }
+                }
+            }
+
+            if (matched != null) {
+                literals.add(source.substring(start, index));
+                slots.add(matched);
+                index += matched.getToken().length();
+                start = index;
+            } else {
+                index++;
+            }
+        }
+        literals.add(source.substring(start));
+
+        return new MessageTemplate(source,
+            literals.toArray(new String[0]),
+            slots.toArray(new Slot[0]));
+    }
+
+    public Rendered render() {
+        return render(0, null);
+    }
+
+    public Rendered render(RestartManager.RestartReason reason) {
+        return render(0, reason);
+    }
+
+    public synchronized Rendered render(int seconds, RestartManager.RestartReason reason) {
+        long key = cacheKey(seconds, reason);
+        Rendered rendered = renderCache.get(key);
+        if (rendered == null) {
+            rendered = new Rendered(fill(seconds, reason));
+            renderCache.put(key, rendered);
+        }
+        return rendered;
+    }
+
+    // Seconds are reduced to the precision formatTime() displays, so a countdown
+    // only produces a new entry when the visible text changes
+    private long cacheKey(int seconds, RestartManager.RestartReason reason) {
+        long timeKey = 0;
+        if (usesTime) {
+            timeKey = seconds < 60 ? Math.max(0, seconds) : seconds - (seconds % 60);
+        }
+        long reasonKey = usesReason && reason != null ? reason.ordinal() + 1 : 0;
+        return (timeKey << 8) | reasonKey;
+    }
+
+    private String fill(int seconds, RestartManager.RestartReason reason) {
+        StringBuilder builder = new StringBuilder(source.length() + 16);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(literals[i]);
+            switch (slots[i]) {
+                case TIME:
+                    builder.append(RestartManager.formatTime(seconds));
+                    break;
+                case REASON:
+                    builder.append(reason != null ? reason.getDisplayName() : "Unknown");
+                    break;
+            }
+        }
+        builder.append(literals[literals.length - 1]);
+        return builder.toString();
+    }
+
+    public String getSource() {
+        return source;
+    }
+}
@@ -1,8 +1,12 @@
 package io.github.dmzrestart.managers;
 
 import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.integrations.LuckPermsIntegration;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PermissionManager {
     private final DMZRestartPlugin plugin;
@@ -17,6 +21,20 @@ public class PermissionManager {
     public static final String BYPASS_RESTART = "dmzrestart.bypass";
     public static final String ALERTS = "dmzrestart.alerts";
 
+    // Resolved decisions, one bit each. The low 16 bits mark a decision as known,
+    // the high 16 bits hold its result.
+    private static final int DECISION_ADMIN = 0;
+    private static final int DECISION_RESTART = 1;
+    private static final int DECISION_SCHEDULE = 2;
+    private static final int DECISION_CANCEL = 3;
+    private static final int DECISION_RELOAD = 4;
+    private static final int DECISION_BYPASS = 5;
+    private static final int DECISION_ALERTS = 6;
+    private static final int RESULT_SHIFT = 16;
+
+    private final ConcurrentHashMap<UUID, AtomicInteger> decisionCache = new ConcurrentHashMap<>();
+    private LuckPermsIntegration luckPerms;
+
     public PermissionManager(DMZRestartPlugin plugin) {
         this.plugin = plugin;
         plugin.getLogger().info("PermissionManager initialized successfully");
@@ -27,31 +45,91 @@ public class PermissionManager {
     }
 
     public boolean isAdmin(CommandSender sender) {
-        return hasPermission(sender, ADMIN);
+        return decide(sender, DECISION_ADMIN);
     }
 
     public boolean canRestart(CommandSender sender) {
-        return hasPermission(sender, RESTART) || isAdmin(sender);
+        return decide(sender, DECISION_RESTART);
     }
 
     public boolean canSchedule(CommandSender sender) {
-        return hasPermission(sender, SCHEDULE) || isAdmin(sender);
+        return decide(sender, DECISION_SCHEDULE);
     }
 
     public boolean canCancel(CommandSender sender) {
-        return hasPermission(sender, CANCEL) || isAdmin(sender);
+        return decide(sender, DECISION_CANCEL);
     }
 
     public boolean canReload(CommandSender sender) {
-        return hasPermission(sender, RELOAD) || isAdmin(sender);
+        return decide(sender, DECISION_RELOAD);
     }
 
     public boolean canBypassRestart(CommandSender sender) {
-        return hasPermission(sender, BYPASS_RESTART) || isAdmin(sender);
+        return decide(sender, DECISION_BYPASS);
     }
 
     public boolean shouldReceiveAlerts(CommandSender sender) {
-        return hasPermission(sender, ALERTS);
+        return decide(sender, DECISION_ALERTS);
+    }
+
+    private boolean decide(CommandSender sender, int decision) {
+        // Only cache while something tells us when permissions change
+        if (luckPerms == null || !(sender instanceof Player)) {
+            return resolve(sender, decision);
+        }
+
+        AtomicInteger bits = decisionCache.computeIfAbsent(((Player) sender).getUniqueId(), id -> new AtomicInteger());
+        int known = 1 << decision;
+        int cached = bits.get();
+        if ((cached & known) != 0) {
+            return (cached & (known << RESULT_SHIFT)) != 0;
+        }
+
+        boolean allowed = resolve(sender, decision);
+        int update = known | (allowed ? known << RESULT_SHIFT : 0);
+        bits.accumulateAndGet(update, (current, added) -> current | added);
+        return allowed;
+    }
+
+    private boolean resolve(CommandSender sender, int decision) {
+        switch (decision) {
+            case DECISION_ADMIN:
+                return hasPermission(sender, ADMIN);
+            case DECISION_RESTART:
+                return hasPermission(sender, RESTART) || hasPermission(sender, ADMIN);
+            case DECISION_SCHEDULE:
+                return hasPermission(sender, SCHEDULE) || hasPermission(sender, ADMIN);
+            case DECISION_CANCEL:
+                return hasPermission(sender, CANCEL) || hasPermission(sender, ADMIN);
+            case DECISION_RELOAD:
+                return hasPermission(sender, RELOAD) || hasPermission(sender, ADMIN);
+            case DECISION_BYPASS:
+                return hasPermission(sender, BYPASS_RESTART) || hasPermission(sender, ADMIN);
+            case DECISION_ALERTS:
+                return hasPermission(sender, ALERTS);
+            default:
+                return false;
+        }
+    }
+
+    public void invalidate(UUID playerId) {
+        decisionCache.remove(playerId);
+
+        if (plugin.getAlertManager() != null) {
+            plugin.getAlertManager().getRecipientIndex().scheduleRefresh(playerId);
+        }
+    }
+
+    public void invalidateAll() {
+        decisionCache.clear();
+    }
+
+    public int getCachedPlayers() {
+        return decisionCache.size();
+    }
+
+    public boolean isLuckPermsActive() {
+        return luckPerms != null;
     }
 
     public void sendNoPermissionMessage(CommandSender sender, String permission) {
@@ -67,9 +145,25 @@ public class PermissionManager {
     }
 
     public void initializeLuckPerms() {
-        // LuckPerms integration can be added here
+        if (luckPerms != null) {
+            luckPerms.unsubscribe();
+        }
+
+        LuckPermsIntegration integration = new LuckPermsIntegration(plugin);
+        integration.subscribe(this::invalidate);
+        luckPerms = integration;
+        invalidateAll();
+
         if (plugin.getLogManager() != null) {
-            plugin.getLogManager().info("LuckPerms integration initialized");
+            plugin.getLogManager().info("LuckPerms integration initialized - permission decisions are cached per player");
+        }
+    }
+
+    public void shutdownLuckPerms() {
+        if (luckPerms != null) {
+            luckPerms.unsubscribe();
+            luckPerms = null;
         }
+        invalidateAll();
     }
-}
\ No newline at end of file
+}
@@ -1,27 +1,37 @@
 package io.github.dmzrestart.managers;
 
 import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.listeners.CommandBlockListener;
+import io.github.dmzrestart.utils.LagReport;
+import io.github.dmzrestart.utils.ServerLoadMonitor;
+import io.github.dmzrestart.utils.TaskScheduler;
 import org.bukkit.Bukkit;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class RestartManager {
     private final DMZRestartPlugin plugin;
-    private final Map<String, BukkitTask> scheduledRestarts = new ConcurrentHashMap<>();
+    private final Map<String, TaskScheduler.Task> scheduledRestarts = new ConcurrentHashMap<>();
     private final List<RestartHistory> restartHistory = new ArrayList<>();
-    private BukkitTask mainSchedulerTask;
+    private TaskScheduler.Task mainSchedulerTask;
+    private TaskScheduler.Task countdownTask;
+    private CommandBlockListener commandBlocker;
+    private static final String SCHEDULED_TASK_PREFIX = "scheduled_";
+    // Evidence capture is sized to end before the restart; this only covers a slow disk
+    private static final long EVIDENCE_GRACE_MILLIS = 10_000L;
     private volatile boolean emergencyRestartActive = false;
     private volatile boolean restartInProgress = false;
+    // Set once the final restart/shutdown has been issued, so disable can tell it apart
+    private volatile boolean restartExecuting = false;
     private volatile RestartReason currentRestartReason = null;
     private volatile String currentRestartInitiator = null;
     private volatile int remainingSeconds = 0;
     private int totalRestartsManaged = 0;
+    // Set by RestartTuner when auto-apply is on; null means the configured restart-times
+    private volatile List<LocalTime> tunedRestartTimes = null;
 
     public enum RestartReason {
         SCHEDULED("Scheduled Restart"),
@@ -47,18 +57,25 @@ public class RestartManager {
         private final RestartReason reason;
         private final String initiator;
         private final String details;
+        private final LagReport lagReport;
 
         public RestartHistory(RestartReason reason, String initiator, String details) {
+            this(reason, initiator, details, null);
+        }
+
+        public RestartHistory(RestartReason reason, String initiator, String details, LagReport lagReport) {
             this.timestamp = new Date();
             this.reason = reason;
             this.initiator = initiator;
             this.details = details;
+            this.lagReport = lagReport;
         }
 
         public Date getTimestamp() { return timestamp; }
         public RestartReason getReason() { return reason; }
         public String getInitiator() { return initiator; }
         public String getDetails() { return details; }
+        public LagReport getLagReport() { return lagReport; }
     }
 
     public RestartManager(DMZRestartPlugin plugin) {
@@ -85,47 +102,61 @@ public class RestartManager {
     }
 
     private void startMainScheduler() {
-        mainSchedulerTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                checkScheduledRestarts();
-            }
-        }.runTaskTimer(plugin, 20L, 20L);
+        mainSchedulerTask = plugin.getTaskScheduler().runGlobalTimer(task -> checkScheduledRestarts(), 20L, 20L);
     }
 
     private void scheduleConfiguredRestarts() {
-        List<String> restartTimes = plugin.getConfigManager().getRestartTimes();
-
-        for (String timeStr : restartTimes) {
-            try {
-                LocalTime restartTime = LocalTime.parse(timeStr);
-                scheduleNextRestart(restartTime);
-            } catch (Exception e) {
-                if (plugin.getLogManager() != null) {
-                    plugin.getLogManager().warning("Invalid restart time format: " + timeStr);
-                }
+        for (LocalTime restartTime : getEffectiveRestartTimes()) {
+            scheduleNextRestart(restartTime);
+        }
+    }
+
+    // Replaces only the timers for configured restart times - an in-flight countdown is untouched
+    public void rescheduleConfiguredRestarts() {
+        scheduledRestarts.entrySet().removeIf(entry -> {
+            if (entry.getKey().startsWith(SCHEDULED_TASK_PREFIX)) {
+                entry.getValue().cancel();
+                return true;
             }
+            return false;
+        });
+
+        scheduleConfiguredRestarts();
+
+        if (plugin.getLogManager() != null) {
+            plugin.getLogManager().info("Restart schedule updated: " + getEffectiveRestartTimes()
+                + (tunedRestartTimes != null ? " (tuned)" : ""));
         }
     }
 
+    public List<LocalTime> getEffectiveRestartTimes() {
+        List<LocalTime> tuned = tunedRestartTimes;
+        return tuned != null ? tuned : plugin.getConfigManager().getRestartTimes();
+    }
+
+    public boolean isRestartScheduleTuned() {
+        return tunedRestartTimes != null;
+    }
+
+    // Null restores the configured times; callers reschedule afterwards
+    public void setTunedRestartTimes(List<LocalTime> times) {
+        tunedRestartTimes = times != null ? Collections.unmodifiableList(new ArrayList<>(times)) : null;
+    }
+
     private void scheduleNextRestart(LocalTime time) {
-        LocalDateTime now = LocalDateTime.now(ZoneId.of(plugin.getConfigManager().getTimezone()));
+        LocalDateTime now = LocalDateTime.now(plugin.getConfigManager().getZoneId());
         LocalDateTime nextRestart = now.toLocalDate().atTime(time);
 
         if (nextRestart.isBefore(now)) {
             nextRestart = nextRestart.plusDays(1);
         }
 
-        String taskId = "scheduled_" + time.toString();
+        String taskId = SCHEDULED_TASK_PREFIX + time.toString();
         long delayTicks = java.time.Duration.between(now, nextRestart).getSeconds() * 20;
 
-        BukkitTask task = new BukkitRunnable() {
-            @Override
-            public void run() {
-                executeRestart(RestartReason.SCHEDULED, "System", 
-                    "Scheduled restart at " + time.format(DateTimeFormatter.ofPattern("HH:mm")));
-            }
-        }.runTaskLater(plugin, delayTicks);
+        TaskScheduler.Task task = plugin.getTaskScheduler().runGlobalLater(() ->
+            executeRestart(RestartReason.SCHEDULED, "System",
+                "Scheduled restart at " + time.format(DateTimeFormatter.ofPattern("HH:mm"))), delayTicks);
 
         scheduledRestarts.put(taskId, task);
     }
@@ -147,7 +178,7 @@ public class RestartManager {
         String taskId = "restart_" + System.currentTimeMillis();
 
         if (reason.name().contains("EMERGENCY")) {
-            emergencyRestartActive = true;
+            setEmergencyRestartActive(true);
         }
 
         restartInProgress = true;
@@ -160,60 +191,71 @@ public class RestartManager {
         }
 
         // FIXED: Use final variables in lambda
-        BukkitTask task = new BukkitRunnable() {
-            @Override
-            public void run() {
-                executeRestart(finalReason, finalInitiator, details);
-            }
-        }.runTaskLater(plugin, delaySeconds * 20L);
+        TaskScheduler.Task task = plugin.getTaskScheduler().runGlobalLater(() ->
+            executeRestart(finalReason, finalInitiator, details), delaySeconds * 20L);
 
         scheduledRestarts.put(taskId, task);
-        startCountdownTimer(delaySeconds);
+        startCountdownTimer(delaySeconds, reason);
     }
 
-    private void startCountdownTimer(int totalSeconds) {
-        new BukkitRunnable() {
-            int remaining = totalSeconds;
+    private void startCountdownTimer(int totalSeconds, RestartReason reason) {
+        // Only the most recent restart drives the countdown
+        if (countdownTask != null) {
+            countdownTask.cancel();
+        }
 
-            @Override
-            public void run() {
-                if (remaining <= 0 || !restartInProgress) {
-                    cancel();
-                    return;
-                }
+        if (plugin.getAlertManager() != null) {
+            plugin.getAlertManager().startCountdown(totalSeconds, reason, reason.name().contains("EMERGENCY")
+                ? AlertManager.AlertLevel.EMERGENCY : AlertManager.AlertLevel.WARNING);
+        }
+
+        int[] remaining = { totalSeconds };
+        countdownTask = plugin.getTaskScheduler().runGlobalTimer(task -> {
+            if (remaining[0] <= 0 || !restartInProgress) {
+                task.cancel();
+                return;
+            }
 
-                remainingSeconds = remaining;
-                remaining--;
+            remainingSeconds = remaining[0];
+            if (plugin.getAlertManager() != null) {
+                plugin.getAlertManager().updateCountdown(remaining[0]);
             }
-        }.runTaskTimer(plugin, 0L, 20L);
+            remaining[0]--;
+        }, 0L, 20L);
+    }
+
+    private void stopCountdownTimer() {
+        if (countdownTask != null) {
+            countdownTask.cancel();
+            countdownTask = null;
+        }
+
+        if (plugin.getAlertManager() != null) {
+            plugin.getAlertManager().endCountdown();
+        }
     }
 
     private void startWarningSequence(int totalDelay, RestartReason reason) {
-        List<Integer> intervals = plugin.getConfigManager().getWarningIntervals();
+        int[] intervals = plugin.getConfigManager().getWarningIntervals();
 
         for (int interval : intervals) {
             if (interval < totalDelay) {
                 int warningDelay = totalDelay - interval;
 
-                new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        String timeStr = formatTime(interval);
-                        String message = plugin.getConfigManager()
-                            .getMessage("restart-warning")
-                            .replace("{time}", timeStr)
-                            .replace("{reason}", reason.getDisplayName());
-
-                        if (plugin.getLogManager() != null) {
-                            plugin.getLogManager().broadcast(message);
-                        }
+                plugin.getTaskScheduler().runGlobalLater(() -> {
+                    MessageTemplate.Rendered message = plugin.getConfigManager()
+                        .getMessageTemplate("restart-warning")
+                        .render(interval, reason);
+
+                    if (plugin.getLogManager() != null) {
+                        plugin.getLogManager().broadcast(message, AlertManager.AlertLevel.WARNING);
                     }
-                }.runTaskLater(plugin, warningDelay * 20L);
+                }, warningDelay * 20L);
             }
         }
     }
 
-    private String formatTime(int seconds) {
+    static String formatTime(int seconds) {
         if (seconds < 60) {
             return seconds + " second" + (seconds != 1 ? "s" : "");
         } else if (seconds < 3600) {
@@ -235,33 +277,43 @@ public class RestartManager {
             addToHistory(reason, initiator, details);
             totalRestartsManaged++;
 
+            // Folia cannot reload plugins, so every restart there is a full shutdown
+            boolean shutdown = reason.name().contains("EMERGENCY") || plugin.getTaskScheduler().isFolia();
+
+            // Closes the uptime period before the reload tears the plugin down
+            if (plugin.getRestartTuner() != null) {
+                plugin.getRestartTuner().onRestart(reason, !shutdown);
+            }
+
             if (plugin.getLogManager() != null) {
                 plugin.getLogManager().info("Executing server restart: " + reason.getDisplayName());
             }
 
-            String finalMessage = plugin.getConfigManager()
-                .getMessage("restart-now")
-                .replace("{reason}", reason.getDisplayName());
+            MessageTemplate.Rendered finalMessage = plugin.getConfigManager()
+                .getMessageTemplate("restart-now")
+                .render(reason);
 
             if (plugin.getLogManager() != null) {
-                plugin.getLogManager().broadcast(finalMessage);
+                plugin.getLogManager().broadcast(finalMessage, AlertManager.AlertLevel.EMERGENCY);
             }
 
             restartInProgress = false;
+            restartExecuting = true;
             currentRestartReason = null;
             currentRestartInitiator = null;
             remainingSeconds = 0;
+            stopCountdownTimer();
 
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    if (reason.name().contains("EMERGENCY")) {
-                        Bukkit.getServer().shutdown();
-                    } else {
-                        Bukkit.getServer().reload();
+            plugin.getTaskScheduler().runGlobalLater(() -> {
+                if (shutdown) {
+                    if (plugin.getServerLoadMonitor() != null) {
+                        plugin.getServerLoadMonitor().getEvidenceCapture().awaitCompletion(EVIDENCE_GRACE_MILLIS);
                     }
+                    Bukkit.getServer().shutdown();
+                } else {
+                    Bukkit.getServer().reload();
                 }
-            }.runTaskLater(plugin, 40L);
+            }, 40L);
 
         } catch (Exception e) {
             if (plugin.getLogManager() != null) {
@@ -270,8 +322,26 @@ public class RestartManager {
         }
     }
 
+    private void setEmergencyRestartActive(boolean active) {
+        emergencyRestartActive = active;
+
+        // Command blocking only costs anything while an emergency is actually pending
+        if (active) {
+            if (commandBlocker == null) {
+                commandBlocker = new CommandBlockListener(plugin);
+            }
+            commandBlocker.register();
+        } else if (commandBlocker != null) {
+            commandBlocker.unregister();
+        }
+    }
+
     private void addToHistory(RestartReason reason, String initiator, String details) {
-        restartHistory.add(new RestartHistory(reason, initiator, details));
+        // Whatever the last scan found is the best explanation of why this restart happened
+        LagReport lagReport = plugin.getServerLoadMonitor() != null
+            ? plugin.getServerLoadMonitor().getLagScanner().getRecentReport(ServerLoadMonitor.LAG_REPORT_MAX_AGE_MILLIS)
+            : null;
+        restartHistory.add(new RestartHistory(reason, initiator, details, lagReport));
 
         if (restartHistory.size() > 50) {
             restartHistory.remove(0);
@@ -279,9 +349,10 @@ public class RestartManager {
     }
 
     public void cancelAllRestarts() {
-        scheduledRestarts.values().forEach(BukkitTask::cancel);
+        scheduledRestarts.values().forEach(TaskScheduler.Task::cancel);
         scheduledRestarts.clear();
-        emergencyRestartActive = false;
+        stopCountdownTimer();
+        setEmergencyRestartActive(false);
         restartInProgress = false;
         currentRestartReason = null;
         currentRestartInitiator = null;
@@ -319,6 +390,10 @@ public class RestartManager {
         return restartInProgress;
     }
 
+    public boolean isRestartExecuting() {
+        return restartExecuting;
+    }
+
     public int getRemainingSeconds() {
         return remainingSeconds;
     }
@@ -0,0 +1,50 @@
+package io.github.dmzrestart.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Maps class names to the plugin whose jar contains them, so diagnostics can name a plugin
+// instead of a package. Shaded libraries count for the plugin that ships them.
+public class ClassOwners {
+    public static final String JVM = "JVM";
+    public static final String SERVER = "server";
+    public static final String UNKNOWN = "unknown";
+
+    private final Map<String, String> owners = new ConcurrentHashMap<>();
+
+    public String ownerOf(String className) {
+        if (className == null) return JVM;
+
+        String cached = owners.get(className);
+        if (cached != null) return cached;
+
+        // Only resources are looked up: loading the class through a plugin's loader would make Paper
+        // blame that plugin for an undeclared dependency, or define a second copy of a shaded class
+        String resource = className.replace('.', '/') + ".class";
+        for (Plugin candidate : Bukkit.getPluginManager().getPlugins()) {
+            ClassLoader loader = candidate.getClass().getClassLoader();
+            // findResource searches the plugin's own jar without delegating to other loaders
+            if (loader instanceof URLClassLoader && ((URLClassLoader) loader).findResource(resource) != null) {
+                owners.put(className, candidate.getName());
+                return candidate.getName();
+            }
+        }
+
+        URL location = Bukkit.getServer().getClass().getClassLoader().getResource(resource);
+        if (location == null) {
+            // Not cached: the plugin that ships it may not be loaded yet
+            return UNKNOWN;
+        }
+        String owner = location.getProtocol().equals("jrt") || location.getPath().contains("/jre/lib/") ? JVM : SERVER;
+        owners.put(className, owner);
+        return owner;
+    }
+
+    public static boolean isPlugin(String owner) {
+        return !JVM.equals(owner) && !SERVER.equals(owner) && !UNKNOWN.equals(owner);
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.dmzrestart.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Case-insensitive matcher for command prefixes such as "stop" or "lp user", run against
+// the raw "/command args" message without lowercasing or splitting it.
+// Namespaced forms ("/minecraft:stop") match the same entries.
+public final class CommandPrefixMatcher {
+    private static final int BUCKETS = 37; // a-z, 0-9, everything else
+
+    private final String[][] prefixesByFirstChar = new String[BUCKETS][];
+    private final List<String> prefixes;
+
+    private CommandPrefixMatcher(List<String> prefixes) {
+        this.prefixes = Collections.unmodifiableList(prefixes);
+
+        List<List<String>> grouped = new ArrayList<>(BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            grouped.add(new ArrayList<>());
+        }
+        for (String prefix : prefixes) {
+            grouped.get(bucket(prefix.charAt(0))).add(prefix);
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            prefixesByFirstChar[i] = grouped.get(i).toArray(new String[0]);
+        }
+    }
+
+    public static CommandPrefixMatcher compile(Collection<String> commands) {
+        List<String> prefixes = new ArrayList<>();
+        for (String command : commands) {
+            if (command == null) continue;
+            String normalized = command.trim().toLowerCase(Locale.ROOT);
+            while (normalized.startsWith("/")) {
+                normalized = normalized.substring(1);
+            }
+            if (!normalized.isEmpty() && !prefixes.contains(normalized)) {
+                prefixes.add(normalized);
+            }
+        }
+        return new CommandPrefixMatcher(prefixes);
+    }
+
+    public boolean matches(String message) {
+        if (message == null || message.length() < 2 || message.charAt(0) != '/') return false;
+
+        if (matchesAt(message, 1)) return true;
+
+        // "/namespace:command" - also try the part after the colon of the first word
+        for (int i = 1; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c == ' ') break;
+            if (c == ':') return matchesAt(message, i + 1);
+        }
+        return false;
+    }
+
+    private boolean matchesAt(String message, int start) {
+        if (start >= message.length()) return false;
+
+        String[] candidates = prefixesByFirstChar[bucket(message.charAt(start))];
+        for (String prefix : candidates) {
+            int end = start + prefix.length();
+            if (end <= message.length()
+                && message.regionMatches(true, start, prefix, 0, prefix.length())
+                && (end == message.length() || message.charAt(end) == ' ')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int bucket(char c) {
+        if (c >= 'a' && c <= 'z') return c - 'a';
+        if (c >= 'A' && c <= 'Z') return c - 'A';
+        if (c >= '0' && c <= '9') return 26 + (c - '0');
+        return BUCKETS - 1;
+    }
+
+    public List<String> getPrefixes() {
+        return prefixes;
+    }
+
+    public boolean isEmpty() {
+        return prefixes.isEmpty();
+    }
+}
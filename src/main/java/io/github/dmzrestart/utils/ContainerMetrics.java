@@ -0,0 +1,317 @@
+package io.github.dmzrestart.utils;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Whole-process memory and CPU as the container sees them. The OOM killer acts on the
+// cgroup's usage, which includes metaspace, code cache, direct buffers and thread
+// stacks on top of the heap, so the heap percentage alone says nothing about how close
+// the server is to being killed.
+public class ContainerMetrics {
+    private static final Path CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+    // cgroup v1 reports "no limit" as a page-aligned Long.MAX_VALUE
+    private static final long UNLIMITED_V1 = 1L << 60;
+
+    private final boolean cgroupV2;
+    private final Path memoryDir;
+    private final Path cpuDir;
+    private final Path cpuAcctDir;
+    private long lastCpuUsageNanos = -1;
+    private long lastCpuSampleAt;
+    private volatile Sample lastSample;
+
+    public static final class Sample {
+        private final long heapUsed;
+        private final long heapMax;
+        private final long nonHeapUsed;
+        private final long directUsed;
+        private final long mappedUsed;
+        private final long residentBytes;
+        private final long containerUsed;
+        private final long containerWorkingSet;
+        private final long memoryLimit;
+        private final double cpuLimitCores;
+        private final double containerCpuPercent;
+        private final double processCpuLoad;
+        private final long throttledPeriods;
+        private final Map<String, Long> nonHeapPools;
+
+        Sample(long heapUsed, long heapMax, long nonHeapUsed, long directUsed, long mappedUsed, long residentBytes,
+               long containerUsed, long containerWorkingSet, long memoryLimit, double cpuLimitCores,
+               double containerCpuPercent, double processCpuLoad, long throttledPeriods, Map<String, Long> nonHeapPools) {
+            this.heapUsed = heapUsed;
+            this.heapMax = heapMax;
+            this.nonHeapUsed = nonHeapUsed;
+            this.directUsed = directUsed;
+            this.mappedUsed = mappedUsed;
+            this.residentBytes = residentBytes;
+            this.containerUsed = containerUsed;
+            this.containerWorkingSet = containerWorkingSet;
+            this.memoryLimit = memoryLimit;
+            this.cpuLimitCores = cpuLimitCores;
+            this.containerCpuPercent = containerCpuPercent;
+            this.processCpuLoad = processCpuLoad;
+            this.throttledPeriods = throttledPeriods;
+            this.nonHeapPools = Collections.unmodifiableMap(nonHeapPools);
+        }
+
+        public long getHeapUsed() { return heapUsed; }
+        public long getHeapMax() { return heapMax; }
+        public long getNonHeapUsed() { return nonHeapUsed; }
+        public long getDirectUsed() { return directUsed; }
+        public long getMappedUsed() { return mappedUsed; }
+        // -1 when /proc is not readable
+        public long getResidentBytes() { return residentBytes; }
+        public long getContainerUsed() { return containerUsed; }
+        public long getContainerWorkingSet() { return containerWorkingSet; }
+        // -1 when the process is not under a cgroup memory limit
+        public long getMemoryLimit() { return memoryLimit; }
+        public double getCpuLimitCores() { return cpuLimitCores; }
+        public double getContainerCpuPercent() { return containerCpuPercent; }
+        public double getProcessCpuLoad() { return processCpuLoad; }
+        public long getThrottledPeriods() { return throttledPeriods; }
+        public Map<String, Long> getNonHeapPools() { return nonHeapPools; }
+
+        public boolean hasMemoryLimit() {
+            return memoryLimit > 0;
+        }
+
+        public double getHeapPercent() {
+            return heapMax > 0 ? (double) heapUsed / heapMax * 100.0 : 0.0;
+        }
+
+        // What the process really occupies: RSS when available, else the sum of the JVM's own pools
+        public long getFootprint() {
+            if (residentBytes > 0) return residentBytes;
+            return heapUsed + nonHeapUsed + directUsed + mappedUsed;
+        }
+
+        // Usage the OOM killer and kubelet go by, against the container limit
+        public double getFootprintPercent() {
+            if (!hasMemoryLimit()) return -1.0;
+            long used = Math.max(getFootprint(), containerWorkingSet);
+            return (double) used / memoryLimit * 100.0;
+        }
+
+        // The tighter of the two: heap exhaustion or the container limit
+        public double getMemoryPercent() {
+            return Math.max(getHeapPercent(), getFootprintPercent());
+        }
+    }
+
+    public ContainerMetrics() {
+        Path unified = null;
+        Path memory = null;
+        Path cpu = null;
+        Path cpuAcct = null;
+
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/cgroup"), StandardCharsets.UTF_8)) {
+                String[] parts = line.split(":", 3);
+                if (parts.length < 3) continue;
+
+                if (parts[0].equals("0") && parts[1].isEmpty()) {
+                    unified = resolve(CGROUP_ROOT, parts[2], "memory.max");
+                    continue;
+                }
+                // v1 controllers may share a mount (cpu,cpuacct) or have one each
+                Path mount = CGROUP_ROOT.resolve(parts[1]);
+                for (String controller : parts[1].split(",")) {
+                    if (controller.equals("memory")) {
+                        memory = resolve(mount, parts[2], "memory.limit_in_bytes");
+                    } else if (controller.equals("cpu")) {
+                        cpu = resolve(mount, parts[2], "cpu.cfs_quota_us");
+                    } else if (controller.equals("cpuacct")) {
+                        cpuAcct = resolve(mount, parts[2], "cpuacct.usage");
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux, or /proc is hidden - JVM numbers only
+        }
+
+        // Hybrid hosts list an empty unified hierarchy next to the v1 controllers
+        this.cgroupV2 = memory == null && unified != null;
+        this.memoryDir = cgroupV2 ? unified : memory;
+        this.cpuDir = cgroupV2 ? unified : cpu;
+        this.cpuAcctDir = cgroupV2 ? unified : cpuAcct;
+    }
+
+    // Inside a container the process's own cgroup is usually mounted as the root
+    private static Path resolve(Path mount, String cgroupPath, String probe) {
+        Path nested = mount.resolve(cgroupPath.startsWith("/") ? cgroupPath.substring(1) : cgroupPath);
+        if (Files.isReadable(nested.resolve(probe))) return nested;
+        if (Files.isReadable(mount.resolve(probe))) return mount;
+        return null;
+    }
+
+    public boolean hasCgroup() {
+        return memoryDir != null || cpuDir != null || cpuAcctDir != null;
+    }
+
+    public String getCgroupVersion() {
+        if (!hasCgroup()) return "none";
+        return cgroupV2 ? "v2" : "v1";
+    }
+
+    public Sample getLastSample() {
+        return lastSample;
+    }
+
+    public synchronized Sample sample() {
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        MemoryUsage heap = memoryBean.getHeapMemoryUsage();
+        MemoryUsage nonHeap = memoryBean.getNonHeapMemoryUsage();
+
+        long direct = 0;
+        long mapped = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                direct = Math.max(0, pool.getMemoryUsed());
+            } else if (pool.getName().startsWith("mapped")) {
+                mapped += Math.max(0, pool.getMemoryUsed());
+            }
+        }
+
+        Map<String, Long> pools = new LinkedHashMap<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.NON_HEAP && pool.isValid()) {
+                pools.put(pool.getName(), pool.getUsage().getUsed());
+            }
+        }
+
+        long containerUsed = -1;
+        long workingSet = -1;
+        long limit = -1;
+        if (memoryDir != null) {
+            containerUsed = readLong(memoryDir.resolve(cgroupV2 ? "memory.current" : "memory.usage_in_bytes"));
+            limit = readLimit(memoryDir.resolve(cgroupV2 ? "memory.max" : "memory.limit_in_bytes"));
+            // Page cache the kernel can drop does not count towards an OOM kill
+            long inactiveFile = readStat(memoryDir.resolve("memory.stat"), cgroupV2 ? "inactive_file" : "total_inactive_file");
+            workingSet = containerUsed < 0 ? -1 : Math.max(0, containerUsed - Math.max(0, inactiveFile));
+        }
+
+        double cpuLimit = -1.0;
+        double cpuPercent = -1.0;
+        long throttled = -1;
+        if (cpuDir != null) {
+            cpuLimit = readCpuLimit();
+            throttled = readStat(cpuDir.resolve("cpu.stat"), "nr_throttled");
+        }
+        if (cpuAcctDir != null) {
+            long usageNanos = cgroupV2
+                ? readStat(cpuAcctDir.resolve("cpu.stat"), "usage_usec") * 1000L
+                : readLong(cpuAcctDir.resolve("cpuacct.usage"));
+
+            long now = System.nanoTime();
+            if (usageNanos >= 0 && lastCpuUsageNanos >= 0 && now > lastCpuSampleAt) {
+                double cores = cpuLimit > 0 ? cpuLimit : Runtime.getRuntime().availableProcessors();
+                cpuPercent = (double) (usageNanos - lastCpuUsageNanos) / ((now - lastCpuSampleAt) * cores) * 100.0;
+            }
+            lastCpuUsageNanos = usageNanos;
+            lastCpuSampleAt = now;
+        }
+
+        Sample sample = new Sample(heap.getUsed(), heap.getMax(), nonHeap.getUsed(), direct, mapped,
+            readResidentBytes(), containerUsed, workingSet, limit, cpuLimit, cpuPercent, processCpuLoad(),
+            throttled, pools);
+        lastSample = sample;
+        return sample;
+    }
+
+    private double readCpuLimit() {
+        if (cgroupV2) {
+            // "<quota> <period>" or "max <period>"
+            String[] parts = readString(cpuDir.resolve("cpu.max")).split("\\s+");
+            if (parts.length < 2 || parts[0].equals("max")) return -1.0;
+            try {
+                return Double.parseDouble(parts[0]) / Double.parseDouble(parts[1]);
+            } catch (NumberFormatException e) {
+                return -1.0;
+            }
+        }
+
+        long quota = readLong(cpuDir.resolve("cpu.cfs_quota_us"));
+        long period = readLong(cpuDir.resolve("cpu.cfs_period_us"));
+        return quota > 0 && period > 0 ? (double) quota / period : -1.0;
+    }
+
+    private long readLimit(Path file) {
+        String value = readString(file);
+        if (value.isEmpty() || value.equals("max")) return -1;
+        try {
+            long limit = Long.parseLong(value);
+            return limit >= UNLIMITED_V1 ? -1 : limit;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static double processCpuLoad() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            double load = ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuLoad();
+            return load < 0 ? -1.0 : load * 100.0;
+        }
+        return -1.0;
+    }
+
+    private static long readResidentBytes() {
+        long kilobytes = readStat(Paths.get("/proc/self/status"), "VmRSS:");
+        return kilobytes < 0 ? -1 : kilobytes * 1024L;
+    }
+
+    private static String readString(Path file) {
+        try {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+        } catch (IOException | RuntimeException e) {
+            return "";
+        }
+    }
+
+    private static long readLong(Path file) {
+        try {
+            return Long.parseLong(readString(file));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Reads "<key> <value>" lines as found in memory.stat, cpu.stat and /proc/self/status
+    private static long readStat(Path file, String key) {
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                if (!line.startsWith(key)) continue;
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length >= 2 && parts[0].equals(key)) {
+                    return Long.parseLong(parts[1]);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Treated as unknown
+        }
+        return -1;
+    }
+
+    public static String formatBytes(long bytes) {
+        if (bytes < 0) return "n/a";
+        if (bytes < 1024L * 1024L) return (bytes / 1024L) + "KB";
+        if (bytes < 1024L * 1024L * 1024L) return (bytes / (1024L * 1024L)) + "MB";
+        return String.format("%.2fGB", bytes / (1024.0 * 1024.0 * 1024.0));
+    }
+}
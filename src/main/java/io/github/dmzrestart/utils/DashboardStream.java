@@ -0,0 +1,276 @@
+package io.github.dmzrestart.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import io.github.dmzrestart.managers.RestartManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Server-sent events for the read-only dashboard. Every sample is encoded once, as a delta
+// against the previous one, and the same bytes are queued for every viewer. A viewer that
+// falls more than CLIENT_QUEUE events behind loses its backlog and gets one full snapshot
+// instead, so a stuck browser costs a fixed amount of memory.
+public class DashboardStream implements Consumer<MetricsSample>, HttpHandler {
+    private static final int CLIENT_QUEUE = 16;
+    private static final long KEEPALIVE_SECONDS = 15L;
+    private static final byte[] KEEPALIVE = ": keepalive\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final Supplier<MetricsSeries> series;
+    // One permit per viewer slot; taken before a client is registered, returned when it leaves
+    private final Semaphore viewerSlots;
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+
+    // Guarded by this
+    private MetricsSample previous;
+    private String previousHistoryKey;
+    private long sequence;
+
+    // Full snapshot, built at most once per sample however many viewers need it
+    private byte[] snapshot;
+    private long snapshotSequence = -1L;
+
+    private static final class Client {
+        final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(CLIENT_QUEUE);
+        volatile boolean needsSnapshot = true;
+    }
+
+    public DashboardStream(Supplier<MetricsSeries> series, int maxViewers) {
+        this.series = series;
+        this.viewerSlots = new Semaphore(Math.max(0, maxViewers));
+    }
+
+    public int getViewerCount() {
+        return clients.size();
+    }
+
+    public void close() {
+        running = false;
+    }
+
+    // Queueing is non-blocking, so holding the lock while fanning out stays cheap; it keeps a
+    // viewer from missing the delta that follows the snapshot it was just sent
+    @Override
+    public synchronized void accept(MetricsSample sample) {
+        sequence++;
+        String historyKey = historyKey(sample);
+        StringBuilder data = new StringBuilder(256);
+        data.append('{');
+        appendPoint(data, sample, previous);
+        appendState(data, sample, previous);
+        if (!historyKey.equals(previousHistoryKey)) {
+            data.append(",\"history\":");
+            appendHistory(data, sample.getRestartHistory());
+        }
+        data.append('}');
+        byte[] event = event("delta", data);
+        previous = sample;
+        previousHistoryKey = historyKey;
+
+        for (Client client : clients) {
+            if (client.needsSnapshot) continue;
+            if (!client.queue.offer(event)) {
+                client.queue.clear();
+                client.needsSnapshot = true;
+            }
+        }
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+        if (!viewerSlots.tryAcquire()) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+
+        Client client = new Client();
+        clients.add(client);
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            out.write("retry: 5000\n\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            // This worker belongs to the viewer until it disconnects; writes never hold a shared lock
+            while (running) {
+                if (client.needsSnapshot) {
+                    byte[] full = takeSnapshot(client);
+                    if (full != null) {
+                        out.write(full);
+                    }
+                }
+                byte[] next = client.queue.poll(KEEPALIVE_SECONDS, TimeUnit.SECONDS);
+                out.write(next != null ? next : KEEPALIVE);
+                out.flush();
+            }
+        } catch (IOException | InterruptedException e) {
+            // Viewer went away or the server is stopping
+        } finally {
+            clients.remove(client);
+            viewerSlots.release();
+            exchange.close();
+        }
+    }
+
+    private synchronized byte[] takeSnapshot(Client client) {
+        byte[] full = snapshot();
+        if (full != null) {
+            client.queue.clear();
+            client.needsSnapshot = false;
+        }
+        return full;
+    }
+
+    // Null until the first sample arrives
+    private synchronized byte[] snapshot() {
+        if (previous == null) return null;
+        if (snapshotSequence == sequence) return snapshot;
+
+        MetricsSeries source = series.get();
+        List<MetricsSeries.Point> points = source.snapshot();
+        StringBuilder data = new StringBuilder(points.size() * 48 + 512);
+        data.append("{\"capacity\":").append(source.getCapacity()).append(",\"series\":[");
+        for (int i = 0; i < points.size(); i++) {
+            if (i > 0) data.append(',');
+            MetricsSeries.Point point = points.get(i);
+            data.append("{\"t\":").append(point.getTimestamp() / 1000L);
+            number(data, "tps", point.getTps());
+            number(data, "p50", point.getMsptP50());
+            number(data, "p95", point.getMsptP95());
+            data.append(",\"heap\":").append(point.getHeapUsed() / (1024L * 1024L))
+                .append(",\"heapMax\":").append(point.getHeapMax() / (1024L * 1024L))
+                .append(",\"players\":").append(point.getPlayers()).append('}');
+        }
+        data.append("],\"state\":{\"t\":").append(previous.getTimestamp() / 1000L);
+        appendState(data, previous, null);
+        data.append("},\"history\":");
+        appendHistory(data, previous.getRestartHistory());
+        data.append('}');
+
+        snapshot = event("snapshot", data);
+        snapshotSequence = sequence;
+        return snapshot;
+    }
+
+    private byte[] event(String name, StringBuilder data) {
+        return ("id: " + sequence + "\nevent: " + name + "\ndata: " + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Fields equal to the previous point (after rounding) are left out; the page carries them forward
+    private static void appendPoint(StringBuilder data, MetricsSample sample, MetricsSample before) {
+        data.append("\"t\":").append(sample.getTimestamp() / 1000L);
+        if (before == null || changed(sample.getTps1m(), before.getTps1m())) number(data, "tps", sample.getTps1m());
+        if (before == null || changed(sample.getMsptP50(), before.getMsptP50())) number(data, "p50", sample.getMsptP50());
+        if (before == null || changed(sample.getMsptP95(), before.getMsptP95())) number(data, "p95", sample.getMsptP95());
+        long heap = sample.getHeapUsed() / (1024L * 1024L);
+        if (before == null || heap != before.getHeapUsed() / (1024L * 1024L)) data.append(",\"heap\":").append(heap);
+        long heapMax = sample.getHeapMax() / (1024L * 1024L);
+        if (before == null || heapMax != before.getHeapMax() / (1024L * 1024L)) data.append(",\"heapMax\":").append(heapMax);
+        if (before == null || sample.getPlayersOnline() != before.getPlayersOnline()) {
+            data.append(",\"players\":").append(sample.getPlayersOnline());
+        }
+    }
+
+    private static void appendState(StringBuilder data, MetricsSample sample, MetricsSample before) {
+        if (before == null || sample.isHealthy() != before.isHealthy()) {
+            data.append(",\"healthy\":").append(sample.isHealthy());
+        }
+        if (before == null || sample.isRestartInProgress() != before.isRestartInProgress()
+            || sample.getCountdownSeconds() != before.getCountdownSeconds()
+            || sample.isEmergencyRestartActive() != before.isEmergencyRestartActive()
+            || !Objects.equals(sample.getRestartReason(), before.getRestartReason())) {
+            data.append(",\"restart\":{\"active\":").append(sample.isRestartInProgress())
+                .append(",\"seconds\":").append(sample.getCountdownSeconds())
+                .append(",\"emergency\":").append(sample.isEmergencyRestartActive())
+                .append(",\"reason\":");
+            string(data, sample.getRestartReason());
+            data.append('}');
+        }
+        if (before == null || sample.getNextRestartEpochSeconds() != before.getNextRestartEpochSeconds()) {
+            data.append(",\"next\":").append(sample.getNextRestartEpochSeconds());
+        }
+    }
+
+    private static void appendHistory(StringBuilder data, List<RestartManager.RestartHistory> history) {
+        data.append('[');
+        // Newest first, which is how the page lists them
+        for (int i = history.size() - 1; i >= 0; i--) {
+            RestartManager.RestartHistory entry = history.get(i);
+            if (i < history.size() - 1) data.append(',');
+            data.append("{\"at\":").append(entry.getTimestamp().getTime() / 1000L).append(",\"reason\":");
+            string(data, entry.getReason().getDisplayName());
+            data.append(",\"by\":");
+            string(data, entry.getInitiator());
+            data.append(",\"details\":");
+            string(data, entry.getDetails());
+            data.append('}');
+        }
+        data.append(']');
+    }
+
+    // Restart history only grows at the end and loses entries from the front
+    private static String historyKey(MetricsSample sample) {
+        List<RestartManager.RestartHistory> history = sample.getRestartHistory();
+        if (history.isEmpty()) return "0";
+        return history.size() + ":" + history.get(history.size() - 1).getTimestamp().getTime();
+    }
+
+    private static boolean changed(double now, double before) {
+        return Math.round(now * 100.0) != Math.round(before * 100.0)
+            || Double.isNaN(now) != Double.isNaN(before);
+    }
+
+    private static void number(StringBuilder data, String key, double value) {
+        data.append(",\"").append(key).append("\":");
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            data.append("null");
+        } else {
+            data.append(String.format(Locale.ROOT, "%.2f", value));
+        }
+    }
+
+    private static void string(StringBuilder data, String value) {
+        if (value == null) {
+            data.append("null");
+            return;
+        }
+        data.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': data.append("\\\""); break;
+                case '\\': data.append("\\\\"); break;
+                case '\n': data.append("\\n"); break;
+                case '\r': data.append("\\r"); break;
+                case '\t': data.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        data.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        data.append(c);
+                    }
+            }
+        }
+        data.append('"');
+    }
+}
@@ -0,0 +1,227 @@
+package io.github.dmzrestart.utils;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.managers.ConfigSnapshot;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Saves what the JVM looked like right before an emergency restart wipes it: a class
+// histogram always, and for memory emergencies optionally a full heap dump. Everything
+// runs off the main thread and has to finish inside the emergency.delay window.
+public class EvidenceCapture {
+    // Conservative dump speed used to decide whether a heap dump fits the window
+    private static final long DUMP_BYTES_PER_SECOND = 200L * 1024 * 1024;
+    // Left for the restart itself to flush worlds and stop cleanly
+    private static final long SHUTDOWN_MARGIN_MILLIS = 5_000L;
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private final DMZRestartPlugin plugin;
+    private final File evidenceDir;
+    private volatile CompletableFuture<File> current;
+    private volatile String lastCapture = "None";
+
+    public EvidenceCapture(DMZRestartPlugin plugin) {
+        this.plugin = plugin;
+        this.evidenceDir = new File(plugin.getDataFolder(), "evidence");
+    }
+
+    public boolean isCapturing() {
+        CompletableFuture<File> capture = current;
+        return capture != null && !capture.isDone();
+    }
+
+    public String getLastCapture() {
+        return lastCapture;
+    }
+
+    // Starts a capture unless one is already running; the restart is expected delaySeconds from now
+    public void capture(String reason, boolean memoryEmergency, ConfigSnapshot config, String context) {
+        if (!config.isEvidenceEnabled() || isCapturing()) return;
+
+        long deadline = System.currentTimeMillis() + config.getEmergencyDelay() * 1000L - SHUTDOWN_MARGIN_MILLIS;
+        boolean heapDump = memoryEmergency && config.isEvidenceHeapDump();
+        CompletableFuture<File> capture = new CompletableFuture<>();
+        current = capture;
+
+        plugin.getTaskScheduler().runAsync(() -> {
+            try {
+                capture.complete(run(reason, heapDump, deadline, config, context));
+            } catch (Exception e) {
+                if (plugin.getLogManager() != null) {
+                    plugin.getLogManager().warning("Evidence capture failed: " + e.getMessage());
+                }
+                capture.complete(null);
+            }
+        });
+    }
+
+    // Called by the restart so a dump still being written is not cut off mid-file
+    public void awaitCompletion(long timeoutMillis) {
+        CompletableFuture<File> capture = current;
+        if (capture == null || capture.isDone()) return;
+
+        if (plugin.getLogManager() != null) {
+            plugin.getLogManager().info("Waiting up to " + (timeoutMillis / 1000) + "s for evidence capture to finish...");
+        }
+        try {
+            capture.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // Restart anyway - a partial capture beats a server that never comes back
+        }
+    }
+
+    private File run(String reason, boolean heapDump, long deadline, ConfigSnapshot config, String context) throws IOException {
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File dir = new File(evidenceDir, stamp + (heapDump ? "-memory" : "-emergency"));
+        if (!dir.mkdirs()) {
+            throw new IOException("could not create " + dir.getPath());
+        }
+
+        StringBuilder summary = new StringBuilder()
+            .append("Reason: ").append(reason).append('\n')
+            .append("Captured: ").append(new Date()).append('\n');
+        if (context != null) {
+            summary.append(context).append('\n');
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            Files.write(new File(dir, "class-histogram.txt").toPath(),
+                classHistogram().getBytes(StandardCharsets.UTF_8));
+            summary.append("Class histogram: ").append(System.currentTimeMillis() - start).append("ms\n");
+        } catch (Exception e) {
+            summary.append("Class histogram: failed - ").append(e.getMessage()).append('\n');
+        }
+
+        if (heapDump) {
+            summary.append("Heap dump: ").append(dumpHeap(dir, deadline, config)).append('\n');
+        }
+
+        Files.write(new File(dir, "summary.txt").toPath(), summary.toString().getBytes(StandardCharsets.UTF_8));
+        applyRetention(config.getEvidenceKeep());
+
+        lastCapture = dir.getName();
+        if (plugin.getLogManager() != null) {
+            plugin.getLogManager().warning("Emergency evidence saved to " + dir.getPath());
+        }
+        return dir;
+    }
+
+    // Live objects only, so this forces a full GC first - the same as jcmd GC.class_histogram
+    public static String classHistogram() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Object result = server.invoke(new ObjectName("com.sun.management:type=DiagnosticCommand"),
+            "gcClassHistogram", new Object[] { new String[0] }, new String[] { String[].class.getName() });
+        return String.valueOf(result);
+    }
+
+    private String dumpHeap(File dir, long deadline, ConfigSnapshot config) {
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long freeBytes = dir.getUsableSpace();
+        long minFreeBytes = config.getEvidenceMinFreeMb() * 1024L * 1024L;
+        if (freeBytes - heapUsed < minFreeBytes) {
+            return "skipped - " + ContainerMetrics.formatBytes(freeBytes) + " free, need "
+                + ContainerMetrics.formatBytes(heapUsed + minFreeBytes);
+        }
+
+        long estimateMillis = heapUsed * 1000L / DUMP_BYTES_PER_SECOND;
+        if (System.currentTimeMillis() + estimateMillis > deadline) {
+            return "skipped - about " + (estimateMillis / 1000) + "s needed, emergency.delay leaves "
+                + Math.max(0, (deadline - System.currentTimeMillis()) / 1000) + "s";
+        }
+
+        File hprof = new File(dir, "heap.hprof");
+        long start = System.currentTimeMillis();
+        try {
+            // Pauses the server while it walks the heap
+            ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class).dumpHeap(hprof.getPath(), true);
+        } catch (IOException | RuntimeException e) {
+            hprof.delete();
+            return "failed - " + e.getMessage();
+        }
+        long dumpMillis = System.currentTimeMillis() - start;
+
+        // Compression is best effort: whatever does not fit the window is finished after restart
+        if (compress(hprof, deadline)) {
+            return "heap.hprof.gz in " + dumpMillis + "ms";
+        }
+        return "heap.hprof in " + dumpMillis + "ms (compressed on next start)";
+    }
+
+    private static boolean compress(File source, long deadline) {
+        File target = new File(source.getPath() + ".gz");
+        byte[] buffer = new byte[COPY_BUFFER_BYTES];
+        boolean finished = false;
+        try (InputStream in = new FileInputStream(source);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(target), COPY_BUFFER_BYTES)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (deadline > 0 && System.currentTimeMillis() > deadline) break;
+                out.write(buffer, 0, read);
+            }
+            finished = read == -1;
+        } catch (IOException e) {
+            finished = false;
+        }
+
+        if (finished) {
+            source.delete();
+        } else {
+            target.delete();
+        }
+        return finished;
+    }
+
+    // Finishes compressing dumps that the last emergency ran out of time for
+    public void compressLeftovers() {
+        File[] captures = evidenceDir.listFiles(File::isDirectory);
+        if (captures == null) return;
+
+        plugin.getTaskScheduler().runAsync(() -> {
+            for (File capture : captures) {
+                File hprof = new File(capture, "heap.hprof");
+                if (hprof.isFile() && compress(hprof, 0L) && plugin.getLogManager() != null) {
+                    plugin.getLogManager().info("Compressed leftover heap dump in " + capture.getName());
+                }
+            }
+        });
+    }
+
+    private void applyRetention(int keep) {
+        File[] captures = evidenceDir.listFiles(File::isDirectory);
+        if (captures == null || captures.length <= keep) return;
+
+        // Directory names start with a sortable timestamp
+        Arrays.sort(captures, Comparator.comparing(File::getName));
+        for (int i = 0; i < captures.length - keep; i++) {
+            deleteRecursively(captures[i]);
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
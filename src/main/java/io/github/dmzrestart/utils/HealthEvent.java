@@ -0,0 +1,66 @@
+package io.github.dmzrestart.utils;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// One finding from a health check, in a shape that logs, commands and the restart
+// policy can all consume without parsing message strings
+public final class HealthEvent {
+    public enum Type {
+        DEADLOCK,
+        THREAD_EXPLOSION,
+        RUNAWAY_POOL,
+        CPU_HOG
+    }
+
+    public enum Severity {
+        INFO,
+        WARNING,
+        CRITICAL
+    }
+
+    private final Type type;
+    private final Severity severity;
+    private final long timestamp;
+    private final String summary;
+    private final Map<String, String> details;
+    private final File dumpFile;
+
+    HealthEvent(Type type, Severity severity, String summary, Map<String, String> details, File dumpFile) {
+        this.type = type;
+        this.severity = severity;
+        this.timestamp = System.currentTimeMillis();
+        this.summary = summary;
+        this.details = Collections.unmodifiableMap(new LinkedHashMap<>(details));
+        this.dumpFile = dumpFile;
+    }
+
+    public Type getType() { return type; }
+    public Severity getSeverity() { return severity; }
+    public long getTimestamp() { return timestamp; }
+    public String getSummary() { return summary; }
+    public Map<String, String> getDetails() { return details; }
+    // Null when no thread dump was written
+    public File getDumpFile() { return dumpFile; }
+
+    public String describe() {
+        StringBuilder text = new StringBuilder()
+            .append('[').append(severity).append("] ").append(type).append(": ").append(summary);
+        for (Map.Entry<String, String> detail : details.entrySet()) {
+            text.append(", ").append(detail.getKey()).append('=').append(detail.getValue());
+        }
+        if (dumpFile != null) {
+            text.append(" (dump: ").append(dumpFile.getName()).append(')');
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return new SimpleDateFormat("HH:mm:ss").format(new Date(timestamp)) + " " + describe();
+    }
+}
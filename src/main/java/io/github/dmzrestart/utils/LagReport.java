@@ -0,0 +1,115 @@
+package io.github.dmzrestart.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// Result of one full lag scan: totals per world plus the heaviest chunks
+public final class LagReport {
+    private final long completedAt;
+    private final long durationMillis;
+    private final int chunksScanned;
+    private final String trigger;
+    private final List<WorldLoad> worlds;
+    private final List<ChunkLoad> hotspots;
+
+    public static final class WorldLoad {
+        private final String world;
+        private final int chunks;
+        private final int entities;
+        private final int tileEntities;
+        private final int hoppers;
+
+        WorldLoad(String world, int chunks, int entities, int tileEntities, int hoppers) {
+            this.world = world;
+            this.chunks = chunks;
+            this.entities = entities;
+            this.tileEntities = tileEntities;
+            this.hoppers = hoppers;
+        }
+
+        public String getWorld() { return world; }
+        public int getChunks() { return chunks; }
+        public int getEntities() { return entities; }
+        public int getTileEntities() { return tileEntities; }
+        public int getHoppers() { return hoppers; }
+    }
+
+    public static final class ChunkLoad {
+        private final String world;
+        private final int chunkX;
+        private final int chunkZ;
+        private final int entities;
+        private final int tileEntities;
+        private final int hoppers;
+        private final String topEntityType;
+        private final int topEntityCount;
+        private final int score;
+
+        ChunkLoad(String world, int chunkX, int chunkZ, int entities, int tileEntities, int hoppers,
+                  String topEntityType, int topEntityCount, int score) {
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.entities = entities;
+            this.tileEntities = tileEntities;
+            this.hoppers = hoppers;
+            this.topEntityType = topEntityType;
+            this.topEntityCount = topEntityCount;
+            this.score = score;
+        }
+
+        public String getWorld() { return world; }
+        public int getChunkX() { return chunkX; }
+        public int getChunkZ() { return chunkZ; }
+        public int getEntities() { return entities; }
+        public int getTileEntities() { return tileEntities; }
+        public int getHoppers() { return hoppers; }
+        public String getTopEntityType() { return topEntityType; }
+        public int getTopEntityCount() { return topEntityCount; }
+        public int getScore() { return score; }
+
+        // Block coordinates are what staff can teleport to
+        public String describe() {
+            StringBuilder text = new StringBuilder()
+                .append(world).append(" @ ").append(chunkX * 16 + 8).append(", ").append(chunkZ * 16 + 8)
+                .append(": ").append(entities).append(" entities");
+            if (topEntityType != null) {
+                text.append(" (").append(topEntityCount).append("x ").append(topEntityType).append(')');
+            }
+            return text.append(", ").append(tileEntities).append(" tile entities, ")
+                .append(hoppers).append(" hoppers").toString();
+        }
+    }
+
+    LagReport(long completedAt, long durationMillis, int chunksScanned, String trigger,
+              Map<String, int[]> worldTotals, List<ChunkLoad> hotspots) {
+        this.completedAt = completedAt;
+        this.durationMillis = durationMillis;
+        this.chunksScanned = chunksScanned;
+        this.trigger = trigger;
+
+        List<WorldLoad> worldLoads = new ArrayList<>();
+        for (Map.Entry<String, int[]> entry : worldTotals.entrySet()) {
+            int[] totals = entry.getValue();
+            worldLoads.add(new WorldLoad(entry.getKey(), totals[0], totals[1], totals[2], totals[3]));
+        }
+        this.worlds = Collections.unmodifiableList(worldLoads);
+        this.hotspots = Collections.unmodifiableList(new ArrayList<>(hotspots));
+    }
+
+    public long getCompletedAt() { return completedAt; }
+    public long getDurationMillis() { return durationMillis; }
+    public int getChunksScanned() { return chunksScanned; }
+    public String getTrigger() { return trigger; }
+    public List<WorldLoad> getWorlds() { return worlds; }
+    public List<ChunkLoad> getHotspots() { return hotspots; }
+
+    public String getSummary() {
+        if (hotspots.isEmpty()) {
+            return "no hotspots in " + chunksScanned + " chunks";
+        }
+        return "worst chunk " + hotspots.get(0).describe();
+    }
+}
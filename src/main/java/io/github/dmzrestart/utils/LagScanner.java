@@ -0,0 +1,315 @@
+package io.github.dmzrestart.utils;
+
+import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.managers.ConfigSnapshot;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Hopper;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Walks loaded chunks a few at a time across ticks, counting entities, tile entities
+// and hoppers, and keeps the heaviest chunks in a bounded min-heap
+public class LagScanner {
+    // Hoppers tick constantly and search for items, so one weighs more than a plain tile entity
+    private static final int HOPPER_WEIGHT = 4;
+    // Folia scans run on region threads, so the budget cannot be timed here - cap dispatches instead
+    private static final int FOLIA_CHUNKS_PER_TICK = 64;
+
+    private final DMZRestartPlugin plugin;
+    private final List<Consumer<LagReport>> callbacks = new ArrayList<>();
+    private TaskScheduler.Task scanTask;
+    private volatile LagReport lastReport;
+
+    // State of the scan in progress
+    private World[] worlds;
+    private int[] queueWorld;
+    private int[] queueX;
+    private int[] queueZ;
+    private int queueSize;
+    private int cursor;
+    private String trigger;
+    private long startedAt;
+    private int topK;
+    private int chunksScanned;
+    private final AtomicInteger pendingChunks = new AtomicInteger();
+    // Folia: player positions, each read on the player's own region, collected before the queue is built
+    private Queue<PlayerChunk> playerChunks;
+    private AtomicInteger pendingPlayers;
+    private final Map<String, int[]> worldTotals = new LinkedHashMap<>();
+    private final PriorityQueue<LagReport.ChunkLoad> hotspots =
+        new PriorityQueue<>(Comparator.comparingInt(LagReport.ChunkLoad::getScore));
+
+    private static final class PlayerChunk {
+        final World world;
+        final int x;
+        final int z;
+
+        PlayerChunk(World world, int x, int z) {
+            this.world = world;
+            this.x = x;
+            this.z = z;
+        }
+    }
+
+    public LagScanner(DMZRestartPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public boolean isScanning() {
+        return scanTask != null;
+    }
+
+    public LagReport getLastReport() {
+        return lastReport;
+    }
+
+    // The last report if it is recent enough to still describe the server
+    public LagReport getRecentReport(long maxAgeMillis) {
+        LagReport report = lastReport;
+        if (report == null || System.currentTimeMillis() - report.getCompletedAt() > maxAgeMillis) {
+            return null;
+        }
+        return report;
+    }
+
+    // Returns false if a scan was already running; the callback still gets its result
+    public boolean startScan(String trigger, Consumer<LagReport> callback) {
+        if (callback != null) {
+            callbacks.add(callback);
+        }
+        if (scanTask != null) return false;
+
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        this.trigger = trigger;
+        this.startedAt = System.currentTimeMillis();
+        this.topK = config.getLagScanTopK();
+        this.chunksScanned = 0;
+        this.cursor = 0;
+        pendingChunks.set(0);
+        worldTotals.clear();
+        hotspots.clear();
+        boolean folia = plugin.getTaskScheduler().isFolia();
+        if (folia) {
+            collectPlayerChunks();
+        } else {
+            buildQueue();
+        }
+
+        long budgetNanos = config.getLagScanTickBudgetNanos();
+        scanTask = plugin.getTaskScheduler().runGlobalTimer(task -> {
+            if (playerChunks != null) {
+                if (pendingPlayers.get() > 0) return;
+                buildQueue();
+                playerChunks = null;
+            }
+            if (folia) {
+                dispatchRegionScans();
+            } else {
+                scanWithinBudget(budgetNanos);
+            }
+
+            if (cursor >= queueSize && pendingChunks.get() <= 0) {
+                task.cancel();
+                complete();
+            }
+        }, 1L, 1L);
+        return true;
+    }
+
+    // Folia only lets a player's location be read on the region that owns the player
+    private void collectPlayerChunks() {
+        Queue<PlayerChunk> reported = new ConcurrentLinkedQueue<>();
+        AtomicInteger waiting = new AtomicInteger();
+        playerChunks = reported;
+        pendingPlayers = waiting;
+        queueSize = 0;
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            waiting.incrementAndGet();
+            plugin.getTaskScheduler().runForEntity(player, () -> {
+                try {
+                    Location location = player.getLocation();
+                    reported.add(new PlayerChunk(location.getWorld(), location.getBlockX() >> 4, location.getBlockZ() >> 4));
+                } finally {
+                    waiting.decrementAndGet();
+                }
+            }, waiting::decrementAndGet, 0L);
+        }
+    }
+
+    private void buildQueue() {
+        List<World> loadedWorlds = Bukkit.getWorlds();
+        worlds = loadedWorlds.toArray(new World[0]);
+        queueWorld = new int[1024];
+        queueX = new int[1024];
+        queueZ = new int[1024];
+        queueSize = 0;
+
+        for (int w = 0; w < worlds.length; w++) {
+            if (!plugin.getTaskScheduler().isFolia()) {
+                for (Chunk chunk : worlds[w].getLoadedChunks()) {
+                    enqueue(w, chunk.getX(), chunk.getZ());
+                }
+                continue;
+            }
+
+            // Folia has no safe global view of loaded chunks; entities only tick near players anyway
+            int radius = Bukkit.getViewDistance();
+            Set<Long> queued = new HashSet<>();
+            for (PlayerChunk centre : playerChunks) {
+                if (!worlds[w].equals(centre.world)) continue;
+                for (int x = centre.x - radius; x <= centre.x + radius; x++) {
+                    for (int z = centre.z - radius; z <= centre.z + radius; z++) {
+                        if (queued.add(((long) x << 32) | (z & 0xFFFFFFFFL))) {
+                            enqueue(w, x, z);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void enqueue(int world, int x, int z) {
+        if (queueSize == queueWorld.length) {
+            queueWorld = Arrays.copyOf(queueWorld, queueSize * 2);
+            queueX = Arrays.copyOf(queueX, queueSize * 2);
+            queueZ = Arrays.copyOf(queueZ, queueSize * 2);
+        }
+        queueWorld[queueSize] = world;
+        queueX[queueSize] = x;
+        queueZ[queueSize] = z;
+        queueSize++;
+    }
+
+    private void scanWithinBudget(long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        // At least one chunk per tick so a tiny budget still finishes
+        do {
+            if (cursor >= queueSize) return;
+            World world = worlds[queueWorld[cursor]];
+            int x = queueX[cursor];
+            int z = queueZ[cursor];
+            cursor++;
+            if (world.isChunkLoaded(x, z)) {
+                scanChunk(world, world.getChunkAt(x, z));
+            }
+        } while (System.nanoTime() < deadline);
+    }
+
+    private void dispatchRegionScans() {
+        int limit = Math.min(queueSize, cursor + FOLIA_CHUNKS_PER_TICK);
+        while (cursor < limit) {
+            World world = worlds[queueWorld[cursor]];
+            int x = queueX[cursor];
+            int z = queueZ[cursor];
+            cursor++;
+
+            pendingChunks.incrementAndGet();
+            plugin.getTaskScheduler().runAtChunk(world, x, z, () -> {
+                try {
+                    if (world.isChunkLoaded(x, z)) {
+                        scanChunk(world, world.getChunkAt(x, z));
+                    }
+                } finally {
+                    pendingChunks.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private void scanChunk(World world, Chunk chunk) {
+        Entity[] entities = chunk.getEntities();
+        BlockState[] tiles = chunk.getTileEntities(false);
+        int hoppers = 0;
+        for (BlockState tile : tiles) {
+            if (tile instanceof Hopper) hoppers++;
+        }
+        int score = entities.length + tiles.length + hoppers * HOPPER_WEIGHT;
+
+        synchronized (this) {
+            chunksScanned++;
+            int[] totals = worldTotals.computeIfAbsent(world.getName(), name -> new int[4]);
+            totals[0]++;
+            totals[1] += entities.length;
+            totals[2] += tiles.length;
+            totals[3] += hoppers;
+
+            if (score == 0 || (hotspots.size() >= topK && score <= hotspots.peek().getScore())) return;
+        }
+
+        // Only chunks that make the heap pay for the per-type breakdown
+        Map<EntityType, Integer> byType = new EnumMap<>(EntityType.class);
+        EntityType topType = null;
+        int topCount = 0;
+        for (Entity entity : entities) {
+            int count = byType.merge(entity.getType(), 1, Integer::sum);
+            if (count > topCount) {
+                topCount = count;
+                topType = entity.getType();
+            }
+        }
+
+        LagReport.ChunkLoad load = new LagReport.ChunkLoad(world.getName(), chunk.getX(), chunk.getZ(),
+            entities.length, tiles.length, hoppers, topType != null ? topType.name() : null, topCount, score);
+        synchronized (this) {
+            hotspots.offer(load);
+            if (hotspots.size() > topK) {
+                hotspots.poll();
+            }
+        }
+    }
+
+    private void complete() {
+        List<LagReport.ChunkLoad> ranked;
+        LagReport report;
+        synchronized (this) {
+            ranked = new ArrayList<>(hotspots);
+            ranked.sort(Comparator.comparingInt(LagReport.ChunkLoad::getScore).reversed());
+            report = new LagReport(System.currentTimeMillis(), System.currentTimeMillis() - startedAt,
+                chunksScanned, trigger, worldTotals, ranked);
+        }
+        scanTask = null;
+        worlds = null;
+        playerChunks = null;
+        lastReport = report;
+
+        if (plugin.getLogManager() != null) {
+            plugin.getLogManager().info("Lag scan (" + trigger + ") covered " + report.getChunksScanned()
+                + " chunks in " + report.getDurationMillis() + "ms - " + report.getSummary());
+        }
+
+        List<Consumer<LagReport>> waiting = new ArrayList<>(callbacks);
+        callbacks.clear();
+        for (Consumer<LagReport> callback : waiting) {
+            callback.accept(report);
+        }
+    }
+
+    public void stop() {
+        if (scanTask != null) {
+            scanTask.cancel();
+            scanTask = null;
+        }
+        callbacks.clear();
+        worlds = null;
+        playerChunks = null;
+    }
+}
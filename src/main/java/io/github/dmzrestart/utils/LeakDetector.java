@@ -0,0 +1,275 @@
+package io.github.dmzrestart.utils;
+
+import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.managers.ConfigSnapshot;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// Low-frequency leak hunting. Every interval it takes a live class histogram (which runs
+// right after a full GC, so only reachable objects count) and keeps a short ring of
+// samples for the biggest classes. A class whose retained bytes or instance count keep
+// climbing from one post-GC sample to the next is reported together with the plugin that
+// loaded it.
+public class LeakDetector {
+    // Only the heaviest classes are tracked; a real leak climbs into this set quickly
+    private static final int TRACKED_CLASSES = 500;
+    // A steady climb may dip once, e.g. when a cache is trimmed
+    private static final int ALLOWED_DIPS = 1;
+
+    private final DMZRestartPlugin plugin;
+    private final Map<String, ClassTrend> trends = new HashMap<>();
+    private final ClassOwners owners = new ClassOwners();
+    private TaskScheduler.Task sampleTask;
+    private volatile List<Suspect> suspects = Collections.emptyList();
+    private volatile long lastSampleAt;
+    private volatile int samplesTaken;
+
+    // Fixed-size rings of post-GC readings for one class
+    private static final class ClassTrend {
+        final long[] bytes;
+        final long[] instances;
+        final long[] takenAt;
+        int count;
+        int head;
+        int lastSeen;
+
+        ClassTrend(int history) {
+            bytes = new long[history];
+            instances = new long[history];
+            takenAt = new long[history];
+        }
+
+        void add(long byteCount, long instanceCount, long now) {
+            bytes[head] = byteCount;
+            instances[head] = instanceCount;
+            takenAt[head] = now;
+            head = (head + 1) % bytes.length;
+            count = Math.min(count + 1, bytes.length);
+        }
+
+        // i = 0 is the oldest reading still kept
+        int index(int i) {
+            return (head - count + i + bytes.length) % bytes.length;
+        }
+    }
+
+    public static final class Suspect {
+        private final String className;
+        private final String owner;
+        private final long bytes;
+        private final long bytesGrowth;
+        private final long instances;
+        private final long instanceGrowth;
+        private final long spanMillis;
+        private final int samples;
+
+        Suspect(String className, String owner, long bytes, long bytesGrowth, long instances, long instanceGrowth,
+                long spanMillis, int samples) {
+            this.className = className;
+            this.owner = owner;
+            this.bytes = bytes;
+            this.bytesGrowth = bytesGrowth;
+            this.instances = instances;
+            this.instanceGrowth = instanceGrowth;
+            this.spanMillis = spanMillis;
+            this.samples = samples;
+        }
+
+        public String getClassName() { return className; }
+        public String getOwner() { return owner; }
+        public long getBytes() { return bytes; }
+        public long getBytesGrowth() { return bytesGrowth; }
+        public long getInstances() { return instances; }
+        public long getInstanceGrowth() { return instanceGrowth; }
+        public long getSpanMillis() { return spanMillis; }
+        public int getSamples() { return samples; }
+
+        public double getBytesPerHour() {
+            return spanMillis > 0 ? bytesGrowth * 3_600_000.0 / spanMillis : 0.0;
+        }
+
+        public String describe() {
+            return String.format("%s [%s] %s (+%s, ~%s/h), %d instances (+%d) over %d samples",
+                className, owner, ContainerMetrics.formatBytes(bytes), ContainerMetrics.formatBytes(bytesGrowth),
+                ContainerMetrics.formatBytes((long) getBytesPerHour()), instances, instanceGrowth, samples);
+        }
+    }
+
+    public LeakDetector(DMZRestartPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        stop();
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        if (!config.isLeakDetectionEnabled()) return;
+
+        long intervalTicks = config.getLeakIntervalMinutes() * 60L * 20L;
+        // The histogram forces a full GC, so it never runs on a server thread
+        sampleTask = plugin.getTaskScheduler().runAsyncTimer(task -> sample(), intervalTicks, intervalTicks);
+
+        if (plugin.getLogManager() != null) {
+            plugin.getLogManager().info("Leak detection active (histogram every " + config.getLeakIntervalMinutes() + "m)");
+        }
+    }
+
+    public void stop() {
+        if (sampleTask != null) {
+            sampleTask.cancel();
+            sampleTask = null;
+        }
+    }
+
+    public boolean isActive() {
+        return sampleTask != null;
+    }
+
+    public List<Suspect> getSuspects() {
+        return suspects;
+    }
+
+    public long getLastSampleAt() {
+        return lastSampleAt;
+    }
+
+    public int getSamplesTaken() {
+        return samplesTaken;
+    }
+
+    public synchronized void sample() {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        String histogram;
+        try {
+            histogram = EvidenceCapture.classHistogram();
+        } catch (Exception e) {
+            if (plugin.getLogManager() != null) {
+                plugin.getLogManager().warning("Leak detection stopped - class histogram unavailable: " + e.getMessage());
+            }
+            stop();
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        samplesTaken++;
+        int history = config.getLeakHistory();
+        List<HistogramEntry> entries = parse(histogram, TRACKED_CLASSES);
+        for (HistogramEntry entry : entries) {
+            ClassTrend trend = trends.get(entry.className);
+            if (trend == null || trend.bytes.length != history) {
+                trend = new ClassTrend(history);
+                trends.put(entry.className, trend);
+            }
+            trend.add(entry.bytes, entry.instances, now);
+            trend.lastSeen = samplesTaken;
+        }
+
+        // Classes that dropped out of the top set shrank, which is the opposite of a leak
+        Iterator<ClassTrend> iterator = trends.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().lastSeen != samplesTaken) {
+                iterator.remove();
+            }
+        }
+
+        List<Suspect> found = findSuspects(config);
+        List<Suspect> previous = suspects;
+        suspects = Collections.unmodifiableList(found);
+        lastSampleAt = now;
+
+        for (Suspect suspect : found) {
+            if (plugin.getLogManager() != null && !containsClass(previous, suspect.getClassName())) {
+                plugin.getLogManager().warning("Possible memory leak: " + suspect.describe());
+            }
+        }
+    }
+
+    private List<Suspect> findSuspects(ConfigSnapshot config) {
+        int minSamples = config.getLeakMinSamples();
+        long minGrowth = config.getLeakMinGrowthMb() * 1024L * 1024L;
+        long minInstanceGrowth = config.getLeakMinGrowthInstances();
+        List<Suspect> found = new ArrayList<>();
+
+        for (Map.Entry<String, ClassTrend> entry : trends.entrySet()) {
+            ClassTrend trend = entry.getValue();
+            if (trend.count < minSamples) continue;
+
+            int first = trend.index(0);
+            int last = trend.index(trend.count - 1);
+            long growth = trend.bytes[last] - trend.bytes[first];
+            long instanceGrowth = trend.instances[last] - trend.instances[first];
+            boolean bytesClimb = growth >= minGrowth && isSteady(trend, trend.bytes);
+            boolean instancesClimb = instanceGrowth >= minInstanceGrowth && isSteady(trend, trend.instances);
+            if (!bytesClimb && !instancesClimb) continue;
+
+            found.add(new Suspect(entry.getKey(), owners.ownerOf(toBinaryName(entry.getKey())), trend.bytes[last], growth,
+                trend.instances[last], instanceGrowth, trend.takenAt[last] - trend.takenAt[first], trend.count));
+        }
+
+        found.sort((a, b) -> Long.compare(b.getBytesGrowth(), a.getBytesGrowth()));
+        return found;
+    }
+
+    private static boolean isSteady(ClassTrend trend, long[] values) {
+        int dips = 0;
+        for (int i = 1; i < trend.count && dips <= ALLOWED_DIPS; i++) {
+            if (values[trend.index(i)] < values[trend.index(i - 1)]) dips++;
+        }
+        return dips <= ALLOWED_DIPS;
+    }
+
+    private static boolean containsClass(List<Suspect> list, String className) {
+        for (Suspect suspect : list) {
+            if (suspect.getClassName().equals(className)) return true;
+        }
+        return false;
+    }
+
+    // "[Lcom.example.Foo;" -> "com.example.Foo"; primitive arrays have no owner worth naming
+    static String toBinaryName(String histogramName) {
+        String name = histogramName;
+        while (name.startsWith("[")) {
+            name = name.substring(1);
+        }
+        if (name.startsWith("L") && name.endsWith(";")) {
+            name = name.substring(1, name.length() - 1);
+        } else if (name.length() <= 1) {
+            return null;
+        }
+        // Lambdas and other hidden classes cannot be looked up, their host class can
+        int hidden = name.indexOf("$$Lambda");
+        if (hidden < 0) hidden = name.indexOf('/');
+        return hidden > 0 ? name.substring(0, hidden) : name;
+    }
+
+    static final class HistogramEntry {
+        final String className;
+        final long instances;
+        final long bytes;
+
+        HistogramEntry(String className, long instances, long bytes) {
+            this.className = className;
+            this.instances = instances;
+            this.bytes = bytes;
+        }
+    }
+
+    // Lines look like "   1:   5210   243736  [B (java.base@17.0.9)", already sorted by bytes
+    static List<HistogramEntry> parse(String histogram, int limit) {
+        List<HistogramEntry> entries = new ArrayList<>();
+        for (String line : histogram.split("\n")) {
+            if (entries.size() >= limit) break;
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length < 4 || !parts[0].endsWith(":")) continue;
+            try {
+                entries.add(new HistogramEntry(parts[3], Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+            } catch (NumberFormatException e) {
+                // Header or footer line
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,572 @@
+package io.github.dmzrestart.utils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Sparse index over logs/dmz-restart-YYYY-MM-DD.log. Each file is cut into blocks of about
+// BLOCK_BYTES of whole lines, and each block records its byte range, its first and last
+// timestamp and which levels occur in it. A search maps and scans only the blocks that can
+// match its time range and level. Lines without a timestamp (stack traces, multi-line
+// messages) continue the entry above them: blocks are only cut in front of an entry, and a
+// search matches and returns the entry as a whole.
+//
+// LogManager extends the current file's index as it writes. Files written before the index
+// existed, or while the index was behind, are caught up by scanning their unindexed tail on
+// the first search. Closed blocks persist in logs/index/*.idx, so that work is done once.
+public class LogIndex {
+    public static final String[] LEVELS = {"DEBUG", "INFO", "WARN", "ERROR"};
+
+    static final int BLOCK_BYTES = 64 * 1024;
+    // Consecutive matching blocks are mapped together, up to this much at a time
+    private static final int MAX_RUN_BYTES = 16 * 1024 * 1024;
+    private static final int RECORD_BYTES = 8 + 8 + 8 + 8 + 4;
+    private static final String PREFIX = "dmz-restart-";
+    private static final String SUFFIX = ".log";
+    // "[yyyy-MM-dd HH:mm:ss] [LEVEL] message"
+    private static final int TIMESTAMP_LENGTH = 19;
+    private static final int LEVEL_START = 23;
+    private static final byte[][] LEVEL_BYTES = {
+        "DEBUG]".getBytes(StandardCharsets.US_ASCII),
+        "INFO]".getBytes(StandardCharsets.US_ASCII),
+        "WARN]".getBytes(StandardCharsets.US_ASCII),
+        "ERROR]".getBytes(StandardCharsets.US_ASCII)
+    };
+
+    private final File logDirectory;
+    private final File indexDirectory;
+    private final Map<String, FileIndex> files = new HashMap<>();
+
+    static final class Block {
+        final long start;
+        final long end;
+        final long firstTimestamp;
+        final long lastTimestamp;
+        final int levels;
+
+        Block(long start, long end, long firstTimestamp, long lastTimestamp, int levels) {
+            this.start = start;
+            this.end = end;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+            this.levels = levels;
+        }
+    }
+
+    public static final class Match {
+        private final String timestamp;
+        private final String level;
+        private final String message;
+
+        Match(String timestamp, String level, String message) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.message = message;
+        }
+
+        public String getTimestamp() { return timestamp; }
+        public String getLevel() { return level; }
+        public String getMessage() { return message; }
+    }
+
+    public static final class Result {
+        private final List<Match> matches;
+        private final boolean truncated;
+        private final long scannedBytes;
+        private final long totalBytes;
+
+        Result(List<Match> matches, boolean truncated, long scannedBytes, long totalBytes) {
+            this.matches = matches;
+            this.truncated = truncated;
+            this.scannedBytes = scannedBytes;
+            this.totalBytes = totalBytes;
+        }
+
+        // Newest first
+        public List<Match> getMatches() { return matches; }
+        public boolean isTruncated() { return truncated; }
+        public long getScannedBytes() { return scannedBytes; }
+        public long getTotalBytes() { return totalBytes; }
+    }
+
+    // The block being filled; closed in front of the first entry after it reaches BLOCK_BYTES
+    private static final class BlockBuilder {
+        long start;
+        long end;
+        long firstTimestamp;
+        long lastTimestamp;
+        int levels;
+
+        BlockBuilder(long start) {
+            this.start = start;
+            this.end = start;
+        }
+
+        boolean isEmpty() {
+            return end == start;
+        }
+
+        Block add(long offset, int length, long timestamp, int level, boolean entryStart) {
+            Block closed = null;
+            if (entryStart && end - start >= BLOCK_BYTES) {
+                closed = toBlock();
+                start = end;
+                levels = 0;
+            }
+            if (isEmpty()) firstTimestamp = timestamp;
+            lastTimestamp = timestamp;
+            if (level >= 0) levels |= 1 << level;
+            end = offset + length;
+            return closed;
+        }
+
+        Block toBlock() {
+            return new Block(start, end, firstTimestamp, lastTimestamp, levels);
+        }
+    }
+
+    private final class FileIndex {
+        final File log;
+        final File sidecar;
+        final List<Block> closed = new ArrayList<>();
+        BlockBuilder open = new BlockBuilder(0L);
+        boolean loaded;
+        // True once everything written so far is indexed; only then are live appends taken
+        boolean synced;
+
+        FileIndex(File log) {
+            this.log = log;
+            this.sidecar = new File(indexDirectory, log.getName().replace(SUFFIX, ".idx"));
+        }
+    }
+
+    public LogIndex(File logDirectory) {
+        this.logDirectory = logDirectory;
+        this.indexDirectory = new File(logDirectory, "index");
+    }
+
+    // Called by LogManager after each line it writes, under its write lock
+    public void append(File log, long offset, int length, long timestamp, String level) {
+        FileIndex index = get(log);
+        synchronized (index) {
+            if (!index.synced) return;
+            long covered = index.open.end;
+            if (offset + length <= covered) return;
+            if (offset != covered) {
+                // Something was written around the index; the next search catches up
+                index.synced = false;
+                return;
+            }
+            Block block = index.open.add(offset, length, timestamp - timestamp % 1000L, levelOf(level), true);
+            if (block != null) {
+                index.closed.add(block);
+                persist(index, Collections.singletonList(block));
+            }
+        }
+    }
+
+    // Indexes whatever of the file is not indexed yet; blocking, so run it off the main thread
+    public void catchUp(File log) {
+        FileIndex index = get(log);
+        synchronized (index) {
+            if (!index.loaded) {
+                load(index);
+                index.loaded = true;
+            }
+            if (index.synced) return;
+        }
+
+        // Scanning happens without the lock so writers are never held up; a few passes pick
+        // up lines written meanwhile
+        for (int pass = 0; pass < 5; pass++) {
+            BlockBuilder builder;
+            synchronized (index) {
+                long length = index.log.length();
+                if (length < index.open.end) {
+                    // Replaced or truncated underneath us; start over
+                    index.closed.clear();
+                    index.open = new BlockBuilder(0L);
+                    index.sidecar.delete();
+                }
+                if (length == index.open.end) {
+                    index.synced = true;
+                    return;
+                }
+                builder = copy(index.open);
+            }
+
+            long from = builder.end;
+            List<Block> blocks = new ArrayList<>();
+            try {
+                scanTail(index.log, builder, blocks);
+            } catch (IOException e) {
+                return;
+            }
+
+            synchronized (index) {
+                // Another search caught up first
+                if (index.open.end != from) continue;
+                index.closed.addAll(blocks);
+                index.open = builder;
+                persist(index, blocks);
+            }
+        }
+    }
+
+    public Result search(String text, long since, int minLevel, int limit) {
+        String sinceText = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(since));
+        byte[] sinceBytes = sinceText.getBytes(StandardCharsets.US_ASCII);
+        String firstDay = sinceText.substring(0, 10);
+        int levelMask = 0;
+        for (int level = Math.max(0, minLevel); level < LEVELS.length; level++) {
+            levelMask |= 1 << level;
+        }
+        LineFilter filter = new LineFilter(text, sinceBytes, minLevel);
+
+        List<Match> matches = new ArrayList<>();
+        long scanned = 0L;
+        long total = 0L;
+        for (File log : logFiles(firstDay)) {
+            catchUp(log);
+            FileIndex index = get(log);
+            List<Block> blocks;
+            synchronized (index) {
+                blocks = new ArrayList<>(index.closed);
+                if (!index.open.isEmpty()) blocks.add(index.open.toBlock());
+            }
+
+            List<long[]> runs = new ArrayList<>();
+            for (Block block : blocks) {
+                total += block.end - block.start;
+                if (block.lastTimestamp < since - 1000L || (block.levels & levelMask) == 0) continue;
+                long[] last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+                if (last != null && last[1] == block.start && block.end - last[0] <= MAX_RUN_BYTES) {
+                    last[1] = block.end;
+                } else {
+                    runs.add(new long[] {block.start, block.end});
+                }
+            }
+
+            // Newest first: runs from the end of the file, lines within a run reversed
+            for (int i = runs.size() - 1; i >= 0; i--) {
+                List<Match> found = new ArrayList<>();
+                try {
+                    scanRun(log, runs.get(i)[0], runs.get(i)[1], filter, found);
+                } catch (IOException e) {
+                    continue;
+                }
+                scanned += runs.get(i)[1] - runs.get(i)[0];
+                for (int j = found.size() - 1; j >= 0; j--) {
+                    matches.add(found.get(j));
+                    if (matches.size() >= limit) {
+                        return new Result(matches, true, scanned, total);
+                    }
+                }
+            }
+        }
+        return new Result(matches, false, scanned, total);
+    }
+
+    public static int levelOf(String level) {
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (LEVELS[i].equalsIgnoreCase(level)) return i;
+        }
+        return -1;
+    }
+
+    private synchronized FileIndex get(File log) {
+        FileIndex index = files.get(log.getName());
+        if (index == null) {
+            index = new FileIndex(log);
+            files.put(log.getName(), index);
+        }
+        return index;
+    }
+
+    // Newest day first, from firstDay (yyyy-MM-dd) on. A file is named after the day it was
+    // opened and written to until the plugin stops, so the newest one opened before firstDay
+    // may still hold lines from the window; the block timestamps skip the rest of it.
+    private List<File> logFiles(String firstDay) {
+        File[] found = logDirectory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        List<File> selected = new ArrayList<>();
+        if (found == null) return selected;
+
+        Arrays.sort(found, Collections.reverseOrder());
+        for (File log : found) {
+            String day = log.getName().substring(PREFIX.length(), log.getName().length() - SUFFIX.length());
+            selected.add(log);
+            if (day.compareTo(firstDay) < 0) break;
+        }
+        return selected;
+    }
+
+    private static BlockBuilder copy(BlockBuilder source) {
+        BlockBuilder copy = new BlockBuilder(source.start);
+        copy.end = source.end;
+        copy.firstTimestamp = source.firstTimestamp;
+        copy.lastTimestamp = source.lastTimestamp;
+        copy.levels = source.levels;
+        return copy;
+    }
+
+    // Reads the sidecar; one that does not describe this file's prefix is thrown away
+    private void load(FileIndex index) {
+        if (!index.sidecar.exists()) return;
+        long logLength = index.log.length();
+        long whole = index.sidecar.length() / RECORD_BYTES;
+        List<Block> blocks = new ArrayList<>();
+        boolean valid = true;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index.sidecar)))) {
+            long expected = 0L;
+            for (long i = 0; i < whole; i++) {
+                Block block = new Block(in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readInt());
+                if (block.start != expected || block.end <= block.start || block.end > logLength) {
+                    valid = false;
+                    break;
+                }
+                blocks.add(block);
+                expected = block.end;
+            }
+        } catch (IOException e) {
+            valid = false;
+        }
+
+        if (!valid) {
+            index.sidecar.delete();
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(index.sidecar, "rw")) {
+            // Drop a record torn by a crash so later appends stay aligned
+            raf.setLength(whole * RECORD_BYTES);
+        } catch (IOException e) {
+            index.sidecar.delete();
+            return;
+        }
+        index.closed.addAll(blocks);
+        index.open = new BlockBuilder(blocks.isEmpty() ? 0L : blocks.get(blocks.size() - 1).end);
+    }
+
+    private void persist(FileIndex index, List<Block> blocks) {
+        if (blocks.isEmpty()) return;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(blocks.size() * RECORD_BYTES);
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            for (Block block : blocks) {
+                out.writeLong(block.start);
+                out.writeLong(block.end);
+                out.writeLong(block.firstTimestamp);
+                out.writeLong(block.lastTimestamp);
+                out.writeInt(block.levels);
+            }
+            if (!indexDirectory.exists()) indexDirectory.mkdirs();
+            try (FileOutputStream file = new FileOutputStream(index.sidecar, true)) {
+                file.write(bytes.toByteArray());
+            }
+        } catch (IOException e) {
+            // The in-memory index still works; the file is rebuilt from the log next time
+        }
+    }
+
+    // Adds every complete line after builder.end to the builder, collecting the blocks it closes
+    private static void scanTail(File log, BlockBuilder builder, List<Block> closed) throws IOException {
+        ZoneId zone = ZoneId.systemDefault();
+        try (RandomAccessFile raf = new RandomAccessFile(log, "r"); FileChannel channel = raf.getChannel()) {
+            long length = channel.size();
+            long position = builder.end;
+            while (position < length) {
+                int window = (int) Math.min(MAX_RUN_BYTES, length - position);
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, window);
+                int lineStart = 0;
+                for (int i = 0; i < window; i++) {
+                    if (buffer.get(i) != '\n') continue;
+                    long timestamp = parseTimestamp(buffer, lineStart, i, zone);
+                    boolean entryStart = timestamp >= 0;
+                    // Continuation lines take the time of their entry
+                    if (!entryStart) timestamp = builder.isEmpty() ? 0L : builder.lastTimestamp;
+                    Block block = builder.add(position + lineStart, i + 1 - lineStart, timestamp,
+                        parseLevel(buffer, lineStart, i), entryStart);
+                    if (block != null) closed.add(block);
+                    lineStart = i + 1;
+                }
+                // A line still being written is left for the next pass
+                if (lineStart == 0) return;
+                position += lineStart;
+            }
+        }
+    }
+
+    // Each entry is matched together with its continuation lines. Runs start on a block
+    // boundary, which is an entry boundary; a continuation without its entry (only possible in
+    // blocks indexed before entries were kept whole) is skipped.
+    private static void scanRun(File log, long start, long end, LineFilter filter, List<Match> found) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(log, "r"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            int length = (int) (end - start);
+            int lineStart = 0;
+            int entryStart = -1;
+            int entryEnd = -1;
+            for (int i = 0; i <= length; i++) {
+                if (i < length && buffer.get(i) != '\n') continue;
+                if (i > lineStart) {
+                    if (isEntryStart(buffer, lineStart, i)) {
+                        if (entryStart >= 0) {
+                            Match match = filter.match(buffer, entryStart, entryEnd);
+                            if (match != null) found.add(match);
+                        }
+                        entryStart = lineStart;
+                    }
+                    entryEnd = i;
+                }
+                lineStart = i + 1;
+            }
+            if (entryStart >= 0) {
+                Match match = filter.match(buffer, entryStart, entryEnd);
+                if (match != null) found.add(match);
+            }
+        }
+    }
+
+    // "[yyyy-MM-dd HH:mm:ss]" opens an entry; any other line continues the entry above it
+    private static boolean isEntryStart(ByteBuffer buffer, int start, int end) {
+        return end - start >= LEVEL_START && buffer.get(start) == '[' && buffer.get(start + TIMESTAMP_LENGTH + 1) == ']';
+    }
+
+    // Digits straight from the buffer; SimpleDateFormat would dominate a first-time index build
+    private static long parseTimestamp(ByteBuffer buffer, int start, int end, ZoneId zone) {
+        if (!isEntryStart(buffer, start, end)) return -1L;
+        int at = start + 1;
+        int year = digits(buffer, at, 4);
+        int month = digits(buffer, at + 5, 2);
+        int day = digits(buffer, at + 8, 2);
+        int hour = digits(buffer, at + 11, 2);
+        int minute = digits(buffer, at + 14, 2);
+        int second = digits(buffer, at + 17, 2);
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0) return -1L;
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second).atZone(zone).toInstant().toEpochMilli();
+        } catch (DateTimeException e) {
+            return -1L;
+        }
+    }
+
+    private static int digits(ByteBuffer buffer, int at, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            int digit = buffer.get(at + i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int parseLevel(ByteBuffer buffer, int start, int end) {
+        if (end - start <= LEVEL_START || buffer.get(start + LEVEL_START - 1) != '[') return -1;
+        for (int level = 0; level < LEVEL_BYTES.length; level++) {
+            byte[] expected = LEVEL_BYTES[level];
+            if (end - start - LEVEL_START < expected.length) continue;
+            boolean equal = true;
+            for (int i = 0; i < expected.length && equal; i++) {
+                equal = buffer.get(start + LEVEL_START + i) == expected[i];
+            }
+            if (equal) return level;
+        }
+        return -1;
+    }
+
+    private static String ascii(ByteBuffer buffer, int start, int end) {
+        return decode(buffer, start, end, StandardCharsets.US_ASCII);
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end, Charset charset) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, charset);
+    }
+
+    // Time and level are checked on the raw bytes; the text match is too for ASCII queries,
+    // so only matching lines are ever decoded
+    private static final class LineFilter {
+        private final String text;
+        private final byte[] asciiText;
+        private final byte[] since;
+        private final int minLevel;
+
+        LineFilter(String text, byte[] since, int minLevel) {
+            this.text = text.toLowerCase(Locale.ROOT);
+            boolean ascii = true;
+            for (int i = 0; i < this.text.length(); i++) {
+                if (this.text.charAt(i) > 0x7F) ascii = false;
+            }
+            this.asciiText = ascii ? this.text.getBytes(StandardCharsets.US_ASCII) : null;
+            this.since = since;
+            this.minLevel = minLevel;
+        }
+
+        // start to end covers an entry's first line and any continuation lines
+        Match match(ByteBuffer buffer, int start, int end) {
+            if (end > start && buffer.get(end - 1) == '\r') end--;
+            if (end - start <= LEVEL_START || buffer.get(start) != '[') return null;
+
+            // "yyyy-MM-dd HH:mm:ss" sorts like the time it names
+            for (int i = 0; i < since.length; i++) {
+                int difference = buffer.get(start + 1 + i) - since[i];
+                if (difference < 0) return null;
+                if (difference > 0) break;
+            }
+            int level = parseLevel(buffer, start, end);
+            if (level < minLevel) return null;
+
+            int message = start + LEVEL_START + (level >= 0 ? LEVEL_BYTES[level].length + 1 : 0);
+            if (message > end) message = end;
+            String decoded;
+            if (asciiText != null) {
+                if (!containsIgnoreCase(buffer, message, end, asciiText)) return null;
+                decoded = decode(buffer, message, end, StandardCharsets.UTF_8);
+            } else {
+                decoded = decode(buffer, message, end, StandardCharsets.UTF_8);
+                if (!decoded.toLowerCase(Locale.ROOT).contains(text)) return null;
+            }
+            if (decoded.indexOf('\r') >= 0) decoded = decoded.replace("\r", "");
+            return new Match(ascii(buffer, start + 1, start + 1 + TIMESTAMP_LENGTH),
+                level >= 0 ? LEVELS[level] : "", decoded);
+        }
+
+        private static boolean containsIgnoreCase(ByteBuffer buffer, int start, int end, byte[] needle) {
+            if (needle.length == 0) return true;
+            outer:
+            for (int i = start; i <= end - needle.length; i++) {
+                for (int j = 0; j < needle.length; j++) {
+                    int b = buffer.get(i + j);
+                    if (b >= 'A' && b <= 'Z') b += 'a' - 'A';
+                    if (b != needle[j]) continue outer;
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -2,48 +2,48 @@ package io.github.dmzrestart.utils;
 
 import io.github.dmzrestart.DMZRestartPlugin;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class MetricsCollector implements Consumer<MetricsSample> {
+    // Buffered points reach disk this often; a crash loses at most this much
+    private static final long FLUSH_SECONDS = 60L;
 
-public class MetricsCollector {
     private final DMZRestartPlugin plugin;
     private final AtomicInteger commandsExecuted = new AtomicInteger(0);
-    private File metricsFile;
+    private final MetricsStore store;
+    private volatile boolean active;
+    private TaskScheduler.Task flushTask;
+    private boolean flushFailing;
 
     public static final String COMMANDS_EXECUTED = "commands_executed";
 
     public MetricsCollector(DMZRestartPlugin plugin) {
         this.plugin = plugin;
-        initializeMetricsFile();
+        this.store = new MetricsStore(new File(plugin.getDataFolder(), "metrics"));
         plugin.getLogger().info("MetricsCollector initialized successfully");
     }
 
-    private void initializeMetricsFile() {
-        try {
-            File metricsDir = new File(plugin.getDataFolder(), "metrics");
-            if (!metricsDir.exists()) {
-                metricsDir.mkdirs();
-            }
+    public synchronized void initialize() {
+        if (active) return;
+        active = true;
 
-            String dateStr = new SimpleDateFormat("yyyy-MM").format(new Date());
-            metricsFile = new File(metricsDir, "metrics-" + dateStr + ".csv");
-
-            if (!metricsFile.exists()) {
-                metricsFile.createNewFile();
-                // Write CSV header
-                try (FileWriter writer = new FileWriter(metricsFile, true)) {
-                    writer.write("timestamp,metric,value\n");
+        plugin.getTaskScheduler().runAsync(() -> {
+            try {
+                store.repair();
+            } catch (IOException e) {
+                if (plugin.getLogManager() != null) {
+                    plugin.getLogManager().warning("Failed to check metrics segments: " + e.getMessage());
                 }
             }
-        } catch (IOException e) {
-            plugin.getLogger().warning("Failed to initialize metrics file: " + e.getMessage());
-        }
-    }
+        });
+        flushTask = plugin.getTaskScheduler().runAsyncTimer(task -> flush(),
+            FLUSH_SECONDS * 20L, FLUSH_SECONDS * 20L);
 
-    public void initialize() {
         if (plugin.getLogManager() != null) {
             plugin.getLogManager().info("Metrics collection started");
         }
@@ -54,28 +54,100 @@ public class MetricsCollector {
             commandsExecuted.incrementAndGet();
         }
 
-        recordMetric(metricName, "1");
+        recordMetric(metricName, 1.0);
+
+        StatsdExporter statsd = plugin.getStatsdExporter();
+        if (statsd != null) {
+            statsd.count(metricName, 1);
+        }
+    }
+
+    private void recordMetric(String metricName, double value) {
+        if (!active) return;
+        store.record(metricName, System.currentTimeMillis(), value);
+    }
+
+    // Records a set of sampled values under one timestamp
+    public void recordGauges(Map<String, Double> values) {
+        StatsdExporter statsd = plugin.getStatsdExporter();
+        if (statsd != null) {
+            for (Map.Entry<String, Double> entry : values.entrySet()) {
+                statsd.gauge(entry.getKey(), entry.getValue());
+            }
+        }
+        if (!active || values.isEmpty()) return;
+
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Double> entry : values.entrySet()) {
+            store.record(entry.getKey(), now, entry.getValue());
+        }
     }
 
-    private void recordMetric(String metricName, String value) {
-        if (metricsFile == null) return;
+    // Server health over time, so restarts can be compared offline (see analytics/)
+    @Override
+    public void accept(MetricsSample sample) {
+        if (!active) return;
 
-        try (FileWriter writer = new FileWriter(metricsFile, true)) {
-            String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
-            writer.write(String.format("%s,%s,%s\n", timestamp, metricName, value));
-            writer.flush();
+        long timestamp = sample.getTimestamp();
+        if (!Double.isNaN(sample.getTps1m())) {
+            store.record("tps", timestamp, sample.getTps1m());
+        }
+        if (!Double.isNaN(sample.getMsptP50())) {
+            store.record("mspt_p50", timestamp, sample.getMsptP50());
+            store.record("mspt_p95", timestamp, sample.getMsptP95());
+        }
+        store.record("heap_used_mb", timestamp, sample.getHeapUsed() / (1024.0 * 1024.0));
+        if (sample.getHeapAfterGc() >= 0) {
+            store.record("heap_after_gc_mb", timestamp, sample.getHeapAfterGc() / (1024.0 * 1024.0));
+        }
+        store.record("players", timestamp, sample.getPlayersOnline());
+    }
+
+    private void flush() {
+        try {
+            store.flush();
+            flushFailing = false;
         } catch (IOException e) {
-            // Silent fail to prevent log spam
+            // Warn once per outage; the points of the failed flush are lost
+            if (!flushFailing && plugin.getLogManager() != null) {
+                plugin.getLogManager().warning("Failed to write metrics segment: " + e.getMessage());
+            }
+            flushFailing = true;
         }
     }
 
+    // Converts the stored segments for [from, to] to the timestamp,metric,value CSV layout
+    // under metrics/; blocking, so call it off the main thread. Returns the rows written.
+    public long exportCsv(long from, long to, File target) throws IOException {
+        flush();
+        return store.exportCsv(from, to, metric -> true, target);
+    }
+
+    public File newExportFile() {
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        return new File(store.getDirectory(), "export-" + stamp + ".csv");
+    }
+
+    public MetricsStore getStore() {
+        return store;
+    }
+
     public int getCommandsExecuted() {
         return commandsExecuted.get();
     }
 
-    public void shutdown() {
+    public synchronized void shutdown() {
+        if (!active) return;
+        active = false;
+
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        flush();
+
         if (plugin.getLogManager() != null) {
             plugin.getLogManager().info("Metrics collection stopped");
         }
     }
-}
\ No newline at end of file
+}
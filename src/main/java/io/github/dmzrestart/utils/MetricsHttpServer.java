@@ -0,0 +1,145 @@
+package io.github.dmzrestart.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.managers.ConfigSnapshot;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The JDK's built-in HTTP server, bound to a local port for scrapers and the dashboard.
+// Requests are answered on its own threads and only ever read cached data.
+public class MetricsHttpServer {
+    // Scrapes and page loads; each dashboard viewer holds one more thread while connected
+    private static final int WORKER_THREADS = 2;
+
+    private final DMZRestartPlugin plugin;
+    private final MetricsSampler sampler;
+    private final PrometheusExporter prometheusExporter = new PrometheusExporter();
+    private DashboardStream dashboardStream;
+    private byte[] dashboardPage;
+    private HttpServer server;
+    private ExecutorService workers;
+
+    public MetricsHttpServer(DMZRestartPlugin plugin, MetricsSampler sampler) {
+        this.plugin = plugin;
+        this.sampler = sampler;
+    }
+
+    // True when something is configured to be served
+    public static boolean isWanted(ConfigSnapshot config) {
+        return config.isPrometheusEnabled() || config.isDashboardEnabled();
+    }
+
+    public void start(ConfigSnapshot config) {
+        stop();
+        if (!isWanted(config)) return;
+
+        HttpServer created;
+        try {
+            created = HttpServer.create(new InetSocketAddress(config.getMetricsHttpBind(), config.getMetricsHttpPort()), 0);
+        } catch (IOException | IllegalArgumentException e) {
+            if (plugin.getLogManager() != null) {
+                plugin.getLogManager().warning("Metrics endpoint could not bind " + config.getMetricsHttpBind() + ":"
+                    + config.getMetricsHttpPort() + " - " + e.getMessage());
+            }
+            return;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = WORKER_THREADS + (config.isDashboardEnabled() ? config.getDashboardMaxViewers() : 0);
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "DMZRestart-HTTP-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        created.setExecutor(workers);
+
+        if (config.isPrometheusEnabled()) {
+            sampler.addListener(prometheusExporter);
+            created.createContext("/metrics", prometheusExporter);
+        }
+        if (config.isDashboardEnabled()) {
+            dashboardStream = new DashboardStream(sampler::getSeries, config.getDashboardMaxViewers());
+            sampler.addListener(dashboardStream);
+            created.createContext("/dashboard/events", dashboardStream);
+            created.createContext("/dashboard", this::serveDashboardPage);
+        }
+
+        created.start();
+        server = created;
+        if (plugin.getLogManager() != null) {
+            String base = "http://" + config.getMetricsHttpBind() + ":" + config.getMetricsHttpPort();
+            plugin.getLogManager().info("Metrics HTTP server listening on " + base
+                + (config.isPrometheusEnabled() ? " - scrape " + base + "/metrics" : "")
+                + (config.isDashboardEnabled() ? " - dashboard " + base + "/dashboard" : ""));
+        }
+    }
+
+    private void serveDashboardPage(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] page = dashboardPage();
+            if (page == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, page.length);
+            exchange.getResponseBody().write(page);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Bundled in the jar, read once
+    private synchronized byte[] dashboardPage() throws IOException {
+        if (dashboardPage == null) {
+            try (InputStream in = plugin.getResource("dashboard.html")) {
+                if (in == null) return null;
+                ByteArrayOutputStream page = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    page.write(buffer, 0, read);
+                }
+                dashboardPage = page.toByteArray();
+            }
+        }
+        return dashboardPage;
+    }
+
+    public int getDashboardViewers() {
+        DashboardStream stream = dashboardStream;
+        return stream != null ? stream.getViewerCount() : 0;
+    }
+
+    public void stop() {
+        sampler.removeListener(prometheusExporter);
+        if (dashboardStream != null) {
+            sampler.removeListener(dashboardStream);
+            dashboardStream.close();
+            dashboardStream = null;
+        }
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+            workers = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return server != null;
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.dmzrestart.utils;
+
+import io.github.dmzrestart.managers.RestartManager;
+import java.util.Collections;
+import java.util.List;
+
+// Everything the exporters publish, read at one instant on the global thread. Exporters
+// only ever see finished samples, so they can format them on any thread without locks.
+public final class MetricsSample {
+    public static final class GcStat {
+        private final String name;
+        private final long collections;
+        private final long timeMillis;
+
+        GcStat(String name, long collections, long timeMillis) {
+            this.name = name;
+            this.collections = collections;
+            this.timeMillis = timeMillis;
+        }
+
+        public String getName() { return name; }
+        public long getCollections() { return collections; }
+        public long getTimeMillis() { return timeMillis; }
+    }
+
+    // Filled in by MetricsSampler before the sample is published, never changed afterwards
+    long timestamp;
+    double tps1m;
+    double tps5m = Double.NaN;
+    double tps15m = Double.NaN;
+    double msptP50 = Double.NaN;
+    double msptP95 = Double.NaN;
+    double msptP99 = Double.NaN;
+    double msptMax = Double.NaN;
+    int tickWindow;
+    double[] tickMillis = new double[0];
+    int regionCount;
+    int playersOnline;
+    long heapUsed;
+    long heapCommitted;
+    long heapMax;
+    long heapAfterGc = -1L;
+    long nonHeapUsed;
+    long footprint = -1L;
+    long memoryLimit = -1L;
+    double memoryPercent;
+    int liveThreads;
+    List<GcStat> gc = Collections.emptyList();
+    boolean healthy;
+    int healthChecks;
+    int emergencyTriggers;
+    int restartsManaged;
+    boolean restartInProgress;
+    boolean emergencyRestartActive;
+    int countdownSeconds;
+    String restartReason;
+    long nextRestartEpochSeconds = -1L;
+    List<RestartManager.RestartHistory> restartHistory = Collections.emptyList();
+
+    MetricsSample() {
+    }
+
+    public long getTimestamp() { return timestamp; }
+    public double getTps1m() { return tps1m; }
+    // NaN where the server does not report longer windows (Folia)
+    public double getTps5m() { return tps5m; }
+    public double getTps15m() { return tps15m; }
+    // Tick duration percentiles over the last tickWindow ticks, NaN when unknown
+    public double getMsptP50() { return msptP50; }
+    public double getMsptP95() { return msptP95; }
+    public double getMsptP99() { return msptP99; }
+    public double getMsptMax() { return msptMax; }
+    public int getTickWindow() { return tickWindow; }
+    // The tick (or region) durations behind the percentiles, sorted; callers must not modify it
+    public double[] getTickMillis() { return tickMillis; }
+    public int getRegionCount() { return regionCount; }
+    public int getPlayersOnline() { return playersOnline; }
+    public long getHeapUsed() { return heapUsed; }
+    public long getHeapCommitted() { return heapCommitted; }
+    public long getHeapMax() { return heapMax; }
+    // Heap still in use after the most recent collection of each pool, -1 before any GC
+    public long getHeapAfterGc() { return heapAfterGc; }
+    public long getNonHeapUsed() { return nonHeapUsed; }
+    // -1 when the footprint is unknown or no container limit applies
+    public long getFootprint() { return footprint; }
+    public long getMemoryLimit() { return memoryLimit; }
+    public double getMemoryPercent() { return memoryPercent; }
+    public int getLiveThreads() { return liveThreads; }
+    public List<GcStat> getGc() { return gc; }
+    public boolean isHealthy() { return healthy; }
+    public int getHealthChecks() { return healthChecks; }
+    public int getEmergencyTriggers() { return emergencyTriggers; }
+    public int getRestartsManaged() { return restartsManaged; }
+    public boolean isRestartInProgress() { return restartInProgress; }
+    public boolean isEmergencyRestartActive() { return emergencyRestartActive; }
+    public int getCountdownSeconds() { return countdownSeconds; }
+    // Null unless a restart is in progress
+    public String getRestartReason() { return restartReason; }
+    public long getNextRestartEpochSeconds() { return nextRestartEpochSeconds; }
+    // Oldest first, as kept by RestartManager
+    public List<RestartManager.RestartHistory> getRestartHistory() { return restartHistory; }
+}
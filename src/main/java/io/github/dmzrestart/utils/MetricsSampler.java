@@ -0,0 +1,218 @@
+package io.github.dmzrestart.utils;
+
+import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.managers.ConfigSnapshot;
+import io.github.dmzrestart.managers.RestartManager;
+import org.bukkit.Bukkit;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Takes a MetricsSample on the global thread every few seconds and hands it to the
+// exporters off-thread. Only field reads happen on the tick; formatting and I/O never do.
+public class MetricsSampler {
+    private final DMZRestartPlugin plugin;
+    private final List<Consumer<MetricsSample>> listeners = new CopyOnWriteArrayList<>();
+    private final MetricsSeries series = new MetricsSeries(1);
+    private TaskScheduler.Task sampleTask;
+    private volatile MetricsSample latest;
+
+    public MetricsSampler(DMZRestartPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start(int intervalSeconds, int historyMinutes) {
+        stop();
+        series.setCapacity(historyMinutes * 60 / intervalSeconds);
+        long intervalTicks = intervalSeconds * 20L;
+        sampleTask = plugin.getTaskScheduler().runGlobalTimer(task -> publish(), 1L, intervalTicks);
+    }
+
+    public void stop() {
+        if (sampleTask != null) {
+            sampleTask.cancel();
+            sampleTask = null;
+        }
+    }
+
+    public boolean isActive() {
+        return sampleTask != null;
+    }
+
+    public void addListener(Consumer<MetricsSample> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<MetricsSample> listener) {
+        listeners.remove(listener);
+    }
+
+    // Null until the first sample has been taken
+    public MetricsSample getLatest() {
+        return latest;
+    }
+
+    public MetricsSeries getSeries() {
+        return series;
+    }
+
+    private void publish() {
+        MetricsSample sample;
+        try {
+            sample = collect();
+        } catch (Exception e) {
+            if (plugin.getLogManager() != null) {
+                plugin.getLogManager().debug("Metrics sample failed: " + e.getMessage());
+            }
+            return;
+        }
+        latest = sample;
+        series.add(sample);
+        if (listeners.isEmpty()) return;
+
+        plugin.getTaskScheduler().runAsync(() -> {
+            for (Consumer<MetricsSample> listener : listeners) {
+                try {
+                    listener.accept(sample);
+                } catch (Exception e) {
+                    if (plugin.getLogManager() != null) {
+                        plugin.getLogManager().debug("Metrics exporter failed: " + e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+    private MetricsSample collect() {
+        MetricsSample sample = new MetricsSample();
+        sample.timestamp = System.currentTimeMillis();
+
+        ServerLoadMonitor monitor = plugin.getServerLoadMonitor();
+        List<RegionTickMetrics.RegionTick> regions = plugin.getRegionTickMetrics().getLastSample();
+        sample.regionCount = regions.size();
+        if (regions.isEmpty()) {
+            try {
+                double[] tps = Bukkit.getTPS();
+                sample.tps1m = tps[0];
+                sample.tps5m = tps[1];
+                sample.tps15m = tps[2];
+            } catch (NoSuchMethodError | UnsupportedOperationException e) {
+                sample.tps1m = monitor.getLastTPS();
+            }
+            recordTickTimes(sample);
+        } else {
+            // No server-wide tick on Folia: TPS is the slowest region, percentiles run across regions
+            double[] mspt = new double[regions.size()];
+            for (int i = 0; i < mspt.length; i++) {
+                mspt[i] = regions.get(i).getMspt();
+            }
+            sample.tps1m = monitor.getLastTPS();
+            recordPercentiles(sample, mspt);
+        }
+        sample.playersOnline = Bukkit.getOnlinePlayers().size();
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        sample.heapUsed = heap.getUsed();
+        sample.heapCommitted = heap.getCommitted();
+        sample.heapMax = heap.getMax();
+        sample.heapAfterGc = heapAfterGc();
+        sample.nonHeapUsed = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage().getUsed();
+        sample.liveThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        List<MetricsSample.GcStat> gc = new ArrayList<>();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gc.add(new MetricsSample.GcStat(collector.getName(), collector.getCollectionCount(),
+                collector.getCollectionTime()));
+        }
+        sample.gc = Collections.unmodifiableList(gc);
+
+        // The health check already read the cgroup files; no file I/O on the tick here
+        ContainerMetrics.Sample container = monitor.getContainerMetrics().getLastSample();
+        if (container != null && container.hasMemoryLimit()) {
+            sample.footprint = container.getFootprint();
+            sample.memoryLimit = container.getMemoryLimit();
+        }
+        sample.memoryPercent = monitor.getLastMemoryUsage();
+        sample.healthy = monitor.isHealthy();
+        sample.healthChecks = monitor.getTotalChecks();
+        sample.emergencyTriggers = monitor.getEmergencyTriggered();
+
+        RestartManager restarts = plugin.getRestartManager();
+        sample.restartsManaged = restarts.getTotalRestartsManaged();
+        sample.restartInProgress = restarts.isRestartInProgress();
+        sample.emergencyRestartActive = restarts.isEmergencyRestartActive();
+        sample.countdownSeconds = sample.restartInProgress ? restarts.getRemainingSeconds() : 0;
+        if (sample.restartInProgress && restarts.getCurrentRestartReason() != null) {
+            sample.restartReason = restarts.getCurrentRestartReason().name().toLowerCase(Locale.ROOT);
+        }
+        LocalDateTime next = restarts.getNextScheduledRestart();
+        if (next != null) {
+            ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+            sample.nextRestartEpochSeconds = next.atZone(config.getZoneId()).toEpochSecond();
+        }
+        sample.restartHistory = Collections.unmodifiableList(restarts.getRestartHistory());
+        return sample;
+    }
+
+    // Live heap is mostly garbage waiting for the next collection; what survives GC is the trend
+    private static long heapAfterGc() {
+        long total = 0L;
+        boolean collected = false;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) continue;
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null) {
+                total += usage.getUsed();
+                collected = true;
+            }
+        }
+        return collected ? total : -1L;
+    }
+
+    // Paper keeps the durations of the last 100 ticks; anything else only has the average
+    private void recordTickTimes(MetricsSample sample) {
+        long[] tickTimes;
+        try {
+            tickTimes = Bukkit.getServer().getTickTimes();
+        } catch (NoSuchMethodError | UnsupportedOperationException e) {
+            return;
+        }
+        if (tickTimes == null) return;
+
+        double[] mspt = new double[tickTimes.length];
+        int count = 0;
+        for (long nanos : tickTimes) {
+            // Slots stay zero until the server has ticked that many times
+            if (nanos > 0) mspt[count++] = nanos / 1.0E6;
+        }
+        recordPercentiles(sample, Arrays.copyOf(mspt, count));
+    }
+
+    private static void recordPercentiles(MetricsSample sample, double[] mspt) {
+        sample.tickWindow = mspt.length;
+        if (mspt.length == 0) return;
+
+        Arrays.sort(mspt);
+        sample.tickMillis = mspt;
+        sample.msptP50 = percentile(mspt, 0.50);
+        sample.msptP95 = percentile(mspt, 0.95);
+        sample.msptP99 = percentile(mspt, 0.99);
+        sample.msptMax = mspt[mspt.length - 1];
+    }
+
+    // Nearest-rank percentile of an already sorted array
+    private static double percentile(double[] sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+}
@@ -0,0 +1,365 @@
+package io.github.dmzrestart.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// One self-contained block of a metrics-YYYY-MM.seg file. Every metric is its own column:
+// timestamps are stored as delta-of-delta and values XORed with their predecessor, both
+// bit-packed (the Gorilla scheme), and metric names appear once in the block dictionary.
+// The header carries the time range, so a reader can skip blocks without decoding them.
+//
+//   int magic, byte version, long minTs, long maxTs, int payloadLength, int crc32, payload
+//   payload: varint names, per name { utf name, varint points, varint bytes, bits }
+public final class MetricsSegment {
+    static final int MAGIC = 0x444D5A53; // "DMZS"
+    static final byte VERSION = 1;
+    static final int HEADER_BYTES = 4 + 1 + 8 + 8 + 4 + 4;
+    // Anything larger is a corrupt length field, not a real block
+    private static final int MAX_PAYLOAD_BYTES = 64 * 1024 * 1024;
+
+    public static final class Column {
+        private final String metric;
+        private long[] timestamps;
+        private double[] values;
+        private int size;
+
+        public Column(String metric) {
+            this(metric, 16);
+        }
+
+        Column(String metric, int capacity) {
+            this.metric = metric;
+            this.timestamps = new long[Math.max(1, capacity)];
+            this.values = new double[Math.max(1, capacity)];
+        }
+
+        public void add(long timestamp, double value) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            timestamps[size] = timestamp;
+            values[size] = value;
+            size++;
+        }
+
+        public String getMetric() { return metric; }
+        public int size() { return size; }
+        public long getTimestamp(int i) { return timestamps[i]; }
+        public double getValue(int i) { return values[i]; }
+
+        // Encoding needs ascending timestamps; recording order across threads is not guaranteed
+        void sort() {
+            for (int i = 1; i < size; i++) {
+                long ts = timestamps[i];
+                double value = values[i];
+                int j = i - 1;
+                while (j >= 0 && timestamps[j] > ts) {
+                    timestamps[j + 1] = timestamps[j];
+                    values[j + 1] = values[j];
+                    j--;
+                }
+                timestamps[j + 1] = ts;
+                values[j + 1] = value;
+            }
+        }
+    }
+
+    // Time range of a block, read without touching its payload
+    public static final class Header {
+        private final long minTimestamp;
+        private final long maxTimestamp;
+        private final int payloadLength;
+        private final int crc;
+
+        Header(long minTimestamp, long maxTimestamp, int payloadLength, int crc) {
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+            this.payloadLength = payloadLength;
+            this.crc = crc;
+        }
+
+        public long getMinTimestamp() { return minTimestamp; }
+        public long getMaxTimestamp() { return maxTimestamp; }
+        public int getPayloadLength() { return payloadLength; }
+
+        public boolean overlaps(long from, long to) {
+            return maxTimestamp >= from && minTimestamp <= to;
+        }
+    }
+
+    private MetricsSegment() {
+    }
+
+    public static byte[] encode(List<Column> columns) throws IOException {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+
+        List<Column> nonEmpty = new ArrayList<>();
+        for (Column column : columns) {
+            if (column.size() > 0) nonEmpty.add(column);
+        }
+        writeVarint(out, nonEmpty.size());
+        for (Column column : nonEmpty) {
+            column.sort();
+            min = Math.min(min, column.getTimestamp(0));
+            max = Math.max(max, column.getTimestamp(column.size() - 1));
+
+            byte[] bits = encodeColumn(column);
+            out.writeUTF(column.getMetric());
+            writeVarint(out, column.size());
+            writeVarint(out, bits.length);
+            out.write(bits);
+        }
+        out.flush();
+
+        byte[] body = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        ByteArrayOutputStream block = new ByteArrayOutputStream(body.length + HEADER_BYTES);
+        DataOutputStream header = new DataOutputStream(block);
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        header.writeLong(nonEmpty.isEmpty() ? 0L : min);
+        header.writeLong(nonEmpty.isEmpty() ? 0L : max);
+        header.writeInt(body.length);
+        header.writeInt((int) crc.getValue());
+        header.write(body);
+        header.flush();
+        return block.toByteArray();
+    }
+
+    // Null at a clean end of file; throws on a torn or foreign block
+    public static Header readHeader(DataInputStream in) throws IOException {
+        int magic;
+        try {
+            magic = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (magic != MAGIC) throw new IOException("not a metrics segment block");
+        byte version = in.readByte();
+        if (version != VERSION) throw new IOException("unsupported segment version " + version);
+        long min = in.readLong();
+        long max = in.readLong();
+        int length = in.readInt();
+        int crc = in.readInt();
+        if (length < 0 || length > MAX_PAYLOAD_BYTES) throw new IOException("corrupt block length " + length);
+        return new Header(min, max, length, crc);
+    }
+
+    public static void skipPayload(InputStream in, Header header) throws IOException {
+        long remaining = header.getPayloadLength();
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) throw new EOFException("truncated block");
+            remaining -= skipped;
+        }
+    }
+
+    public static List<Column> readPayload(DataInputStream in, Header header) throws IOException {
+        byte[] body = new byte[header.getPayloadLength()];
+        in.readFully(body);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != header.crc) throw new IOException("block checksum mismatch");
+
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(body));
+        int count = readVarint(payload);
+        List<Column> columns = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String metric = payload.readUTF();
+            int points = readVarint(payload);
+            byte[] bits = new byte[readVarint(payload)];
+            payload.readFully(bits);
+            columns.add(decodeColumn(metric, points, bits));
+        }
+        return columns;
+    }
+
+    static byte[] encodeColumn(Column column) {
+        BitWriter bits = new BitWriter(column.size() * 4 + 16);
+
+        long previousTs = column.getTimestamp(0);
+        long previousDelta = 0L;
+        long previousValue = Double.doubleToRawLongBits(column.getValue(0));
+        int previousLeading = Integer.MAX_VALUE;
+        int previousTrailing = 0;
+        bits.write(previousTs, 64);
+        bits.write(previousValue, 64);
+
+        for (int i = 1; i < column.size(); i++) {
+            long ts = column.getTimestamp(i);
+            long delta = ts - previousTs;
+            long dod = delta - previousDelta;
+            if (dod == 0) {
+                bits.write(0, 1);
+            } else if (dod >= -64 && dod <= 63) {
+                bits.write(0b10, 2);
+                bits.write(dod, 7);
+            } else if (dod >= -256 && dod <= 255) {
+                bits.write(0b110, 3);
+                bits.write(dod, 9);
+            } else if (dod >= -2048 && dod <= 2047) {
+                bits.write(0b1110, 4);
+                bits.write(dod, 12);
+            } else {
+                bits.write(0b1111, 4);
+                bits.write(dod, 64);
+            }
+            previousDelta = delta;
+            previousTs = ts;
+
+            long value = Double.doubleToRawLongBits(column.getValue(i));
+            long xor = value ^ previousValue;
+            if (xor == 0) {
+                bits.write(0, 1);
+            } else {
+                int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (previousLeading != Integer.MAX_VALUE && leading >= previousLeading && trailing >= previousTrailing) {
+                    // Meaningful bits fit inside the previous window
+                    bits.write(0b10, 2);
+                    bits.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                } else {
+                    int significant = 64 - leading - trailing;
+                    bits.write(0b11, 2);
+                    bits.write(leading, 5);
+                    // 64 significant bits does not fit in 6 bits; it is stored as 0
+                    bits.write(significant & 63, 6);
+                    bits.write(xor >>> trailing, significant);
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+            }
+            previousValue = value;
+        }
+        return bits.toByteArray();
+    }
+
+    static Column decodeColumn(String metric, int points, byte[] data) throws IOException {
+        Column column = new Column(metric, points);
+        if (points == 0) return column;
+
+        BitReader bits = new BitReader(data);
+        long ts = bits.read(64);
+        long value = bits.read(64);
+        long delta = 0L;
+        int leading = 0;
+        int trailing = 0;
+        column.add(ts, Double.longBitsToDouble(value));
+
+        for (int i = 1; i < points; i++) {
+            long dod;
+            if (bits.read(1) == 0) {
+                dod = 0;
+            } else if (bits.read(1) == 0) {
+                dod = bits.readSigned(7);
+            } else if (bits.read(1) == 0) {
+                dod = bits.readSigned(9);
+            } else if (bits.read(1) == 0) {
+                dod = bits.readSigned(12);
+            } else {
+                dod = bits.read(64);
+            }
+            delta += dod;
+            ts += delta;
+
+            if (bits.read(1) == 1) {
+                if (bits.read(1) == 1) {
+                    leading = (int) bits.read(5);
+                    int significant = (int) bits.read(6);
+                    if (significant == 0) significant = 64;
+                    trailing = 64 - leading - significant;
+                }
+                long xor = bits.read(64 - leading - trailing) << trailing;
+                value ^= xor;
+            }
+            column.add(ts, Double.longBitsToDouble(value));
+        }
+        return column;
+    }
+
+    static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("malformed varint");
+    }
+
+    static final class BitWriter {
+        private byte[] buffer;
+        private long bitCount;
+
+        BitWriter(int initialBytes) {
+            buffer = new byte[Math.max(16, initialBytes)];
+        }
+
+        // Low `count` bits of value, most significant first
+        void write(long value, int count) {
+            for (int i = count - 1; i >= 0; i--) {
+                int index = (int) (bitCount >>> 3);
+                if (index == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                if (((value >>> i) & 1L) != 0) {
+                    buffer[index] |= (byte) (0x80 >>> (bitCount & 7));
+                }
+                bitCount++;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, (int) ((bitCount + 7) >>> 3));
+        }
+    }
+
+    static final class BitReader {
+        private final byte[] data;
+        private long position;
+
+        BitReader(byte[] data) {
+            this.data = data;
+        }
+
+        long read(int count) throws IOException {
+            long value = 0L;
+            for (int i = 0; i < count; i++) {
+                int index = (int) (position >>> 3);
+                if (index >= data.length) throw new EOFException("column ends early");
+                value = (value << 1) | ((data[index] >>> (7 - (position & 7))) & 1);
+                position++;
+            }
+            return value;
+        }
+
+        long readSigned(int count) throws IOException {
+            long value = read(count);
+            // Sign-extend the two's complement field
+            return (value << (64 - count)) >> (64 - count);
+        }
+    }
+}
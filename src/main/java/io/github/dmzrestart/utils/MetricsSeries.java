@@ -0,0 +1,72 @@
+package io.github.dmzrestart.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// The recent past in memory: one small point per MetricsSample, oldest dropped first.
+// An hour at the default sample rate is a few tens of kilobytes.
+public class MetricsSeries {
+    public static final class Point {
+        private final long timestamp;
+        private final double tps;
+        private final double msptP50;
+        private final double msptP95;
+        private final long heapUsed;
+        private final long heapMax;
+        private final int players;
+
+        Point(MetricsSample sample) {
+            this.timestamp = sample.getTimestamp();
+            this.tps = sample.getTps1m();
+            this.msptP50 = sample.getMsptP50();
+            this.msptP95 = sample.getMsptP95();
+            this.heapUsed = sample.getHeapUsed();
+            this.heapMax = sample.getHeapMax();
+            this.players = sample.getPlayersOnline();
+        }
+
+        public long getTimestamp() { return timestamp; }
+        public double getTps() { return tps; }
+        public double getMsptP50() { return msptP50; }
+        public double getMsptP95() { return msptP95; }
+        public long getHeapUsed() { return heapUsed; }
+        public long getHeapMax() { return heapMax; }
+        public int getPlayers() { return players; }
+    }
+
+    private final Deque<Point> points = new ArrayDeque<>();
+    private int capacity;
+
+    public MetricsSeries(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    public synchronized void add(MetricsSample sample) {
+        points.addLast(new Point(sample));
+        while (points.size() > capacity) {
+            points.removeFirst();
+        }
+    }
+
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        while (points.size() > this.capacity) {
+            points.removeFirst();
+        }
+    }
+
+    // Oldest first
+    public synchronized List<Point> snapshot() {
+        return new ArrayList<>(points);
+    }
+
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int size() {
+        return points.size();
+    }
+}
@@ -0,0 +1,220 @@
+package io.github.dmzrestart.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// Buffers recorded values in memory and appends them as MetricsSegment blocks to one
+// metrics-YYYY-MM.seg file per month. Appending and scanning both happen off the main
+// thread; recording is a short synchronized append.
+public class MetricsStore {
+    // Points held between flushes; beyond this new points are dropped and counted
+    private static final int MAX_BUFFERED_POINTS = 100_000;
+    private static final int SCAN_BUFFER_BYTES = 64 * 1024;
+
+    private final File directory;
+    private Map<String, MetricsSegment.Column> buffer = new LinkedHashMap<>();
+    private int buffered;
+    private long dropped;
+    // Serializes flushes so blocks are appended whole
+    private final Object writeLock = new Object();
+
+    public interface PointConsumer {
+        void accept(String metric, long timestamp, double value);
+    }
+
+    public MetricsStore(File directory) {
+        this.directory = directory;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public synchronized void record(String metric, long timestamp, double value) {
+        if (buffered >= MAX_BUFFERED_POINTS) {
+            dropped++;
+            return;
+        }
+        MetricsSegment.Column column = buffer.get(metric);
+        if (column == null) {
+            column = new MetricsSegment.Column(metric);
+            buffer.put(metric, column);
+        }
+        column.add(timestamp, value);
+        buffered++;
+    }
+
+    public synchronized long getDroppedPoints() {
+        return dropped;
+    }
+
+    // Writes everything buffered so far as one block per month touched; call off the main thread
+    public void flush() throws IOException {
+        Map<String, MetricsSegment.Column> pending;
+        synchronized (this) {
+            if (buffered == 0) return;
+            pending = buffer;
+            buffer = new LinkedHashMap<>();
+            buffered = 0;
+        }
+
+        synchronized (writeLock) {
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("could not create " + directory.getPath());
+            }
+            for (Map.Entry<String, List<MetricsSegment.Column>> month : splitByMonth(pending.values()).entrySet()) {
+                byte[] block = MetricsSegment.encode(month.getValue());
+                try (FileOutputStream out = new FileOutputStream(new File(directory, "metrics-" + month.getKey() + ".seg"), true)) {
+                    out.write(block);
+                }
+            }
+        }
+    }
+
+    // A flush spanning midnight on the last of the month belongs to two files
+    private static Map<String, List<MetricsSegment.Column>> splitByMonth(Iterable<MetricsSegment.Column> columns) {
+        SimpleDateFormat monthFormat = new SimpleDateFormat("yyyy-MM");
+        Map<String, Map<String, MetricsSegment.Column>> months = new LinkedHashMap<>();
+        for (MetricsSegment.Column column : columns) {
+            for (int i = 0; i < column.size(); i++) {
+                String month = monthFormat.format(new Date(column.getTimestamp(i)));
+                Map<String, MetricsSegment.Column> monthColumns = months.get(month);
+                if (monthColumns == null) {
+                    monthColumns = new LinkedHashMap<>();
+                    months.put(month, monthColumns);
+                }
+                MetricsSegment.Column target = monthColumns.get(column.getMetric());
+                if (target == null) {
+                    target = new MetricsSegment.Column(column.getMetric());
+                    monthColumns.put(column.getMetric(), target);
+                }
+                target.add(column.getTimestamp(i), column.getValue(i));
+            }
+        }
+
+        Map<String, List<MetricsSegment.Column>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, MetricsSegment.Column>> month : months.entrySet()) {
+            result.put(month.getKey(), new ArrayList<>(month.getValue().values()));
+        }
+        return result;
+    }
+
+    // Streams every stored point in [from, to] whose metric matches, block by block in file order.
+    // Blocks outside the range are skipped by header; a damaged block ends that file's scan.
+    public long scan(long from, long to, Predicate<String> metrics, PointConsumer consumer) throws IOException {
+        long matched = 0;
+        for (File file : segmentFiles(from, to)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), SCAN_BUFFER_BYTES))) {
+                MetricsSegment.Header header;
+                while ((header = MetricsSegment.readHeader(in)) != null) {
+                    if (!header.overlaps(from, to)) {
+                        MetricsSegment.skipPayload(in, header);
+                        continue;
+                    }
+                    for (MetricsSegment.Column column : MetricsSegment.readPayload(in, header)) {
+                        if (!metrics.test(column.getMetric())) continue;
+                        for (int i = 0; i < column.size(); i++) {
+                            long timestamp = column.getTimestamp(i);
+                            if (timestamp < from || timestamp > to) continue;
+                            consumer.accept(column.getMetric(), timestamp, column.getValue(i));
+                            matched++;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // Unreadable from here on (a block torn by a crash, or damage); earlier blocks were delivered
+            }
+        }
+        return matched;
+    }
+
+    // Cuts off a block left half-written by a crash, so appends after it stay readable
+    public void repair() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith("metrics-") && name.endsWith(".seg"));
+        if (files == null) return;
+
+        synchronized (writeLock) {
+            for (File file : files) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    long length = raf.length();
+                    long position = 0;
+                    while (position < length) {
+                        if (length - position < MetricsSegment.HEADER_BYTES) break;
+                        raf.seek(position);
+                        if (raf.readInt() != MetricsSegment.MAGIC) break;
+                        raf.seek(position + MetricsSegment.HEADER_BYTES - 8);
+                        long end = position + MetricsSegment.HEADER_BYTES + (raf.readInt() & 0xFFFFFFFFL);
+                        if (end > length) break;
+                        position = end;
+                    }
+                    if (position < length) {
+                        raf.setLength(position);
+                    }
+                }
+            }
+        }
+    }
+
+    // Month files that can hold points in [from, to], oldest first
+    private List<File> segmentFiles(long from, long to) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith("metrics-") && name.endsWith(".seg"));
+        List<File> selected = new ArrayList<>();
+        if (files == null) return selected;
+
+        Arrays.sort(files);
+        SimpleDateFormat monthFormat = new SimpleDateFormat("yyyy-MM");
+        String firstMonth = monthFormat.format(new Date(Math.max(0L, from)));
+        String lastMonth = monthFormat.format(new Date(Math.max(0L, to)));
+        for (File file : files) {
+            String month = file.getName().substring("metrics-".length(), file.getName().length() - ".seg".length());
+            if (month.compareTo(firstMonth) >= 0 && month.compareTo(lastMonth) <= 0) {
+                selected.add(file);
+            }
+        }
+        return selected;
+    }
+
+    // The old timestamp,metric,value layout, produced on demand from the segments
+    public long exportCsv(long from, long to, Predicate<String> metrics, File target) throws IOException {
+        SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        File parent = target.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("could not create " + parent.getPath());
+        }
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(target), StandardCharsets.UTF_8))) {
+            writer.write("timestamp,metric,value\n");
+            return scan(from, to, metrics, (metric, timestamp, value) -> {
+                try {
+                    writer.write(timeFormat.format(new Date(timestamp)));
+                    writer.write(',');
+                    writer.write(metric);
+                    writer.write(',');
+                    writer.write(String.format(Locale.ROOT, "%.3f", value));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package io.github.dmzrestart.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+// Renders each MetricsSample to OpenMetrics text once, when it arrives. A scrape only
+// copies the cached bytes, so it costs the server nothing however often it happens.
+public class PrometheusExporter implements Consumer<MetricsSample>, HttpHandler {
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    private static final String PREFIX = "dmzrestart_";
+
+    // Rendered body without the trailing "# EOF", which follows the snapshot age at scrape time
+    private volatile byte[] body;
+    private volatile long sampledAt;
+
+    @Override
+    public void accept(MetricsSample sample) {
+        body = render(sample).getBytes(StandardCharsets.UTF_8);
+        sampledAt = sample.getTimestamp();
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] rendered = body;
+            if (rendered == null) {
+                // Nothing sampled yet; an empty 503 makes the scrape count as down rather than zero
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            // A climbing age with no new samples means the global thread has stopped ticking
+            byte[] tail = String.format(Locale.ROOT,
+                "# TYPE %ssnapshot_age_seconds gauge\n%ssnapshot_age_seconds %.3f\n# EOF\n",
+                PREFIX, PREFIX, (System.currentTimeMillis() - sampledAt) / 1000.0).getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, rendered.length + tail.length);
+            exchange.getResponseBody().write(rendered);
+            exchange.getResponseBody().write(tail);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    static String render(MetricsSample sample) {
+        StringBuilder out = new StringBuilder(4096);
+
+        family(out, "tps", "gauge", "Ticks per second averaged over the window (slowest region on Folia)");
+        point(out, "tps", "window", "1m", sample.getTps1m());
+        point(out, "tps", "window", "5m", sample.getTps5m());
+        point(out, "tps", "window", "15m", sample.getTps15m());
+
+        if (sample.getTickWindow() > 0) {
+            family(out, "tick_duration_seconds", "summary",
+                "Tick duration over the last " + sample.getTickWindow() + " ticks (across regions on Folia)");
+            point(out, "tick_duration_seconds", "quantile", "0.5", sample.getMsptP50() / 1000.0);
+            point(out, "tick_duration_seconds", "quantile", "0.95", sample.getMsptP95() / 1000.0);
+            point(out, "tick_duration_seconds", "quantile", "0.99", sample.getMsptP99() / 1000.0);
+            point(out, "tick_duration_seconds", "quantile", "1", sample.getMsptMax() / 1000.0);
+        }
+
+        if (sample.getRegionCount() > 0) {
+            gauge(out, "regions", "Ticking regions (Folia)", sample.getRegionCount());
+        }
+        gauge(out, "players_online", "Players currently online", sample.getPlayersOnline());
+
+        family(out, "jvm_memory_used_bytes", "gauge", "Used JVM memory by area");
+        point(out, "jvm_memory_used_bytes", "area", "heap", sample.getHeapUsed());
+        point(out, "jvm_memory_used_bytes", "area", "nonheap", sample.getNonHeapUsed());
+        gauge(out, "jvm_memory_heap_committed_bytes", "Heap committed by the JVM", sample.getHeapCommitted());
+        if (sample.getHeapMax() > 0) {
+            gauge(out, "jvm_memory_heap_max_bytes", "Maximum heap size", sample.getHeapMax());
+        }
+        gauge(out, "jvm_threads", "Live JVM threads", sample.getLiveThreads());
+
+        if (!sample.getGc().isEmpty()) {
+            family(out, "jvm_gc_collections", "counter", "Garbage collections by collector");
+            for (MetricsSample.GcStat gc : sample.getGc()) {
+                point(out, "jvm_gc_collections_total", "gc", gc.getName(), gc.getCollections());
+            }
+            family(out, "jvm_gc_collection_seconds", "counter", "Time spent in garbage collection by collector");
+            for (MetricsSample.GcStat gc : sample.getGc()) {
+                point(out, "jvm_gc_collection_seconds_total", "gc", gc.getName(), gc.getTimeMillis() / 1000.0);
+            }
+        }
+
+        if (sample.getMemoryLimit() > 0) {
+            gauge(out, "process_footprint_bytes", "Heap plus off-heap memory charged to the container", sample.getFootprint());
+            gauge(out, "container_memory_limit_bytes", "Container memory limit", sample.getMemoryLimit());
+        }
+        gauge(out, "memory_usage_ratio", "Memory usage as judged by the health check", sample.getMemoryPercent() / 100.0);
+        gauge(out, "healthy", "1 when the last health check passed", sample.isHealthy() ? 1 : 0);
+
+        counter(out, "health_checks", "Health checks since the plugin started", sample.getHealthChecks());
+        counter(out, "emergency_triggers", "Emergency restart triggers since the plugin started", sample.getEmergencyTriggers());
+        counter(out, "restarts", "Restarts carried out since the plugin started", sample.getRestartsManaged());
+
+        family(out, "restart_in_progress", "gauge", "1 while a restart countdown is running");
+        point(out, "restart_in_progress", "reason", sample.getRestartReason() != null ? sample.getRestartReason() : "none",
+            sample.isRestartInProgress() ? 1 : 0);
+        gauge(out, "restart_countdown_seconds", "Seconds left on the running restart countdown", sample.getCountdownSeconds());
+        gauge(out, "emergency_restart_active", "1 while an emergency restart is pending", sample.isEmergencyRestartActive() ? 1 : 0);
+        if (sample.getNextRestartEpochSeconds() > 0) {
+            gauge(out, "next_restart_timestamp_seconds", "When the next scheduled restart is due",
+                sample.getNextRestartEpochSeconds());
+        }
+        return out.toString();
+    }
+
+    private static void family(StringBuilder out, String name, String type, String help) {
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n')
+            .append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, double value) {
+        family(out, name, "gauge", help);
+        point(out, name, null, null, value);
+    }
+
+    private static void counter(StringBuilder out, String name, String help, double value) {
+        family(out, name, "counter", help);
+        point(out, name + "_total", null, null, value);
+    }
+
+    private static void point(StringBuilder out, String name, String label, String labelValue, double value) {
+        // Unknown values are left out rather than reported as NaN
+        if (Double.isNaN(value)) return;
+
+        out.append(PREFIX).append(name);
+        if (label != null) {
+            out.append('{').append(label).append("=\"");
+            escape(out, labelValue);
+            out.append("\"}");
+        }
+        out.append(' ');
+        if (Double.isInfinite(value)) {
+            // Java prints "Infinity", which the exposition format rejects
+            out.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1.0E15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static void escape(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package io.github.dmzrestart.utils;
+
+import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.managers.ConfigSnapshot;
+import io.github.dmzrestart.managers.RestartManager;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.ExperienceOrb;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Mob;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Tameable;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.persistence.PersistentDataType;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Tiered in-place mitigation that runs before an emergency restart. Each stage logs
+// what it recovered; if MSPT has not come back down after the measurement window
+// the emergency escalates to a real restart.
+public class RecoveryPipeline {
+    // GC pauses and chunk saves from the stages themselves should not count against recovery
+    private static final int SETTLE_SECONDS = 5;
+    private static final int MAX_CHUNK_UNLOADS = 2000;
+    // On Folia chunks are visited around players, from each player's own region
+    private static final int FOLIA_SCAN_RADIUS = 4;
+    // Death loot carries no thrower, so the chunk a player died in is protected until it would despawn
+    private static final long DEATH_LOOT_MILLIS = 5 * 60_000L;
+
+    private final DMZRestartPlugin plugin;
+    private final ServerLoadMonitor monitor;
+    private final NamespacedKey throttledKey;
+    private final Set<Mob> throttledMobs = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> deathChunks = new ConcurrentHashMap<>();
+    private TaskScheduler.Task measureTask;
+    private TaskScheduler.Task restoreTask;
+    private volatile boolean running = false;
+    private long lastRecoveryAt = 0;
+    private int attempts = 0;
+    private int recoveries = 0;
+    private int escalations = 0;
+    private volatile String lastOutcome = "None";
+
+    private static final class Stats {
+        final AtomicInteger chunksUnloaded = new AtomicInteger();
+        final AtomicInteger stacksMerged = new AtomicInteger();
+        final AtomicInteger itemsRemoved = new AtomicInteger();
+        final AtomicInteger orbsMerged = new AtomicInteger();
+        final AtomicInteger mobsThrottled = new AtomicInteger();
+        final Map<String, Long> stageNanos = new LinkedHashMap<>();
+        long heapFreedBytes = 0;
+    }
+
+    public RecoveryPipeline(DMZRestartPlugin plugin, ServerLoadMonitor monitor) {
+        this.plugin = plugin;
+        this.monitor = monitor;
+        this.throttledKey = new NamespacedKey(plugin, "recovery_throttled");
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // A recovery that was just tried, whatever its outcome, is not worth repeating right away
+    public boolean canAttempt(ConfigSnapshot config) {
+        return !running && System.currentTimeMillis() - lastRecoveryAt >= config.getRecoveryCooldownSeconds() * 1000L;
+    }
+
+    public void start(String reason, ConfigSnapshot config) {
+        running = true;
+        attempts++;
+        lastRecoveryAt = System.currentTimeMillis();
+        double msptBefore = monitor.sampleMspt();
+
+        if (plugin.getLogManager() != null) {
+            plugin.getLogManager().warning("Emergency detected (" + reason + ") - attempting soft recovery before restarting");
+        }
+
+        Stats stats = new Stats();
+        for (String stage : config.getRecoveryStages()) {
+            long start = System.nanoTime();
+            try {
+                runStage(stage, config, stats);
+            } catch (Exception e) {
+                if (plugin.getLogManager() != null) {
+                    plugin.getLogManager().warning("Recovery stage " + stage + " failed: " + e.getMessage());
+                }
+            }
+            stats.stageNanos.put(stage, System.nanoTime() - start);
+        }
+
+        measure(reason, config, stats, msptBefore);
+    }
+
+    private void runStage(String stage, ConfigSnapshot config, Stats stats) {
+        switch (stage) {
+            case "unload-chunks":
+                unloadIdleChunks(stats);
+                break;
+            case "merge-items":
+                int cap = config.getRecoveryItemCapPerChunk();
+                forEachLoadedChunk(chunk -> mergeGroundItems(chunk, cap, stats));
+                break;
+            case "throttle-ai":
+                int threshold = config.getRecoveryAiThrottleEntities();
+                forEachLoadedChunk(chunk -> throttleMobs(chunk, threshold, stats));
+                break;
+            case "gc":
+                requestGc(stats);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void measure(String reason, ConfigSnapshot config, Stats stats, double msptBefore) {
+        int totalSeconds = SETTLE_SECONDS + config.getRecoveryMeasureSeconds();
+        int[] elapsed = { 0 };
+        int[] samples = { 0 };
+        double[] msptSum = { 0.0 };
+
+        measureTask = plugin.getTaskScheduler().runGlobalTimer(task -> {
+            elapsed[0]++;
+            if (elapsed[0] > SETTLE_SECONDS) {
+                msptSum[0] += monitor.sampleMspt();
+                samples[0]++;
+            }
+            if (elapsed[0] >= totalSeconds) {
+                task.cancel();
+                measureTask = null;
+                finish(reason, config, stats, msptBefore, samples[0] == 0 ? msptBefore : msptSum[0] / samples[0]);
+            }
+        }, 20L, 20L);
+    }
+
+    private void finish(String reason, ConfigSnapshot config, Stats stats, double msptBefore, double msptAfter) {
+        running = false;
+        logStageResults(stats);
+
+        // Also after an escalation: the restart may still be cancelled, and paused mobs must not stay paused
+        if (!throttledMobs.isEmpty()) {
+            scheduleRestore(config.getRecoveryAiThrottleSeconds());
+        }
+
+        double memoryPercent = monitor.sampleMemoryUsage(config);
+        boolean recovered = msptAfter <= config.getRecoveryTargetMspt()
+            && memoryPercent <= config.getEmergencyMemoryThreshold();
+
+        String summary = String.format("MSPT %.1fms -> %.1fms (target %.1fms), memory %.1f%%",
+            msptBefore, msptAfter, config.getRecoveryTargetMspt(), memoryPercent);
+
+        if (recovered) {
+            recoveries++;
+            lastOutcome = "Recovered: " + summary;
+            if (plugin.getLogManager() != null) {
+                plugin.getLogManager().info("Soft recovery succeeded - " + summary + "; restart avoided");
+            }
+            return;
+        }
+
+        escalations++;
+        lastOutcome = "Escalated: " + summary;
+        if (plugin.getLogManager() != null) {
+            // Same wording as a direct emergency, so log readers count both the same way
+            plugin.getLogManager().severe("Emergency restart triggered: " + reason + " (soft recovery failed - " + summary + ")");
+        }
+        monitor.captureEvidence(reason + " (soft recovery failed)",
+            memoryPercent > config.getEmergencyMemoryThreshold(), config);
+        if (plugin.getRestartManager() != null) {
+            plugin.getRestartManager().scheduleRestart(config.getEmergencyDelay(),
+                RestartManager.RestartReason.EMERGENCY_SYSTEM,
+                "Performance Monitor");
+        }
+    }
+
+    private void logStageResults(Stats stats) {
+        if (plugin.getLogManager() == null) return;
+
+        for (Map.Entry<String, Long> stage : stats.stageNanos.entrySet()) {
+            String result;
+            switch (stage.getKey()) {
+                case "unload-chunks":
+                    result = plugin.getTaskScheduler().isFolia()
+                        ? "skipped - Folia manages chunk unloading per region"
+                        : "unloaded " + stats.chunksUnloaded.get() + " idle chunks";
+                    break;
+                case "merge-items":
+                    result = "merged " + stats.stacksMerged.get() + " item stacks, removed "
+                        + stats.itemsRemoved.get() + " over the per-chunk cap, merged "
+                        + stats.orbsMerged.get() + " XP orbs";
+                    break;
+                case "throttle-ai":
+                    result = "paused AI of " + stats.mobsThrottled.get() + " mobs in overloaded chunks";
+                    break;
+                case "gc":
+                    result = "freed " + (stats.heapFreedBytes / (1024 * 1024)) + "MB of heap";
+                    break;
+                default:
+                    result = "done";
+                    break;
+            }
+            plugin.getLogManager().info("Recovery [" + stage.getKey() + "]: " + result
+                + " (" + LatencyHistogram.formatNanos(stage.getValue()) + ")");
+        }
+    }
+
+    private void forEachLoadedChunk(Consumer<Chunk> action) {
+        if (!plugin.getTaskScheduler().isFolia()) {
+            for (World world : Bukkit.getWorlds()) {
+                for (Chunk chunk : world.getLoadedChunks()) {
+                    action.accept(chunk);
+                }
+            }
+            return;
+        }
+
+        // A Folia region may only be touched from its own thread, so work outward from each player
+        Set<String> visited = ConcurrentHashMap.newKeySet();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            plugin.getTaskScheduler().runForEntity(player, () -> {
+                World world = player.getWorld();
+                Location location = player.getLocation();
+                int centerX = location.getBlockX() >> 4;
+                int centerZ = location.getBlockZ() >> 4;
+                for (int x = centerX - FOLIA_SCAN_RADIUS; x <= centerX + FOLIA_SCAN_RADIUS; x++) {
+                    for (int z = centerZ - FOLIA_SCAN_RADIUS; z <= centerZ + FOLIA_SCAN_RADIUS; z++) {
+                        if (world.isChunkLoaded(x, z) && visited.add(world.getName() + ':' + x + ':' + z)) {
+                            action.accept(world.getChunkAt(x, z));
+                        }
+                    }
+                }
+            }, 0L);
+        }
+    }
+
+    private void unloadIdleChunks(Stats stats) {
+        if (plugin.getTaskScheduler().isFolia()) return;
+
+        int radius = Bukkit.getViewDistance();
+        for (World world : Bukkit.getWorlds()) {
+            Set<Long> watched = new HashSet<>();
+            for (Player player : world.getPlayers()) {
+                int centerX = player.getLocation().getBlockX() >> 4;
+                int centerZ = player.getLocation().getBlockZ() >> 4;
+                for (int x = centerX - radius; x <= centerX + radius; x++) {
+                    for (int z = centerZ - radius; z <= centerZ + radius; z++) {
+                        watched.add(chunkKey(x, z));
+                    }
+                }
+            }
+
+            for (Chunk chunk : world.getLoadedChunks()) {
+                if (stats.chunksUnloaded.get() >= MAX_CHUNK_UNLOADS) return;
+                if (watched.contains(chunkKey(chunk.getX(), chunk.getZ()))
+                    || chunk.isForceLoaded()
+                    || !chunk.getPluginChunkTickets().isEmpty()) {
+                    continue;
+                }
+                if (chunk.unload(true)) {
+                    stats.chunksUnloaded.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static long chunkKey(int x, int z) {
+        return ((long) x & 0xFFFFFFFFL) | (((long) z & 0xFFFFFFFFL) << 32);
+    }
+
+    private void mergeGroundItems(Chunk chunk, int cap, Stats stats) {
+        Map<Material, List<Item>> itemsByType = new HashMap<>();
+        List<ExperienceOrb> orbs = new ArrayList<>();
+        for (Entity entity : chunk.getEntities()) {
+            if (entity instanceof Item) {
+                Item item = (Item) entity;
+                itemsByType.computeIfAbsent(item.getItemStack().getType(), type -> new ArrayList<>()).add(item);
+            } else if (entity instanceof ExperienceOrb) {
+                orbs.add((ExperienceOrb) entity);
+            }
+        }
+
+        boolean deathLoot = isDeathChunk(chunk);
+        List<Item> remaining = new ArrayList<>();
+        for (List<Item> group : itemsByType.values()) {
+            for (int i = 0; i < group.size(); i++) {
+                Item target = group.get(i);
+                if (!target.isValid()) continue;
+
+                ItemStack stack = target.getItemStack();
+                int maxStack = stack.getMaxStackSize();
+                for (int j = i + 1; j < group.size() && stack.getAmount() < maxStack; j++) {
+                    Item other = group.get(j);
+                    if (!other.isValid()) continue;
+
+                    ItemStack otherStack = other.getItemStack();
+                    if (!stack.isSimilar(otherStack)) continue;
+
+                    int moved = Math.min(maxStack - stack.getAmount(), otherStack.getAmount());
+                    stack.setAmount(stack.getAmount() + moved);
+                    if (moved == otherStack.getAmount()) {
+                        other.remove();
+                        stats.stacksMerged.incrementAndGet();
+                    } else {
+                        otherStack.setAmount(otherStack.getAmount() - moved);
+                        other.setItemStack(otherStack);
+                    }
+                }
+                target.setItemStack(stack);
+                // Merging loses nothing, but the cap never deletes what a player dropped or owns
+                if (!deathLoot && target.getThrower() == null && target.getOwner() == null) {
+                    remaining.add(target);
+                }
+            }
+        }
+
+        // Over the cap, the oldest drops go first
+        if (remaining.size() > cap) {
+            remaining.sort(Comparator.comparingInt(Entity::getTicksLived).reversed());
+            for (int i = 0; i < remaining.size() - cap; i++) {
+                remaining.get(i).remove();
+                stats.itemsRemoved.incrementAndGet();
+            }
+        }
+
+        if (orbs.size() > 1) {
+            ExperienceOrb keep = orbs.get(0);
+            int experience = keep.getExperience();
+            for (int i = 1; i < orbs.size(); i++) {
+                experience += orbs.get(i).getExperience();
+                orbs.get(i).remove();
+                stats.orbsMerged.incrementAndGet();
+            }
+            keep.setExperience(experience);
+        }
+    }
+
+    public void onPlayerDeath(PlayerDeathEvent event) {
+        Location location = event.getEntity().getLocation();
+        long now = System.currentTimeMillis();
+        deathChunks.values().removeIf(expiry -> expiry < now);
+        deathChunks.put(location.getWorld().getName() + ':' + (location.getBlockX() >> 4) + ':' + (location.getBlockZ() >> 4),
+            now + DEATH_LOOT_MILLIS);
+    }
+
+    private boolean isDeathChunk(Chunk chunk) {
+        Long expiry = deathChunks.get(chunk.getWorld().getName() + ':' + chunk.getX() + ':' + chunk.getZ());
+        return expiry != null && expiry >= System.currentTimeMillis();
+    }
+
+    private void throttleMobs(Chunk chunk, int threshold, Stats stats) {
+        List<Mob> candidates = new ArrayList<>();
+        int mobs = 0;
+        for (Entity entity : chunk.getEntities()) {
+            if (!(entity instanceof Mob)) continue;
+            mobs++;
+
+            Mob mob = (Mob) entity;
+            // Leave anything a player obviously cares about alone
+            boolean owned = mob.getCustomName() != null || mob.isLeashed()
+                || (mob instanceof Tameable && ((Tameable) mob).isTamed());
+            if (mob.isAware() && !owned) {
+                candidates.add(mob);
+            }
+        }
+        if (mobs <= threshold) return;
+
+        for (Mob mob : candidates) {
+            mob.setAware(false);
+            // Marked so the AI comes back even if the chunk unloads before the restore
+            mob.getPersistentDataContainer().set(throttledKey, PersistentDataType.BYTE, (byte) 1);
+            throttledMobs.add(mob);
+            stats.mobsThrottled.incrementAndGet();
+        }
+    }
+
+    private void requestGc(Stats stats) {
+        long before = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        System.gc();
+        long after = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        stats.heapFreedBytes = Math.max(0L, before - after);
+    }
+
+    private void scheduleRestore(int seconds) {
+        if (restoreTask != null) {
+            restoreTask.cancel();
+        }
+        restoreTask = plugin.getTaskScheduler().runGlobalLater(() -> {
+            restoreTask = null;
+            for (Mob mob : new ArrayList<>(throttledMobs)) {
+                throttledMobs.remove(mob);
+                if (mob.isValid()) {
+                    plugin.getTaskScheduler().runForEntity(mob, () -> restore(mob), 0L);
+                }
+            }
+        }, seconds * 20L);
+    }
+
+    // Called for entities loading back in with the throttle marker still set
+    public void restoreIfThrottled(Entity entity) {
+        if (!(entity instanceof Mob)) return;
+
+        Mob mob = (Mob) entity;
+        if (!mob.getPersistentDataContainer().has(throttledKey, PersistentDataType.BYTE)) return;
+
+        if (restoreTask != null) {
+            throttledMobs.add(mob); // Still inside the throttle window
+        } else {
+            restore(mob);
+        }
+    }
+
+    private void restore(Mob mob) {
+        mob.setAware(true);
+        mob.getPersistentDataContainer().remove(throttledKey);
+    }
+
+    public void shutdown() {
+        if (measureTask != null) {
+            measureTask.cancel();
+            measureTask = null;
+        }
+        if (restoreTask != null) {
+            restoreTask.cancel();
+            restoreTask = null;
+        }
+        running = false;
+
+        // Folia cannot touch entities from here; their markers restore them on the next load
+        if (!plugin.getTaskScheduler().isFolia()) {
+            for (Mob mob : throttledMobs) {
+                if (mob.isValid()) {
+                    restore(mob);
+                }
+            }
+        }
+        throttledMobs.clear();
+    }
+
+    public int getAttempts() { return attempts; }
+    public int getRecoveries() { return recoveries; }
+    public int getEscalations() { return escalations; }
+    public String getLastOutcome() { return lastOutcome; }
+    public int getThrottledMobs() { return throttledMobs.size(); }
+}
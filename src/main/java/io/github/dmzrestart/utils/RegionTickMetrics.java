@@ -0,0 +1,139 @@
+package io.github.dmzrestart.utils;
+
+import io.github.dmzrestart.DMZRestartPlugin;
+import org.bukkit.World;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Per-region tick statistics on Folia. There is no API for these, so they are read
+// reflectively the same way Folia's own /tps command does. Any mismatch with the
+// running server's internals just turns the sampler off.
+public class RegionTickMetrics {
+    private final DMZRestartPlugin plugin;
+    private final Map<String, Method> methods = new ConcurrentHashMap<>();
+    private volatile boolean available;
+    private volatile List<RegionTick> lastSample = Collections.emptyList();
+
+    public static final class RegionTick {
+        private final String world;
+        private final int centerChunkX;
+        private final int centerChunkZ;
+        private final double tps;
+        private final double mspt;
+
+        RegionTick(String world, int centerChunkX, int centerChunkZ, double tps, double mspt) {
+            this.world = world;
+            this.centerChunkX = centerChunkX;
+            this.centerChunkZ = centerChunkZ;
+            this.tps = tps;
+            this.mspt = mspt;
+        }
+
+        public String getWorld() { return world; }
+        public int getCenterChunkX() { return centerChunkX; }
+        public int getCenterChunkZ() { return centerChunkZ; }
+        public double getTps() { return tps; }
+        public double getMspt() { return mspt; }
+    }
+
+    public RegionTickMetrics(DMZRestartPlugin plugin, boolean folia) {
+        this.plugin = plugin;
+        this.available = folia;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public List<RegionTick> getLastSample() {
+        return lastSample;
+    }
+
+    // Returns an empty list when unavailable
+    public List<RegionTick> sample() {
+        if (!available) return Collections.emptyList();
+
+        List<RegionTick> ticks = new ArrayList<>();
+        long now = System.nanoTime();
+        try {
+            for (World world : plugin.getServer().getWorlds()) {
+                Object level = invoke(world, "getHandle");
+                Object regionizer = field(level, "regioniser");
+                List<Object> regions = new ArrayList<>();
+                invoke(regionizer, "computeForAllRegions", (Consumer<Object>) regions::add);
+
+                for (Object region : regions) {
+                    Object handle = invoke(invoke(region, "getData"), "getRegionSchedulingHandle");
+                    Object report = invoke(handle, "getTickReport15s", now);
+                    if (report == null) continue; // Region has not ticked yet
+
+                    double tps = average(invoke(report, "tpsData"));
+                    double mspt = average(invoke(report, "timePerTickData")) / 1.0E6;
+
+                    int chunkX = 0;
+                    int chunkZ = 0;
+                    Object center = invoke(region, "getCenterChunk");
+                    if (center != null) {
+                        chunkX = ((Number) field(center, "x")).intValue();
+                        chunkZ = ((Number) field(center, "z")).intValue();
+                    }
+                    ticks.add(new RegionTick(world.getName(), chunkX, chunkZ, tps, mspt));
+                }
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            available = false;
+            if (plugin.getLogManager() != null) {
+                plugin.getLogManager().warning("Per-region tick metrics unavailable on this Folia build: " + e);
+            }
+            return Collections.emptyList();
+        }
+
+        lastSample = Collections.unmodifiableList(ticks);
+        return lastSample;
+    }
+
+    private double average(Object segmentedAverage) throws ReflectiveOperationException {
+        return ((Number) invoke(invoke(segmentedAverage, "segmentAll"), "average")).doubleValue();
+    }
+
+    private Object invoke(Object target, String name, Object... args) throws ReflectiveOperationException {
+        String key = target.getClass().getName() + '#' + name;
+        Method method = methods.get(key);
+        if (method == null) {
+            method = findMethod(target.getClass(), name, args.length);
+            method.setAccessible(true);
+            methods.put(key, method);
+        }
+        return method.invoke(target, args);
+    }
+
+    private static Method findMethod(Class<?> type, String name, int parameterCount) throws NoSuchMethodException {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Method method : current.getDeclaredMethods()) {
+                if (method.getName().equals(name) && method.getParameterCount() == parameterCount) {
+                    return method;
+                }
+            }
+        }
+        throw new NoSuchMethodException(type.getName() + "#" + name);
+    }
+
+    private static Object field(Object target, String name) throws ReflectiveOperationException {
+        for (Class<?> current = target.getClass(); current != null; current = current.getSuperclass()) {
+            try {
+                Field field = current.getDeclaredField(name);
+                field.setAccessible(true);
+                return field.get(target);
+            } catch (NoSuchFieldException ignored) {
+                // Keep looking in the superclass
+            }
+        }
+        throw new NoSuchFieldException(target.getClass().getName() + "." + name);
+    }
+}
@@ -0,0 +1,608 @@
+package io.github.dmzrestart.utils;
+
+import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.managers.ConfigSnapshot;
+import io.github.dmzrestart.managers.RestartManager;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+// Follows p95 MSPT and post-GC heap through each uptime period and appends one record per
+// period to restarts/effectiveness.bin when it ends. Consecutive records show what a restart
+// actually bought back; all of them together show how fast the server degrades with uptime,
+// which is what the recommended restart interval is fitted to. A restart done as a plugin
+// reload keeps the JVM, so the period after it starts warm and is left out of the model.
+public class RestartTuner implements Consumer<MetricsSample> {
+    public static final int MAX_HOURS = 48;
+    // Reason of a period that ended without a managed restart (plain stop, /reload)
+    public static final String REASON_SHUTDOWN = "";
+    // Run flags
+    static final int FLAG_RELOAD = 1;
+    static final int FLAG_WARM_START = 2;
+
+    private static final int FILE_MAGIC = 0x444D5A52; // "DMZR"
+    // 1 stored the RestartReason ordinal and no flags; such files are converted on load
+    private static final int FILE_VERSION = 2;
+    // Survives plugin reloads, so a period can tell it did not start on a fresh JVM
+    private static final String LOADED_PROPERTY = "dmzrestart.tuner.loaded";
+    private static final int MAX_RECORDS = 200;
+    private static final double MB = 1024.0 * 1024.0;
+    // Chunk loading and JIT make the first minutes unrepresentative
+    private static final long WARMUP_MILLIS = 5 * 60_000L;
+    private static final long WINDOW_MILLIS = 30 * 60_000L;
+    // Periods shorter than this say little about degradation, but still give the previous restart its "after"
+    private static final long MIN_MODEL_MILLIS = 60 * 60_000L;
+    // Uptime the baseline stands for: the middle of its window
+    static final double BASELINE_HOURS = (WARMUP_MILLIS + WINDOW_MILLIS / 2) / 3_600_000.0;
+
+    private final DMZRestartPlugin plugin;
+    private final File recordFile;
+    private final Object fileLock = new Object();
+    private volatile boolean enabled = false;
+    private volatile List<Run> runs = Collections.emptyList();
+    private volatile long heapMax = -1L;
+
+    // The current uptime period
+    private long periodStart;
+    private boolean warmStart;
+    private boolean finished;
+    private final double[] hourSums = new double[MAX_HOURS];
+    private final int[] hourCounts = new int[MAX_HOURS];
+    private double baselineMsptSum;
+    private int baselineMsptCount;
+    private double baselineHeapSum;
+    private int baselineHeapCount;
+    private final ArrayDeque<double[]> tail = new ArrayDeque<>(); // timestamp, mspt, heap MB
+    private final Fit msptFit = new Fit();
+    private final Fit heapFit = new Fit();
+
+    public static final class Run {
+        private final long startedAt;
+        private final long endedAt;
+        private final String reason;
+        private final int flags;
+        private final float baselineMspt;
+        private final float finalMspt;
+        private final float baselineHeapMb;
+        private final float finalHeapMb;
+        private final float msptSlope;
+        private final float heapSlope;
+        private final float[] hourlyMspt;
+
+        Run(long startedAt, long endedAt, String reason, int flags, float baselineMspt, float finalMspt, float baselineHeapMb,
+                float finalHeapMb, float msptSlope, float heapSlope, float[] hourlyMspt) {
+            this.startedAt = startedAt;
+            this.endedAt = endedAt;
+            this.reason = reason;
+            this.flags = flags;
+            this.baselineMspt = baselineMspt;
+            this.finalMspt = finalMspt;
+            this.baselineHeapMb = baselineHeapMb;
+            this.finalHeapMb = finalHeapMb;
+            this.msptSlope = msptSlope;
+            this.heapSlope = heapSlope;
+            this.hourlyMspt = hourlyMspt;
+        }
+
+        public long getStartedAt() { return startedAt; }
+        public long getEndedAt() { return endedAt; }
+        public double getUptimeHours() { return (endedAt - startedAt) / 3_600_000.0; }
+        // NaN wherever nothing was measured
+        public double getBaselineMspt() { return baselineMspt; }
+        public double getFinalMspt() { return finalMspt; }
+        public double getBaselineHeapMb() { return baselineHeapMb; }
+        public double getFinalHeapMb() { return finalHeapMb; }
+        // Least-squares trend over the whole period, per hour of uptime
+        public double getMsptSlope() { return msptSlope; }
+        public double getHeapSlope() { return heapSlope; }
+        public double getHourlyMspt(int hour) { return hourlyMspt[hour]; }
+
+        public boolean isRestart() { return !reason.isEmpty(); }
+        // Ended by a managed restart that reloaded plugins instead of stopping the server
+        public boolean isReload() { return (flags & FLAG_RELOAD) != 0; }
+        // Started in a JVM that was already running, so its baseline is not a fresh server's
+        public boolean isWarmStart() { return (flags & FLAG_WARM_START) != 0; }
+
+        public String getReasonName() {
+            if (reason.isEmpty()) return "Shutdown";
+            try {
+                return RestartManager.RestartReason.valueOf(reason).getDisplayName();
+            } catch (IllegalArgumentException e) {
+                // Recorded by a version with a reason this one does not know
+                return reason;
+            }
+        }
+    }
+
+    public static final class Recommendation {
+        private int runsUsed;
+        private int runsNeeded;
+        private double baselineMspt = Double.NaN;
+        private double msptSlope = Double.NaN;
+        private double baselineHeapMb = Double.NaN;
+        private double heapSlope = Double.NaN;
+        private double heapLimitMb = Double.NaN;
+        private double msptHours = Double.POSITIVE_INFINITY;
+        private double heapHours = Double.POSITIVE_INFINITY;
+        private double intervalHours = Double.NaN;
+        private String limitedBy = "";
+        private String problem;
+        private final double[] curve = new double[MAX_HOURS];
+        private final int[] curveRuns = new int[MAX_HOURS];
+
+        public int getRunsUsed() { return runsUsed; }
+        public int getRunsNeeded() { return runsNeeded; }
+        public boolean isReady() { return problem == null && runsUsed >= runsNeeded; }
+        public double getBaselineMspt() { return baselineMspt; }
+        // ms of p95 added per hour of uptime, from all periods pooled
+        public double getMsptSlope() { return msptSlope; }
+        public double getBaselineHeapMb() { return baselineHeapMb; }
+        public double getHeapSlope() { return heapSlope; }
+        public double getHeapLimitMb() { return heapLimitMb; }
+        // Uptime at which each limit is reached; infinite when it does not degrade
+        public double getMsptHours() { return msptHours; }
+        public double getHeapHours() { return heapHours; }
+        // NaN when there is no recommendation - see getProblem()
+        public double getIntervalHours() { return intervalHours; }
+        public String getLimitedBy() { return limitedBy; }
+        public String getProblem() { return problem; }
+        // Typical p95 MSPT per hour of uptime: median baseline plus the mean rise, NaN where unmeasured
+        public double getCurve(int hour) { return curve[hour]; }
+        public int getCurveRuns(int hour) { return curveRuns[hour]; }
+    }
+
+    public RestartTuner(DMZRestartPlugin plugin) {
+        this.plugin = plugin;
+        File restartDir = new File(plugin.getDataFolder(), "restarts");
+        if (!restartDir.exists()) {
+            restartDir.mkdirs();
+        }
+        this.recordFile = new File(restartDir, "effectiveness.bin");
+    }
+
+    // Starts a new period at plugin start, then loads earlier periods and applies the schedule
+    public void initialize() {
+        enabled = plugin.getConfigManager().getSnapshot().isTuningEnabled();
+        synchronized (this) {
+            periodStart = plugin.getPluginStartTime();
+            warmStart = System.getProperty(LOADED_PROPERTY) != null;
+            System.setProperty(LOADED_PROPERTY, "true");
+            finished = false;
+            Arrays.fill(hourSums, 0.0);
+            Arrays.fill(hourCounts, 0);
+            baselineMsptSum = 0.0;
+            baselineMsptCount = 0;
+            baselineHeapSum = 0.0;
+            baselineHeapCount = 0;
+            tail.clear();
+            msptFit.reset();
+            heapFit.reset();
+        }
+
+        plugin.getTaskScheduler().runAsync(() -> {
+            runs = Collections.unmodifiableList(load());
+            plugin.getTaskScheduler().runGlobal(this::applyRecommendation);
+        });
+    }
+
+    // Config reload: recording follows the enabled flag, the schedule follows auto-apply
+    public void reconfigure() {
+        enabled = plugin.getConfigManager().getSnapshot().isTuningEnabled();
+        applyRecommendation();
+    }
+
+    @Override
+    public void accept(MetricsSample sample) {
+        if (!enabled) return;
+        if (sample.getHeapMax() > 0) {
+            heapMax = sample.getHeapMax();
+        }
+
+        double mspt = sample.getMsptP95();
+        double heapMb = sample.getHeapAfterGc() >= 0 ? sample.getHeapAfterGc() / MB : Double.NaN;
+        long timestamp = sample.getTimestamp();
+
+        synchronized (this) {
+            long uptime = timestamp - periodStart;
+            if (finished || uptime < WARMUP_MILLIS) return;
+
+            double hours = uptime / 3_600_000.0;
+            boolean inBaseline = uptime < WARMUP_MILLIS + WINDOW_MILLIS;
+            if (!Double.isNaN(mspt)) {
+                int hour = (int) (uptime / 3_600_000L);
+                if (hour < MAX_HOURS) {
+                    hourSums[hour] += mspt;
+                    hourCounts[hour]++;
+                }
+                msptFit.add(hours, mspt);
+                if (inBaseline) {
+                    baselineMsptSum += mspt;
+                    baselineMsptCount++;
+                }
+            }
+            if (!Double.isNaN(heapMb)) {
+                heapFit.add(hours, heapMb);
+                if (inBaseline) {
+                    baselineHeapSum += heapMb;
+                    baselineHeapCount++;
+                }
+            }
+
+            tail.addLast(new double[] {timestamp, mspt, heapMb});
+            while (tail.peekFirst()[0] < timestamp - WINDOW_MILLIS) {
+                tail.removeFirst();
+            }
+        }
+    }
+
+    // Called by RestartManager just before it stops or reloads the server
+    public void onRestart(RestartManager.RestartReason reason, boolean reload) {
+        record(finish(reason.name(), reload ? FLAG_RELOAD : 0, System.currentTimeMillis()));
+    }
+
+    // Plugin disable; does nothing if a managed restart already closed the period
+    public void shutdown() {
+        record(finish(REASON_SHUTDOWN, 0, System.currentTimeMillis()));
+    }
+
+    private Run finish(String reason, int flags, long now) {
+        synchronized (this) {
+            if (finished) return null;
+            finished = true;
+            if (!enabled || baselineMsptCount == 0) return null;
+
+            double finalMspt = 0.0;
+            double finalHeap = 0.0;
+            int msptCount = 0;
+            int heapCount = 0;
+            for (double[] point : tail) {
+                if (!Double.isNaN(point[1])) {
+                    finalMspt += point[1];
+                    msptCount++;
+                }
+                if (!Double.isNaN(point[2])) {
+                    finalHeap += point[2];
+                    heapCount++;
+                }
+            }
+
+            float[] hourly = new float[MAX_HOURS];
+            for (int hour = 0; hour < MAX_HOURS; hour++) {
+                hourly[hour] = hourCounts[hour] > 0 ? (float) (hourSums[hour] / hourCounts[hour]) : Float.NaN;
+            }
+
+            return new Run(periodStart, now, reason, flags | (warmStart ? FLAG_WARM_START : 0),
+                (float) (baselineMsptSum / baselineMsptCount),
+                msptCount > 0 ? (float) (finalMspt / msptCount) : Float.NaN,
+                baselineHeapCount > 0 ? (float) (baselineHeapSum / baselineHeapCount) : Float.NaN,
+                heapCount > 0 ? (float) (finalHeap / heapCount) : Float.NaN,
+                (float) msptFit.slope(), (float) heapFit.slope(), hourly);
+        }
+    }
+
+    // Synchronous: the server is about to go away, and it is one small record
+    private void record(Run run) {
+        if (run == null) return;
+
+        List<Run> updated = new ArrayList<>(runs);
+        updated.add(run);
+        runs = Collections.unmodifiableList(updated);
+
+        synchronized (fileLock) {
+            boolean newFile = !recordFile.exists() || recordFile.length() == 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(recordFile, true)))) {
+                if (newFile) {
+                    out.writeInt(FILE_MAGIC);
+                    out.writeInt(FILE_VERSION);
+                }
+                write(out, run);
+            } catch (IOException e) {
+                if (plugin.getLogManager() != null) {
+                    plugin.getLogManager().warning("Failed to write restart effectiveness data: " + e.getMessage());
+                }
+            }
+        }
+
+        if (plugin.getLogManager() != null) {
+            plugin.getLogManager().info(String.format("Uptime period closed (%s after %.1fh): p95 MSPT %.1f -> %.1f ms",
+                run.getReasonName(), run.getUptimeHours(), run.getBaselineMspt(), run.getFinalMspt()));
+        }
+    }
+
+    private static void write(DataOutputStream out, Run run) throws IOException {
+        out.writeLong(run.startedAt);
+        out.writeLong(run.endedAt);
+        // RestartReason name, so the enum can be reordered
+        out.writeUTF(run.reason);
+        out.writeInt(run.flags);
+        out.writeFloat(run.baselineMspt);
+        out.writeFloat(run.finalMspt);
+        out.writeFloat(run.baselineHeapMb);
+        out.writeFloat(run.finalHeapMb);
+        out.writeFloat(run.msptSlope);
+        out.writeFloat(run.heapSlope);
+        for (float value : run.hourlyMspt) {
+            out.writeFloat(value);
+        }
+    }
+
+    // Oldest first; a torn last record is dropped, and the file is cut back to MAX_RECORDS
+    private List<Run> load() {
+        List<Run> loaded = new ArrayList<>();
+        synchronized (fileLock) {
+            if (!recordFile.exists()) return loaded;
+
+            int version = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(recordFile)))) {
+                if (in.readInt() != FILE_MAGIC) {
+                    throw new IOException("unrecognized restart effectiveness file format");
+                }
+                version = in.readInt();
+                if (version != 1 && version != FILE_VERSION) {
+                    throw new IOException("unsupported restart effectiveness file version " + version);
+                }
+                while (true) {
+                    long startedAt = in.readLong();
+                    long endedAt = in.readLong();
+                    String reason;
+                    int flags = 0;
+                    if (version == 1) {
+                        // Ordinals were written before the enum could change
+                        int ordinal = in.readInt();
+                        RestartManager.RestartReason[] reasons = RestartManager.RestartReason.values();
+                        reason = ordinal >= 0 && ordinal < reasons.length ? reasons[ordinal].name() : REASON_SHUTDOWN;
+                    } else {
+                        reason = in.readUTF();
+                        flags = in.readInt();
+                    }
+                    float baselineMspt = in.readFloat();
+                    float finalMspt = in.readFloat();
+                    float baselineHeap = in.readFloat();
+                    float finalHeap = in.readFloat();
+                    float msptSlope = in.readFloat();
+                    float heapSlope = in.readFloat();
+                    float[] hourly = new float[MAX_HOURS];
+                    for (int hour = 0; hour < MAX_HOURS; hour++) {
+                        hourly[hour] = in.readFloat();
+                    }
+                    loaded.add(new Run(startedAt, endedAt, reason, flags, baselineMspt, finalMspt, baselineHeap, finalHeap,
+                        msptSlope, heapSlope, hourly));
+                }
+            } catch (EOFException endOfFile) {
+                // Done reading
+            } catch (IOException e) {
+                if (plugin.getLogManager() != null) {
+                    plugin.getLogManager().warning("Failed to read restart effectiveness data: " + e.getMessage());
+                }
+                return loaded;
+            }
+
+            if (loaded.size() > MAX_RECORDS) {
+                loaded = new ArrayList<>(loaded.subList(loaded.size() - MAX_RECORDS, loaded.size()));
+                rewrite(loaded);
+            } else if (version != FILE_VERSION && !rewrite(loaded)) {
+                // New records must not be appended to the old layout
+                recordFile.renameTo(new File(recordFile.getParentFile(), recordFile.getName() + ".v" + version));
+            }
+        }
+        return loaded;
+    }
+
+    private boolean rewrite(List<Run> keep) {
+        File temp = new File(recordFile.getParentFile(), recordFile.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            for (Run run : keep) {
+                write(out, run);
+            }
+        } catch (IOException e) {
+            temp.delete();
+            return false;
+        }
+        if (!recordFile.delete() || !temp.renameTo(recordFile)) {
+            temp.delete();
+            return false;
+        }
+        return true;
+    }
+
+    // Oldest first
+    public List<Run> getRuns() {
+        return runs;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Recommendation recommend() {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        double heapLimitMb = heapMax > 0 ? heapMax / MB * config.getMemoryThreshold() / 100.0 : Double.NaN;
+        return recommend(runs, config.getTuningTargetMspt(), config.getTuningMinRuns(),
+            config.getTuningMinIntervalHours(), config.getTuningMaxIntervalHours(), heapLimitMb);
+    }
+
+    // Every period starts at its own baseline, so periods are pooled as rises above it; warm
+    // starts are skipped since whatever the JVM kept from before is not in their baseline. The rise
+    // is fitted as a line through the baseline; the interval is the uptime at which the typical
+    // baseline plus that rise reaches the target, or post-GC heap reaches the memory threshold.
+    static Recommendation recommend(List<Run> runs, double targetMspt, int minRuns, double minHours,
+            double maxHours, double heapLimitMb) {
+        Recommendation result = new Recommendation();
+        result.runsNeeded = minRuns;
+        result.heapLimitMb = heapLimitMb;
+
+        List<Double> baselines = new ArrayList<>();
+        List<Double> heapBaselines = new ArrayList<>();
+        List<Double> heapSlopes = new ArrayList<>();
+        double[] riseSums = new double[MAX_HOURS];
+        for (Run run : runs) {
+            if (run.endedAt - run.startedAt < MIN_MODEL_MILLIS || run.isWarmStart() || Float.isNaN(run.baselineMspt)) continue;
+            result.runsUsed++;
+            baselines.add((double) run.baselineMspt);
+            if (!Float.isNaN(run.baselineHeapMb)) heapBaselines.add((double) run.baselineHeapMb);
+            if (!Float.isNaN(run.heapSlope)) heapSlopes.add((double) run.heapSlope);
+            for (int hour = 0; hour < MAX_HOURS; hour++) {
+                if (!Float.isNaN(run.hourlyMspt[hour])) {
+                    riseSums[hour] += run.hourlyMspt[hour] - run.baselineMspt;
+                    result.curveRuns[hour]++;
+                }
+            }
+        }
+        if (result.runsUsed == 0) {
+            result.problem = "no uptime period of an hour or more from a fresh start recorded yet";
+            Arrays.fill(result.curve, Double.NaN);
+            return result;
+        }
+
+        result.baselineMspt = median(baselines);
+        double weightedXY = 0.0;
+        double weightedXX = 0.0;
+        for (int hour = 0; hour < MAX_HOURS; hour++) {
+            if (result.curveRuns[hour] == 0) {
+                result.curve[hour] = Double.NaN;
+                continue;
+            }
+            double rise = riseSums[hour] / result.curveRuns[hour];
+            result.curve[hour] = result.baselineMspt + rise;
+            double x = hour + 0.5 - BASELINE_HOURS;
+            weightedXY += result.curveRuns[hour] * x * rise;
+            weightedXX += result.curveRuns[hour] * x * x;
+        }
+        result.msptSlope = weightedXX > 0 ? weightedXY / weightedXX : Double.NaN;
+        result.baselineHeapMb = heapBaselines.isEmpty() ? Double.NaN : median(heapBaselines);
+        result.heapSlope = heapSlopes.isEmpty() ? Double.NaN : median(heapSlopes);
+
+        if (result.baselineMspt >= targetMspt) {
+            result.problem = String.format("a fresh server already runs at %.1f ms p95 - restarting more often will not reach %.1f ms",
+                result.baselineMspt, targetMspt);
+            return result;
+        }
+        if (result.msptSlope > 0) {
+            result.msptHours = BASELINE_HOURS + (targetMspt - result.baselineMspt) / result.msptSlope;
+        }
+        if (result.heapSlope > 0 && !Double.isNaN(result.baselineHeapMb) && !Double.isNaN(heapLimitMb)) {
+            result.heapHours = BASELINE_HOURS + Math.max(0.0, heapLimitMb - result.baselineHeapMb) / result.heapSlope;
+        }
+
+        double hours = Math.min(result.msptHours, result.heapHours);
+        if (Double.isInfinite(hours)) {
+            result.limitedBy = "no degradation measured";
+        } else {
+            result.limitedBy = result.heapHours < result.msptHours ? "post-GC heap" : "p95 MSPT";
+        }
+        // Whole half hours, rounded down so the target is not overshot
+        double rounded = Math.floor(Math.min(hours, maxHours) * 2.0) / 2.0;
+        if (rounded <= minHours) {
+            rounded = minHours;
+            if (!Double.isInfinite(hours) && hours < minHours) {
+                result.limitedBy += ", held at the minimum interval";
+            }
+        }
+        result.intervalHours = rounded;
+        return result;
+    }
+
+    // Evenly spaced times of day, anchored on the first configured restart time
+    public static List<LocalTime> spreadTimes(double intervalHours, List<LocalTime> configured) {
+        int count = (int) Math.ceil(24.0 / intervalHours - 1e-9);
+        long stepMinutes = 24 * 60 / count;
+        LocalTime anchor = configured.isEmpty() ? LocalTime.of(4, 0) : configured.get(0);
+        TreeSet<LocalTime> times = new TreeSet<>();
+        for (int i = 0; i < count; i++) {
+            times.add(anchor.plusMinutes(i * stepMinutes));
+        }
+        return new ArrayList<>(times);
+    }
+
+    // Longest stretch between two restart times of the day, wrapping past midnight; NaN if none
+    public static double longestGapHours(List<LocalTime> times) {
+        if (times.isEmpty()) return Double.NaN;
+        List<LocalTime> sorted = new ArrayList<>(new TreeSet<>(times));
+        int longest = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            int from = sorted.get(i).toSecondOfDay() / 60;
+            int to = sorted.get((i + 1) % sorted.size()).toSecondOfDay() / 60;
+            int gap = to > from ? to - from : to - from + 24 * 60;
+            longest = Math.max(longest, gap);
+        }
+        return longest / 60.0;
+    }
+
+    // Only reschedules when the tuned times actually change
+    private void applyRecommendation() {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        RestartManager restarts = plugin.getRestartManager();
+        if (restarts == null) return;
+
+        List<LocalTime> tuned = null;
+        Recommendation recommendation = null;
+        if (config.isTuningEnabled() && config.isTuningAutoApply()) {
+            recommendation = recommend();
+            if (recommendation.isReady()) {
+                tuned = spreadTimes(recommendation.getIntervalHours(), config.getRestartTimes());
+            }
+        }
+
+        List<LocalTime> current = restarts.isRestartScheduleTuned() ? restarts.getEffectiveRestartTimes() : null;
+        if (Objects.equals(tuned, current)) return;
+
+        restarts.setTunedRestartTimes(tuned);
+        restarts.rescheduleConfiguredRestarts();
+        if (plugin.getLogManager() != null && recommendation != null && tuned != null) {
+            plugin.getLogManager().info(String.format("Restart interval tuned to %.1fh (%s) from %d uptime periods",
+                recommendation.getIntervalHours(), recommendation.getLimitedBy(), recommendation.getRunsUsed()));
+        }
+    }
+
+    private static double median(List<Double> values) {
+        Collections.sort(values);
+        int middle = values.size() / 2;
+        return values.size() % 2 == 1 ? values.get(middle) : (values.get(middle - 1) + values.get(middle)) / 2.0;
+    }
+
+    // Running least squares, so a 48h period costs five doubles
+    private static final class Fit {
+        private long n;
+        private double sumX;
+        private double sumY;
+        private double sumXX;
+        private double sumXY;
+
+        void add(double x, double y) {
+            n++;
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumXY += x * y;
+        }
+
+        void reset() {
+            n = 0;
+            sumX = sumY = sumXX = sumXY = 0.0;
+        }
+
+        double slope() {
+            double denominator = n * sumXX - sumX * sumX;
+            if (n < 2 || denominator <= 1e-9) return Double.NaN;
+            return (n * sumXY - sumX * sumY) / denominator;
+        }
+    }
+}
@@ -1,39 +1,64 @@
 package io.github.dmzrestart.utils;
 
 import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.managers.ConfigSnapshot;
+import io.github.dmzrestart.managers.RestartManager;
 import org.bukkit.Bukkit;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
-import java.lang.management.ManagementFactory;
-import java.lang.management.MemoryMXBean;
+import org.bukkit.entity.Player;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 
 public class ServerLoadMonitor {
     private final DMZRestartPlugin plugin;
-    private BukkitTask monitoringTask;
+    // A report older than this no longer explains the current state
+    public static final long LAG_REPORT_MAX_AGE_MILLIS = 15 * 60 * 1000L;
+    private static final int HEALTH_EVENTS_KEPT = 50;
+
+    private final RecoveryPipeline recoveryPipeline;
+    private final LagScanner lagScanner;
+    private final ContainerMetrics containerMetrics;
+    private final EvidenceCapture evidenceCapture;
+    private final LeakDetector leakDetector;
+    private final ThreadMonitor threadMonitor;
+    private final Deque<HealthEvent> healthEvents = new ArrayDeque<>();
+    private TaskScheduler.Task monitoringTask;
+    private TaskScheduler.Task threadTask;
     private double lastTPS = 20.0;
     private double lastMemoryUsage = 0.0;
     private boolean isHealthy = true;
     private int totalChecks = 0;
     private int emergencyTriggered = 0;
+    private int lastRegionCount = 0;
+    private double lastWorstRegionMspt = 0.0;
+    private double lastMspt = 0.0;
 
     public ServerLoadMonitor(DMZRestartPlugin plugin) {
         this.plugin = plugin;
+        this.recoveryPipeline = new RecoveryPipeline(plugin, this);
+        this.lagScanner = new LagScanner(plugin);
+        this.containerMetrics = new ContainerMetrics();
+        this.evidenceCapture = new EvidenceCapture(plugin);
+        this.leakDetector = new LeakDetector(plugin);
+        this.threadMonitor = new ThreadMonitor(plugin);
         plugin.getLogger().info("ServerLoadMonitor initialized successfully");
     }
 
+    // Also used on config reload, so whatever an earlier start scheduled is cancelled first
     public void startMonitoring() {
-        if (monitoringTask != null) {
-            monitoringTask.cancel();
-        }
+        cancelTimers();
 
         int interval = plugin.getConfigManager().getCheckInterval();
 
-        monitoringTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                performHealthCheck();
-            }
-        }.runTaskTimer(plugin, 20L * interval, 20L * interval);
+        monitoringTask = plugin.getTaskScheduler().runGlobalTimer(task -> performHealthCheck(),
+            20L * interval, 20L * interval);
+        // Its own async timer: a deadlocked main thread would never schedule it from the tick
+        if (plugin.getConfigManager().getSnapshot().isThreadMonitoringEnabled()) {
+            threadTask = plugin.getTaskScheduler().runAsyncTimer(task -> checkThreads(),
+                20L * interval, 20L * interval);
+        }
+        leakDetector.start();
 
         if (plugin.getLogManager() != null) {
             plugin.getLogManager().info("Performance monitoring started (interval: " + interval + "s)");
@@ -41,52 +66,76 @@ public class ServerLoadMonitor {
     }
 
     public void stopMonitoring() {
+        cancelTimers();
+        leakDetector.stop();
+
+        if (plugin.getLogManager() != null) {
+            plugin.getLogManager().info("Performance monitoring stopped");
+        }
+    }
+
+    private void cancelTimers() {
         if (monitoringTask != null) {
             monitoringTask.cancel();
             monitoringTask = null;
         }
-
-        if (plugin.getLogManager() != null) {
-            plugin.getLogManager().info("Performance monitoring stopped");
+        if (threadTask != null) {
+            threadTask.cancel();
+            threadTask = null;
         }
     }
 
     private void performHealthCheck() {
+        long checkStart = System.nanoTime();
         totalChecks++;
 
-        // Calculate TPS (simplified)
-        try {
-            double[] tps = Bukkit.getTPS();
-            if (tps != null && tps.length > 0) {
-                lastTPS = tps[0];
+        // On Folia every region ticks on its own - the slowest one is what its players feel
+        List<RegionTickMetrics.RegionTick> regions = plugin.getRegionTickMetrics().sample();
+        if (!regions.isEmpty()) {
+            double worstTps = 20.0;
+            double worstMspt = 0.0;
+            for (RegionTickMetrics.RegionTick region : regions) {
+                worstTps = Math.min(worstTps, region.getTps());
+                worstMspt = Math.max(worstMspt, region.getMspt());
+            }
+            lastTPS = worstTps;
+            lastWorstRegionMspt = worstMspt;
+            lastRegionCount = regions.size();
+            lastMspt = worstMspt;
+        } else {
+            lastMspt = averageTickTime();
+            // Calculate TPS (simplified)
+            try {
+                double[] tps = Bukkit.getTPS();
+                if (tps != null && tps.length > 0) {
+                    lastTPS = tps[0];
+                }
+            } catch (Exception e) {
+                lastTPS = 20.0; // Fallback
             }
-        } catch (Exception e) {
-            lastTPS = 20.0; // Fallback
         }
 
-        // Calculate memory usage
-        try {
-            MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
-            long used = memoryBean.getHeapMemoryUsage().getUsed();
-            long max = memoryBean.getHeapMemoryUsage().getMax();
-            lastMemoryUsage = (double) used / max * 100.0;
-        } catch (Exception e) {
-            lastMemoryUsage = 0.0; // Fallback
-        }
+        // One snapshot per check keeps every threshold from the same config version
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+
+        lastMemoryUsage = sampleMemoryUsage(config);
 
         // Health check
-        double tpsThreshold = plugin.getConfigManager().getTpsThreshold();
-        double memoryThreshold = plugin.getConfigManager().getMemoryThreshold();
+        boolean wasHealthy = isHealthy;
+        isHealthy = lastTPS >= config.getTpsThreshold() && lastMemoryUsage <= config.getMemoryThreshold();
 
-        isHealthy = lastTPS >= tpsThreshold && lastMemoryUsage <= memoryThreshold;
+        // Find out where the load is coming from, once per episode unless the report goes stale
+        if (!isHealthy && config.isLagScanEnabled() && !lagScanner.isScanning()
+            && (wasHealthy || lagScanner.getRecentReport(LAG_REPORT_MAX_AGE_MILLIS) == null)) {
+            double tpsAtCheck = lastTPS;
+            double memoryAtCheck = lastMemoryUsage;
+            lagScanner.startScan("unhealthy check", report -> sendHealthAlert(report, tpsAtCheck, memoryAtCheck));
+        }
 
         // Emergency check
-        if (plugin.getConfigManager().getConfig().getBoolean("emergency.enabled", true)) {
-            double emergencyTps = plugin.getConfigManager().getConfig().getDouble("emergency.tps-threshold", 12.0);
-            double emergencyMemory = plugin.getConfigManager().getConfig().getDouble("emergency.memory-threshold", 95.0);
-
-            if (lastTPS < emergencyTps || lastMemoryUsage > emergencyMemory) {
-                triggerEmergencyRestart();
+        if (config.isEmergencyEnabled()) {
+            if (lastTPS < config.getEmergencyTpsThreshold() || lastMemoryUsage > config.getEmergencyMemoryThreshold()) {
+                triggerEmergencyRestart(config);
             }
         }
 
@@ -94,28 +143,199 @@ public class ServerLoadMonitor {
         if (plugin.getLogManager() != null && plugin.getLogManager().isDebugMode()) {
             plugin.getLogManager().debug(String.format("Health Check - TPS: %.2f, Memory: %.1f%%, Healthy: %s", 
                 lastTPS, lastMemoryUsage, isHealthy ? "Yes" : "No"));
+            ContainerMetrics.Sample memory = containerMetrics.getLastSample();
+            if (memory != null && memory.hasMemoryLimit()) {
+                plugin.getLogManager().debug(String.format("Container - footprint: %s/%s (%.1f%%), heap: %.1f%%, "
+                    + "non-heap: %s, direct: %s, mapped: %s, CPU: %.1f%%",
+                    ContainerMetrics.formatBytes(memory.getFootprint()), ContainerMetrics.formatBytes(memory.getMemoryLimit()),
+                    memory.getFootprintPercent(), memory.getHeapPercent(), ContainerMetrics.formatBytes(memory.getNonHeapUsed()),
+                    ContainerMetrics.formatBytes(memory.getDirectUsed()), ContainerMetrics.formatBytes(memory.getMappedUsed()),
+                    memory.getContainerCpuPercent()));
+            }
+            if (lastRegionCount > 0) {
+                plugin.getLogManager().debug(String.format("Regions: %d, worst MSPT: %.2fms",
+                    lastRegionCount, lastWorstRegionMspt));
+            }
+        }
+
+        StatsdExporter statsd = plugin.getStatsdExporter();
+        if (statsd != null) {
+            statsd.time("health_check", (System.nanoTime() - checkStart) / 1.0E6);
         }
     }
 
-    private void triggerEmergencyRestart() {
+    private void triggerEmergencyRestart(ConfigSnapshot config) {
+        // The recovery attempt decides for itself whether to escalate
+        if (recoveryPipeline.isRunning()) return;
+
         emergencyTriggered++;
 
-        String reason = lastTPS < plugin.getConfigManager().getConfig().getDouble("emergency.tps-threshold", 12.0) 
+        String reason = lastTPS < config.getEmergencyTpsThreshold() 
             ? "Critical TPS: " + String.format("%.2f", lastTPS)
-            : "Critical Memory: " + String.format("%.1f%%", lastMemoryUsage);
+            : "Critical Memory: " + String.format("%.1f%%", lastMemoryUsage) + describeMemory();
+
+        boolean restartPending = plugin.getRestartManager() != null
+            && plugin.getRestartManager().isEmergencyRestartActive();
+        if (config.isRecoveryEnabled() && !restartPending && recoveryPipeline.canAttempt(config)) {
+            recoveryPipeline.start(reason, config);
+            return;
+        }
 
         if (plugin.getLogManager() != null) {
             plugin.getLogManager().severe("Emergency restart triggered: " + reason);
+            LagReport lagReport = lagScanner.getRecentReport(LAG_REPORT_MAX_AGE_MILLIS);
+            if (lagReport != null) {
+                plugin.getLogManager().severe("Last lag scan: " + lagReport.getSummary());
+            }
+        }
+
+        if (!restartPending) {
+            captureEvidence(reason, lastMemoryUsage > config.getEmergencyMemoryThreshold(), config);
         }
 
         if (plugin.getRestartManager() != null) {
-            int delay = plugin.getConfigManager().getConfig().getInt("emergency.delay", 30);
-            plugin.getRestartManager().scheduleRestart(delay, 
-                plugin.getRestartManager().RestartReason.EMERGENCY_SYSTEM, 
+            plugin.getRestartManager().scheduleRestart(config.getEmergencyDelay(), 
+                RestartManager.RestartReason.EMERGENCY_SYSTEM, 
                 "Performance Monitor");
         }
     }
 
+    // Async: thread dumps and CPU times are too slow for the tick
+    private void checkThreads() {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        threadMonitor.check(config, event -> {
+            // A deadlocked main thread will never run the handler, so say it from here
+            if (event.getDetails().containsKey("server-thread") && plugin.getLogManager() != null) {
+                plugin.getLogManager().severe("Main thread deadlocked: " + event.describe());
+            }
+            plugin.getTaskScheduler().runGlobal(() -> handleHealthEvent(event, config));
+        });
+    }
+
+    // The configured action for the event's severity decides whether it restarts the server
+    private void handleHealthEvent(HealthEvent event, ConfigSnapshot config) {
+        synchronized (healthEvents) {
+            healthEvents.addFirst(event);
+            if (healthEvents.size() > HEALTH_EVENTS_KEPT) {
+                healthEvents.removeLast();
+            }
+        }
+
+        String action = event.getSeverity() == HealthEvent.Severity.CRITICAL
+            ? config.getThreadCriticalAction()
+            : config.getThreadWarningAction();
+        if (plugin.getLogManager() != null) {
+            if (event.getSeverity() == HealthEvent.Severity.CRITICAL) {
+                plugin.getLogManager().severe("Health event " + event.describe());
+            } else {
+                plugin.getLogManager().warning("Health event " + event.describe());
+            }
+        }
+
+        if (!action.equals("log") && plugin.getLogManager() != null) {
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                if (plugin.getPermissionManager().isAdmin(player)) {
+                    plugin.getLogManager().sendMessage(player, "&c[DMZ-ReStart] " + event.getType() + ": " + event.getSummary());
+                    plugin.getLogManager().sendMessage(player, "&7Use &e/dmzrestart threads &7for details");
+                }
+            }
+        }
+
+        boolean restartPending = plugin.getRestartManager() != null
+            && plugin.getRestartManager().isEmergencyRestartActive();
+        if (action.equals("restart") && config.isEmergencyEnabled() && !restartPending && plugin.getRestartManager() != null) {
+            emergencyTriggered++;
+            String reason = "Health event " + event.getType() + ": " + event.getSummary();
+            if (plugin.getLogManager() != null) {
+                plugin.getLogManager().severe("Emergency restart triggered: " + reason);
+            }
+            captureEvidence(reason, false, config);
+            plugin.getRestartManager().scheduleRestart(config.getEmergencyDelay(),
+                RestartManager.RestartReason.EMERGENCY_SYSTEM,
+                "Thread Monitor");
+        }
+    }
+
+    private void sendHealthAlert(LagReport report, double tps, double memory) {
+        String headline = String.format("Server unhealthy (TPS %.2f, memory %.1f%%) - %s",
+            tps, memory, report.getSummary());
+        if (plugin.getLogManager() == null) return;
+
+        plugin.getLogManager().warning(headline);
+        List<LagReport.ChunkLoad> hotspots = report.getHotspots();
+        for (int i = 0; i < Math.min(3, hotspots.size()); i++) {
+            plugin.getLogManager().warning("  #" + (i + 1) + " " + hotspots.get(i).describe());
+        }
+
+        // Staff get the same report in chat so they can go and look
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (plugin.getPermissionManager().isAdmin(player)) {
+                plugin.getLogManager().sendMessage(player, "&c[DMZ-ReStart] " + headline);
+                plugin.getLogManager().sendMessage(player, "&7Use &e/dmzrestart lag &7for the full report");
+            }
+        }
+    }
+
+    // Everything known about the server at this moment goes next to the histogram
+    public void captureEvidence(String reason, boolean memoryEmergency, ConfigSnapshot config) {
+        StringBuilder context = new StringBuilder()
+            .append(String.format("TPS: %.2f, MSPT: %.2fms, Memory: %.1f%%%s", lastTPS, lastMspt, lastMemoryUsage, describeMemory()));
+        ContainerMetrics.Sample sample = containerMetrics.getLastSample();
+        if (sample != null) {
+            context.append("\nNon-heap pools: ").append(sample.getNonHeapPools())
+                .append("\nDirect buffers: ").append(ContainerMetrics.formatBytes(sample.getDirectUsed()))
+                .append(", mapped: ").append(ContainerMetrics.formatBytes(sample.getMappedUsed()));
+        }
+        LagReport lagReport = lagScanner.getRecentReport(LAG_REPORT_MAX_AGE_MILLIS);
+        if (lagReport != null) {
+            context.append("\nLast lag scan: ").append(lagReport.getSummary());
+        }
+        for (LeakDetector.Suspect suspect : leakDetector.getSuspects()) {
+            context.append("\nLeak suspect: ").append(suspect.describe());
+        }
+        evidenceCapture.capture(reason, memoryEmergency, config, context.toString());
+    }
+
+    // Heap usage, or when running under a container memory limit whichever of heap and
+    // whole-process footprint is closer to running out
+    public double sampleMemoryUsage(ConfigSnapshot config) {
+        try {
+            ContainerMetrics.Sample sample = containerMetrics.sample();
+            return config.isContainerAware() ? sample.getMemoryPercent() : sample.getHeapPercent();
+        } catch (Exception e) {
+            return 0.0; // Fallback
+        }
+    }
+
+    private String describeMemory() {
+        ContainerMetrics.Sample sample = containerMetrics.getLastSample();
+        if (sample == null || !sample.hasMemoryLimit()) return " (heap)";
+        return String.format(" (footprint %s of %s container limit, heap %.1f%%)",
+            ContainerMetrics.formatBytes(Math.max(sample.getFootprint(), sample.getContainerWorkingSet())),
+            ContainerMetrics.formatBytes(sample.getMemoryLimit()), sample.getHeapPercent());
+    }
+
+    // Current MSPT: the slowest region on Folia, Paper's rolling average elsewhere
+    public double sampleMspt() {
+        if (plugin.getRegionTickMetrics().isAvailable()) {
+            double worst = 0.0;
+            for (RegionTickMetrics.RegionTick region : plugin.getRegionTickMetrics().sample()) {
+                worst = Math.max(worst, region.getMspt());
+            }
+            if (worst > 0.0) return worst;
+        }
+        return averageTickTime();
+    }
+
+    private double averageTickTime() {
+        try {
+            return Bukkit.getAverageTickTime();
+        } catch (NoSuchMethodError | UnsupportedOperationException e) {
+            // Plain Spigot - estimate from TPS, which cannot show anything faster than 50ms
+            return lastTPS > 0 ? 1000.0 / Math.min(20.0, lastTPS) : 50.0;
+        }
+    }
+
     // Getters
     public double getLastTPS() {
         return lastTPS;
@@ -136,4 +356,47 @@ public class ServerLoadMonitor {
     public int getEmergencyTriggered() {
         return emergencyTriggered;
     }
+
+    public int getLastRegionCount() {
+        return lastRegionCount;
+    }
+
+    public double getLastWorstRegionMspt() {
+        return lastWorstRegionMspt;
+    }
+
+    public double getLastMspt() {
+        return lastMspt;
+    }
+
+    public RecoveryPipeline getRecoveryPipeline() {
+        return recoveryPipeline;
+    }
+
+    public ContainerMetrics getContainerMetrics() {
+        return containerMetrics;
+    }
+
+    public EvidenceCapture getEvidenceCapture() {
+        return evidenceCapture;
+    }
+
+    public LeakDetector getLeakDetector() {
+        return leakDetector;
+    }
+
+    public ThreadMonitor getThreadMonitor() {
+        return threadMonitor;
+    }
+
+    // Newest first
+    public List<HealthEvent> getHealthEvents() {
+        synchronized (healthEvents) {
+            return new ArrayList<>(healthEvents);
+        }
+    }
+
+    public LagScanner getLagScanner() {
+        return lagScanner;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,171 @@
+package io.github.dmzrestart.utils;
+
+import java.util.Arrays;
+
+// Aggregates over stored player sessions for one time window
+public final class SessionReport {
+    private static final long[] LENGTH_BOUNDS_MINUTES = { 5, 15, 30, 60, 120, 240 };
+    private static final String[] LENGTH_LABELS = { "<5m", "5-15m", "15-30m", "30-60m", "1-2h", "2-4h", "4h+" };
+    private static final int MAX_BUCKETS = 10_000;
+
+    private final long from;
+    private final long to;
+    private final long bucketMillis;
+    private final int[] peakConcurrent;
+    private final int[] lengthDistribution;
+    private final int finishedSessions;
+    private final int openSessions;
+    private final long totalPlayTimeMillis;
+    private final int restartCutSessions;
+    private final long restartCutPlayTimeMillis;
+    private final int restartsObserved;
+
+    private SessionReport(Builder builder, int[] peakConcurrent) {
+        this.from = builder.from;
+        this.to = builder.to;
+        this.bucketMillis = builder.bucketMillis;
+        this.peakConcurrent = peakConcurrent;
+        this.lengthDistribution = builder.lengthDistribution;
+        this.finishedSessions = builder.finishedSessions;
+        this.openSessions = builder.openSessions;
+        this.totalPlayTimeMillis = builder.totalPlayTimeMillis;
+        this.restartCutSessions = builder.restartCutSessions;
+        this.restartCutPlayTimeMillis = builder.restartCutPlayTimeMillis;
+        this.restartsObserved = builder.restartsObserved;
+    }
+
+    public long getFrom() { return from; }
+    public long getTo() { return to; }
+    public long getBucketMillis() { return bucketMillis; }
+    public int[] getPeakConcurrent() { return peakConcurrent.clone(); }
+    public int[] getLengthDistribution() { return lengthDistribution.clone(); }
+    public static String[] getLengthLabels() { return LENGTH_LABELS.clone(); }
+    public int getFinishedSessions() { return finishedSessions; }
+    public int getOpenSessions() { return openSessions; }
+    public long getTotalPlayTimeMillis() { return totalPlayTimeMillis; }
+    public int getRestartCutSessions() { return restartCutSessions; }
+    public long getRestartCutPlayTimeMillis() { return restartCutPlayTimeMillis; }
+    public int getRestartsObserved() { return restartsObserved; }
+
+    public int getPeakConcurrentOverall() {
+        int peak = 0;
+        for (int value : peakConcurrent) {
+            peak = Math.max(peak, value);
+        }
+        return peak;
+    }
+
+    public long getAverageSessionMillis() {
+        return finishedSessions == 0 ? 0 : totalPlayTimeMillis / finishedSessions;
+    }
+
+    public double getAveragePlayersPerRestart() {
+        return restartsObserved == 0 ? 0.0 : (double) restartCutSessions / restartsObserved;
+    }
+
+    static final class Builder {
+        private final long from;
+        private final long to;
+        private final long bucketMillis;
+        private final int[] lengthDistribution = new int[LENGTH_LABELS.length];
+
+        // Session edges clipped to the window, sorted once in build()
+        private long[] joins = new long[256];
+        private long[] quits = new long[256];
+        private int edges = 0;
+
+        private int finishedSessions = 0;
+        private int openSessions = 0;
+        private long totalPlayTimeMillis = 0;
+        private int restartCutSessions = 0;
+        private long restartCutPlayTimeMillis = 0;
+        private int restartsObserved = 0;
+
+        Builder(long from, long to, long bucketMillis) {
+            this.from = from;
+            this.to = Math.max(from + 1, to);
+            // Keep the timeline to a sane number of points however the window is asked for
+            long span = this.to - from;
+            this.bucketMillis = Math.max(Math.max(1000L, bucketMillis), (span + MAX_BUCKETS - 1) / MAX_BUCKETS);
+        }
+
+        void addSession(long join, long quit, int flags) {
+            if ((flags & SessionStore.FLAG_RESTART_MARKER) != 0) {
+                // Counted whether or not the restart cut anyone's session
+                if (quit >= from && quit <= to) restartsObserved++;
+                return;
+            }
+            if (quit < join) return;
+
+            addEdges(join, quit);
+
+            if (quit < from || quit > to) return;
+            long length = quit - join;
+            finishedSessions++;
+            totalPlayTimeMillis += length;
+            lengthDistribution[lengthBucket(length)]++;
+
+            if ((flags & SessionStore.FLAG_RESTART_CUT) != 0) {
+                restartCutSessions++;
+                restartCutPlayTimeMillis += length;
+            }
+        }
+
+        void addOpenSession(long join, long now) {
+            openSessions++;
+            addEdges(join, now);
+        }
+
+        private void addEdges(long join, long quit) {
+            if (quit < from || join > to) return;
+
+            if (edges == joins.length) {
+                joins = Arrays.copyOf(joins, edges * 2);
+                quits = Arrays.copyOf(quits, edges * 2);
+            }
+            joins[edges] = Math.max(join, from);
+            quits[edges] = Math.min(quit, to);
+            edges++;
+        }
+
+        private static int lengthBucket(long lengthMillis) {
+            long minutes = lengthMillis / 60_000L;
+            for (int i = 0; i < LENGTH_BOUNDS_MINUTES.length; i++) {
+                if (minutes < LENGTH_BOUNDS_MINUTES[i]) return i;
+            }
+            return LENGTH_BOUNDS_MINUTES.length;
+        }
+
+        SessionReport build() {
+            int bucketCount = (int) Math.max(1, (to - from + bucketMillis - 1) / bucketMillis);
+            int[] peak = new int[bucketCount];
+
+            long[] sortedJoins = Arrays.copyOf(joins, edges);
+            long[] sortedQuits = Arrays.copyOf(quits, edges);
+            Arrays.sort(sortedJoins);
+            Arrays.sort(sortedQuits);
+
+            // Sweep join/quit edges in time order, leaving before joining on ties
+            int current = 0;
+            int bucket = 0;
+            int j = 0;
+            int q = 0;
+            while (j < edges || q < edges) {
+                boolean isJoin = q >= edges || (j < edges && sortedJoins[j] < sortedQuits[q]);
+                long time = isJoin ? sortedJoins[j++] : sortedQuits[q++];
+                int target = (int) Math.min(bucketCount - 1, (time - from) / bucketMillis);
+
+                // Buckets without edges still hold whoever was online when they started
+                while (bucket < target) {
+                    bucket++;
+                    peak[bucket] = Math.max(peak[bucket], current);
+                }
+
+                current += isJoin ? 1 : -1;
+                peak[target] = Math.max(peak[target], current);
+            }
+
+            return new SessionReport(this, peak);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package io.github.dmzrestart.utils;
+
+import io.github.dmzrestart.DMZRestartPlugin;
+import org.bukkit.entity.Player;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.UUID;
+
+// Tracks open player sessions in a primitive open-addressing table and appends
+// finished sessions to sessions/sessions.bin in fixed-size binary records
+public class SessionStore {
+    public static final int FLAG_RESTART_CUT = 1;
+    public static final int FLAG_SHUTDOWN = 2;
+    // Not a session: one per managed restart, written even when nobody was online
+    public static final int FLAG_RESTART_MARKER = 4;
+
+    private static final int FILE_MAGIC = 0x444D5A50; // "DMZP"
+    // Used to be written here too, but it is the metrics segment magic
+    private static final int LEGACY_MAGIC = 0x444D5A53; // "DMZS"
+    private static final int FILE_VERSION = 1;
+    private static final int RECORD_STRIDE = 5; // msb, lsb, join, quit, flags
+    private static final int BATCH_SIZE = 128;
+    private static final long FLUSH_INTERVAL_TICKS = 20L * 60;
+
+    private final DMZRestartPlugin plugin;
+    private final File sessionFile;
+    private final Object fileLock = new Object();
+    private TaskScheduler.Task flushTask;
+
+    // Open sessions, keyed by the two halves of the player UUID
+    private long[] keyMsb = new long[64];
+    private long[] keyLsb = new long[64];
+    private long[] joinTimes = new long[64];
+    private boolean[] used = new boolean[64];
+    private int openSessions = 0;
+
+    // Finished sessions waiting to be written
+    private long[] pending = new long[BATCH_SIZE * RECORD_STRIDE];
+    private int pendingCount = 0;
+    private long recordedSessions = 0;
+
+    public SessionStore(DMZRestartPlugin plugin) {
+        this.plugin = plugin;
+        File sessionDir = new File(plugin.getDataFolder(), "sessions");
+        if (!sessionDir.exists()) {
+            sessionDir.mkdirs();
+        }
+        this.sessionFile = new File(sessionDir, "sessions.bin");
+    }
+
+    public void initialize() {
+        if (flushTask != null) {
+            flushTask.cancel();
+        }
+
+        // Players still online after a /reload get a fresh session from now
+        long now = System.currentTimeMillis();
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            if (getJoinTime(player.getUniqueId()) < 0) {
+                open(player.getUniqueId(), now);
+            }
+        }
+
+        upgradeHeader();
+        flushTask = plugin.getTaskScheduler().runAsyncTimer(task -> flush(),
+            FLUSH_INTERVAL_TICKS, FLUSH_INTERVAL_TICKS);
+    }
+
+    // Records are unchanged, so a file written under the old magic only needs its first four
+    // bytes replaced. A segment has a version byte and a timestamp after the magic, never the int 1.
+    private void upgradeHeader() {
+        synchronized (fileLock) {
+            if (!sessionFile.exists() || sessionFile.length() < 8) return;
+            try (RandomAccessFile raf = new RandomAccessFile(sessionFile, "rw")) {
+                if (raf.readInt() != LEGACY_MAGIC || raf.readInt() != FILE_VERSION) return;
+                raf.seek(0);
+                raf.writeInt(FILE_MAGIC);
+            } catch (IOException e) {
+                if (plugin.getLogManager() != null) {
+                    plugin.getLogManager().warning("Failed to upgrade session data header: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    public synchronized void open(UUID playerId, long joinTime) {
+        if ((openSessions + 1) * 4 > used.length * 3) {
+            resize(used.length * 2);
+        }
+
+        int slot = findSlot(playerId.getMostSignificantBits(), playerId.getLeastSignificantBits());
+        if (!used[slot]) {
+            used[slot] = true;
+            keyMsb[slot] = playerId.getMostSignificantBits();
+            keyLsb[slot] = playerId.getLeastSignificantBits();
+            openSessions++;
+        }
+        joinTimes[slot] = joinTime;
+    }
+
+    // Returns the join time, or -1 if no session was open
+    public long close(UUID playerId, long quitTime, int flags) {
+        long joinTime;
+        boolean flushNow;
+        synchronized (this) {
+            int slot = findSlot(playerId.getMostSignificantBits(), playerId.getLeastSignificantBits());
+            if (!used[slot]) return -1;
+
+            joinTime = joinTimes[slot];
+            removeSlot(slot);
+            flushNow = appendPending(playerId.getMostSignificantBits(), playerId.getLeastSignificantBits(),
+                joinTime, quitTime, flags);
+        }
+
+        if (flushNow) {
+            plugin.getTaskScheduler().runAsync(this::flush);
+        }
+        return joinTime;
+    }
+
+    public synchronized long getJoinTime(UUID playerId) {
+        int slot = findSlot(playerId.getMostSignificantBits(), playerId.getLeastSignificantBits());
+        return used[slot] ? joinTimes[slot] : -1;
+    }
+
+    public synchronized int getOpenSessions() {
+        return openSessions;
+    }
+
+    public synchronized long getRecordedSessions() {
+        return recordedSessions;
+    }
+
+    // Closes every open session and writes everything synchronously - used on disable
+    public void shutdown(boolean restartInProgress) {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+
+        long now = System.currentTimeMillis();
+        int flags = FLAG_SHUTDOWN | (restartInProgress ? FLAG_RESTART_CUT : 0);
+        synchronized (this) {
+            for (int slot = 0; slot < used.length; slot++) {
+                if (used[slot]) {
+                    appendPending(keyMsb[slot], keyLsb[slot], joinTimes[slot], now, flags);
+                }
+            }
+            if (restartInProgress) {
+                appendPending(0L, 0L, now, now, FLAG_RESTART_MARKER);
+            }
+            Arrays.fill(used, false);
+            openSessions = 0;
+        }
+        flush();
+    }
+
+    public void flush() {
+        long[] batch;
+        int count;
+        synchronized (this) {
+            if (pendingCount == 0) return;
+            batch = pending;
+            count = pendingCount;
+            pending = new long[Math.max(BATCH_SIZE, count) * RECORD_STRIDE];
+            pendingCount = 0;
+        }
+
+        synchronized (fileLock) {
+            boolean newFile = !sessionFile.exists() || sessionFile.length() == 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(sessionFile, true)))) {
+                if (newFile) {
+                    out.writeInt(FILE_MAGIC);
+                    out.writeInt(FILE_VERSION);
+                }
+                for (int i = 0; i < count * RECORD_STRIDE; i += RECORD_STRIDE) {
+                    out.writeLong(batch[i]);
+                    out.writeLong(batch[i + 1]);
+                    out.writeLong(batch[i + 2]);
+                    out.writeLong(batch[i + 3]);
+                    out.writeInt((int) batch[i + 4]);
+                }
+            } catch (IOException e) {
+                if (plugin.getLogManager() != null) {
+                    plugin.getLogManager().warning("Failed to write session data: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Streams the session file - call off the main thread
+    public SessionReport query(long from, long to, long bucketMillis) {
+        flush();
+        SessionReport.Builder report = new SessionReport.Builder(from, to, bucketMillis);
+
+        synchronized (fileLock) {
+            if (sessionFile.exists()) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                        new FileInputStream(sessionFile), 1 << 16))) {
+                    if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                        throw new IOException("unrecognized session file format");
+                    }
+                    while (true) {
+                        in.readLong(); // msb
+                        in.readLong(); // lsb
+                        long join = in.readLong();
+                        long quit = in.readLong();
+                        int flags = in.readInt();
+                        report.addSession(join, quit, flags);
+                    }
+                } catch (EOFException endOfFile) {
+                    // Done reading
+                } catch (IOException e) {
+                    if (plugin.getLogManager() != null) {
+                        plugin.getLogManager().warning("Failed to read session data: " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (int slot = 0; slot < used.length; slot++) {
+                if (used[slot]) {
+                    report.addOpenSession(joinTimes[slot], now);
+                }
+            }
+        }
+        return report.build();
+    }
+
+    private boolean appendPending(long msb, long lsb, long join, long quit, int flags) {
+        if ((pendingCount + 1) * RECORD_STRIDE > pending.length) {
+            pending = Arrays.copyOf(pending, pending.length * 2);
+        }
+        int base = pendingCount * RECORD_STRIDE;
+        pending[base] = msb;
+        pending[base + 1] = lsb;
+        pending[base + 2] = join;
+        pending[base + 3] = quit;
+        pending[base + 4] = flags;
+        pendingCount++;
+        if ((flags & FLAG_RESTART_MARKER) == 0) {
+            recordedSessions++;
+        }
+        return pendingCount >= BATCH_SIZE;
+    }
+
+    private int findSlot(long msb, long lsb) {
+        int mask = used.length - 1;
+        int slot = home(msb, lsb, mask);
+        while (used[slot] && (keyMsb[slot] != msb || keyLsb[slot] != lsb)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int home(long msb, long lsb, int mask) {
+        long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void removeSlot(int slot) {
+        int mask = used.length - 1;
+        used[slot] = false;
+        openSessions--;
+
+        int hole = slot;
+        int next = (slot + 1) & mask;
+        while (used[next]) {
+            int ideal = home(keyMsb[next], keyLsb[next], mask);
+            boolean movable = hole <= next
+                ? (ideal <= hole || ideal > next)
+                : (ideal <= hole && ideal > next);
+            if (movable) {
+                keyMsb[hole] = keyMsb[next];
+                keyLsb[hole] = keyLsb[next];
+                joinTimes[hole] = joinTimes[next];
+                used[hole] = true;
+                used[next] = false;
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldMsb = keyMsb;
+        long[] oldLsb = keyLsb;
+        long[] oldJoin = joinTimes;
+        boolean[] oldUsed = used;
+
+        keyMsb = new long[capacity];
+        keyLsb = new long[capacity];
+        joinTimes = new long[capacity];
+        used = new boolean[capacity];
+
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int slot = findSlot(oldMsb[i], oldLsb[i]);
+                used[slot] = true;
+                keyMsb[slot] = oldMsb[i];
+                keyLsb[slot] = oldLsb[i];
+                joinTimes[slot] = oldJoin[i];
+            }
+        }
+    }
+}
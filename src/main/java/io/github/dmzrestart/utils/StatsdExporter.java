@@ -0,0 +1,339 @@
+package io.github.dmzrestart.utils;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Push exporter for hosts where nothing can scrape us. Counters, gauges and timers are
+// aggregated in memory and flushed as StatsD lines (DogStatsD tags) packed into UDP
+// datagrams that fit one MTU. Every flush starts from an empty buffer, so an unreachable
+// collector costs one failed send per interval and never a growing backlog.
+public class StatsdExporter implements Consumer<MetricsSample> {
+    // 1500 byte Ethernet MTU minus IPv6 and UDP headers, with room for tunnels
+    public static final int DEFAULT_PACKET_BYTES = 1432;
+    // Distinct metric+tag combinations buffered per interval; anything beyond is dropped
+    private static final int MAX_KEYS = 2000;
+    // Timer values kept per key per interval, reservoir sampled beyond that
+    private static final int TIMER_RESERVOIR = 128;
+
+    private final InetSocketAddress target;
+    private final String prefix;
+    private final String globalTags;
+    private final int maxPacketBytes;
+    private final double timerSampleRate;
+    private final DatagramSocket socket;
+    // Swapped for a fresh map on every flush; new keys are only added while holding swapLock
+    private volatile Map<String, Aggregate> current = new ConcurrentHashMap<>();
+    private final Object swapLock = new Object();
+    private final Map<String, Long> lastTotals = new HashMap<>();
+
+    private volatile long packetsSent;
+    private final AtomicLong linesDropped = new AtomicLong();
+    private volatile boolean failing;
+    private volatile String lastError;
+
+    private static final class Aggregate {
+        final String name;
+        final char type;
+        final String tags;
+        double value;
+        double[] samples;
+        int kept;
+        long seen;
+        double sampleRate = 1.0;
+        boolean sealed;
+
+        Aggregate(String name, char type, String tags) {
+            this.name = name;
+            this.type = type;
+            this.tags = tags;
+        }
+    }
+
+    public StatsdExporter(String host, int port, String prefix, List<String> tags, int maxPacketBytes,
+                          double timerSampleRate) throws SocketException {
+        this.target = new InetSocketAddress(host, port);
+        this.prefix = prefix == null || prefix.isEmpty() ? "" : sanitize(prefix) + ".";
+        this.globalTags = joinTags(tags);
+        this.maxPacketBytes = Math.max(64, maxPacketBytes);
+        this.timerSampleRate = Math.max(0.0, Math.min(1.0, timerSampleRate));
+        // Unconnected, so an ICMP port-unreachable from a missing collector cannot fail later sends
+        this.socket = new DatagramSocket();
+    }
+
+    public void count(String name, double delta, String... tags) {
+        if (delta == 0) return;
+        Aggregate aggregate;
+        while ((aggregate = aggregate(name, 'c', tags)) != null) {
+            synchronized (aggregate) {
+                if (aggregate.sealed) continue;
+                aggregate.value += delta;
+                return;
+            }
+        }
+    }
+
+    public void gauge(String name, double value, String... tags) {
+        if (Double.isNaN(value)) return;
+        Aggregate aggregate;
+        while ((aggregate = aggregate(name, 'g', tags)) != null) {
+            synchronized (aggregate) {
+                if (aggregate.sealed) continue;
+                aggregate.value = value;
+                return;
+            }
+        }
+    }
+
+    // Timers honour metrics.statsd.timer-sample-rate; the rate actually sent accounts for both
+    // that and the reservoir so the collector can scale counts back up
+    public void time(String name, double millis, String... tags) {
+        if (timerSampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= timerSampleRate) return;
+        Aggregate aggregate;
+        while ((aggregate = aggregate(name, 't', tags)) != null) {
+            synchronized (aggregate) {
+                if (aggregate.sealed) continue;
+                if (aggregate.samples == null) {
+                    aggregate.samples = new double[TIMER_RESERVOIR];
+                    aggregate.sampleRate = timerSampleRate;
+                }
+                aggregate.seen++;
+                if (aggregate.kept < TIMER_RESERVOIR) {
+                    aggregate.samples[aggregate.kept++] = millis;
+                } else {
+                    long slot = ThreadLocalRandom.current().nextLong(aggregate.seen);
+                    if (slot < TIMER_RESERVOIR) aggregate.samples[(int) slot] = millis;
+                }
+                return;
+            }
+        }
+    }
+
+    // Null when the key budget for this interval is used up. An existing entry may belong to a
+    // map flush has already taken; it is then sealed and the caller retries. New entries are
+    // created under swapLock so none can land in a map after flush has swapped it out.
+    private Aggregate aggregate(String name, char type, String[] tags) {
+        String tagString = tags.length == 0 ? globalTags : joinTags(Arrays.asList(tags), globalTags);
+        String key = name + '|' + type + '|' + tagString;
+        Aggregate aggregate = current.get(key);
+        if (aggregate != null) return aggregate;
+
+        synchronized (swapLock) {
+            Map<String, Aggregate> map = current;
+            aggregate = map.get(key);
+            if (aggregate != null) return aggregate;
+            if (map.size() >= MAX_KEYS) {
+                linesDropped.incrementAndGet();
+                return null;
+            }
+            Aggregate created = new Aggregate(sanitize(name), type, tagString);
+            map.put(key, created);
+            return created;
+        }
+    }
+
+    // Sample listener: gauges as they are, cumulative totals turned into counter increments
+    @Override
+    public void accept(MetricsSample sample) {
+        gauge("tps", sample.getTps1m());
+        gauge("mspt.p50", sample.getMsptP50());
+        gauge("mspt.p95", sample.getMsptP95());
+        gauge("mspt.p99", sample.getMsptP99());
+        gauge("mspt.max", sample.getMsptMax());
+        if (sample.getRegionCount() > 0) {
+            gauge("regions", sample.getRegionCount());
+        } else {
+            for (double millis : sample.getTickMillis()) {
+                time("tick", millis);
+            }
+        }
+        gauge("players", sample.getPlayersOnline());
+        gauge("heap.used", sample.getHeapUsed());
+        gauge("heap.committed", sample.getHeapCommitted());
+        gauge("nonheap.used", sample.getNonHeapUsed());
+        gauge("threads", sample.getLiveThreads());
+        gauge("memory.percent", sample.getMemoryPercent());
+        if (sample.getMemoryLimit() > 0) {
+            gauge("container.footprint", sample.getFootprint());
+        }
+        gauge("healthy", sample.isHealthy() ? 1 : 0);
+        gauge("restart.in_progress", sample.isRestartInProgress() ? 1 : 0);
+        gauge("restart.countdown", sample.getCountdownSeconds());
+
+        synchronized (lastTotals) {
+            for (MetricsSample.GcStat gc : sample.getGc()) {
+                String tag = "gc:" + gc.getName();
+                count("gc.collections", increase("gc.collections|" + gc.getName(), gc.getCollections()), tag);
+                count("gc.time_ms", increase("gc.time_ms|" + gc.getName(), gc.getTimeMillis()), tag);
+            }
+            count("restarts", increase("restarts", sample.getRestartsManaged()));
+            count("emergency_triggers", increase("emergency_triggers", sample.getEmergencyTriggers()));
+        }
+    }
+
+    // The first sample only sets the baseline
+    private long increase(String key, long total) {
+        Long previous = lastTotals.put(key, total);
+        return previous == null || total < previous ? 0L : total - previous;
+    }
+
+    // Sends everything aggregated since the last flush; returns the number of datagrams sent
+    public int flush() {
+        Map<String, Aggregate> flushing;
+        synchronized (swapLock) {
+            flushing = current;
+            current = new ConcurrentHashMap<>();
+        }
+
+        StringBuilder packet = new StringBuilder(maxPacketBytes);
+        int packetBytes = 0;
+        int sent = 0;
+        boolean sendFailed = false;
+        for (Aggregate aggregate : flushing.values()) {
+            synchronized (aggregate) {
+                aggregate.sealed = true;
+            }
+            for (String line : lines(aggregate)) {
+                int lineBytes = line.getBytes(StandardCharsets.UTF_8).length;
+                if (lineBytes > maxPacketBytes || sendFailed) {
+                    linesDropped.incrementAndGet();
+                    continue;
+                }
+                if (packetBytes > 0 && packetBytes + 1 + lineBytes > maxPacketBytes) {
+                    sendFailed = !send(packet);
+                    if (!sendFailed) sent++;
+                    packet.setLength(0);
+                    packetBytes = 0;
+                    if (sendFailed) {
+                        linesDropped.incrementAndGet();
+                        continue;
+                    }
+                }
+                if (packetBytes > 0) {
+                    packet.append('\n');
+                    packetBytes++;
+                }
+                packet.append(line);
+                packetBytes += lineBytes;
+            }
+        }
+        if (packetBytes > 0 && !sendFailed) {
+            sendFailed = !send(packet);
+            if (!sendFailed) sent++;
+        }
+
+        failing = sendFailed;
+        packetsSent += sent;
+        return sent;
+    }
+
+    private boolean send(StringBuilder packet) {
+        byte[] bytes = packet.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            socket.send(new DatagramPacket(bytes, bytes.length, target));
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            lastError = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return false;
+        }
+    }
+
+    private String[] lines(Aggregate aggregate) {
+        if (aggregate.type != 't') {
+            return new String[] { line(aggregate, aggregate.value, aggregate.type == 'c' ? "c" : "g", 1.0) };
+        }
+        double rate = aggregate.sampleRate * aggregate.kept / Math.max(1, aggregate.seen);
+        String[] lines = new String[aggregate.kept];
+        for (int i = 0; i < aggregate.kept; i++) {
+            lines[i] = line(aggregate, aggregate.samples[i], "ms", rate);
+        }
+        return lines;
+    }
+
+    private String line(Aggregate aggregate, double value, String type, double rate) {
+        StringBuilder line = new StringBuilder(64)
+            .append(prefix).append(aggregate.name).append(':').append(formatValue(value)).append('|').append(type);
+        if (rate < 1.0) {
+            line.append("|@").append(formatValue(rate));
+        }
+        if (!aggregate.tags.isEmpty()) {
+            line.append("|#").append(aggregate.tags);
+        }
+        return line.toString();
+    }
+
+    static String formatValue(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1.0E15) {
+            return Long.toString((long) value);
+        }
+        // Plain decimal notation; some collectors reject exponents
+        String text = String.format(Locale.ROOT, "%.6f", value);
+        int end = text.length();
+        while (text.charAt(end - 1) == '0') end--;
+        if (text.charAt(end - 1) == '.') end--;
+        return text.substring(0, end);
+    }
+
+    // ':' '|' '@' '#' and ',' are StatsD delimiters
+    static String sanitize(String text) {
+        StringBuilder clean = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            clean.append(c == ':' || c == '|' || c == '@' || c == '#' || c == ',' || Character.isWhitespace(c) ? '_' : c);
+        }
+        return clean.toString();
+    }
+
+    private static String joinTags(List<String> tags) {
+        return joinTags(tags, "");
+    }
+
+    // Tags are "key:value"; only the first ':' separates, the rest is sanitized
+    private static String joinTags(List<String> tags, String base) {
+        StringBuilder joined = new StringBuilder(base);
+        if (tags == null) return joined.toString();
+        for (String tag : tags) {
+            if (tag == null || tag.isEmpty()) continue;
+            if (joined.length() > 0) joined.append(',');
+            int split = tag.indexOf(':');
+            if (split > 0) {
+                joined.append(sanitize(tag.substring(0, split))).append(':').append(sanitize(tag.substring(split + 1)));
+            } else {
+                joined.append(sanitize(tag));
+            }
+        }
+        return joined.toString();
+    }
+
+    public void close() {
+        socket.close();
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    public long getLinesDropped() {
+        return linesDropped.get();
+    }
+
+    public boolean isFailing() {
+        return failing;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+}
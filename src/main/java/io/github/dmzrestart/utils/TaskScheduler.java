@@ -0,0 +1,281 @@
+package io.github.dmzrestart.utils;
+
+import io.github.dmzrestart.DMZRestartPlugin;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.scheduler.BukkitTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Routes plugin work to the right scheduler. On Folia, server-wide work goes to the
+// global region, per-player work to the player's entity scheduler and I/O to the async
+// scheduler. Everywhere else the classic BukkitScheduler is used.
+public class TaskScheduler {
+    private static final long MILLIS_PER_TICK = 50L;
+
+    public interface Task {
+        void cancel();
+        boolean isCancelled();
+    }
+
+    // Handed out when there was nothing to schedule, e.g. the entity already left
+    private static final Task NO_TASK = new Task() {
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return true;
+        }
+    };
+
+    private interface Backend {
+        Task runGlobal(Runnable task);
+        Task runGlobalLater(Runnable task, long delayTicks);
+        Task runGlobalTimer(Consumer<Task> task, long delayTicks, long periodTicks);
+        Task runAsync(Runnable task);
+        Task runAsyncTimer(Consumer<Task> task, long delayTicks, long periodTicks);
+        Task runForEntity(Entity entity, Runnable task, Runnable retired, long delayTicks);
+        void runAtChunk(World world, int chunkX, int chunkZ, Runnable task);
+        boolean isGlobalThread();
+        void cancelAll();
+    }
+
+    private final boolean folia;
+    private final Backend backend;
+
+    public TaskScheduler(DMZRestartPlugin plugin) {
+        this.folia = detectFolia();
+        // Kept in nested classes so Folia types are only loaded when they exist
+        this.backend = folia ? new RegionBackend(plugin) : new BukkitBackend(plugin);
+    }
+
+    private static boolean detectFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    public boolean isFolia() {
+        return folia;
+    }
+
+    // Server-wide state: countdowns, boss bars, restart scheduling
+    public Task runGlobal(Runnable task) {
+        return backend.runGlobal(task);
+    }
+
+    public Task runGlobalLater(Runnable task, long delayTicks) {
+        return backend.runGlobalLater(task, delayTicks);
+    }
+
+    public Task runGlobalTimer(Consumer<Task> task, long delayTicks, long periodTicks) {
+        return backend.runGlobalTimer(task, delayTicks, periodTicks);
+    }
+
+    // Runs right away when already on the global thread, otherwise on its next tick
+    public void ensureGlobal(Runnable task) {
+        if (backend.isGlobalThread()) {
+            task.run();
+        } else {
+            backend.runGlobal(task);
+        }
+    }
+
+    // File and network I/O - never touches world state
+    public Task runAsync(Runnable task) {
+        return backend.runAsync(task);
+    }
+
+    public Task runAsyncTimer(Consumer<Task> task, long delayTicks, long periodTicks) {
+        return backend.runAsyncTimer(task, delayTicks, periodTicks);
+    }
+
+    // Follows the entity across regions; skipped if it is removed first
+    public Task runForEntity(Entity entity, Runnable task, long delayTicks) {
+        return backend.runForEntity(entity, task, null, delayTicks);
+    }
+
+    // As above, but retired runs instead of task when the entity is removed first
+    public Task runForEntity(Entity entity, Runnable task, Runnable retired, long delayTicks) {
+        return backend.runForEntity(entity, task, retired, delayTicks);
+    }
+
+    // Runs on whichever thread owns the chunk's region
+    public void runAtChunk(World world, int chunkX, int chunkZ, Runnable task) {
+        backend.runAtChunk(world, chunkX, chunkZ, task);
+    }
+
+    public void cancelAll() {
+        backend.cancelAll();
+    }
+
+    private static final class BukkitBackend implements Backend {
+        private final DMZRestartPlugin plugin;
+
+        BukkitBackend(DMZRestartPlugin plugin) {
+            this.plugin = plugin;
+        }
+
+        @Override
+        public Task runGlobal(Runnable task) {
+            return wrap(Bukkit.getScheduler().runTask(plugin, task));
+        }
+
+        @Override
+        public Task runGlobalLater(Runnable task, long delayTicks) {
+            return wrap(Bukkit.getScheduler().runTaskLater(plugin, task, Math.max(0L, delayTicks)));
+        }
+
+        @Override
+        public Task runGlobalTimer(Consumer<Task> task, long delayTicks, long periodTicks) {
+            TaskRef ref = new TaskRef();
+            ref.task = wrap(Bukkit.getScheduler().runTaskTimer(plugin, () -> task.accept(ref.task),
+                Math.max(0L, delayTicks), Math.max(1L, periodTicks)));
+            return ref.task;
+        }
+
+        @Override
+        public Task runAsync(Runnable task) {
+            return wrap(Bukkit.getScheduler().runTaskAsynchronously(plugin, task));
+        }
+
+        @Override
+        public Task runAsyncTimer(Consumer<Task> task, long delayTicks, long periodTicks) {
+            TaskRef ref = new TaskRef();
+            ref.task = wrap(Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> task.accept(ref.task),
+                Math.max(0L, delayTicks), Math.max(1L, periodTicks)));
+            return ref.task;
+        }
+
+        @Override
+        public Task runForEntity(Entity entity, Runnable task, Runnable retired, long delayTicks) {
+            return runGlobalLater(() -> {
+                if (entity.isValid()) {
+                    task.run();
+                } else if (retired != null) {
+                    retired.run();
+                }
+            }, delayTicks);
+        }
+
+        @Override
+        public void runAtChunk(World world, int chunkX, int chunkZ, Runnable task) {
+            runGlobal(task);
+        }
+
+        @Override
+        public boolean isGlobalThread() {
+            return Bukkit.isPrimaryThread();
+        }
+
+        @Override
+        public void cancelAll() {
+            Bukkit.getScheduler().cancelTasks(plugin);
+        }
+
+        private static Task wrap(BukkitTask handle) {
+            return new Task() {
+                @Override
+                public void cancel() {
+                    handle.cancel();
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return handle.isCancelled();
+                }
+            };
+        }
+    }
+
+    // A timer's own handle is only known once scheduling returns
+    private static final class TaskRef {
+        volatile Task task;
+    }
+
+    private static final class RegionBackend implements Backend {
+        private final DMZRestartPlugin plugin;
+
+        RegionBackend(DMZRestartPlugin plugin) {
+            this.plugin = plugin;
+        }
+
+        @Override
+        public Task runGlobal(Runnable task) {
+            return wrap(Bukkit.getGlobalRegionScheduler().run(plugin, handle -> task.run()));
+        }
+
+        @Override
+        public Task runGlobalLater(Runnable task, long delayTicks) {
+            // The region schedulers reject delays below one tick
+            if (delayTicks < 1) return runGlobal(task);
+            return wrap(Bukkit.getGlobalRegionScheduler().runDelayed(plugin, handle -> task.run(), delayTicks));
+        }
+
+        @Override
+        public Task runGlobalTimer(Consumer<Task> task, long delayTicks, long periodTicks) {
+            return wrap(Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin,
+                handle -> task.accept(wrap(handle)), Math.max(1L, delayTicks), Math.max(1L, periodTicks)));
+        }
+
+        @Override
+        public Task runAsync(Runnable task) {
+            return wrap(Bukkit.getAsyncScheduler().runNow(plugin, handle -> task.run()));
+        }
+
+        @Override
+        public Task runAsyncTimer(Consumer<Task> task, long delayTicks, long periodTicks) {
+            return wrap(Bukkit.getAsyncScheduler().runAtFixedRate(plugin, handle -> task.accept(wrap(handle)),
+                Math.max(0L, delayTicks) * MILLIS_PER_TICK, Math.max(1L, periodTicks) * MILLIS_PER_TICK,
+                TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public Task runForEntity(Entity entity, Runnable task, Runnable retired, long delayTicks) {
+            ScheduledTask handle = delayTicks < 1
+                ? entity.getScheduler().run(plugin, scheduled -> task.run(), retired)
+                : entity.getScheduler().runDelayed(plugin, scheduled -> task.run(), retired, delayTicks);
+            if (handle != null) return wrap(handle);
+            // Folia does not call retired for an entity that was already gone
+            if (retired != null) retired.run();
+            return NO_TASK;
+        }
+
+        @Override
+        public void runAtChunk(World world, int chunkX, int chunkZ, Runnable task) {
+            Bukkit.getRegionScheduler().execute(plugin, world, chunkX, chunkZ, task);
+        }
+
+        @Override
+        public boolean isGlobalThread() {
+            return Bukkit.isGlobalTickThread();
+        }
+
+        @Override
+        public void cancelAll() {
+            Bukkit.getGlobalRegionScheduler().cancelTasks(plugin);
+            Bukkit.getAsyncScheduler().cancelTasks(plugin);
+        }
+
+        private static Task wrap(ScheduledTask handle) {
+            return new Task() {
+                @Override
+                public void cancel() {
+                    handle.cancel();
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return handle.isCancelled();
+                }
+            };
+        }
+    }
+}
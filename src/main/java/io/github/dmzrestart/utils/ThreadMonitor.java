@@ -0,0 +1,338 @@
+package io.github.dmzrestart.utils;
+
+import io.github.dmzrestart.DMZRestartPlugin;
+import io.github.dmzrestart.managers.ConfigSnapshot;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+// ThreadMXBean checks that catch what TPS cannot see: deadlocked async pools, thread
+// counts that only ever go up, executors spawning a thread per task and threads
+// spinning a core. Runs on its own async timer, so it keeps working when the tick stops.
+public class ThreadMonitor {
+    // Checks kept for the growth trend
+    private static final int TREND_WINDOW = 10;
+    // Consecutive checks a thread must burn CPU before it counts as a hog
+    private static final int CPU_HOG_CHECKS = 3;
+    private static final int TOP_CPU_THREADS = 5;
+    private static final Pattern NUMBERS = Pattern.compile("\\d+");
+
+    private final DMZRestartPlugin plugin;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final ClassOwners owners = new ClassOwners();
+    private final File dumpDir;
+    private final int[] liveHistory = new int[TREND_WINDOW];
+    private int liveHistoryCount;
+    private final Map<Long, Long> lastCpuNanos = new HashMap<>();
+    private final Map<Long, Integer> hogStreaks = new HashMap<>();
+    private long lastCheckNanos;
+    // Each finding is reported when it appears, not on every check it persists
+    private Set<Long> reportedDeadlock = Collections.emptySet();
+    private final Set<String> reportedPools = new HashSet<>();
+    private final Set<Long> reportedHogs = new HashSet<>();
+    private boolean explosionReported;
+    private volatile Snapshot lastSnapshot;
+
+    public static final class ThreadCpu {
+        private final String name;
+        private final double percentOfCore;
+
+        ThreadCpu(String name, double percentOfCore) {
+            this.name = name;
+            this.percentOfCore = percentOfCore;
+        }
+
+        public String getName() { return name; }
+        public double getPercentOfCore() { return percentOfCore; }
+    }
+
+    public static final class Snapshot {
+        private final int live;
+        private final int peak;
+        private final int daemon;
+        private final List<ThreadCpu> topCpu;
+        private final Map<String, Integer> largestPools;
+
+        Snapshot(int live, int peak, int daemon, List<ThreadCpu> topCpu, Map<String, Integer> largestPools) {
+            this.live = live;
+            this.peak = peak;
+            this.daemon = daemon;
+            this.topCpu = Collections.unmodifiableList(topCpu);
+            this.largestPools = Collections.unmodifiableMap(largestPools);
+        }
+
+        public int getLive() { return live; }
+        public int getPeak() { return peak; }
+        public int getDaemon() { return daemon; }
+        public List<ThreadCpu> getTopCpu() { return topCpu; }
+        public Map<String, Integer> getLargestPools() { return largestPools; }
+    }
+
+    public ThreadMonitor(DMZRestartPlugin plugin) {
+        this.plugin = plugin;
+        this.dumpDir = new File(plugin.getDataFolder(), "thread-dumps");
+        if (threads.isThreadCpuTimeSupported() && !threads.isThreadCpuTimeEnabled()) {
+            threads.setThreadCpuTimeEnabled(true);
+        }
+    }
+
+    public Snapshot getLastSnapshot() {
+        return lastSnapshot;
+    }
+
+    public synchronized void check(ConfigSnapshot config, Consumer<HealthEvent> events) {
+        checkDeadlocks(config, events);
+
+        int live = threads.getThreadCount();
+        ThreadInfo[] infos = threads.getThreadInfo(threads.getAllThreadIds(), 0);
+        Map<String, List<ThreadInfo>> pools = groupPools(infos);
+
+        checkThreadCount(live, config, events);
+        checkPools(pools, config, events);
+        List<ThreadCpu> topCpu = checkCpu(infos, config, events);
+
+        Map<String, Integer> largest = new LinkedHashMap<>();
+        pools.entrySet().stream()
+            .sorted((a, b) -> Integer.compare(b.getValue().size(), a.getValue().size()))
+            .limit(5)
+            .forEach(entry -> largest.put(entry.getKey(), entry.getValue().size()));
+        lastSnapshot = new Snapshot(live, threads.getPeakThreadCount(), threads.getDaemonThreadCount(), topCpu, largest);
+    }
+
+    private void checkDeadlocks(ConfigSnapshot config, Consumer<HealthEvent> events) {
+        long[] ids = threads.isSynchronizerUsageSupported()
+            ? threads.findDeadlockedThreads()
+            : threads.findMonitorDeadlockedThreads();
+        if (ids == null) {
+            reportedDeadlock = Collections.emptySet();
+            return;
+        }
+
+        Set<Long> deadlocked = new HashSet<>();
+        for (long id : ids) deadlocked.add(id);
+        if (deadlocked.equals(reportedDeadlock)) return;
+        reportedDeadlock = deadlocked;
+
+        ThreadInfo[] infos = threads.getThreadInfo(ids, true, true);
+        List<String> names = new ArrayList<>();
+        boolean serverThread = false;
+        for (ThreadInfo info : infos) {
+            if (info == null) continue;
+            names.add(info.getThreadName());
+            serverThread |= info.getThreadName().equals("Server thread");
+        }
+
+        Map<String, String> details = new LinkedHashMap<>();
+        details.put("threads", String.join(", ", names));
+        details.put("owner", ownerOf(infos));
+        if (serverThread) {
+            // Nothing scheduled will run again; the dump is for the post-mortem
+            details.put("server-thread", "blocked");
+        }
+        events.accept(new HealthEvent(HealthEvent.Type.DEADLOCK, HealthEvent.Severity.CRITICAL,
+            names.size() + " threads deadlocked", details, writeDump("deadlock", config)));
+    }
+
+    private void checkThreadCount(int live, ConfigSnapshot config, Consumer<HealthEvent> events) {
+        System.arraycopy(liveHistory, 1, liveHistory, 0, TREND_WINDOW - 1);
+        liveHistory[TREND_WINDOW - 1] = live;
+        liveHistoryCount = Math.min(liveHistoryCount + 1, TREND_WINDOW);
+
+        // Over the limit, or never dropping once across the whole window
+        boolean overLimit = live > config.getThreadMaxLive();
+        boolean climbing = liveHistoryCount == TREND_WINDOW
+            && live - liveHistory[0] >= config.getThreadGrowthThreshold();
+        for (int i = 1; climbing && i < TREND_WINDOW; i++) {
+            if (liveHistory[i] < liveHistory[i - 1]) climbing = false;
+        }
+
+        if (!overLimit && !climbing) {
+            explosionReported = false;
+            return;
+        }
+        if (explosionReported) return;
+        explosionReported = true;
+
+        Map<String, String> details = new LinkedHashMap<>();
+        details.put("live", String.valueOf(live));
+        details.put("peak", String.valueOf(threads.getPeakThreadCount()));
+        details.put("window-start", String.valueOf(liveHistory[TREND_WINDOW - liveHistoryCount]));
+        events.accept(new HealthEvent(HealthEvent.Type.THREAD_EXPLOSION,
+            overLimit ? HealthEvent.Severity.CRITICAL : HealthEvent.Severity.WARNING,
+            overLimit ? "live threads over " + config.getThreadMaxLive() : "thread count rising every check",
+            details, writeDump("threads", config)));
+    }
+
+    // "pool-12-thread-345" and "pool-13-thread-2" both become "pool-#-thread-#"
+    private static Map<String, List<ThreadInfo>> groupPools(ThreadInfo[] infos) {
+        Map<String, List<ThreadInfo>> pools = new HashMap<>();
+        for (ThreadInfo info : infos) {
+            if (info == null) continue;
+            String pattern = NUMBERS.matcher(info.getThreadName()).replaceAll("#");
+            pools.computeIfAbsent(pattern, key -> new ArrayList<>()).add(info);
+        }
+        return pools;
+    }
+
+    private void checkPools(Map<String, List<ThreadInfo>> pools, ConfigSnapshot config, Consumer<HealthEvent> events) {
+        reportedPools.retainAll(pools.keySet());
+        for (Map.Entry<String, List<ThreadInfo>> pool : pools.entrySet()) {
+            int size = pool.getValue().size();
+            if (size < config.getThreadPoolThreshold()) {
+                reportedPools.remove(pool.getKey());
+                continue;
+            }
+            if (!reportedPools.add(pool.getKey())) continue;
+
+            // Stacks are only fetched for the pool being reported
+            long[] ids = new long[Math.min(size, 10)];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = pool.getValue().get(i).getThreadId();
+            }
+            Map<String, String> details = new LinkedHashMap<>();
+            details.put("threads", String.valueOf(size));
+            details.put("owner", ownerOf(threads.getThreadInfo(ids, Integer.MAX_VALUE)));
+            events.accept(new HealthEvent(HealthEvent.Type.RUNAWAY_POOL, HealthEvent.Severity.WARNING,
+                "thread pool \"" + pool.getKey() + "\" has " + size + " threads", details, writeDump("pool", config)));
+        }
+    }
+
+    private List<ThreadCpu> checkCpu(ThreadInfo[] infos, ConfigSnapshot config, Consumer<HealthEvent> events) {
+        if (!threads.isThreadCpuTimeSupported()) return Collections.emptyList();
+
+        long now = System.nanoTime();
+        long elapsed = lastCheckNanos == 0 ? 0 : now - lastCheckNanos;
+        lastCheckNanos = now;
+
+        Map<Long, Long> current = new HashMap<>();
+        List<ThreadCpu> usage = new ArrayList<>();
+        for (ThreadInfo info : infos) {
+            if (info == null) continue;
+            long id = info.getThreadId();
+            long cpu = threads.getThreadCpuTime(id);
+            if (cpu < 0) continue;
+            current.put(id, cpu);
+
+            Long previous = lastCpuNanos.get(id);
+            if (previous == null || elapsed <= 0) continue;
+            double percent = (cpu - previous) * 100.0 / elapsed;
+            usage.add(new ThreadCpu(info.getThreadName(), percent));
+
+            // The main thread is supposed to be busy
+            boolean hot = percent >= config.getThreadCpuHogPercent() && !info.getThreadName().equals("Server thread");
+            int streak = hot ? hogStreaks.getOrDefault(id, 0) + 1 : 0;
+            hogStreaks.put(id, streak);
+            if (streak >= CPU_HOG_CHECKS && reportedHogs.add(id)) {
+                Map<String, String> details = new LinkedHashMap<>();
+                details.put("thread", info.getThreadName());
+                details.put("cpu", String.format("%.0f%%", percent));
+                details.put("owner", ownerOf(threads.getThreadInfo(new long[] { id }, Integer.MAX_VALUE)));
+                events.accept(new HealthEvent(HealthEvent.Type.CPU_HOG, HealthEvent.Severity.WARNING,
+                    info.getThreadName() + " has used " + String.format("%.0f%%", percent) + " of a core for "
+                        + CPU_HOG_CHECKS + " checks", details, writeDump("cpu", config)));
+            } else if (!hot) {
+                reportedHogs.remove(id);
+            }
+        }
+
+        // Forget threads that have ended
+        lastCpuNanos.clear();
+        lastCpuNanos.putAll(current);
+        hogStreaks.keySet().retainAll(current.keySet());
+        reportedHogs.retainAll(current.keySet());
+
+        usage.sort(Comparator.comparingDouble(ThreadCpu::getPercentOfCore).reversed());
+        return new ArrayList<>(usage.subList(0, Math.min(TOP_CPU_THREADS, usage.size())));
+    }
+
+    // The first plugin class found on the stacks, from the top down
+    private String ownerOf(ThreadInfo[] infos) {
+        for (ThreadInfo info : infos) {
+            if (info == null) continue;
+            for (StackTraceElement frame : info.getStackTrace()) {
+                String owner = owners.ownerOf(frame.getClassName());
+                if (ClassOwners.isPlugin(owner)) return owner;
+            }
+        }
+        return ClassOwners.UNKNOWN;
+    }
+
+    private File writeDump(String kind, ConfigSnapshot config) {
+        try {
+            if (!dumpDir.exists() && !dumpDir.mkdirs()) return null;
+            File file = new File(dumpDir, new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + "-" + kind + ".txt");
+            Files.write(file.toPath(), formatDump().getBytes(StandardCharsets.UTF_8));
+            applyRetention(config.getThreadDumpsKept());
+            return file;
+        } catch (IOException | RuntimeException e) {
+            if (plugin.getLogManager() != null) {
+                plugin.getLogManager().warning("Could not write thread dump: " + e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    // ThreadInfo.toString() cuts stacks at 8 frames, which hides exactly what is needed
+    private String formatDump() {
+        StringBuilder dump = new StringBuilder();
+        for (ThreadInfo info : threads.dumpAllThreads(threads.isObjectMonitorUsageSupported(),
+                threads.isSynchronizerUsageSupported())) {
+            dump.append('"').append(info.getThreadName()).append("\" id=").append(info.getThreadId())
+                .append(' ').append(info.getThreadState());
+            if (info.getLockName() != null) {
+                dump.append(" on ").append(info.getLockName());
+            }
+            if (info.getLockOwnerName() != null) {
+                dump.append(" owned by \"").append(info.getLockOwnerName()).append("\" id=").append(info.getLockOwnerId());
+            }
+            dump.append('\n');
+
+            StackTraceElement[] stack = info.getStackTrace();
+            MonitorInfo[] monitors = info.getLockedMonitors();
+            for (int i = 0; i < stack.length; i++) {
+                dump.append("\tat ").append(stack[i]).append('\n');
+                for (MonitorInfo monitor : monitors) {
+                    if (monitor.getLockedStackDepth() == i) {
+                        dump.append("\t- locked ").append(monitor).append('\n');
+                    }
+                }
+            }
+            LockInfo[] synchronizers = info.getLockedSynchronizers();
+            if (synchronizers.length > 0) {
+                dump.append("\tLocked synchronizers: ").append(Arrays.toString(synchronizers)).append('\n');
+            }
+            dump.append('\n');
+        }
+        return dump.toString();
+    }
+
+    private void applyRetention(int keep) {
+        File[] dumps = dumpDir.listFiles(File::isFile);
+        if (dumps == null || dumps.length <= keep) return;
+
+        Arrays.sort(dumps, Comparator.comparing(File::getName));
+        for (int i = 0; i < dumps.length - keep; i++) {
+            dumps[i].delete();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package io.github.dmzrestart.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatsdExporterTest {
+    private static final int PACKET_BYTES = 200;
+    private static final Pattern LINE =
+        Pattern.compile("dmz\\.[A-Za-z0-9_.]+:-?[0-9]+(\\.[0-9]+)?\\|(c|g|ms)(\\|@0?\\.[0-9]+)?(\\|#[^|\\s]+)?");
+
+    private DatagramSocket receiver;
+    private final List<StatsdExporter> exporters = new ArrayList<>();
+
+    @BeforeEach
+    void bind() throws Exception {
+        receiver = new DatagramSocket(0, InetAddress.getByName("127.0.0.1"));
+        receiver.setSoTimeout(2000);
+    }
+
+    @AfterEach
+    void close() {
+        for (StatsdExporter exporter : exporters) {
+            exporter.close();
+        }
+        receiver.close();
+    }
+
+    private StatsdExporter exporter(double timerSampleRate) throws Exception {
+        StatsdExporter exporter = new StatsdExporter("127.0.0.1", receiver.getLocalPort(), "dmz",
+            Collections.singletonList("env:test"), PACKET_BYTES, timerSampleRate);
+        exporters.add(exporter);
+        return exporter;
+    }
+
+    // Flushes and returns every line received, checking each datagram against the size limit
+    private List<String> flushAndReceive(StatsdExporter exporter) throws Exception {
+        int sent = exporter.flush();
+        List<String> lines = new ArrayList<>();
+        byte[] buffer = new byte[65535];
+        for (int i = 0; i < sent; i++) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            receiver.receive(packet);
+            assertTrue(packet.getLength() <= PACKET_BYTES, "datagram of " + packet.getLength() + " bytes");
+            String payload = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+            lines.addAll(Arrays.asList(payload.split("\n")));
+        }
+        return lines;
+    }
+
+    private static double sum(List<String> lines, String prefix) {
+        double total = 0;
+        for (String line : lines) {
+            if (line.startsWith(prefix)) {
+                total += Double.parseDouble(line.substring(prefix.length(), line.indexOf('|')));
+            }
+        }
+        return total;
+    }
+
+    @Test
+    void packsLinesIntoDatagramsWithinLimit() throws Exception {
+        StatsdExporter exporter = exporter(1.0);
+        for (int i = 0; i < 60; i++) {
+            exporter.gauge("gauge." + i, i * 1.5, "shard:" + i);
+        }
+
+        List<String> lines = flushAndReceive(exporter);
+
+        assertEquals(60, lines.size());
+        assertTrue(exporter.getPacketsSent() > 1, "expected the lines to be split over several datagrams");
+        for (String line : lines) {
+            assertTrue(LINE.matcher(line).matches(), line);
+        }
+        assertTrue(lines.contains("dmz.gauge.3:4.5|g|#env:test,shard:3"), lines.toString());
+        assertFalse(exporter.isFailing());
+        assertEquals(0, exporter.getLinesDropped());
+    }
+
+    @Test
+    void sumsCountersAndSanitizesNames() throws Exception {
+        StatsdExporter exporter = exporter(1.0);
+        exporter.count("restarts", 2);
+        exporter.count("restarts", 3);
+        exporter.count("gc.collections", 1, "gc:G1 Young");
+        exporter.count("gc.collections", 4, "gc:G1 Young");
+        exporter.count("odd name|x", 1);
+
+        List<String> lines = flushAndReceive(exporter);
+
+        assertTrue(lines.contains("dmz.restarts:5|c|#env:test"), lines.toString());
+        assertTrue(lines.contains("dmz.gc.collections:5|c|#env:test,gc:G1_Young"), lines.toString());
+        assertTrue(lines.contains("dmz.odd_name_x:1|c|#env:test"), lines.toString());
+        assertEquals(3, lines.size());
+        // Every flush starts over
+        assertEquals(0, exporter.flush());
+    }
+
+    @Test
+    void reportsReservoirSampleRate() throws Exception {
+        StatsdExporter exporter = exporter(1.0);
+        for (int i = 0; i < 256; i++) {
+            exporter.time("tick", 50);
+        }
+
+        List<String> lines = flushAndReceive(exporter);
+
+        // 128 kept out of 256 seen
+        assertEquals(128, lines.size());
+        for (String line : lines) {
+            assertEquals("dmz.tick:50|ms|@0.5|#env:test", line);
+        }
+    }
+
+    @Test
+    void reportsConfiguredTimerSampleRate() throws Exception {
+        StatsdExporter exporter = exporter(0.25);
+        for (int i = 0; i < 200; i++) {
+            exporter.time("tick", 12.5);
+        }
+
+        List<String> lines = flushAndReceive(exporter);
+
+        assertFalse(lines.isEmpty());
+        assertTrue(lines.size() < 128, "sampling should have dropped most values");
+        for (String line : lines) {
+            assertEquals("dmz.tick:12.5|ms|@0.25|#env:test", line);
+        }
+    }
+
+    @Test
+    void keepsCountsRecordedDuringFlush() throws Exception {
+        StatsdExporter exporter = exporter(1.0);
+        int threads = 4;
+        int perThread = 20000;
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicBoolean start = new AtomicBoolean();
+        for (int t = 0; t < threads; t++) {
+            final String key = "key" + t;
+            Thread writer = new Thread(() -> {
+                while (!start.get()) {
+                    Thread.yield();
+                }
+                for (int i = 0; i < perThread; i++) {
+                    exporter.count("hits", 1);
+                    // Rotating tags keep creating keys while flush swaps maps
+                    exporter.count("spread", 1, "k:" + key + (i % 8));
+                }
+                done.countDown();
+            });
+            writer.setDaemon(true);
+            writer.start();
+        }
+
+        double hits = 0;
+        double spread = 0;
+        start.set(true);
+        while (done.getCount() > 0) {
+            List<String> lines = flushAndReceive(exporter);
+            hits += sum(lines, "dmz.hits:");
+            spread += sum(lines, "dmz.spread:");
+        }
+        List<String> lines = flushAndReceive(exporter);
+        hits += sum(lines, "dmz.hits:");
+        spread += sum(lines, "dmz.spread:");
+
+        assertEquals(threads * perThread, hits, 0.0);
+        assertEquals(threads * perThread, spread, 0.0);
+    }
+}